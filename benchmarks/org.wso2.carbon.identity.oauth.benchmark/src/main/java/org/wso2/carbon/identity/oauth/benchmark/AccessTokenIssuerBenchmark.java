@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks AccessTokenIssuer.issue for the client credentials grant, which covers client lookup, scope validation,
+ * token generation and token persistence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccessTokenIssuerBenchmark {
+
+    @Param({"Default", "JWT"})
+    public String tokenType;
+
+    @Param({"false", "true"})
+    public boolean hashTokens;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private AccessTokenIssuer accessTokenIssuer;
+    private String clientId;
+    private long requestCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(hashTokens, cacheEnabled);
+        BenchmarkEnvironment.startTenantFlow();
+        accessTokenIssuer = AccessTokenIssuer.getInstance();
+        clientId = BenchmarkEnvironment.getClientId(tokenType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        BenchmarkEnvironment.endTenantFlow();
+    }
+
+    /**
+     * Every request asks for a distinct scope, so no active token can be reused and a new token is generated and
+     * persisted each time.
+     */
+    @Benchmark
+    public OAuth2AccessTokenRespDTO issueNewToken() throws Exception {
+
+        return issue("benchmark_" + requestCount++);
+    }
+
+    /**
+     * Every request asks for the same scope, so opaque tokens are served from the active token found in the cache
+     * or the database. JWT tokens are renewed per request.
+     */
+    @Benchmark
+    public OAuth2AccessTokenRespDTO issueExistingToken() throws Exception {
+
+        return issue("benchmark");
+    }
+
+    private OAuth2AccessTokenRespDTO issue(String scope) throws Exception {
+
+        OAuth2AccessTokenRespDTO tokenRespDTO =
+                accessTokenIssuer.issue(BenchmarkEnvironment.buildClientCredentialsRequest(clientId, scope));
+        if (tokenRespDTO.isError()) {
+            throw new IllegalStateException("Token request failed: " + tokenRespDTO.getErrorMsg());
+        }
+        return tokenRespDTO;
+    }
+}
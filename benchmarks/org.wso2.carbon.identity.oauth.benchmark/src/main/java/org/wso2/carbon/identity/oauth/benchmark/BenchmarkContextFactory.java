@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.spi.InitialContextFactory;
+
+/**
+ * Minimal JNDI context factory used by the benchmarks. The identity persistence manager looks up the identity data
+ * source through JNDI, so the embedded H2 data source is bound here instead of mocking the persistence layer.
+ */
+public class BenchmarkContextFactory implements InitialContextFactory {
+
+    private static final Map<String, Object> BINDINGS = new ConcurrentHashMap<>();
+
+    /**
+     * Bind an object to the given JNDI name.
+     *
+     * @param name   JNDI name, e.g. jdbc/WSO2IdentityDB.
+     * @param object Object to bind.
+     */
+    public static void bind(String name, Object object) {
+
+        BINDINGS.put(name, object);
+    }
+
+    @Override
+    public Context getInitialContext(Hashtable<?, ?> environment) {
+
+        return (Context) Proxy.newProxyInstance(BenchmarkContextFactory.class.getClassLoader(),
+                new Class[]{Context.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "lookup":
+                            String name = String.valueOf(args[0]);
+                            Object bound = BINDINGS.get(name);
+                            if (bound == null) {
+                                throw new NameNotFoundException(name + " is not bound in the benchmark context.");
+                            }
+                            return bound;
+                        case "close":
+                            return null;
+                        case "getEnvironment":
+                            return new Hashtable<>(environment);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return BenchmarkContextFactory.class.getSimpleName();
+                        default:
+                            throw new OperationNotSupportedException(method.getName() +
+                                    " is not supported by the benchmark context.");
+                    }
+                });
+    }
+}
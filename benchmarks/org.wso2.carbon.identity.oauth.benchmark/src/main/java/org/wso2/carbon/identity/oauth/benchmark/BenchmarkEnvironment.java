@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.wso2.carbon.base.CarbonBaseConstants;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authentication.framework.internal.FrameworkServiceDataHolder;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.ClaimConfig;
+import org.wso2.carbon.identity.application.common.model.LocalAndOutboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDAO;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
+import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.user.core.UserRealm;
+import org.wso2.carbon.user.core.common.AbstractUserStoreManager;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.naming.Context;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Boots the parts of the carbon runtime needed by the OAuth token paths inside a benchmark JVM.
+ * <p>
+ * The identity database is an embedded H2 database created from the h2.sql script of the OAuth component tests and
+ * exposed through JNDI. The carbon home is a copy of the OAuth component test carbon home, with identity.xml adjusted
+ * for the token hashing and cache settings of the benchmark. Since the OAuth configuration is read once per JVM, a
+ * benchmark JVM can only be started with one such setting, which matches how JMH forks a JVM per parameter set.
+ */
+public final class BenchmarkEnvironment {
+
+    public static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    public static final int TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+    public static final String APP_OWNER = "admin";
+    public static final String APP_OWNER_ID = "4b4414e1-916b-4475-aaee-6b0751c29ff6";
+    public static final String USER_STORE_DOMAIN = "PRIMARY";
+    public static final String CLIENT_SECRET = "benchmarkClientSecret";
+
+    private static final String CARBON_HOME_PROPERTY = "benchmark.carbon.home";
+    private static final String DEFAULT_CARBON_HOME = Paths.get("target", "carbon-home").toString();
+    private static final String IDENTITY_DATA_SOURCE = "jdbc/WSO2IdentityDB";
+    private static final String DB_SCRIPT = "classpath:dbScripts/h2.sql";
+    private static final String KEY_STORE_PASSWORD = "wso2carbon";
+    private static final String KEY_ALIAS = "wso2carbon";
+    // EC key store with a key per ECDSA algorithm, aliased by the lower case algorithm name, e.g. es256.
+    private static final String EC_KEY_STORE = "security/benchmark-ec.jks";
+    private static final String EC_KEY_STORE_PASSWORD = "benchmark";
+    private static final String PLAIN_TEXT_PROCESSOR =
+            "org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcessor";
+    private static final String HASHING_PROCESSOR =
+            "org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor";
+
+    private static String startedConfiguration;
+    private static Path startedCarbonHome;
+
+    private BenchmarkEnvironment() {
+
+    }
+
+    /**
+     * Start the benchmark environment once per JVM.
+     *
+     * @param hashTokens   Whether tokens and client secrets are persisted hashed.
+     * @param cacheEnabled Whether the OAuth cache, the introspection cache and the JWKS cache are enabled.
+     * @throws Exception If the environment could not be started.
+     */
+    public static synchronized void start(boolean hashTokens, boolean cacheEnabled) throws Exception {
+
+        String configuration = "hashTokens=" + hashTokens + ",cacheEnabled=" + cacheEnabled;
+        if (startedConfiguration != null) {
+            if (!startedConfiguration.equals(configuration)) {
+                throw new IllegalStateException("The benchmark environment is already started with " +
+                        startedConfiguration + ". Run benchmarks with different settings in a separate fork.");
+            }
+            return;
+        }
+
+        Path carbonHome = prepareCarbonHome(hashTokens, cacheEnabled);
+        System.setProperty(CarbonBaseConstants.CARBON_HOME, carbonHome.toString());
+
+        initDataSource();
+        initServices();
+        startedCarbonHome = carbonHome;
+        useSigningKey(JWSAlgorithm.RS256.getName());
+
+        startTenantFlow();
+        try {
+            OAuthServerConfiguration.getInstance();
+            registerApplication(getClientId(OAuthServerConfiguration.DEFAULT_TOKEN_TYPE),
+                    OAuthServerConfiguration.DEFAULT_TOKEN_TYPE);
+            registerApplication(getClientId(OAuthServerConfiguration.JWT_TOKEN_TYPE),
+                    OAuthServerConfiguration.JWT_TOKEN_TYPE);
+        } finally {
+            endTenantFlow();
+        }
+        startedConfiguration = configuration;
+    }
+
+    /**
+     * Use the key matching the given JWS algorithm as the signing key of the benchmark tenant. RSA algorithms use the
+     * key of the carbon home key store and ECDSA algorithms a key on the curve of the algorithm.
+     *
+     * @param algorithm JWS algorithm name, e.g. RS256 or ES256.
+     * @throws Exception If the key cannot be loaded.
+     */
+    public static void useSigningKey(String algorithm) throws Exception {
+
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        String alias;
+        char[] password;
+        if (JWSAlgorithm.Family.EC.contains(JWSAlgorithm.parse(algorithm))) {
+            alias = algorithm.toLowerCase(Locale.ENGLISH);
+            password = EC_KEY_STORE_PASSWORD.toCharArray();
+            try (InputStream inputStream = BenchmarkEnvironment.class.getClassLoader()
+                    .getResourceAsStream(EC_KEY_STORE)) {
+                if (inputStream == null) {
+                    throw new IllegalStateException("No EC key store found at " + EC_KEY_STORE);
+                }
+                keyStore.load(inputStream, password);
+            }
+        } else {
+            alias = KEY_ALIAS;
+            password = KEY_STORE_PASSWORD.toCharArray();
+            Path keyStorePath = startedCarbonHome.resolve(Paths.get("repository", "resources", "security",
+                    "wso2carbon.jks"));
+            try (InputStream inputStream = Files.newInputStream(keyStorePath)) {
+                keyStore.load(inputStream, password);
+            }
+        }
+        Key privateKey = keyStore.getKey(alias, password);
+        if (privateKey == null) {
+            throw new IllegalStateException("No signing key found for the algorithm: " + algorithm);
+        }
+        setSigningKey(privateKey, keyStore.getCertificate(alias));
+    }
+
+    /**
+     * Start a super tenant flow on the calling thread. JMH may run the benchmark methods on threads other than the
+     * one which started the environment, so each benchmark thread has to call this.
+     */
+    public static void startTenantFlow() {
+
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantDomain(TENANT_DOMAIN);
+        carbonContext.setTenantId(TENANT_ID);
+        carbonContext.setUsername(APP_OWNER);
+    }
+
+    /**
+     * End the tenant flow started on the calling thread.
+     */
+    public static void endTenantFlow() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    /**
+     * Get the client id of the benchmark application which issues tokens of the given type.
+     *
+     * @param tokenType Token type, e.g. Default or JWT.
+     * @return Client id.
+     */
+    public static String getClientId(String tokenType) {
+
+        return "benchmark-" + tokenType.toLowerCase(Locale.ENGLISH) + "-client";
+    }
+
+    /**
+     * Build a client credentials token request of an already authenticated client.
+     *
+     * @param clientId Client id.
+     * @param scopes   Requested scopes.
+     * @return Token request.
+     */
+    public static OAuth2AccessTokenReqDTO buildClientCredentialsRequest(String clientId, String... scopes) {
+
+        OAuthClientAuthnContext clientAuthnContext = new OAuthClientAuthnContext();
+        clientAuthnContext.setClientId(clientId);
+        clientAuthnContext.setAuthenticated(true);
+
+        OAuth2AccessTokenReqDTO tokenReqDTO = new OAuth2AccessTokenReqDTO();
+        tokenReqDTO.setClientId(clientId);
+        tokenReqDTO.setClientSecret(CLIENT_SECRET);
+        tokenReqDTO.setGrantType(OAuthConstants.GrantTypes.CLIENT_CREDENTIALS);
+        tokenReqDTO.setScope(scopes);
+        tokenReqDTO.setTenantDomain(TENANT_DOMAIN);
+        tokenReqDTO.setoAuthClientAuthnContext(clientAuthnContext);
+        return tokenReqDTO;
+    }
+
+    private static Path prepareCarbonHome(boolean hashTokens, boolean cacheEnabled) throws IOException {
+
+        Path sourceHome = Paths.get(System.getProperty(CARBON_HOME_PROPERTY, DEFAULT_CARBON_HOME));
+        if (!Files.isDirectory(sourceHome.resolve("repository"))) {
+            throw new IllegalStateException("No carbon home found at " + sourceHome.toAbsolutePath() +
+                    ". Build the benchmark module or set -D" + CARBON_HOME_PROPERTY + ".");
+        }
+
+        Path carbonHome = Files.createTempDirectory("oauth-benchmark-carbon-home");
+        try (Stream<Path> paths = Files.walk(sourceHome)) {
+            for (Path source : (Iterable<Path>) paths::iterator) {
+                Path target = carbonHome.resolve(sourceHome.relativize(source).toString());
+                if (Files.isDirectory(source)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(source, target);
+                }
+            }
+        }
+
+        Path identityXml = carbonHome.resolve(Paths.get("repository", "conf", "identity", "identity.xml"));
+        String identityConfig = new String(Files.readAllBytes(identityXml), StandardCharsets.UTF_8);
+        if (hashTokens) {
+            identityConfig = identityConfig.replace(PLAIN_TEXT_PROCESSOR, HASHING_PROCESSOR);
+        }
+        identityConfig = identityConfig.replace("<Cache name=\"OAuthCache\" enable=\"false\"",
+                "<Cache name=\"OAuthCache\" enable=\"" + cacheEnabled + "\"");
+        identityConfig = identityConfig.replace("<OAuth>", "<OAuth>\n        <TokenValidation>\n" +
+                "            <IntrospectionCache>\n" +
+                "                <Enable>" + cacheEnabled + "</Enable>\n" +
+                "            </IntrospectionCache>\n" +
+                "        </TokenValidation>\n" +
+                "        <JWT>\n" +
+                "            <SigningKeyRevalidationInterval>-1</SigningKeyRevalidationInterval>\n" +
+                "        </JWT>\n" +
+                "        <JWKSEndpoint>\n" +
+                "            <EnableCache>" + cacheEnabled + "</EnableCache>\n" +
+                "        </JWKSEndpoint>");
+        Files.write(identityXml, identityConfig.getBytes(StandardCharsets.UTF_8));
+        return carbonHome;
+    }
+
+    private static void initDataSource() throws Exception {
+
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "username", "password");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("RUNSCRIPT FROM '" + DB_SCRIPT + "'");
+        }
+        BenchmarkContextFactory.bind(IDENTITY_DATA_SOURCE, dataSource);
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, BenchmarkContextFactory.class.getName());
+    }
+
+    private static void initServices() throws Exception {
+
+        TenantManager tenantManager = mock(TenantManager.class);
+        when(tenantManager.getTenantId(TENANT_DOMAIN)).thenReturn(TENANT_ID);
+        when(tenantManager.getDomain(TENANT_ID)).thenReturn(TENANT_DOMAIN);
+
+        AbstractUserStoreManager userStoreManager = mock(AbstractUserStoreManager.class);
+        when(userStoreManager.getUserIDFromUserName(anyString())).thenReturn(APP_OWNER_ID);
+        when(userStoreManager.getUserNameFromUserID(anyString())).thenReturn(APP_OWNER);
+        UserRealm userRealm = mock(UserRealm.class);
+        when(userRealm.getUserStoreManager()).thenReturn(userStoreManager);
+
+        RealmService realmService = mock(RealmService.class);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        when(realmService.getTenantUserRealm(anyInt())).thenReturn(userRealm);
+
+        IdentityTenantUtil.setRealmService(realmService);
+        OAuthComponentServiceHolder.getInstance().setRealmService(realmService);
+        FrameworkServiceDataHolder.getInstance().setRealmService(realmService);
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationName("benchmark");
+        serviceProvider.setClaimConfig(new ClaimConfig());
+        serviceProvider.setLocalAndOutBoundAuthenticationConfig(new LocalAndOutboundAuthenticationConfig());
+        ApplicationManagementService applicationMgtService = mock(ApplicationManagementService.class);
+        when(applicationMgtService.getServiceProviderByClientId(anyString(), anyString(), anyString()))
+                .thenReturn(serviceProvider);
+        when(applicationMgtService.getApplicationExcludingFileBasedSPs(anyString(), anyString()))
+                .thenReturn(serviceProvider);
+        OAuth2ServiceComponentHolder.setApplicationMgtService(applicationMgtService);
+        OAuth2ServiceComponentHolder.setKeyIDProvider(new DefaultKeyIDProviderImpl());
+    }
+
+    private static void registerApplication(String clientId, String tokenType) throws Exception {
+
+        AuthenticatedUser appOwner = new AuthenticatedUser();
+        appOwner.setUserName(APP_OWNER);
+        appOwner.setUserId(APP_OWNER_ID);
+        appOwner.setTenantDomain(TENANT_DOMAIN);
+        appOwner.setUserStoreDomain(USER_STORE_DOMAIN);
+
+        OAuthAppDO appDO = new OAuthAppDO();
+        appDO.setApplicationName(clientId);
+        appDO.setOauthConsumerKey(clientId);
+        appDO.setOauthConsumerSecret(CLIENT_SECRET);
+        appDO.setAppOwner(appOwner);
+        appDO.setCallbackUrl("https://localhost/callback");
+        appDO.setGrantTypes(OAuthConstants.GrantTypes.CLIENT_CREDENTIALS);
+        appDO.setOauthVersion(OAuthConstants.OAuthVersions.VERSION_2);
+        appDO.setTokenType(tokenType);
+        appDO.setApplicationAccessTokenExpiryTime(3600);
+        appDO.setUserAccessTokenExpiryTime(3600);
+        appDO.setRefreshTokenExpiryTime(86400);
+        appDO.setIdTokenExpiryTime(3600);
+        new OAuthAppDAO().addOAuthApplication(appDO);
+    }
+
+    /**
+     * The signing key and certificate are placed in the OAuth2Util key caches, so the signing path does not need the
+     * registry backed KeyStoreManager. The signing contexts built from a previous key are dropped.
+     */
+    @SuppressWarnings("unchecked")
+    private static void setSigningKey(Key privateKey, Certificate certificate) throws Exception {
+
+        OAuth2Util.clearSigningKeyCache(TENANT_ID);
+
+        Field privateKeys = OAuth2Util.class.getDeclaredField("privateKeys");
+        privateKeys.setAccessible(true);
+        ((Map<Integer, Key>) privateKeys.get(null)).put(TENANT_ID, privateKey);
+
+        Field publicCerts = OAuth2Util.class.getDeclaredField("publicCerts");
+        publicCerts.setAccessible(true);
+        ((Map<Integer, Certificate>) publicCerts.get(null)).put(TENANT_ID, certificate);
+    }
+}
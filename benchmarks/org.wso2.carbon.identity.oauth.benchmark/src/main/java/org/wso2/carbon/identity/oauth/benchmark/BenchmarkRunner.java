@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Paths;
+
+/**
+ * Entry point of the benchmark jar. Runs the benchmarks selected by the JMH command line options and writes the
+ * results as JSON, so results of different releases can be compared with any JMH result viewer or diff tool.
+ * <p>
+ * The carbon home used by the forked benchmark JVMs is taken from -Dbenchmark.carbon.home and the result file from
+ * -Dbenchmark.result.file.
+ */
+public class BenchmarkRunner {
+
+    private static final String CARBON_HOME_PROPERTY = "benchmark.carbon.home";
+    private static final String RESULT_FILE_PROPERTY = "benchmark.result.file";
+
+    public static void main(String[] args) throws Exception {
+
+        String carbonHome = System.getProperty(CARBON_HOME_PROPERTY, Paths.get("target", "carbon-home").toString());
+        String resultFile = System.getProperty(RESULT_FILE_PROPERTY, Paths.get("target", "jmh-result.json")
+                .toString());
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .jvmArgsAppend("-D" + CARBON_HOME_PROPERTY + "=" + Paths.get(carbonHome).toAbsolutePath())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
+import org.wso2.carbon.identity.oauth.cache.CompactCacheEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing an authorization grant cache entry to the session data store format and reading it back, with
+ * Java serialization of the entry and with the compact entry. The serialized size is reported as the serializedBytes
+ * secondary result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheEntrySerializationBenchmark {
+
+    private static final String[] CLAIM_NAMES = {"username", "emailaddress", "givenname", "lastname", "fullname",
+            "telephone", "mobile", "country", "locality", "role", "groups", "organization", "department",
+            "employeeNumber", "costCenter", "manager", "title", "photourl", "dob", "gender"};
+
+    @Param({"Java", "Compact"})
+    public String serialization;
+
+    @Param({"5", "20"})
+    public int claimCount;
+
+    private AuthorizationGrantCacheEntry entry;
+    private byte[] serializedEntry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        Map<ClaimMapping, String> userAttributes = new HashMap<>();
+        for (int i = 0; i < claimCount; i++) {
+            String claimUri = "http://wso2.org/claims/" + CLAIM_NAMES[i % CLAIM_NAMES.length];
+            userAttributes.put(ClaimMapping.build(claimUri, claimUri, null, true), "value-" + i);
+        }
+        entry = new AuthorizationGrantCacheEntry(userAttributes);
+        entry.setCodeId(UUID.randomUUID().toString());
+        entry.setAuthorizationCode(UUID.randomUUID().toString());
+        entry.setTokenId(UUID.randomUUID().toString());
+        entry.setNonceValue("n-0S6_WzA2Mj");
+        entry.setSubjectClaim("admin@carbon.super");
+        entry.setOidcSessionId(UUID.randomUUID().toString());
+        entry.setAuthTime(System.currentTimeMillis());
+        entry.setMaxAge(-1);
+        entry.setAcrValue(new LinkedHashSet<>(Arrays.asList("urn:mace:incommon:iap:silver", "acr2")));
+        entry.addAmr("BasicAuthenticator");
+        entry.setValidityPeriod(TimeUnit.MINUTES.toNanos(5));
+
+        serializedEntry = write();
+    }
+
+    @Benchmark
+    public byte[] serialize(SerializedSize serializedSize) throws IOException {
+
+        byte[] bytes = write();
+        serializedSize.serializedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public AuthorizationGrantCacheEntry deserialize(SerializedSize serializedSize) throws Exception {
+
+        serializedSize.serializedBytes = serializedEntry.length;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedEntry))) {
+            return CompactCacheEntry.toAuthorizationGrantCacheEntry(in.readObject());
+        }
+    }
+
+    private byte[] write() throws IOException {
+
+        Object storedEntry = "Compact".equals(serialization) ? CompactCacheEntry.of(entry) : entry;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(storedEntry);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Size of the serialized entry, reported as a secondary result of the benchmarks.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SerializedSize {
+
+        public long serializedBytes;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JWTTokenIssuer.accessToken, i.e. building the claim set and signing the JWT access token, without the
+ * rest of the token request. Each signature algorithm signs with a key of the matching type and curve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JWTTokenIssuerBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"RS256", "PS256", "ES256", "ES384", "ES512"})
+    public String algorithm;
+
+    private JWTTokenIssuer jwtTokenIssuer;
+    private OAuthTokenReqMessageContext tokenReqMessageContext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(false, cacheEnabled);
+        BenchmarkEnvironment.startTenantFlow();
+
+        String clientId = BenchmarkEnvironment.getClientId(OAuthServerConfiguration.JWT_TOKEN_TYPE);
+        OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientId);
+        tokenReqMessageContext = new OAuthTokenReqMessageContext(
+                BenchmarkEnvironment.buildClientCredentialsRequest(clientId, "benchmark"));
+        tokenReqMessageContext.setAuthorizedUser(oAuthAppDO.getAppOwner());
+        tokenReqMessageContext.setScope(new String[]{"benchmark"});
+        tokenReqMessageContext.addProperty(AccessTokenIssuer.OAUTH_APP_DO, oAuthAppDO);
+        tokenReqMessageContext.addProperty(OAuthConstants.UserType.USER_TYPE, OAuthConstants.UserType.APPLICATION);
+        BenchmarkEnvironment.useSigningKey(algorithm);
+        jwtTokenIssuer = new JWTTokenIssuer();
+        // The issuer reads the signature algorithm from identity.xml once, hence it is overridden per trial.
+        Field signatureAlgorithm = JWTTokenIssuer.class.getDeclaredField("signatureAlgorithm");
+        signatureAlgorithm.setAccessible(true);
+        signatureAlgorithm.set(jwtTokenIssuer, JWSAlgorithm.parse(algorithm));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        BenchmarkEnvironment.endTenantFlow();
+    }
+
+    @Benchmark
+    public String buildJWTToken() throws Exception {
+
+        return jwtTokenIssuer.accessToken(tokenReqMessageContext);
+    }
+}
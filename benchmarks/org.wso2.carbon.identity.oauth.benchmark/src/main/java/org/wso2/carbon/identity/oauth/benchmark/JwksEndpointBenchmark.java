@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth.endpoint.jwks.JwksEndpoint;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Benchmarks serving the JWKS document of the super tenant through JwksEndpoint.jwks, with the cached document
+ * (cacheEnabled=true) and with the keystore being loaded and the keyset being serialized on every request
+ * (cacheEnabled=false).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JwksEndpointBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private JwksEndpoint jwksEndpoint;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(false, cacheEnabled);
+        BenchmarkEnvironment.startTenantFlow();
+        jwksEndpoint = new JwksEndpoint();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        BenchmarkEnvironment.endTenantFlow();
+    }
+
+    @Benchmark
+    public Object jwks() {
+
+        Response response = jwksEndpoint.jwks(null);
+        if (response.getStatus() != Response.Status.OK.getStatusCode() ||
+                !(response.getEntity() instanceof byte[])) {
+            throw new IllegalStateException("JWKS request failed: " + response.getEntity());
+        }
+        return response.getEntity();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.InMemorySAMLAssertionReplayStore;
+import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.JDBCSAMLAssertionReplayStore;
+import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.SAMLAssertionReplayStore;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks recording new SAML bearer assertions in the replay store and rejecting replayed ones, with 16 threads.
+ * New assertions expire shortly, so the in-memory store sweeps them continuously and stays within its bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class SAMLAssertionReplayStoreBenchmark {
+
+    private static final int MAX_ENTRIES = 2000000;
+    private static final int WHEEL_SIZE = 512;
+    private static final long WHEEL_TICK_MILLIS = 10;
+    private static final long NEW_ASSERTION_LIFETIME_MILLIS = 200;
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS IDN_OAUTH2_SAML_ASSERTION (" +
+            "ASSERTION_KEY VARCHAR (64) NOT NULL, EXPIRY_TIME BIGINT NOT NULL, PRIMARY KEY (ASSERTION_KEY))";
+
+    @Param({"InMemory", "JDBC"})
+    public String store;
+
+    private SAMLAssertionReplayStore replayStore;
+    private String usedAssertionKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        InMemorySAMLAssertionReplayStore localStore =
+                new InMemorySAMLAssertionReplayStore(MAX_ENTRIES, WHEEL_SIZE, WHEEL_TICK_MILLIS);
+        if ("JDBC".equals(store)) {
+            BenchmarkEnvironment.start(false, false);
+            try (Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate(CREATE_TABLE);
+                IdentityDatabaseUtil.commitTransaction(connection);
+            }
+            replayStore = new JDBCSAMLAssertionReplayStore(localStore, TimeUnit.SECONDS.toMillis(1));
+        } else {
+            replayStore = localStore;
+        }
+
+        usedAssertionKey = DigestUtils.sha256Hex(UUID.randomUUID().toString());
+        replayStore.markAsUsed(usedAssertionKey, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+    }
+
+    /**
+     * Keys of the new assertions of a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class AssertionKeys {
+
+        private final String prefix = UUID.randomUUID().toString();
+        private long next;
+
+        String nextKey() {
+
+            return prefix + next++;
+        }
+    }
+
+    @Benchmark
+    public boolean markNewAssertion(AssertionKeys assertionKeys) throws Exception {
+
+        return replayStore.markAsUsed(assertionKeys.nextKey(),
+                System.currentTimeMillis() + NEW_ASSERTION_LIFETIME_MILLIS);
+    }
+
+    @Benchmark
+    public boolean markReplayedAssertion() throws Exception {
+
+        return replayStore.markAsUsed(usedAssertionKey, System.currentTimeMillis() + NEW_ASSERTION_LIFETIME_MILLIS);
+    }
+}
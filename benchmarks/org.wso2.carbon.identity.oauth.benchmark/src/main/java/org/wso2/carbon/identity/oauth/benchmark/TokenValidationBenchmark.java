@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the token validation paths: introspection through TokenValidationHandler.buildIntrospectionResponse,
+ * resolving a token through OAuth2Util.findAccessToken and the access token DAO lookup it ends in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+    private static final String BEARER = "bearer";
+
+    @Param({"Default", "JWT"})
+    public String tokenType;
+
+    @Param({"false", "true"})
+    public boolean hashTokens;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private TokenValidationHandler tokenValidationHandler;
+    private String accessToken;
+    private String accessTokenLookupIdentifier;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(hashTokens, cacheEnabled);
+        BenchmarkEnvironment.startTenantFlow();
+
+        OAuth2AccessTokenRespDTO tokenRespDTO = AccessTokenIssuer.getInstance().issue(BenchmarkEnvironment
+                .buildClientCredentialsRequest(BenchmarkEnvironment.getClientId(tokenType), "benchmark_validation"));
+        if (tokenRespDTO.isError()) {
+            throw new IllegalStateException("Token request failed: " + tokenRespDTO.getErrorMsg());
+        }
+        accessToken = tokenRespDTO.getAccessToken();
+        accessTokenLookupIdentifier = OAuth2Util.findAccessToken(accessToken, false).getAccessToken();
+        tokenValidationHandler = TokenValidationHandler.getInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        BenchmarkEnvironment.endTenantFlow();
+    }
+
+    @Benchmark
+    public OAuth2IntrospectionResponseDTO buildIntrospectionResponse() throws Exception {
+
+        OAuth2TokenValidationRequestDTO validationRequestDTO = new OAuth2TokenValidationRequestDTO();
+        OAuth2TokenValidationRequestDTO.OAuth2AccessToken token = validationRequestDTO.new OAuth2AccessToken();
+        token.setTokenType(BEARER);
+        token.setIdentifier(accessToken);
+        validationRequestDTO.setAccessToken(token);
+
+        OAuth2IntrospectionResponseDTO introspectionResponse =
+                tokenValidationHandler.buildIntrospectionResponse(validationRequestDTO);
+        if (!introspectionResponse.isActive()) {
+            throw new IllegalStateException("Introspection failed: " + introspectionResponse.getError());
+        }
+        return introspectionResponse;
+    }
+
+    @Benchmark
+    public AccessTokenDO findAccessToken() throws Exception {
+
+        return OAuth2Util.findAccessToken(accessToken, false);
+    }
+
+    /**
+     * Token lookup straight from the persistence layer, without the token issuer resolution and the OAuth cache.
+     */
+    @Benchmark
+    public AccessTokenDO getAccessTokenFromDB() throws Exception {
+
+        return OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                .getAccessToken(accessTokenLookupIdentifier, false);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.apache.oltu.oauth2.as.issuer.OAuthIssuerImpl;
+import org.apache.oltu.oauth2.as.issuer.UUIDValueGenerator;
+import org.apache.oltu.oauth2.as.issuer.ValueGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth.tokenvaluegenerator.SHA256Generator;
+import org.wso2.carbon.identity.oauth.tokenvaluegenerator.SecureRandomGenerator;
+import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuerImpl;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the token value generators under concurrent token issuance, both directly and through
+ * {@link OauthTokenIssuerImpl}, which generates every opaque access token, refresh token and authorization code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class TokenValueGeneratorBenchmark {
+
+    @Param({"UUID", "SHA256", "SecureRandom"})
+    public String generator;
+
+    private ValueGenerator valueGenerator;
+    private OauthTokenIssuerImpl tokenIssuer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(false, false);
+        switch (generator) {
+            case "SHA256":
+                valueGenerator = new SHA256Generator();
+                break;
+            case "SecureRandom":
+                valueGenerator = new SecureRandomGenerator();
+                break;
+            default:
+                valueGenerator = new UUIDValueGenerator();
+        }
+
+        tokenIssuer = new OauthTokenIssuerImpl();
+        Field issuer = OauthTokenIssuerImpl.class.getDeclaredField("oAuthIssuerImpl");
+        issuer.setAccessible(true);
+        issuer.set(tokenIssuer, new OAuthIssuerImpl(valueGenerator));
+    }
+
+    @Benchmark
+    public String generateValue() throws Exception {
+
+        return valueGenerator.generateValue();
+    }
+
+    @Benchmark
+    public String issueAccessToken() throws Exception {
+
+        return tokenIssuer.accessToken((OAuthTokenReqMessageContext) null);
+    }
+}
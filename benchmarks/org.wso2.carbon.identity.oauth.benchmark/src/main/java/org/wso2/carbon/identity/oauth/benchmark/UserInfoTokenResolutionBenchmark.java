@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the token resolution done by a userinfo request: the validator resolves the presented token, after which
+ * the response builder and the claim retrieval resolve the token identifier, the client id, the authenticated user
+ * and the grant type from it. Runs with and without a {@link TokenResolutionContext} shared by these lookups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserInfoTokenResolutionBenchmark {
+
+    private static final String BEARER = "bearer";
+
+    @Param({"Default", "JWT"})
+    public String tokenType;
+
+    @Param({"false", "true"})
+    public boolean hashTokens;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"true", "false"})
+    public boolean resolutionContext;
+
+    private OAuth2TokenValidationResponseDTO tokenResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.start(hashTokens, cacheEnabled);
+        BenchmarkEnvironment.startTenantFlow();
+
+        OAuth2AccessTokenRespDTO tokenRespDTO = AccessTokenIssuer.getInstance().issue(BenchmarkEnvironment
+                .buildClientCredentialsRequest(BenchmarkEnvironment.getClientId(tokenType), "openid"));
+        if (tokenRespDTO.isError()) {
+            throw new IllegalStateException("Token request failed: " + tokenRespDTO.getErrorMsg());
+        }
+        tokenResponse = new OAuth2TokenValidationResponseDTO();
+        tokenResponse.setAuthorizationContextToken(
+                tokenResponse.new AuthorizationContextToken(BEARER, tokenRespDTO.getAccessToken()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        BenchmarkEnvironment.endTenantFlow();
+    }
+
+    @Benchmark
+    public String resolveUserInfoToken() throws Exception {
+
+        if (resolutionContext) {
+            TokenResolutionContext.start();
+        }
+        try {
+            String tokenString = tokenResponse.getAuthorizationContextToken().getTokenString();
+            // Token validation.
+            AccessTokenDO accessTokenDO = OAuth2Util.findAccessToken(tokenString, false);
+            TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
+            if (tokenResolutionContext != null) {
+                tokenResolutionContext.setAccessTokenDO(tokenString, accessTokenDO);
+            }
+
+            // Claim retrieval and response building.
+            String clientId = OAuth2Util.getClientIdForAccessToken(OAuth2Util.getAccessTokenIdentifier(tokenResponse));
+            OAuth2Util.getAccessTokenDOfromTokenIdentifier(OAuth2Util.getAccessTokenIdentifier(tokenResponse));
+            OAuth2Util.getAccessTokenDOfromTokenIdentifier(OAuth2Util.getAccessTokenIdentifier(tokenResponse))
+                    .getGrantType();
+            OAuth2Util.getAccessTokenDOfromTokenIdentifier(OAuth2Util.getAccessTokenIdentifier(tokenResponse));
+            OAuth2Util.getAccessTokenIdentifier(tokenResponse);
+            return clientId;
+        } finally {
+            if (resolutionContext) {
+                TokenResolutionContext.clear();
+            }
+        }
+    }
+}
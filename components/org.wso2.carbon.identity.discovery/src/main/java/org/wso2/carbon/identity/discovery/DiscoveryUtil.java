@@ -19,15 +19,27 @@
 package org.wso2.carbon.identity.discovery;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 
+import javax.servlet.http.HttpServletRequest;
+
 /**
  * Utility to handle OIDC Discovery related functionality.
  */
 public class DiscoveryUtil {
 
+    private static final Log log = LogFactory.getLog(DiscoveryUtil.class);
+
     public static final String OIDC_USE_ENTITY_ID_AS_ISSUER_IN_DISCOVERY = "OAuth" +
             ".UseEntityIdAsIssuerInOidcDiscovery";
+    // These config properties are defined in identity.xml
+    public static final String OIDC_DISCOVERY_CACHE_ENABLE = "OAuth.OIDCDiscovery.EnableCache";
+    public static final String OIDC_DISCOVERY_CACHE_MAX_AGE = "OAuth.OIDCDiscovery.CacheMaxAge";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String WEAK_ETAG_PREFIX = "W/";
+    private static final int DEFAULT_OIDC_DISCOVERY_CACHE_MAX_AGE = 300;
 
     /**
      * Resident Idp entity id is honoured as the OIDC issuer location based on the configuration. This addresses
@@ -42,4 +54,60 @@ public class DiscoveryUtil {
         }
         return Boolean.parseBoolean(useEntityIdAsIssuerInDiscovery);
     }
+
+    /**
+     * Rendered discovery metadata is cached and served with validators unless disabled by the configuration.
+     */
+    public static boolean isDiscoveryCacheEnabled() {
+
+        String cacheEnabled = IdentityUtil.getProperty(OIDC_DISCOVERY_CACHE_ENABLE);
+        return StringUtils.isBlank(cacheEnabled) || Boolean.parseBoolean(cacheEnabled.trim());
+    }
+
+    /**
+     * Time in seconds the rendered discovery metadata is cached by the server and by the clients.
+     */
+    public static int getDiscoveryCacheMaxAge() {
+
+        String maxAge = IdentityUtil.getProperty(OIDC_DISCOVERY_CACHE_MAX_AGE);
+        if (StringUtils.isNotBlank(maxAge)) {
+            try {
+                return Integer.parseInt(maxAge.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + maxAge + " configured for: " + OIDC_DISCOVERY_CACHE_MAX_AGE +
+                        ". Using the default value: " + DEFAULT_OIDC_DISCOVERY_CACHE_MAX_AGE);
+            }
+        }
+        return DEFAULT_OIDC_DISCOVERY_CACHE_MAX_AGE;
+    }
+
+    /**
+     * Check whether the client already has the current representation, i.e. one of the entity tags of the
+     * If-None-Match header of the request matches the entity tag of the representation.
+     *
+     * @param request HTTP request.
+     * @param eTag    Opaque entity tag of the current representation, without the quotes.
+     * @return True if the client already has the current representation.
+     */
+    public static boolean isNotModified(HttpServletRequest request, String eTag) {
+
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER);
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String entityTag : ifNoneMatch.split(",")) {
+            entityTag = entityTag.trim();
+            if ("*".equals(entityTag)) {
+                return true;
+            }
+            // Entity tags are compared weakly for GET requests.
+            if (entityTag.startsWith(WEAK_ETAG_PREFIX)) {
+                entityTag = entityTag.substring(WEAK_ETAG_PREFIX.length());
+            }
+            if (("\"" + eTag + "\"").equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.discovery.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Rendered OIDC discovery metadata of a tenant along with the validators required to serve conditional requests.
+ */
+public class OIDCDiscoveryDocument {
+
+    private final String content;
+    private final String eTag;
+    private final Date lastModified;
+    private final long builtTime;
+
+    /**
+     * @param content Rendered metadata.
+     */
+    public OIDCDiscoveryDocument(String content) {
+
+        this.content = content;
+        this.eTag = buildETag(content);
+        this.builtTime = System.currentTimeMillis();
+        // HTTP dates are only precise to the second.
+        this.lastModified = new Date(builtTime / 1000 * 1000);
+    }
+
+    public String getContent() {
+
+        return content;
+    }
+
+    public String getETag() {
+
+        return eTag;
+    }
+
+    public Date getLastModified() {
+
+        return lastModified;
+    }
+
+    /**
+     * Check whether the metadata is still valid to be served.
+     *
+     * @param lifetimeMillis Time in milliseconds the metadata is served after it was rendered.
+     * @return True if the metadata was rendered within its lifetime.
+     */
+    public boolean isValid(long lifetimeMillis) {
+
+        return System.currentTimeMillis() - builtTime < lifetimeMillis;
+    }
+
+    private static String buildETag(String content) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+}
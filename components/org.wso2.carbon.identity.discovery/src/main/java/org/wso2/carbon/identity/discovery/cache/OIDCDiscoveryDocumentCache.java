@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.discovery.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node local cache of the rendered OIDC discovery metadata, keyed by the tenant domain and the name of the metadata,
+ * e.g. the discovery document of an issuer path.
+ * <p>
+ * Every node renders the metadata from the same configuration, and the server configuration is only loaded when the
+ * node starts, hence the cache does not need to be distributed. Cached metadata is only served within its lifetime,
+ * which bounds the time changes to the tenant configuration such as the OIDC scopes and claims take to be published.
+ * The metadata of a tenant is evicted explicitly when the tenant is updated.
+ */
+public class OIDCDiscoveryDocumentCache {
+
+    private static final Log log = LogFactory.getLog(OIDCDiscoveryDocumentCache.class);
+    private static final OIDCDiscoveryDocumentCache instance = new OIDCDiscoveryDocumentCache();
+
+    private final Map<String, Map<String, OIDCDiscoveryDocument>> documents = new ConcurrentHashMap<>();
+
+    private OIDCDiscoveryDocumentCache() {
+
+    }
+
+    public static OIDCDiscoveryDocumentCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the cached metadata of the tenant if it is still valid.
+     *
+     * @param tenantDomain   Tenant domain.
+     * @param name           Name of the metadata.
+     * @param lifetimeMillis Time in milliseconds the metadata is served after it was rendered.
+     * @return Cached metadata or null if there is no valid metadata.
+     */
+    public OIDCDiscoveryDocument getDocument(String tenantDomain, String name, long lifetimeMillis) {
+
+        Map<String, OIDCDiscoveryDocument> tenantDocuments = documents.get(tenantDomain);
+        if (tenantDocuments == null) {
+            return null;
+        }
+        OIDCDiscoveryDocument document = tenantDocuments.get(name);
+        if (document == null) {
+            return null;
+        }
+        if (!document.isValid(lifetimeMillis)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Evicting the expired OIDC discovery metadata: " + name + " of tenant: " + tenantDomain);
+            }
+            tenantDocuments.remove(name, document);
+            return null;
+        }
+        return document;
+    }
+
+    public void addDocument(String tenantDomain, String name, OIDCDiscoveryDocument document) {
+
+        documents.computeIfAbsent(tenantDomain, key -> new ConcurrentHashMap<>()).put(name, document);
+    }
+
+    /**
+     * Evict the cached metadata of the tenant, e.g. when the tenant is updated.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void clearDocuments(String tenantDomain) {
+
+        documents.remove(tenantDomain);
+    }
+
+    public void clear() {
+
+        documents.clear();
+    }
+}
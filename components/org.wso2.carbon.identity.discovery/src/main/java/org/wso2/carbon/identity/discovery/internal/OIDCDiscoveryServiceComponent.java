@@ -29,6 +29,7 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataManagementService;
 import org.wso2.carbon.identity.discovery.DefaultOIDCProcessor;
 import org.wso2.carbon.identity.discovery.OIDCProcessor;
+import org.wso2.carbon.stratos.common.listeners.TenantMgtListener;
 
 /**
  * Service component for OpenID Connect Discovery.
@@ -49,6 +50,8 @@ public class OIDCDiscoveryServiceComponent {
         try {
             bundleContext = context.getBundleContext();
             bundleContext.registerService(OIDCProcessor.class.getName(), DefaultOIDCProcessor.getInstance(), null);
+            bundleContext.registerService(TenantMgtListener.class.getName(), new OIDCDiscoveryTenantMgtListener(),
+                    null);
             // exposing server configuration as a service
             if (log.isDebugEnabled()) {
                 log.debug("Identity OIDCDiscovery bundle is activated");
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.discovery.internal;
+
+import org.wso2.carbon.identity.core.AbstractIdentityTenantMgtListener;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocumentCache;
+import org.wso2.carbon.stratos.common.beans.TenantInfoBean;
+import org.wso2.carbon.stratos.common.exception.StratosException;
+
+/**
+ * Tenant management listener which evicts the cached discovery metadata of a tenant when the tenant changes.
+ */
+public class OIDCDiscoveryTenantMgtListener extends AbstractIdentityTenantMgtListener {
+
+    @Override
+    public void onTenantUpdate(TenantInfoBean tenantInfo) throws StratosException {
+
+        OIDCDiscoveryDocumentCache.getInstance().clearDocuments(tenantInfo.getTenantDomain());
+    }
+
+    @Override
+    public void onTenantDeactivation(int tenantId) throws StratosException {
+
+        OIDCDiscoveryDocumentCache.getInstance().clearDocuments(IdentityTenantUtil.getTenantDomain(tenantId));
+    }
+
+    @Override
+    public void onPreDelete(int tenantId) throws StratosException {
+
+        OIDCDiscoveryDocumentCache.getInstance().clearDocuments(IdentityTenantUtil.getTenantDomain(tenantId));
+    }
+}
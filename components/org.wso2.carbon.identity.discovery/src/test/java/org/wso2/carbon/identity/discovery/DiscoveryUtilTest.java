@@ -25,11 +25,16 @@ import org.testng.annotations.ObjectFactory;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 
+import javax.servlet.http.HttpServletRequest;
+
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.wso2.carbon.identity.discovery.DiscoveryUtil.OIDC_USE_ENTITY_ID_AS_ISSUER_IN_DISCOVERY;
 
 /**
@@ -63,4 +68,25 @@ public class DiscoveryUtilTest {
             .thenReturn(Boolean.FALSE.toString());
         assertEquals(DiscoveryUtil.isUseEntityIdAsIssuerInOidcDiscovery(), false);
     }
+
+    @Test
+    public void testGetDiscoveryCacheMaxAge() {
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.getProperty(eq(DiscoveryUtil.OIDC_DISCOVERY_CACHE_MAX_AGE))).thenReturn("invalid");
+        assertEquals(DiscoveryUtil.getDiscoveryCacheMaxAge(), 300);
+        when(IdentityUtil.getProperty(eq(DiscoveryUtil.OIDC_DISCOVERY_CACHE_MAX_AGE))).thenReturn(" 60 ");
+        assertEquals(DiscoveryUtil.getDiscoveryCacheMaxAge(), 60);
+    }
+
+    @Test
+    public void testIsNotModified() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        assertFalse(DiscoveryUtil.isNotModified(request, "abc"));
+        when(request.getHeader("If-None-Match")).thenReturn("\"xyz\", W/\"abc\"");
+        assertTrue(DiscoveryUtil.isNotModified(request, "abc"));
+        when(request.getHeader("If-None-Match")).thenReturn("\"xyz\"");
+        assertFalse(DiscoveryUtil.isNotModified(request, "abc"));
+        when(request.getHeader("If-None-Match")).thenReturn("*");
+        assertTrue(DiscoveryUtil.isNotModified(request, "abc"));
+    }
 }
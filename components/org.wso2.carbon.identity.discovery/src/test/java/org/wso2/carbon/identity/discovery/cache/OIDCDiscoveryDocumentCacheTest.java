@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.discovery.cache;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit tests covering OIDCDiscoveryDocumentCache class.
+ */
+public class OIDCDiscoveryDocumentCacheTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String ISSUER_PATH = "token";
+    private static final long LIFETIME = 60000;
+
+    private OIDCDiscoveryDocumentCache documentCache;
+
+    @BeforeMethod
+    public void setUp() {
+
+        documentCache = OIDCDiscoveryDocumentCache.getInstance();
+        documentCache.clear();
+    }
+
+    @Test
+    public void testGetDocument() {
+
+        OIDCDiscoveryDocument document = new OIDCDiscoveryDocument("{\"issuer\":\"https://localhost:9443\"}");
+        documentCache.addDocument(TENANT_DOMAIN, ISSUER_PATH, document);
+
+        assertSame(documentCache.getDocument(TENANT_DOMAIN, ISSUER_PATH, LIFETIME), document);
+        assertNull(documentCache.getDocument(TENANT_DOMAIN, "oidcdiscovery", LIFETIME));
+        assertNull(documentCache.getDocument("wso2.com", ISSUER_PATH, LIFETIME));
+    }
+
+    @Test
+    public void testExpiredDocumentIsEvicted() {
+
+        documentCache.addDocument(TENANT_DOMAIN, ISSUER_PATH, new OIDCDiscoveryDocument("{}"));
+
+        assertNull(documentCache.getDocument(TENANT_DOMAIN, ISSUER_PATH, 0));
+        assertNull(documentCache.getDocument(TENANT_DOMAIN, ISSUER_PATH, LIFETIME));
+    }
+
+    @Test
+    public void testClearDocuments() {
+
+        documentCache.addDocument(TENANT_DOMAIN, ISSUER_PATH, new OIDCDiscoveryDocument("{}"));
+        documentCache.clearDocuments(TENANT_DOMAIN);
+
+        assertNull(documentCache.getDocument(TENANT_DOMAIN, ISSUER_PATH, LIFETIME));
+    }
+
+    @Test
+    public void testETag() {
+
+        String content = "{\"issuer\":\"https://localhost:9443\"}";
+        assertEquals(new OIDCDiscoveryDocument(content).getETag(), new OIDCDiscoveryDocument(content).getETag());
+        assertNotEquals(new OIDCDiscoveryDocument(content).getETag(), new OIDCDiscoveryDocument("{}").getETag());
+    }
+}
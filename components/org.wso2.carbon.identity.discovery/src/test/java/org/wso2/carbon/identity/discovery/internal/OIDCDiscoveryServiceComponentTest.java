@@ -87,8 +87,9 @@ public class OIDCDiscoveryServiceComponentTest {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
 
-                DefaultOIDCProcessor defaultOIDCProcessor = (DefaultOIDCProcessor) invocation.getArguments()[1];
-                serviceName[0] = defaultOIDCProcessor.getClass().getName();
+                if (invocation.getArguments()[1] instanceof DefaultOIDCProcessor) {
+                    serviceName[0] = invocation.getArguments()[1].getClass().getName();
+                }
                 return null;
             }
         }).when(bundleContext).registerService(anyString(), any(DefaultOIDCProcessor.class), any(Dictionary.class));
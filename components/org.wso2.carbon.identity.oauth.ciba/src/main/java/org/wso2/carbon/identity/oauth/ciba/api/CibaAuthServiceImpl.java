@@ -120,6 +120,7 @@ public class CibaAuthServiceImpl implements CibaAuthService {
         cibaAuthCodeDO.setInterval(CibaConstants.INTERVAL_DEFAULT_VALUE_IN_SEC);
         cibaAuthCodeDO.setExpiresIn(expiryTime);
         cibaAuthCodeDO.setScopes(scopes);
+        cibaAuthCodeDO.setClientNotificationToken(cibaAuthCodeRequest.getClientNotificationToken());
         return cibaAuthCodeDO;
     }
 
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.cache;
+
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+import org.wso2.carbon.identity.oauth.ciba.common.AuthReqStatus;
+import org.wso2.carbon.identity.oauth.ciba.model.CibaAuthCodeDO;
+
+import java.sql.Timestamp;
+
+/**
+ * State of a CIBA authentication request which is awaiting authentication.
+ * <p>
+ * The poll state is updated in place by the token requests polling on this node, and is written to the database only
+ * when the status of the request changes.
+ */
+public class CibaAuthRequestState extends CacheEntry {
+
+    private static final long serialVersionUID = -4862173950716243518L;
+
+    private final String authCodeKey;
+    private final String authReqId;
+    private final String consumerKey;
+    private final long issuedTime;
+    private final long expiresIn;
+    private volatile long lastPolledTime;
+    private volatile long interval;
+    private volatile boolean pollStateChanged;
+    private volatile long validatedTime;
+
+    private CibaAuthRequestState(CibaAuthCodeDO cibaAuthCodeDO, long validatedTime) {
+
+        this.authCodeKey = cibaAuthCodeDO.getCibaAuthCodeKey();
+        this.authReqId = cibaAuthCodeDO.getAuthReqId();
+        this.consumerKey = cibaAuthCodeDO.getConsumerKey();
+        this.issuedTime = cibaAuthCodeDO.getIssuedTime().getTime();
+        this.expiresIn = cibaAuthCodeDO.getExpiresIn();
+        this.lastPolledTime = cibaAuthCodeDO.getLastPolledTime().getTime();
+        this.interval = cibaAuthCodeDO.getInterval();
+        this.validatedTime = validatedTime;
+    }
+
+    /**
+     * Create the state of a request which is awaiting authentication.
+     *
+     * @param cibaAuthCodeDO CibaAuthCode of the request.
+     * @param validatedTime  Time the status of the request was read from the database.
+     * @return State of the request.
+     */
+    public static CibaAuthRequestState of(CibaAuthCodeDO cibaAuthCodeDO, long validatedTime) {
+
+        return new CibaAuthRequestState(cibaAuthCodeDO, validatedTime);
+    }
+
+    /**
+     * Build the CibaAuthCode of the request with the poll state of this node.
+     *
+     * @return CibaAuthCode of the request.
+     */
+    public CibaAuthCodeDO toCibaAuthCodeDO() {
+
+        CibaAuthCodeDO cibaAuthCodeDO = new CibaAuthCodeDO();
+        cibaAuthCodeDO.setCibaAuthCodeKey(authCodeKey);
+        cibaAuthCodeDO.setAuthReqId(authReqId);
+        cibaAuthCodeDO.setConsumerKey(consumerKey);
+        cibaAuthCodeDO.setIssuedTime(new Timestamp(issuedTime));
+        cibaAuthCodeDO.setExpiresIn(expiresIn);
+        cibaAuthCodeDO.setLastPolledTime(new Timestamp(lastPolledTime));
+        cibaAuthCodeDO.setInterval(interval);
+        cibaAuthCodeDO.setAuthReqStatus(AuthReqStatus.REQUESTED);
+        return cibaAuthCodeDO;
+    }
+
+    public String getAuthCodeKey() {
+
+        return authCodeKey;
+    }
+
+    public String getAuthReqId() {
+
+        return authReqId;
+    }
+
+    public long getLastPolledTime() {
+
+        return lastPolledTime;
+    }
+
+    public void setLastPolledTime(long lastPolledTime) {
+
+        this.lastPolledTime = lastPolledTime;
+        this.pollStateChanged = true;
+    }
+
+    public long getInterval() {
+
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+
+        this.interval = interval;
+        this.pollStateChanged = true;
+    }
+
+    /**
+     * @return true if the poll state is updated since it was read from the database.
+     */
+    public boolean isPollStateChanged() {
+
+        return pollStateChanged;
+    }
+
+    public long getValidatedTime() {
+
+        return validatedTime;
+    }
+
+    public void setValidatedTime(long validatedTime) {
+
+        this.validatedTime = validatedTime;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.cache;
+
+import org.wso2.carbon.identity.application.authentication.framework.cache.AuthenticationBaseCache;
+
+/**
+ * Cache of the CIBA authentication requests which are awaiting authentication, keyed by the CibaAuthCodeKey. An entry
+ * cleared on a node is invalidated on the other nodes of the cluster.
+ */
+public class CibaAuthRequestStateCache extends AuthenticationBaseCache<String, CibaAuthRequestState> {
+
+    private static final String CIBA_AUTH_REQUEST_STATE_CACHE_NAME = "CibaAuthRequestStateCache";
+
+    private static volatile CibaAuthRequestStateCache instance;
+
+    private CibaAuthRequestStateCache() {
+
+        super(CIBA_AUTH_REQUEST_STATE_CACHE_NAME);
+    }
+
+    /**
+     * Returns CibaAuthRequestStateCache singleton instance.
+     *
+     * @return CibaAuthRequestStateCache instance.
+     */
+    public static CibaAuthRequestStateCache getInstance() {
+
+        if (instance == null) {
+            synchronized (CibaAuthRequestStateCache.class) {
+                if (instance == null) {
+                    instance = new CibaAuthRequestStateCache();
+                }
+            }
+        }
+        return instance;
+    }
+}
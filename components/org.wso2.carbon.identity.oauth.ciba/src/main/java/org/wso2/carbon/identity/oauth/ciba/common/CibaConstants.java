@@ -18,6 +18,8 @@
 
 package org.wso2.carbon.identity.oauth.ciba.common;
 
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+
 /**
  * Contains the required constants for CIBA feature.
  */
@@ -45,6 +47,10 @@ public class CibaConstants {
     public static final String UTC = "UTC";
     public static final String EXPIRES_IN = "expires_in";
 
+    // Token delivery modes of the clients. Push mode is rejected when the client is registered.
+    public static final String POLL_MODE = OAuthConstants.CibaTokenDeliveryModes.POLL;
+    public static final String PING_MODE = OAuthConstants.CibaTokenDeliveryModes.PING;
+
     private CibaConstants() {
 
     }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.oauth.ciba.cache.CibaAuthRequestState;
+import org.wso2.carbon.identity.oauth.ciba.cache.CibaAuthRequestStateCache;
+import org.wso2.carbon.identity.oauth.ciba.common.AuthReqStatus;
+import org.wso2.carbon.identity.oauth.ciba.exceptions.CibaCoreException;
+import org.wso2.carbon.identity.oauth.ciba.model.CibaAuthCodeDO;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CibaMgtDAO} which keeps the CIBA authentication requests awaiting authentication in memory.
+ * <p>
+ * Token requests polling for a request which is awaiting authentication are served from the
+ * {@link CibaAuthRequestStateCache}, and their last polled time and polling interval are only kept in the memory of
+ * the node. The poll state is written to the database when the status of the request changes, and the cache entry is
+ * then cleared on all the nodes, so that the next poll reads the new status from the database. The status of a cached
+ * request is read again from the database after the status refresh interval, which bounds the time a node may serve a
+ * stale status when a status change races with a poll on that node.
+ */
+public class CachedCibaMgtDAO implements CibaMgtDAO {
+
+    private static final Log log = LogFactory.getLog(CachedCibaMgtDAO.class);
+
+    private static final int MAX_AUTH_CODE_KEYS = 10000;
+
+    private final CibaMgtDAO cibaMgtDAO;
+    private final CibaAuthRequestStateCache stateCache;
+    private final long statusRefreshIntervalMillis;
+    // The CibaAuthCodeKey of an auth_req_id never changes, so the mapping is kept on each node without invalidation.
+    private final Map<String, String> authCodeKeys = new ConcurrentHashMap<>();
+
+    /**
+     * @param cibaMgtDAO                  DAO which accesses the database.
+     * @param stateCache                  Cache of the requests awaiting authentication.
+     * @param statusRefreshIntervalMillis Time in milliseconds after which the status of a cached request is read
+     *                                    again from the database.
+     */
+    public CachedCibaMgtDAO(CibaMgtDAO cibaMgtDAO, CibaAuthRequestStateCache stateCache,
+                            long statusRefreshIntervalMillis) {
+
+        this.cibaMgtDAO = cibaMgtDAO;
+        this.stateCache = stateCache;
+        this.statusRefreshIntervalMillis = statusRefreshIntervalMillis;
+    }
+
+    @Override
+    public void updateStatus(String authCodeKey, Enum authenticationStatus) throws CibaCoreException {
+
+        flushPollState(authCodeKey);
+        cibaMgtDAO.updateStatus(authCodeKey, authenticationStatus);
+        stateCache.clearCacheEntry(authCodeKey);
+    }
+
+    @Override
+    public void persistAuthenticationSuccess(String authCodeKey, AuthenticatedUser authenticatedUser)
+            throws CibaCoreException {
+
+        flushPollState(authCodeKey);
+        cibaMgtDAO.persistAuthenticationSuccess(authCodeKey, authenticatedUser);
+        stateCache.clearCacheEntry(authCodeKey);
+    }
+
+    @Override
+    public String getCibaAuthCodeKey(String authreqID) throws CibaCoreException {
+
+        String authCodeKey = authCodeKeys.get(authreqID);
+        if (authCodeKey == null) {
+            authCodeKey = cibaMgtDAO.getCibaAuthCodeKey(authreqID);
+            if (authCodeKey != null) {
+                addAuthCodeKey(authreqID, authCodeKey);
+            }
+        }
+        return authCodeKey;
+    }
+
+    @Override
+    public void updateLastPollingTime(String authCodeKey, Timestamp lastPolledTime) throws CibaCoreException {
+
+        CibaAuthRequestState state = stateCache.getValueFromCache(authCodeKey);
+        if (state == null) {
+            cibaMgtDAO.updateLastPollingTime(authCodeKey, lastPolledTime);
+            return;
+        }
+        state.setLastPolledTime(lastPolledTime.getTime());
+    }
+
+    @Override
+    public void updatePollingInterval(String authCodeKey, long newInterval) throws CibaCoreException {
+
+        CibaAuthRequestState state = stateCache.getValueFromCache(authCodeKey);
+        if (state == null) {
+            cibaMgtDAO.updatePollingInterval(authCodeKey, newInterval);
+            return;
+        }
+        state.setInterval(newInterval);
+    }
+
+    @Override
+    public AuthenticatedUser getAuthenticatedUser(String authCodeKey) throws CibaCoreException {
+
+        return cibaMgtDAO.getAuthenticatedUser(authCodeKey);
+    }
+
+    @Override
+    public void persistCibaAuthCode(CibaAuthCodeDO cibaAuthCodeDO) throws CibaCoreException {
+
+        cibaMgtDAO.persistCibaAuthCode(cibaAuthCodeDO);
+        addAuthCodeKey(cibaAuthCodeDO.getAuthReqId(), cibaAuthCodeDO.getCibaAuthCodeKey());
+        stateCache.addToCache(cibaAuthCodeDO.getCibaAuthCodeKey(),
+                CibaAuthRequestState.of(cibaAuthCodeDO, System.currentTimeMillis()));
+    }
+
+    @Override
+    public CibaAuthCodeDO getCibaAuthCode(String authCodeKey) throws CibaCoreException {
+
+        long currentTime = System.currentTimeMillis();
+        CibaAuthRequestState state = stateCache.getValueFromCache(authCodeKey);
+        if (state != null && currentTime - state.getValidatedTime() < statusRefreshIntervalMillis) {
+            return state.toCibaAuthCodeDO();
+        }
+
+        CibaAuthCodeDO cibaAuthCodeDO = cibaMgtDAO.getCibaAuthCode(authCodeKey);
+        if (cibaAuthCodeDO == null || !AuthReqStatus.REQUESTED.equals(cibaAuthCodeDO.getAuthReqStatus())) {
+            if (state != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Status of the CIBA authentication request identified by authCodeKey: " + authCodeKey +
+                            " was changed on another node.");
+                }
+                stateCache.clearCacheEntry(authCodeKey);
+            }
+            return cibaAuthCodeDO;
+        }
+        if (state != null) {
+            // The poll state of this node is newer than the one in the database.
+            state.setValidatedTime(currentTime);
+            return state.toCibaAuthCodeDO();
+        }
+        stateCache.addToCache(authCodeKey, CibaAuthRequestState.of(cibaAuthCodeDO, currentTime));
+        return cibaAuthCodeDO;
+    }
+
+    @Override
+    public List<String> getScopes(String authCodeKey) throws CibaCoreException {
+
+        return cibaMgtDAO.getScopes(authCodeKey);
+    }
+
+    @Override
+    public String getClientNotificationToken(String authCodeKey) throws CibaCoreException {
+
+        return cibaMgtDAO.getClientNotificationToken(authCodeKey);
+    }
+
+    /**
+     * Write the poll state of this node to the database before the status of the request is changed.
+     */
+    private void flushPollState(String authCodeKey) throws CibaCoreException {
+
+        CibaAuthRequestState state = stateCache.getValueFromCache(authCodeKey);
+        if (state == null || !state.isPollStateChanged()) {
+            return;
+        }
+        cibaMgtDAO.updateLastPollingTime(authCodeKey, new Timestamp(state.getLastPolledTime()));
+        cibaMgtDAO.updatePollingInterval(authCodeKey, state.getInterval());
+    }
+
+    private void addAuthCodeKey(String authReqId, String authCodeKey) {
+
+        if (authCodeKeys.size() >= MAX_AUTH_CODE_KEYS) {
+            authCodeKeys.clear();
+        }
+        authCodeKeys.put(authReqId, authCodeKey);
+    }
+}
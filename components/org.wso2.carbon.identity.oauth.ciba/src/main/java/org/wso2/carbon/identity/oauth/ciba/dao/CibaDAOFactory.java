@@ -18,18 +18,31 @@
 
 package org.wso2.carbon.identity.oauth.ciba.dao;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.ciba.cache.CibaAuthRequestStateCache;
+
 /**
  * Creates required CibaDAO.
  */
 public class CibaDAOFactory {
 
+    private static final Log log = LogFactory.getLog(CibaDAOFactory.class);
+
+    // These config properties are defined in identity.xml
+    private static final String AUTH_REQUEST_STATE_CACHE_ENABLE = "OAuth.CIBA.AuthRequestStateCache.Enable";
+    private static final String AUTH_REQUEST_STATE_CACHE_STATUS_REFRESH_INTERVAL =
+            "OAuth.CIBA.AuthRequestStateCache.StatusRefreshInterval";
+
+    private static final long DEFAULT_STATUS_REFRESH_INTERVAL_MILLIS = 10000;
+
     // Implementation of DAO.
-    private CibaMgtDAO cibaMgtDAOImpl;
+    private volatile CibaMgtDAO cibaMgtDAOImpl;
 
     private CibaDAOFactory() {
 
-        // This factory creates instance of CIBA DAOImplementation.
-        cibaMgtDAOImpl = new CibaMgtDAOImpl();
     }
 
     private static CibaDAOFactory cibaDAOFactoryInstance = new CibaDAOFactory();
@@ -44,6 +57,42 @@ public class CibaDAOFactory {
      */
     public CibaMgtDAO getCibaAuthMgtDAO() {
 
+        if (cibaMgtDAOImpl == null) {
+            synchronized (this) {
+                if (cibaMgtDAOImpl == null) {
+                    cibaMgtDAOImpl = createCibaMgtDAO();
+                }
+            }
+        }
         return cibaMgtDAOImpl;
     }
+
+    private static CibaMgtDAO createCibaMgtDAO() {
+
+        // This factory creates instance of CIBA DAOImplementation.
+        CibaMgtDAO cibaMgtDAO = new CibaMgtDAOImpl();
+        if (!Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(AUTH_REQUEST_STATE_CACHE_ENABLE)))) {
+            return cibaMgtDAO;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Keeping the CIBA authentication requests awaiting authentication in memory.");
+        }
+        return new CachedCibaMgtDAO(cibaMgtDAO, CibaAuthRequestStateCache.getInstance(),
+                readLongProperty(AUTH_REQUEST_STATE_CACHE_STATUS_REFRESH_INTERVAL,
+                        DEFAULT_STATUS_REFRESH_INTERVAL_MILLIS));
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -108,4 +108,16 @@ public interface CibaMgtDAO {
      */
     List<String> getScopes(String authCodeKey) throws CibaCoreException;
 
+    /**
+     * Retrieve the client_notification_token of a CIBA authentication request made by a client in ping mode.
+     *
+     * @param authCodeKey identifier of CibaAuthCode.
+     * @return Client notification token or null if the request has none.
+     * @throws CibaCoreException Exception thrown from CIBA core Component.
+     */
+    default String getClientNotificationToken(String authCodeKey) throws CibaCoreException {
+
+        return null;
+    }
+
 }
@@ -18,6 +18,7 @@
 
 package org.wso2.carbon.identity.oauth.ciba.dao;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
@@ -41,6 +42,17 @@ import java.util.TimeZone;
 
 /**
  * Implementation of abstract DAO layer.
+ * <p>
+ * The client_notification_token of a request made by a client in ping mode is kept in the
+ * IDN_OAUTH2_CIBA_NOTIFICATION table, which is expected to exist when ping mode clients are registered:
+ * <pre>
+ * CREATE TABLE IDN_OAUTH2_CIBA_NOTIFICATION (
+ *     AUTH_CODE_KEY CHAR (36) NOT NULL,
+ *     CLIENT_NOTIFICATION_TOKEN VARCHAR (1024) NOT NULL,
+ *     PRIMARY KEY (AUTH_CODE_KEY),
+ *     FOREIGN KEY (AUTH_CODE_KEY) REFERENCES IDN_OAUTH2_CIBA_AUTH_CODE(AUTH_CODE_KEY) ON DELETE CASCADE
+ * );
+ * </pre>
  */
 public class CibaMgtDAOImpl implements CibaMgtDAO {
 
@@ -277,6 +289,21 @@ public class CibaMgtDAOImpl implements CibaMgtDAO {
                         cibaAuthCodeDO.getCibaAuthCodeKey(), e);
             }
 
+            if (StringUtils.isNotBlank(cibaAuthCodeDO.getClientNotificationToken())) {
+                try (PreparedStatement prepStmtForToken = connection.prepareStatement(SQLQueries.CibaSQLQueries.
+                        STORE_CLIENT_NOTIFICATION_TOKEN)) {
+
+                    prepStmtForToken.setString(1, cibaAuthCodeDO.getCibaAuthCodeKey());
+                    prepStmtForToken.setString(2, cibaAuthCodeDO.getClientNotificationToken());
+                    prepStmtForToken.execute();
+                } catch (SQLException e) {
+                    IdentityDatabaseUtil.rollbackTransaction(connection);
+                    throw new CibaCoreException("Error occurred while persisting client_notification_token for the " +
+                            "application with consumer key: " + cibaAuthCodeDO.getConsumerKey() + " and with " +
+                            "authCodeKey: " + cibaAuthCodeDO.getCibaAuthCodeKey(), e);
+                }
+            }
+
             IdentityDatabaseUtil.commitTransaction(connection);
         } catch (SQLException e) {
             throw new CibaCoreException("Error occurred while persisting cibaAuthCode for the application with " +
@@ -344,4 +371,25 @@ public class CibaMgtDAOImpl implements CibaMgtDAO {
                     "Error in retrieving scopes for the authCodeKey: " + authCodeKey, e);
         }
     }
+
+    @Override
+    public String getClientNotificationToken(String authCodeKey) throws CibaCoreException {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement(SQLQueries.
+                    CibaSQLQueries.RETRIEVE_CLIENT_NOTIFICATION_TOKEN)) {
+
+                prepStmt.setString(1, authCodeKey);
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getString(1);
+                    }
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            throw new CibaCoreException(
+                    "Error in retrieving client_notification_token for the authCodeKey: " + authCodeKey, e);
+        }
+    }
 }
@@ -75,5 +75,11 @@ public class SQLQueries {
                 "SELECT SCOPE FROM IDN_OAUTH2_CIBA_AUTH_CODE INNER JOIN IDN_OAUTH2_CIBA_REQUEST_SCOPES ON " +
                         "(IDN_OAUTH2_CIBA_AUTH_CODE.AUTH_CODE_KEY = IDN_OAUTH2_CIBA_REQUEST_SCOPES.AUTH_CODE_KEY) " +
                         " WHERE IDN_OAUTH2_CIBA_AUTH_CODE.AUTH_CODE_KEY= ? ";
+
+        public static final String STORE_CLIENT_NOTIFICATION_TOKEN = "INSERT INTO IDN_OAUTH2_CIBA_NOTIFICATION " +
+                "(AUTH_CODE_KEY, CLIENT_NOTIFICATION_TOKEN) VALUES (?,?)";
+
+        public static final String RETRIEVE_CLIENT_NOTIFICATION_TOKEN = "SELECT CLIENT_NOTIFICATION_TOKEN FROM " +
+                "IDN_OAUTH2_CIBA_NOTIFICATION WHERE AUTH_CODE_KEY = ?";
     }
 }
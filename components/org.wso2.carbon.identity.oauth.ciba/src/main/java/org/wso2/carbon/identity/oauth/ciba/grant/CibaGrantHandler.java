@@ -32,6 +32,8 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
 import org.wso2.carbon.identity.oauth2.model.RequestParameter;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.AbstractAuthorizationGrantHandler;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLockManagerFactory;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.sql.Timestamp;
@@ -63,22 +65,33 @@ public class CibaGrantHandler extends AbstractAuthorizationGrantHandler {
     @Override
     public OAuth2AccessTokenRespDTO issue(OAuthTokenReqMessageContext tokReqMsgCtx) throws IdentityOAuth2Exception {
 
-        OAuth2AccessTokenRespDTO responseDTO = super.issue(tokReqMsgCtx);
         String authReqId = getAuthReqId(tokReqMsgCtx);
-        CibaAuthCodeDO cibaAuthCodeDO = retrieveCibaAuthCode(authReqId);
+        String clientId = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getClientId();
 
-        try {
+        // Concurrent polls of the same auth_req_id may all pass the grant validation. The status is checked again
+        // while holding the lock, so that only one of them is issued a token.
+        try (TokenLock ignored = TokenLockManagerFactory.getLockManager(TokenLockManagerFactory.CIBA_AUTH_REQUEST_LOCK)
+                .acquire(clientId, authReqId)) {
+            CibaAuthCodeDO cibaAuthCodeDO = retrieveCibaAuthCode(authReqId);
+            if (isTokenAlreadyIssued(cibaAuthCodeDO)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Token is already issued for the auth_req_id: " + authReqId + " of client: " +
+                            clientId);
+                }
+                throw new IdentityOAuth2Exception(INVALID_REQUEST);
+            }
+
+            OAuth2AccessTokenRespDTO responseDTO = super.issue(tokReqMsgCtx);
             CibaDAOFactory.getInstance().getCibaAuthMgtDAO()
                     .updateStatus(cibaAuthCodeDO.getCibaAuthCodeKey(), AuthReqStatus.TOKEN_ISSUED);
             if (log.isDebugEnabled()) {
-                log.debug("Successfully updated the status of authentication request made by client:" +
-                        tokReqMsgCtx.getOauth2AccessTokenReqDTO().getClientId());
+                log.debug("Successfully updated the status of authentication request made by client:" + clientId);
             }
+            return responseDTO;
         } catch (CibaCoreException e) {
             throw new IdentityOAuth2Exception("Error occurred in persisting status for the request made with " +
                     "auth_req_id: " + authReqId, e);
         }
-        return responseDTO;
     }
 
     @Override
@@ -26,6 +26,8 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.wso2.carbon.identity.oauth.ciba.api.CibaAuthService;
 import org.wso2.carbon.identity.oauth.ciba.api.CibaAuthServiceImpl;
+import org.wso2.carbon.identity.oauth.ciba.notification.CibaClientNotifier;
+
 /**
  * Service component for CIBA.
  */
@@ -54,6 +56,7 @@ public class CibaServiceComponent {
     @Deactivate
     protected void deactivate(ComponentContext context) {
 
+        CibaClientNotifier.shutdownInstance();
         if (log.isDebugEnabled()) {
             log.debug("CIBA component bundle is deactivated.");
         }
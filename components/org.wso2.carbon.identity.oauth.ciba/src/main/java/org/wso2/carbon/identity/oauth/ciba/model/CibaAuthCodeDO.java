@@ -38,6 +38,7 @@ public class CibaAuthCodeDO {
     private Enum authReqStatus;
     private String[] scopes;
     private AuthenticatedUser authenticatedUser;
+    private String clientNotificationToken;
 
     public String getCibaAuthCodeKey() {
 
@@ -140,4 +141,14 @@ public class CibaAuthCodeDO {
 
         this.authenticatedUser = authenticatedUser;
     }
+
+    public String getClientNotificationToken() {
+
+        return clientNotificationToken;
+    }
+
+    public void setClientNotificationToken(String clientNotificationToken) {
+
+        this.clientNotificationToken = clientNotificationToken;
+    }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.notification;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.ciba.common.CibaConstants;
+import org.wso2.carbon.identity.oauth.ciba.dao.CibaDAOFactory;
+import org.wso2.carbon.identity.oauth.ciba.exceptions.CibaCoreException;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Notifies the clients in ping mode when their CIBA authentication requests are completed, so that they request the
+ * token once instead of polling the token endpoint.
+ * <p>
+ * Notifications are sent by a bounded pool of senders, so that a slow client notification endpoint does not hold the
+ * authorization response of the user. A notification which does not fit in the queue is dropped, and the client
+ * falls back to polling.
+ */
+public class CibaClientNotifier {
+
+    private static final Log log = LogFactory.getLog(CibaClientNotifier.class);
+
+    // These config properties are defined in identity.xml
+    private static final String NOTIFICATION_POOL_SIZE = "OAuth.CIBA.Notification.PoolSize";
+    private static final String NOTIFICATION_QUEUE_SIZE = "OAuth.CIBA.Notification.QueueSize";
+    private static final String NOTIFICATION_CONNECT_TIMEOUT = "OAuth.CIBA.Notification.ConnectTimeout";
+    private static final String NOTIFICATION_READ_TIMEOUT = "OAuth.CIBA.Notification.ReadTimeout";
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static volatile CibaClientNotifier instance;
+
+    private volatile CibaNotificationSender notificationSender;
+    private volatile ExecutorService senders;
+
+    private CibaClientNotifier() {
+
+        // Senders are created with the first notification, so that clients in poll mode never start them.
+    }
+
+    CibaClientNotifier(CibaNotificationSender notificationSender, ExecutorService senders) {
+
+        this.notificationSender = notificationSender;
+        this.senders = senders;
+    }
+
+    /**
+     * Returns CibaClientNotifier singleton instance.
+     *
+     * @return CibaClientNotifier instance.
+     */
+    public static CibaClientNotifier getInstance() {
+
+        if (instance == null) {
+            synchronized (CibaClientNotifier.class) {
+                if (instance == null) {
+                    instance = new CibaClientNotifier();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the notifier, if it was created. Notifications which are not sent yet are dropped.
+     */
+    public static void shutdownInstance() {
+
+        synchronized (CibaClientNotifier.class) {
+            if (instance != null) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Notify the client of a completed authentication request, if the client is in ping mode.
+     *
+     * @param consumerKey Consumer key of the client.
+     * @param authReqId   Authentication request identifier.
+     * @param authCodeKey Identifier of the CibaAuthCode of the request.
+     */
+    public void notifyClient(String consumerKey, String authReqId, String authCodeKey) {
+
+        if (StringUtils.isBlank(consumerKey) || StringUtils.isBlank(authCodeKey)) {
+            return;
+        }
+        try {
+            OAuthAppDO appDO = OAuth2Util.getAppInformationByClientId(consumerKey);
+            if (appDO == null || !CibaConstants.PING_MODE.equalsIgnoreCase(appDO.getCibaTokenDeliveryMode())) {
+                return;
+            }
+            String clientNotificationEndpoint = appDO.getCibaClientNotificationEndpoint();
+            if (StringUtils.isBlank(clientNotificationEndpoint)) {
+                log.warn("Client: " + consumerKey + " in ping mode has no client notification endpoint.");
+                return;
+            }
+            String clientNotificationToken =
+                    CibaDAOFactory.getInstance().getCibaAuthMgtDAO().getClientNotificationToken(authCodeKey);
+            if (StringUtils.isBlank(clientNotificationToken)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("No client_notification_token found for the auth_req_id: " + authReqId);
+                }
+                return;
+            }
+            getSenders().execute(() -> send(clientNotificationEndpoint, clientNotificationToken, authReqId));
+        } catch (IdentityOAuth2Exception | InvalidOAuthClientException | CibaCoreException e) {
+            log.error("Error while notifying the client: " + consumerKey + " of the auth_req_id: " + authReqId, e);
+        } catch (RejectedExecutionException e) {
+            log.error("CIBA client notification queue is full. Dropped the notification of the auth_req_id: " +
+                    authReqId + " to the client: " + consumerKey);
+        }
+    }
+
+    private void send(String clientNotificationEndpoint, String clientNotificationToken, String authReqId) {
+
+        try {
+            notificationSender.send(clientNotificationEndpoint, clientNotificationToken, authReqId);
+        } catch (CibaCoreException e) {
+            log.error("Failed to notify the client of the auth_req_id: " + authReqId, e);
+        }
+    }
+
+    void shutdown() {
+
+        if (senders == null) {
+            return;
+        }
+        senders.shutdownNow();
+        try {
+            if (!senders.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("CIBA client notification senders did not terminate within " + SHUTDOWN_TIMEOUT_MILLIS +
+                        "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService getSenders() {
+
+        if (senders == null) {
+            synchronized (this) {
+                if (senders == null) {
+                    createSenders();
+                }
+            }
+        }
+        return senders;
+    }
+
+    private void createSenders() {
+
+        int poolSize = Math.max(1, readIntProperty(NOTIFICATION_POOL_SIZE, DEFAULT_POOL_SIZE));
+        int queueSize = Math.max(1, readIntProperty(NOTIFICATION_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+        int connectTimeout = readIntProperty(NOTIFICATION_CONNECT_TIMEOUT, DEFAULT_TIMEOUT_MILLIS);
+        int readTimeout = readIntProperty(NOTIFICATION_READ_TIMEOUT, DEFAULT_TIMEOUT_MILLIS);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        notificationSender = new HttpCibaNotificationSender(connectTimeout, readTimeout);
+        senders = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "CibaClientNotifier-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+}
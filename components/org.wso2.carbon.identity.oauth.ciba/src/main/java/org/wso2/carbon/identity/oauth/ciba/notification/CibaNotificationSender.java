@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.notification;
+
+import org.wso2.carbon.identity.oauth.ciba.exceptions.CibaCoreException;
+
+/**
+ * Sends the ping mode notification of a completed CIBA authentication request to the client.
+ */
+public interface CibaNotificationSender {
+
+    /**
+     * Notify the client that the authentication request is completed, so that it can request the token.
+     *
+     * @param clientNotificationEndpoint Client notification endpoint registered by the client.
+     * @param clientNotificationToken    client_notification_token sent with the authentication request.
+     * @param authReqId                  Authentication request identifier.
+     * @throws CibaCoreException If the notification is not accepted by the client.
+     */
+    void send(String clientNotificationEndpoint, String clientNotificationToken, String authReqId)
+            throws CibaCoreException;
+}
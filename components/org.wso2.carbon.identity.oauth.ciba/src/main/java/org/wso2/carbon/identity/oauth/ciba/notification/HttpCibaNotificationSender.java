@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.notification;
+
+import net.minidev.json.JSONObject;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth.ciba.common.CibaConstants;
+import org.wso2.carbon.identity.oauth.ciba.exceptions.CibaCoreException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CibaNotificationSender} which posts the auth_req_id to the client notification endpoint, authenticated with
+ * the client_notification_token as a bearer token.
+ */
+public class HttpCibaNotificationSender implements CibaNotificationSender {
+
+    private static final Log log = LogFactory.getLog(HttpCibaNotificationSender.class);
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    /**
+     * @param connectTimeout Connect timeout in milliseconds.
+     * @param readTimeout    Read timeout in milliseconds.
+     */
+    public HttpCibaNotificationSender(int connectTimeout, int readTimeout) {
+
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public void send(String clientNotificationEndpoint, String clientNotificationToken, String authReqId)
+            throws CibaCoreException {
+
+        JSONObject notification = new JSONObject();
+        notification.put(CibaConstants.AUTH_REQ_ID, authReqId);
+        byte[] body = notification.toJSONString().getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(clientNotificationEndpoint).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setInstanceFollowRedirects(false);
+            connection.setDoOutput(true);
+            connection.setRequestProperty(AUTHORIZATION_HEADER, BEARER_PREFIX + clientNotificationToken);
+            connection.setRequestProperty(CONTENT_TYPE_HEADER, JSON_CONTENT_TYPE);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+
+            int statusCode = connection.getResponseCode();
+            consume(connection, statusCode);
+            if (statusCode < 200 || statusCode >= 300) {
+                throw new CibaCoreException("Client notification endpoint: " + clientNotificationEndpoint +
+                        " responded with the status: " + statusCode + " for the auth_req_id: " + authReqId);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Notified the client notification endpoint: " + clientNotificationEndpoint +
+                        " of the auth_req_id: " + authReqId);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw new CibaCoreException("Error while notifying the client notification endpoint: " +
+                    clientNotificationEndpoint + " of the auth_req_id: " + authReqId, e);
+        }
+    }
+
+    /**
+     * Read the response, so that the connection is kept alive for the next notification to the endpoint.
+     */
+    private void consume(HttpURLConnection connection, int statusCode) throws IOException {
+
+        InputStream inputStream = statusCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (inputStream == null) {
+            return;
+        }
+        try (InputStream responseStream = inputStream) {
+            byte[] buffer = new byte[1024];
+            while (responseStream.read(buffer) != -1) {
+                // Discard the response body.
+            }
+        }
+    }
+}
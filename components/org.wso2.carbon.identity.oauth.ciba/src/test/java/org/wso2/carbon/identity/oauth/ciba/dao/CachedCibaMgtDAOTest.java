@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.dao;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth.ciba.cache.CibaAuthRequestState;
+import org.wso2.carbon.identity.oauth.ciba.cache.CibaAuthRequestStateCache;
+import org.wso2.carbon.identity.oauth.ciba.common.AuthReqStatus;
+import org.wso2.carbon.identity.oauth.ciba.model.CibaAuthCodeDO;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class CachedCibaMgtDAOTest {
+
+    private static final String AUTH_CODE_KEY = "039e8fff-1b24-420a-9dae-0ad745c96e97";
+    private static final String AUTH_REQ_ID = "2201e5aa-1c5f-4a17-90c9-1956a3540b19";
+    private static final String CONSUMER_KEY = "ZzxmDqqK8YYfjtlOh9vw85qnNVoa";
+    private static final long STATUS_REFRESH_INTERVAL = 60000;
+
+    private CibaMgtDAO cibaMgtDAO;
+    private CibaAuthRequestStateCache stateCache;
+    private Map<String, CibaAuthRequestState> cacheEntries;
+
+    @BeforeMethod
+    public void setUp() {
+
+        cibaMgtDAO = mock(CibaMgtDAO.class);
+        stateCache = mock(CibaAuthRequestStateCache.class);
+        cacheEntries = new HashMap<>();
+        doAnswer(invocation -> cacheEntries.put((String) invocation.getArguments()[0],
+                (CibaAuthRequestState) invocation.getArguments()[1]))
+                .when(stateCache).addToCache(anyString(), any(CibaAuthRequestState.class));
+        doAnswer(invocation -> cacheEntries.get(invocation.getArguments()[0]))
+                .when(stateCache).getValueFromCache(anyString());
+        doAnswer(invocation -> cacheEntries.remove(invocation.getArguments()[0]))
+                .when(stateCache).clearCacheEntry(anyString());
+    }
+
+    @Test
+    public void testPollsOfPendingRequestAreServedFromCache() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, STATUS_REFRESH_INTERVAL);
+        cachedCibaMgtDAO.persistCibaAuthCode(createCibaAuthCodeDO(AuthReqStatus.REQUESTED));
+
+        Timestamp lastPolledTime = new Timestamp(System.currentTimeMillis());
+        cachedCibaMgtDAO.updateLastPollingTime(AUTH_CODE_KEY, lastPolledTime);
+        cachedCibaMgtDAO.updatePollingInterval(AUTH_CODE_KEY, 7);
+
+        CibaAuthCodeDO cibaAuthCodeDO = cachedCibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY);
+        assertEquals(cibaAuthCodeDO.getAuthReqStatus(), AuthReqStatus.REQUESTED);
+        assertEquals(cibaAuthCodeDO.getLastPolledTime(), lastPolledTime);
+        assertEquals(cibaAuthCodeDO.getInterval(), 7);
+        assertEquals(cachedCibaMgtDAO.getCibaAuthCodeKey(AUTH_REQ_ID), AUTH_CODE_KEY);
+
+        verify(cibaMgtDAO, never()).getCibaAuthCode(anyString());
+        verify(cibaMgtDAO, never()).getCibaAuthCodeKey(anyString());
+        verify(cibaMgtDAO, never()).updateLastPollingTime(anyString(), any(Timestamp.class));
+        verify(cibaMgtDAO, never()).updatePollingInterval(anyString(), anyLong());
+    }
+
+    @Test
+    public void testStatusChangeFlushesPollState() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, STATUS_REFRESH_INTERVAL);
+        cachedCibaMgtDAO.persistCibaAuthCode(createCibaAuthCodeDO(AuthReqStatus.REQUESTED));
+
+        Timestamp lastPolledTime = new Timestamp(System.currentTimeMillis());
+        cachedCibaMgtDAO.updateLastPollingTime(AUTH_CODE_KEY, lastPolledTime);
+        cachedCibaMgtDAO.updatePollingInterval(AUTH_CODE_KEY, 7);
+        cachedCibaMgtDAO.updateStatus(AUTH_CODE_KEY, AuthReqStatus.CONSENT_DENIED);
+
+        verify(cibaMgtDAO).updateLastPollingTime(AUTH_CODE_KEY, lastPolledTime);
+        verify(cibaMgtDAO).updatePollingInterval(AUTH_CODE_KEY, 7);
+        verify(cibaMgtDAO).updateStatus(AUTH_CODE_KEY, AuthReqStatus.CONSENT_DENIED);
+        assertFalse(cacheEntries.containsKey(AUTH_CODE_KEY));
+    }
+
+    @Test
+    public void testStatusChangeWithoutPollsIsNotFlushed() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, STATUS_REFRESH_INTERVAL);
+        cachedCibaMgtDAO.persistCibaAuthCode(createCibaAuthCodeDO(AuthReqStatus.REQUESTED));
+        cachedCibaMgtDAO.persistAuthenticationSuccess(AUTH_CODE_KEY, null);
+
+        verify(cibaMgtDAO, never()).updateLastPollingTime(anyString(), any(Timestamp.class));
+        verify(cibaMgtDAO, never()).updatePollingInterval(anyString(), anyLong());
+        verify(cibaMgtDAO).persistAuthenticationSuccess(AUTH_CODE_KEY, null);
+        assertFalse(cacheEntries.containsKey(AUTH_CODE_KEY));
+    }
+
+    @Test
+    public void testStatusChangedOnAnotherNodeIsReadAfterRefreshInterval() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, 0);
+        cachedCibaMgtDAO.persistCibaAuthCode(createCibaAuthCodeDO(AuthReqStatus.REQUESTED));
+
+        when(cibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY)).thenReturn(createCibaAuthCodeDO(AuthReqStatus.AUTHENTICATED));
+
+        CibaAuthCodeDO cibaAuthCodeDO = cachedCibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY);
+        assertEquals(cibaAuthCodeDO.getAuthReqStatus(), AuthReqStatus.AUTHENTICATED);
+        assertFalse(cacheEntries.containsKey(AUTH_CODE_KEY));
+    }
+
+    @Test
+    public void testPendingRequestIsCachedOnMiss() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, STATUS_REFRESH_INTERVAL);
+        when(cibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY)).thenReturn(createCibaAuthCodeDO(AuthReqStatus.REQUESTED));
+
+        cachedCibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY);
+        assertTrue(cacheEntries.containsKey(AUTH_CODE_KEY));
+    }
+
+    @Test
+    public void testCompletedRequestIsNotCached() throws Exception {
+
+        CachedCibaMgtDAO cachedCibaMgtDAO = new CachedCibaMgtDAO(cibaMgtDAO, stateCache, STATUS_REFRESH_INTERVAL);
+        when(cibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY)).thenReturn(createCibaAuthCodeDO(AuthReqStatus.AUTHENTICATED));
+
+        cachedCibaMgtDAO.getCibaAuthCode(AUTH_CODE_KEY);
+        assertNull(cacheEntries.get(AUTH_CODE_KEY));
+
+        Timestamp lastPolledTime = new Timestamp(System.currentTimeMillis());
+        cachedCibaMgtDAO.updateLastPollingTime(AUTH_CODE_KEY, lastPolledTime);
+        verify(cibaMgtDAO).updateLastPollingTime(AUTH_CODE_KEY, lastPolledTime);
+    }
+
+    private CibaAuthCodeDO createCibaAuthCodeDO(AuthReqStatus authReqStatus) {
+
+        long currentTime = System.currentTimeMillis();
+        CibaAuthCodeDO cibaAuthCodeDO = new CibaAuthCodeDO();
+        cibaAuthCodeDO.setCibaAuthCodeKey(AUTH_CODE_KEY);
+        cibaAuthCodeDO.setAuthReqId(AUTH_REQ_ID);
+        cibaAuthCodeDO.setConsumerKey(CONSUMER_KEY);
+        cibaAuthCodeDO.setIssuedTime(new Timestamp(currentTime));
+        cibaAuthCodeDO.setLastPolledTime(new Timestamp(currentTime));
+        cibaAuthCodeDO.setExpiresIn(3600);
+        cibaAuthCodeDO.setInterval(2);
+        cibaAuthCodeDO.setAuthReqStatus(authReqStatus);
+        return cibaAuthCodeDO;
+    }
+}
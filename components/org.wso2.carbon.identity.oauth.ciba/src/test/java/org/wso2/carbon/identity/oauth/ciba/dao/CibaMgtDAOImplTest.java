@@ -49,6 +49,7 @@ import java.util.TimeZone;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 @PrepareForTest({IdentityDatabaseUtil.class, OAuthServerConfiguration.class, OAuth2Util.class})
 @WithH2Database(files = {"dbScripts/h2.sql", "dbScripts/identity.sql"})
@@ -60,7 +61,7 @@ public class CibaMgtDAOImplTest extends PowerMockTestCase {
     @Mock
     OAuthServerConfiguration mockedServerConfig;
 
-    CibaMgtDAOImpl cibaMgtDAO = (CibaMgtDAOImpl) CibaDAOFactory.getInstance().getCibaAuthMgtDAO();
+    CibaMgtDAOImpl cibaMgtDAO = new CibaMgtDAOImpl();
     CibaAuthCodeDO cibaAuthCodeDO = new CibaAuthCodeDO();
     private String[] scopes;
 
@@ -69,6 +70,9 @@ public class CibaMgtDAOImplTest extends PowerMockTestCase {
     private static final String AUTH_REQ_ID = "2201e5aa-1c5f-4a17-90c9-1956a3540b19";
     private static final String CONSUMER_KEY = "ZzxmDqqK8YYfjtlOh9vw85qnNVoa";
     private static final String AUTH_CODE_KEY = "039e8fff-1b24-420a-9dae-0ad745c96e97";
+    private static final String PING_MODE_AUTH_REQ_ID = "5e2b6f1d-33c8-4c7e-9f0a-8d1c2b7a6e54";
+    private static final String PING_MODE_AUTH_CODE_KEY = "a41c9e27-5d08-4b3f-b6e2-0f7d8c3a9b15";
+    private static final String CLIENT_NOTIFICATION_TOKEN = "8d67dc78-7faa-4d41-aabd-67707b374255";
     private static final String SECRET = "87n9a540f544777860e44e75f605d435";
     private static final String NOT_EXISTING_SECRET = "sasaddewgefnhf44777860e44e75f605d435";
     private static final String APP_NAME = "myApp";
@@ -213,6 +217,37 @@ public class CibaMgtDAOImplTest extends PowerMockTestCase {
         }
     }
 
+    @Test
+    public void testGetClientNotificationToken() throws Exception {
+
+        CibaAuthCodeDO pingModeAuthCodeDO = new CibaAuthCodeDO();
+        Timestamp issuedTime = new Timestamp(System.currentTimeMillis());
+        pingModeAuthCodeDO.setAuthReqStatus(AuthReqStatus.REQUESTED);
+        pingModeAuthCodeDO.setCibaAuthCodeKey(PING_MODE_AUTH_CODE_KEY);
+        pingModeAuthCodeDO.setAuthReqId(PING_MODE_AUTH_REQ_ID);
+        pingModeAuthCodeDO.setConsumerKey(CONSUMER_KEY);
+        pingModeAuthCodeDO.setLastPolledTime(issuedTime);
+        pingModeAuthCodeDO.setIssuedTime(issuedTime);
+        pingModeAuthCodeDO.setInterval(2L);
+        pingModeAuthCodeDO.setExpiresIn(3600L);
+        pingModeAuthCodeDO.setScopes(scopes);
+        pingModeAuthCodeDO.setClientNotificationToken(CLIENT_NOTIFICATION_TOKEN);
+
+        try (Connection connection1 = getConnection(DB_NAME)) {
+            prepareConnection(connection1, true);
+            cibaMgtDAO.persistCibaAuthCode(pingModeAuthCodeDO);
+        }
+
+        try (Connection connection1 = getConnection(DB_NAME)) {
+            prepareConnection(connection1, false);
+            assertEquals(cibaMgtDAO.getClientNotificationToken(PING_MODE_AUTH_CODE_KEY), CLIENT_NOTIFICATION_TOKEN);
+        }
+        try (Connection connection1 = getConnection(DB_NAME)) {
+            prepareConnection(connection1, false);
+            assertNull(cibaMgtDAO.getClientNotificationToken(AUTH_CODE_KEY));
+        }
+    }
+
     protected void storeIDP() throws Exception {
 
         try (Connection connection1 = getConnection(DB_NAME)) {
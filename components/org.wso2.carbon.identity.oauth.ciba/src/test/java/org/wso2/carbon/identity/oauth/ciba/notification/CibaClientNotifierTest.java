@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.ciba.notification;
+
+import com.sun.net.httpserver.HttpServer;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth.ciba.common.CibaConstants;
+import org.wso2.carbon.identity.oauth.ciba.dao.CibaDAOFactory;
+import org.wso2.carbon.identity.oauth.ciba.dao.CibaMgtDAO;
+import org.wso2.carbon.identity.oauth.ciba.exceptions.CibaCoreException;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.*", "sun.net.*"})
+@PrepareForTest({OAuth2Util.class, CibaDAOFactory.class})
+public class CibaClientNotifierTest extends PowerMockTestCase {
+
+    private static final String CONSUMER_KEY = "ZzxmDqqK8YYfjtlOh9vw85qnNVoa";
+    private static final String AUTH_REQ_ID = "2201e5aa-1c5f-4a17-90c9-1956a3540b19";
+    private static final String AUTH_CODE_KEY = "039e8fff-1b24-420a-9dae-0ad745c96e97";
+    private static final String CLIENT_NOTIFICATION_TOKEN = "8d67dc78-7faa-4d41-aabd-67707b374255";
+    private static final String NOTIFICATION_PATH = "/cb";
+
+    @Mock
+    CibaDAOFactory cibaDAOFactory;
+
+    @Mock
+    CibaMgtDAO cibaMgtDAO;
+
+    private HttpServer clientNotificationServer;
+    private int responseStatus;
+    private final AtomicReference<String> receivedAuthorization = new AtomicReference<>();
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        responseStatus = 204;
+        receivedAuthorization.set(null);
+        receivedBody.set(null);
+        clientNotificationServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        clientNotificationServer.createContext(NOTIFICATION_PATH, exchange -> {
+            receivedAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            receivedBody.set(read(exchange.getRequestBody()));
+            exchange.sendResponseHeaders(responseStatus, -1);
+            exchange.close();
+        });
+        clientNotificationServer.start();
+
+        mockStatic(CibaDAOFactory.class);
+        when(CibaDAOFactory.getInstance()).thenReturn(cibaDAOFactory);
+        when(cibaDAOFactory.getCibaAuthMgtDAO()).thenReturn(cibaMgtDAO);
+        when(cibaMgtDAO.getClientNotificationToken(AUTH_CODE_KEY)).thenReturn(CLIENT_NOTIFICATION_TOKEN);
+        mockStatic(OAuth2Util.class);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        clientNotificationServer.stop(0);
+    }
+
+    @Test
+    public void testNotifyClientInPingMode() throws Exception {
+
+        when(OAuth2Util.getAppInformationByClientId(CONSUMER_KEY)).thenReturn(createApp(CibaConstants.PING_MODE));
+
+        ExecutorService senders = Executors.newSingleThreadExecutor();
+        CibaClientNotifier notifier = new CibaClientNotifier(new HttpCibaNotificationSender(5000, 5000), senders);
+        notifier.notifyClient(CONSUMER_KEY, AUTH_REQ_ID, AUTH_CODE_KEY);
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(receivedAuthorization.get(), "Bearer " + CLIENT_NOTIFICATION_TOKEN);
+        assertEquals(receivedBody.get(), "{\"auth_req_id\":\"" + AUTH_REQ_ID + "\"}");
+    }
+
+    @Test
+    public void testClientInPollModeIsNotNotified() throws Exception {
+
+        when(OAuth2Util.getAppInformationByClientId(CONSUMER_KEY)).thenReturn(createApp(CibaConstants.POLL_MODE));
+
+        CibaNotificationSender notificationSender = mock(CibaNotificationSender.class);
+        ExecutorService senders = Executors.newSingleThreadExecutor();
+        CibaClientNotifier notifier = new CibaClientNotifier(notificationSender, senders);
+        notifier.notifyClient(CONSUMER_KEY, AUTH_REQ_ID, AUTH_CODE_KEY);
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(10, TimeUnit.SECONDS));
+
+        verify(notificationSender, never()).send(anyString(), anyString(), anyString());
+        verify(cibaMgtDAO, never()).getClientNotificationToken(anyString());
+    }
+
+    @Test(expectedExceptions = CibaCoreException.class)
+    public void testRejectedNotification() throws Exception {
+
+        responseStatus = 401;
+        new HttpCibaNotificationSender(5000, 5000).send(getClientNotificationEndpoint(), CLIENT_NOTIFICATION_TOKEN,
+                AUTH_REQ_ID);
+    }
+
+    private OAuthAppDO createApp(String tokenDeliveryMode) {
+
+        OAuthAppDO appDO = new OAuthAppDO();
+        appDO.setOauthConsumerKey(CONSUMER_KEY);
+        appDO.setCibaTokenDeliveryMode(tokenDeliveryMode);
+        appDO.setCibaClientNotificationEndpoint(getClientNotificationEndpoint());
+        return appDO;
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String getClientNotificationEndpoint() {
+
+        return "http://localhost:" + clientNotificationServer.getAddress().getPort() + NOTIFICATION_PATH;
+    }
+}
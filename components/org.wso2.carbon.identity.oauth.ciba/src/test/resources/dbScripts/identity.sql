@@ -150,6 +150,13 @@ CREATE TABLE IF NOT EXISTS IDN_OAUTH2_CIBA_REQUEST_SCOPES (
             FOREIGN KEY (AUTH_CODE_KEY) REFERENCES IDN_OAUTH2_CIBA_AUTH_CODE(AUTH_CODE_KEY) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_CIBA_NOTIFICATION (
+            AUTH_CODE_KEY CHAR (36) NOT NULL,
+            CLIENT_NOTIFICATION_TOKEN VARCHAR (1024) NOT NULL,
+            PRIMARY KEY (AUTH_CODE_KEY),
+            FOREIGN KEY (AUTH_CODE_KEY) REFERENCES IDN_OAUTH2_CIBA_AUTH_CODE(AUTH_CODE_KEY) ON DELETE CASCADE
+);
+
 
 CREATE TABLE IF NOT EXISTS IDN_OAUTH2_AUTHZ_CODE_SCOPE(
            CODE_ID   VARCHAR(255),
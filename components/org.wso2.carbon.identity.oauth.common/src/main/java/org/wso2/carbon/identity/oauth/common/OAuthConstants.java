@@ -174,6 +174,7 @@ public final class OAuthConstants {
         public static final String JWT_BEARER = "urn:ietf:params:oauth:grant-type:jwt-bearer";
         public static final String REFRESH_TOKEN = "refresh_token";
         public static final String DEVICE_CODE = "device_code";
+        public static final String CIBA = "urn:openid:params:grant-type:ciba";
 
         private GrantTypes() {
 
@@ -461,6 +462,8 @@ public final class OAuthConstants {
                 "tokenRevocationWithIDPSessionTermination";
         public static final String TOKEN_BINDING_VALIDATION = "tokenBindingValidation";
         public static final String TOKEN_BINDING_TYPE_NONE = "None";
+        public static final String CIBA_BACKCHANNEL_TOKEN_DELIVERY_MODE = "cibaBackchannelTokenDeliveryMode";
+        public static final String CIBA_CLIENT_NOTIFICATION_ENDPOINT = "cibaClientNotificationEndpoint";
 
         private OIDCConfigProperties() {
 
@@ -498,4 +501,18 @@ public final class OAuthConstants {
 
         public static final String NONE = "NONE";
     }
+
+    /**
+     * Define CIBA token delivery modes of the clients.
+     */
+    public static class CibaTokenDeliveryModes {
+
+        public static final String POLL = "poll";
+        public static final String PING = "ping";
+        public static final String PUSH = "push";
+
+        private CibaTokenDeliveryModes() {
+
+        }
+    }
 }
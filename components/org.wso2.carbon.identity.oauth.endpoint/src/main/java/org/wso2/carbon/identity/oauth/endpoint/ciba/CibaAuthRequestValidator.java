@@ -461,6 +461,16 @@ public class CibaAuthRequestValidator {
                         "Client has not configured grant_type properly.");
             }
 
+            // Clients in ping mode are notified with the client_notification_token of the request.
+            if (CibaConstants.PING_MODE.equalsIgnoreCase(appDO.getCibaTokenDeliveryMode()) &&
+                    StringUtils.isBlank(claimsSet.getStringClaim(CibaConstants.CLIENT_NOTIFICATION_TOKEN))) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Client: " + clientId + " in ping mode has not sent the client_notification_token.");
+                }
+                throw new CibaAuthFailureException(OAuth2ErrorCodes.INVALID_REQUEST,
+                        "Missing (client_notification_token) parameter.");
+            }
+
             if (log.isDebugEnabled()) {
                 log.debug("CIBA Authentication Request 'request':" + request +
                         " is having a proper clientID : " + claimsSet.getIssuer() + " as the issuer.");
@@ -713,6 +723,10 @@ public class CibaAuthRequestValidator {
             cibaAuthCodeRequest.setTransactionContext(
                     (claimsSet.getJSONObjectClaim(CibaConstants.TRANSACTION_CONTEXT).toJSONString()));
 
+            // Setting client_notification_token to AuthenticationRequest after successful validation.
+            cibaAuthCodeRequest.setClientNotificationToken(
+                    claimsSet.getStringClaim(CibaConstants.CLIENT_NOTIFICATION_TOKEN));
+
             // Setting requested_expiry to AuthenticationRequest after successful validation.
             if (claimsSet.getClaim(CibaConstants.REQUESTED_EXPIRY) != null) {
                 cibaAuthCodeRequest.setRequestedExpiry(claimsSet.getLongClaim(CibaConstants.REQUESTED_EXPIRY));
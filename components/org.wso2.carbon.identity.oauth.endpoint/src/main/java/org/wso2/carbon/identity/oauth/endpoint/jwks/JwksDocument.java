@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth.endpoint.jwks;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Serialized JWKS document of a tenant along with the validators required to serve conditional requests.
+ * <p>
+ * Both validators are derived from the keyset only, so that every node of a cluster serves the same ETag and
+ * Last-Modified values for the same keyset.
+ */
+public class JwksDocument {
+
+    private final byte[] content;
+    private final String eTag;
+    private final Date lastModified;
+    private final Object keyStoreVersion;
+    private volatile long validatedTime;
+
+    /**
+     * @param json            Serialized JWKS.
+     * @param keyStoreVersion Version of the keystore the JWKS was built from. The document is rebuilt once the
+     *                        version of the keystore changes.
+     * @param lastModified    Time at which the keyset was last modified.
+     */
+    public JwksDocument(String json, Object keyStoreVersion, Date lastModified) {
+
+        this.content = json.getBytes(StandardCharsets.UTF_8);
+        this.eTag = DigestUtils.sha256Hex(content);
+        // HTTP dates are only precise to the second.
+        this.lastModified = new Date(lastModified.getTime() / 1000 * 1000);
+        this.keyStoreVersion = keyStoreVersion;
+        this.validatedTime = System.currentTimeMillis();
+    }
+
+    public byte[] getContent() {
+
+        return content;
+    }
+
+    public String getETag() {
+
+        return eTag;
+    }
+
+    public Date getLastModified() {
+
+        return new Date(lastModified.getTime());
+    }
+
+    /**
+     * Check whether the document was built from the given version of the keystore.
+     *
+     * @param keyStoreVersion Current version of the keystore.
+     * @return true if the document is still valid for the keystore.
+     */
+    public boolean isBuiltFrom(Object keyStoreVersion) {
+
+        return this.keyStoreVersion != null && this.keyStoreVersion.equals(keyStoreVersion);
+    }
+
+    /**
+     * Get the last time at which the document was found to match the keystore.
+     *
+     * @return Validated time in milliseconds.
+     */
+    public long getValidatedTime() {
+
+        return validatedTime;
+    }
+
+    /**
+     * Record that the document has been found to match the current keystore.
+     */
+    public void markValidated() {
+
+        this.validatedTime = System.currentTimeMillis();
+    }
+}
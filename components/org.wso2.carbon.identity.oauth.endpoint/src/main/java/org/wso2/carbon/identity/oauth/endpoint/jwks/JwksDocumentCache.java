@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth.endpoint.jwks;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node local cache of the serialized JWKS documents keyed by the tenant domain.
+ * <p>
+ * Every node builds the document from the same keystore, hence the cache does not need to be distributed.
+ * A cached document is only served while the keystore it was built from is unchanged, and can be evicted
+ * explicitly when the keystore of a tenant is updated.
+ */
+public class JwksDocumentCache {
+
+    private static final Log log = LogFactory.getLog(JwksDocumentCache.class);
+    private static final JwksDocumentCache instance = new JwksDocumentCache();
+
+    private final Map<String, JwksDocument> documents = new ConcurrentHashMap<>();
+
+    private JwksDocumentCache() {
+
+    }
+
+    public static JwksDocumentCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the cached JWKS document of the tenant if it was built from the given version of the keystore.
+     *
+     * @param tenantDomain    Tenant domain.
+     * @param keyStoreVersion Current version of the tenant keystore.
+     * @return Cached document or null if there is no valid document.
+     */
+    public JwksDocument getDocument(String tenantDomain, Object keyStoreVersion) {
+
+        JwksDocument document = documents.get(tenantDomain);
+        if (document == null) {
+            return null;
+        }
+        if (!document.isBuiltFrom(keyStoreVersion)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Keystore of tenant: " + tenantDomain + " has changed. Evicting the cached JWKS.");
+            }
+            documents.remove(tenantDomain, document);
+            return null;
+        }
+        return document;
+    }
+
+    /**
+     * Get the cached JWKS document of the tenant without checking it against the keystore.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Cached document or null if there is no document.
+     */
+    public JwksDocument getDocument(String tenantDomain) {
+
+        return documents.get(tenantDomain);
+    }
+
+    public void addDocument(String tenantDomain, JwksDocument document) {
+
+        documents.put(tenantDomain, document);
+    }
+
+    /**
+     * Evict the cached JWKS document of the tenant, e.g. when the keystore of the tenant is updated.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void clearDocument(String tenantDomain) {
+
+        documents.remove(tenantDomain);
+    }
+
+    public void clear() {
+
+        documents.clear();
+    }
+}
@@ -18,8 +18,12 @@
 package org.wso2.carbon.identity.oauth.endpoint.jwks;
 
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.KeyUse;
 import com.nimbusds.jose.jwk.RSAKey;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,22 +40,33 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.utils.CarbonUtils;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.security.KeyStore;
+import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.jws.WebService;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
 /**
  * Rest implementation for JWKS endpoint.
@@ -64,46 +79,150 @@ public class JwksEndpoint {
     private static final String SECURITY_KEY_STORE_LOCATION = "Security.KeyStore.Location";
     private static final String SECURITY_KEY_STORE_PW = "Security.KeyStore.Password";
     private static final String KEYS = "keys";
+    // These config properties are defined in identity.xml
+    private static final String JWKS_CACHE_ENABLE = "OAuth.JWKSEndpoint.EnableCache";
+    private static final String JWKS_CACHE_MAX_AGE = "OAuth.JWKSEndpoint.CacheMaxAge";
+    private static final String JWKS_KEY_STORE_REVALIDATION_INTERVAL =
+            "OAuth.JWKSEndpoint.KeyStoreRevalidationInterval";
+    private static final int DEFAULT_JWKS_CACHE_MAX_AGE = 300;
+    private static final int DEFAULT_JWKS_KEY_STORE_REVALIDATION_INTERVAL = 60;
 
     @GET
     @Path(value = "/jwks")
     @Produces(MediaType.APPLICATION_JSON)
-    public String jwks() {
+    public Response jwks(@Context Request request) {
 
         String tenantDomain = getTenantDomain();
-        String keystorePath = CarbonUtils.getServerConfiguration().getFirstProperty(SECURITY_KEY_STORE_LOCATION);
+        JwksDocument jwksDocument;
+        try {
+            jwksDocument = getJwksDocument(tenantDomain);
+        } catch (Exception e) {
+            String errorMessage = "Error while generating the keyset for tenant domain: " + tenantDomain;
+            return Response.ok(logAndReturnError(errorMessage, e)).build();
+        }
+
+        EntityTag entityTag = new EntityTag(jwksDocument.getETag());
+        Response.ResponseBuilder responseBuilder = null;
+        if (request != null) {
+            // Returns a 304 response builder if the client already has the current keyset.
+            responseBuilder = request.evaluatePreconditions(jwksDocument.getLastModified(), entityTag);
+        }
+        if (responseBuilder == null) {
+            responseBuilder = Response.ok(jwksDocument.getContent(), MediaType.APPLICATION_JSON);
+        }
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(getCacheMaxAge());
+        return responseBuilder.tag(entityTag).lastModified(jwksDocument.getLastModified())
+                .cacheControl(cacheControl).build();
+    }
 
-        try (FileInputStream file = new FileInputStream(keystorePath)) {
-            final KeyStore keystore;
-            Map<String, Certificate> certificatesWithAliases = new HashMap<>();
-            if (MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equalsIgnoreCase(tenantDomain)) {
+    private JwksDocument getJwksDocument(String tenantDomain) throws Exception {
+
+        boolean isCacheEnabled = isCacheEnabled();
+        JwksDocumentCache jwksDocumentCache = JwksDocumentCache.getInstance();
+        boolean isSuperTenant = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equalsIgnoreCase(tenantDomain);
+        final KeyStore keystore;
+        Object keyStoreVersion = null;
+        if (isSuperTenant) {
+            String keystorePath = CarbonUtils.getServerConfiguration().getFirstProperty(SECURITY_KEY_STORE_LOCATION);
+            // The keystore file is only read if it has been modified after the cached keyset was built.
+            File keystoreFile = new File(keystorePath);
+            keyStoreVersion = keystoreFile.getAbsolutePath() + ":" + keystoreFile.lastModified() + ":" +
+                    keystoreFile.length();
+            if (isCacheEnabled) {
+                JwksDocument jwksDocument = jwksDocumentCache.getDocument(tenantDomain, keyStoreVersion);
+                if (jwksDocument != null) {
+                    return jwksDocument;
+                }
+            }
+            try (FileInputStream file = new FileInputStream(keystoreFile)) {
                 keystore = KeyStore.getInstance(KeyStore.getDefaultType());
                 String password = CarbonUtils.getServerConfiguration().getFirstProperty(SECURITY_KEY_STORE_PW);
                 keystore.load(file, password.toCharArray());
-            } else {
-                try {
-                    int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
-                    IdentityTenantUtil.initializeRegistry(tenantId);
-                    FrameworkUtils.startTenantFlow(tenantDomain);
-                    KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(tenantId);
-                    keystore = keyStoreManager.getKeyStore(generateKSNameFromDomainName(tenantDomain));
-                } finally {
-                    FrameworkUtils.endTenantFlow();
+            }
+        } else {
+            if (isCacheEnabled) {
+                // Loading a tenant keystore initializes the tenant registry, hence the cached keyset is served
+                // without looking at the keystore until its revalidation interval elapses.
+                JwksDocument jwksDocument = jwksDocumentCache.getDocument(tenantDomain);
+                if (jwksDocument != null && System.currentTimeMillis() - jwksDocument.getValidatedTime() <
+                        getKeyStoreRevalidationInterval() * 1000L) {
+                    return jwksDocument;
                 }
             }
-            Enumeration enumeration = keystore.aliases();
-            while (enumeration.hasMoreElements()) {
-                String alias = (String) enumeration.nextElement();
-                if (keystore.isKeyEntry(alias)) {
-                    Certificate cert = keystore.getCertificate(alias);
-                    certificatesWithAliases.put(alias, cert);
+            try {
+                int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+                IdentityTenantUtil.initializeRegistry(tenantId);
+                FrameworkUtils.startTenantFlow(tenantDomain);
+                KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(tenantId);
+                keystore = keyStoreManager.getKeyStore(generateKSNameFromDomainName(tenantDomain));
+            } finally {
+                FrameworkUtils.endTenantFlow();
+            }
+        }
+
+        // Aliases are sorted so that every node serializes the same keyset into the same document.
+        Map<String, Certificate> certificatesWithAliases = new TreeMap<>();
+        Enumeration enumeration = keystore.aliases();
+        while (enumeration.hasMoreElements()) {
+            String alias = (String) enumeration.nextElement();
+            if (keystore.isKeyEntry(alias)) {
+                Certificate cert = keystore.getCertificate(alias);
+                certificatesWithAliases.put(alias, cert);
+            }
+        }
+        if (!isSuperTenant) {
+            keyStoreVersion = getKeySetFingerprint(certificatesWithAliases);
+            if (isCacheEnabled) {
+                JwksDocument jwksDocument = jwksDocumentCache.getDocument(tenantDomain, keyStoreVersion);
+                if (jwksDocument != null) {
+                    jwksDocument.markValidated();
+                    return jwksDocument;
                 }
             }
-            return buildResponse(certificatesWithAliases);
-        } catch (Exception e) {
-            String errorMessage = "Error while generating the keyset for tenant domain: " + tenantDomain;
-            return logAndReturnError(errorMessage, e);
         }
+        JwksDocument jwksDocument = new JwksDocument(buildResponse(certificatesWithAliases), keyStoreVersion,
+                getKeySetLastModified(certificatesWithAliases));
+        if (isCacheEnabled) {
+            jwksDocumentCache.addDocument(tenantDomain, jwksDocument);
+        }
+        return jwksDocument;
+    }
+
+    /**
+     * Build a fingerprint of the keyset, which changes whenever a key is added, removed or replaced.
+     *
+     * @param certificatesWithAliases Certificates of the keyset sorted by their aliases.
+     * @return Fingerprint of the keyset.
+     * @throws CertificateEncodingException If a certificate cannot be encoded.
+     */
+    private String getKeySetFingerprint(Map<String, Certificate> certificatesWithAliases)
+            throws CertificateEncodingException {
+
+        StringBuilder fingerprint = new StringBuilder();
+        for (Map.Entry<String, Certificate> certificateWithAlias : certificatesWithAliases.entrySet()) {
+            fingerprint.append(certificateWithAlias.getKey()).append(':')
+                    .append(DigestUtils.sha256Hex(certificateWithAlias.getValue().getEncoded())).append(';');
+        }
+        return DigestUtils.sha256Hex(fingerprint.toString());
+    }
+
+    /**
+     * The keyset is considered to be modified when its most recent certificate became valid. Unlike the time at
+     * which a node built the document, this is the same on every node.
+     *
+     * @param certificatesWithAliases Certificates of the keyset.
+     * @return Last modified time of the keyset.
+     */
+    private Date getKeySetLastModified(Map<String, Certificate> certificatesWithAliases) {
+
+        long lastModified = 0;
+        for (Certificate certificate : certificatesWithAliases.values()) {
+            if (certificate instanceof X509Certificate) {
+                lastModified = Math.max(lastModified, ((X509Certificate) certificate).getNotBefore().getTime());
+            }
+        }
+        return new Date(lastModified);
     }
 
     private String buildResponse(Map<String, Certificate> certificates)
@@ -116,17 +235,38 @@ public class JwksEndpoint {
                 OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm(config.getSignatureAlgorithm());
         // If we read different algorithms from identity.xml then put them in a list.
         List<JWSAlgorithm> diffAlgorithms = findDifferentAlgorithms(accessTokenSignAlgorithm, config);
-        // Create JWKS for different algorithms using new KeyID creation method.
+        // Create JWKS for different algorithms using new KeyID creation method. A key is only published for the
+        // algorithms which can be used with its type and, for EC keys, with its curve.
         for (Map.Entry certificateWithAlias : certificates.entrySet()) {
+            Certificate cert = (Certificate) certificateWithAlias.getValue();
+            PublicKey publicKey = cert.getPublicKey();
             for (JWSAlgorithm algorithm : diffAlgorithms) {
-                Certificate cert = (Certificate) certificateWithAlias.getValue();
-                String alias = (String) certificateWithAlias.getKey();
-                RSAPublicKey publicKey = (RSAPublicKey) cert.getPublicKey();
-                RSAKey.Builder jwk = new RSAKey.Builder(publicKey);
-                jwk.keyID(OAuth2Util.getKID(cert, algorithm, getTenantDomain()));
-                jwk.algorithm(algorithm);
-                jwk.keyUse(KeyUse.parse(KEY_USE));
-                jwksArray.put(jwk.build().toJSONObject());
+                JWK jwk;
+                if (publicKey instanceof RSAPublicKey && JWSAlgorithm.Family.RSA.contains(algorithm)) {
+                    jwk = new RSAKey.Builder((RSAPublicKey) publicKey)
+                            .keyID(OAuth2Util.getKID(cert, algorithm, getTenantDomain()))
+                            .algorithm(algorithm)
+                            .keyUse(KeyUse.parse(KEY_USE))
+                            .build();
+                } else if (publicKey instanceof ECPublicKey && JWSAlgorithm.Family.EC.contains(algorithm)) {
+                    ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+                    Curve curve = Curve.forECParameterSpec(ecPublicKey.getParams());
+                    if (curve == null || !Curve.forJWSAlgorithm(algorithm).contains(curve)) {
+                        continue;
+                    }
+                    jwk = new ECKey.Builder(curve, ecPublicKey)
+                            .keyID(OAuth2Util.getKID(cert, algorithm, getTenantDomain()))
+                            .algorithm(algorithm)
+                            .keyUse(KeyUse.parse(KEY_USE))
+                            .build();
+                } else {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Skipping the key with alias: " + certificateWithAlias.getKey() + " of type: " +
+                                publicKey.getAlgorithm() + " for the algorithm: " + algorithm);
+                    }
+                    continue;
+                }
+                jwksArray.put(jwk.toJSONObject());
             }
         }
         jwksJson.put(KEYS, jwksArray);
@@ -169,6 +309,40 @@ public class JwksEndpoint {
         return MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
     }
 
+    private boolean isCacheEnabled() {
+
+        String cacheEnabled = IdentityUtil.getProperty(JWKS_CACHE_ENABLE);
+        return StringUtils.isBlank(cacheEnabled) || Boolean.parseBoolean(cacheEnabled.trim());
+    }
+
+    private int getKeyStoreRevalidationInterval() {
+
+        String interval = IdentityUtil.getProperty(JWKS_KEY_STORE_REVALIDATION_INTERVAL);
+        if (StringUtils.isNotBlank(interval)) {
+            try {
+                return Integer.parseInt(interval.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + interval + " configured for: " + JWKS_KEY_STORE_REVALIDATION_INTERVAL +
+                        ". Using the default value: " + DEFAULT_JWKS_KEY_STORE_REVALIDATION_INTERVAL);
+            }
+        }
+        return DEFAULT_JWKS_KEY_STORE_REVALIDATION_INTERVAL;
+    }
+
+    private int getCacheMaxAge() {
+
+        String maxAge = IdentityUtil.getProperty(JWKS_CACHE_MAX_AGE);
+        if (StringUtils.isNotBlank(maxAge)) {
+            try {
+                return Integer.parseInt(maxAge.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + maxAge + " configured for: " + JWKS_CACHE_MAX_AGE + ". Using the " +
+                        "default value: " + DEFAULT_JWKS_CACHE_MAX_AGE);
+            }
+        }
+        return DEFAULT_JWKS_CACHE_MAX_AGE;
+    }
+
     private String logAndReturnError(String errorMesage, Exception e) {
 
         if (e != null) {
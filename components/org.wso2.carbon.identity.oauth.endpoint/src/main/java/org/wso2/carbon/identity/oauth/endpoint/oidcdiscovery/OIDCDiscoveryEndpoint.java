@@ -25,19 +25,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.base.ServerConfigurationException;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.discovery.DiscoveryUtil;
 import org.wso2.carbon.identity.discovery.OIDCDiscoveryEndPointException;
 import org.wso2.carbon.identity.discovery.OIDCProcessor;
 import org.wso2.carbon.identity.discovery.builders.OIDProviderResponseBuilder;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocument;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocumentCache;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.endpoint.util.EndpointUtil;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 
 /**
@@ -65,7 +72,7 @@ public class OIDCDiscoveryEndpoint {
             tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
         }
         if (isValidIssuer(discoveryEpPathComponent)) {
-            return this.getResponse(request, tenantDomain);
+            return this.getResponse(request, tenantDomain, discoveryEpPathComponent);
         } else {
             Response.ResponseBuilder errorResponse = Response.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             if (log.isDebugEnabled()) {
@@ -94,13 +101,12 @@ public class OIDCDiscoveryEndpoint {
         return false;
     }
 
-    private Response getResponse(HttpServletRequest request, String tenant) {
+    private Response getResponse(HttpServletRequest request, String tenant, String discoveryEpPathComponent) {
 
-        String response;
+        OIDCDiscoveryDocument document;
         OIDCProcessor processor = EndpointUtil.getOIDCService();
         try {
-            OIDProviderResponseBuilder responseBuilder = getOidProviderResponseBuilder();
-            response = responseBuilder.getOIDProviderConfigString(processor.getResponse(request, tenant));
+            document = getDiscoveryDocument(processor, request, tenant, discoveryEpPathComponent);
         } catch (OIDCDiscoveryEndPointException e) {
             Response.ResponseBuilder errorResponse = Response.status(processor.handleError(e));
             return errorResponse.entity(e.getMessage()).build();
@@ -109,8 +115,43 @@ public class OIDCDiscoveryEndpoint {
             Response.ResponseBuilder errorResponse = Response.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             return errorResponse.entity("Error in reading configuration.").build();
         }
-        Response.ResponseBuilder responseBuilder = Response.status(HttpServletResponse.SC_OK);
-        return responseBuilder.entity(response).build();
+
+        Response.ResponseBuilder responseBuilder;
+        if (DiscoveryUtil.isNotModified(request, document.getETag())) {
+            responseBuilder = Response.notModified();
+        } else {
+            responseBuilder = Response.status(HttpServletResponse.SC_OK).entity(document.getContent());
+        }
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(DiscoveryUtil.getDiscoveryCacheMaxAge());
+        return responseBuilder.tag(new EntityTag(document.getETag())).lastModified(document.getLastModified())
+                .cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Get the rendered discovery document of the issuer path of the tenant. The document is only rendered again
+     * once the cached document has expired.
+     */
+    private OIDCDiscoveryDocument getDiscoveryDocument(OIDCProcessor processor, HttpServletRequest request,
+                                                       String tenant, String discoveryEpPathComponent)
+            throws OIDCDiscoveryEndPointException, ServerConfigurationException {
+
+        boolean isCacheEnabled = DiscoveryUtil.isDiscoveryCacheEnabled();
+        OIDCDiscoveryDocumentCache documentCache = OIDCDiscoveryDocumentCache.getInstance();
+        if (isCacheEnabled) {
+            OIDCDiscoveryDocument document = documentCache.getDocument(tenant, discoveryEpPathComponent,
+                    TimeUnit.SECONDS.toMillis(DiscoveryUtil.getDiscoveryCacheMaxAge()));
+            if (document != null) {
+                return document;
+            }
+        }
+        OIDProviderResponseBuilder responseBuilder = getOidProviderResponseBuilder();
+        OIDCDiscoveryDocument document = new OIDCDiscoveryDocument(
+                responseBuilder.getOIDProviderConfigString(processor.getResponse(request, tenant)));
+        if (isCacheEnabled) {
+            documentCache.addDocument(tenant, discoveryEpPathComponent, document);
+        }
+        return document;
     }
 
     @Autowired
@@ -34,6 +34,7 @@ import org.wso2.carbon.identity.oauth.user.UserInfoEndpointException;
 import org.wso2.carbon.identity.oauth.user.UserInfoRequestValidator;
 import org.wso2.carbon.identity.oauth.user.UserInfoResponseBuilder;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 
 import java.util.List;
 import java.util.Map;
@@ -72,6 +73,8 @@ public class OpenIDConnectUserEndpoint {
 
         String userInfoResponse;
         String userInfoResponseContentType;
+        // The access token resolved during validation is reused to retrieve the claims and build the response.
+        TokenResolutionContext.start();
         try {
             // validate the request
             UserInfoRequestValidator requestValidator = UserInfoEndpointConfig.getInstance().
@@ -95,6 +98,8 @@ public class OpenIDConnectUserEndpoint {
         } catch (OAuthSystemException e) {
             log.error("UserInfoEndpoint Failed", e);
             throw new OAuthSystemException("UserInfoEndpoint Failed");
+        } finally {
+            TokenResolutionContext.clear();
         }
 
         ResponseBuilder respBuilder = getResponseBuilderWithCacheControlHeaders();
@@ -27,6 +27,7 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.util.Arrays;
@@ -61,7 +62,7 @@ public class UserInfoISAccessTokenValidator implements UserInfoAccessTokenValida
         accessToken.setIdentifier(accessTokenIdentifier);
         dto.setAccessToken(accessToken);
         OAuth2TokenValidationResponseDTO response = EndpointUtil.getOAuth2TokenValidationService().validate(dto);
-        AccessTokenDO accessTokenDO;
+        AccessTokenDO accessTokenDO = null;
 
         // invalid access token
         if (!response.isValid()) {
@@ -76,10 +77,21 @@ public class UserInfoISAccessTokenValidator implements UserInfoAccessTokenValida
             hasOpenIDScope = Arrays.asList(scopes).contains("openid");
         }
 
-        try {
-            accessTokenDO = OAuth2Util.findAccessToken(accessTokenIdentifier, false);
-        } catch (IdentityOAuth2Exception e) {
-            throw new UserInfoEndpointException("Error in getting AccessTokenDO", e);
+        // The token is already resolved in the current request by the token validation.
+        TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
+        if (tokenResolutionContext != null) {
+            accessTokenDO = tokenResolutionContext.getAccessTokenDO(accessTokenIdentifier);
+        }
+        if (accessTokenDO == null) {
+            try {
+                accessTokenDO = OAuth2Util.findAccessToken(accessTokenIdentifier, false);
+            } catch (IdentityOAuth2Exception e) {
+                throw new UserInfoEndpointException("Error in getting AccessTokenDO", e);
+            }
+            // Keep the resolved token for the claim retrieval and response building of the same request.
+            if (tokenResolutionContext != null && accessTokenDO != null) {
+                tokenResolutionContext.setAccessTokenDO(accessTokenIdentifier, accessTokenDO);
+            }
         }
 
         if (!hasOpenIDScope) {
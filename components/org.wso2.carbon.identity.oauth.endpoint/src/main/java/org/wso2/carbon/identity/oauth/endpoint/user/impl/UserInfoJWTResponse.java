@@ -31,6 +31,7 @@ import org.wso2.carbon.identity.oauth.user.UserInfoEndpointException;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.AbstractUserInfoResponseBuilder;
 
@@ -117,10 +118,16 @@ public class UserInfoJWTResponse extends AbstractUserInfoResponseBuilder {
     private String getAuthzUserTenantDomain(OAuth2TokenValidationResponseDTO tokenResponse)
             throws UserInfoEndpointException {
 
+        String tokenString = tokenResponse.getAuthorizationContextToken().getTokenString();
+        TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
         AccessTokenDO accessTokenDO = null;
+        if (tokenResolutionContext != null) {
+            accessTokenDO = tokenResolutionContext.getAccessTokenDO(tokenString);
+        }
         try {
-            accessTokenDO = OAuth2Util.findAccessToken(tokenResponse.getAuthorizationContextToken().getTokenString(),
-                    false);
+            if (accessTokenDO == null) {
+                accessTokenDO = OAuth2Util.findAccessToken(tokenString, false);
+            }
         } catch (IdentityOAuth2Exception e) {
             if (IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
                 throw new UserInfoEndpointException("Error occurred while obtaining access token DO for the token " +
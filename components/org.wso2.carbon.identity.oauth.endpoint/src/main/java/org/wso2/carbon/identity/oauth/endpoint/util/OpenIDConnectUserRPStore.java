@@ -22,6 +22,8 @@ import org.wso2.carbon.identity.application.authentication.framework.model.Authe
 import org.wso2.carbon.identity.core.dao.OpenIDUserRPDAO;
 import org.wso2.carbon.identity.core.model.OpenIDUserRPDO;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.cache.UserRPConsentCache;
+import org.wso2.carbon.identity.oauth.cache.UserRPConsentCacheKey;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
@@ -62,9 +64,12 @@ public class OpenIDConnectUserRPStore {
 
         OpenIDUserRPDAO dao = new OpenIDUserRPDAO();
         dao.createOrUpdate(repDO, tenantId);
+        UserRPConsentCache.getInstance().clearCacheEntry(repDO.getUserName(), appName, tenantId);
     }
 
     /**
+     * The decision is served from the {@link UserRPConsentCache}, which is cleared when the consent is updated.
+     *
      * @param user
      * @param appName
      * @return
@@ -73,12 +78,18 @@ public class OpenIDConnectUserRPStore {
     public boolean hasUserApproved(AuthenticatedUser user, String appName, String clientId) throws
             OAuthSystemException {
 
-        OpenIDUserRPDAO dao = new OpenIDUserRPDAO();
-
         int tenantId = IdentityTenantUtil.getTenantId(user.getTenantDomain());
+        UserRPConsentCacheKey cacheKey = new UserRPConsentCacheKey(getAuthenticatedSubjectIdentifier(user), appName);
+        Boolean trustedAlways = UserRPConsentCache.getInstance().getValueFromCache(cacheKey, tenantId);
+        if (trustedAlways != null) {
+            return trustedAlways;
+        }
 
-        OpenIDUserRPDO rpDO = dao.getOpenIDUserRP(getAuthenticatedSubjectIdentifier(user), appName, tenantId);
-        return rpDO != null && rpDO.isTrustedAlways();
+        OpenIDUserRPDAO dao = new OpenIDUserRPDAO();
+        OpenIDUserRPDO rpDO = dao.getOpenIDUserRP(cacheKey.getUserName(), appName, tenantId);
+        trustedAlways = rpDO != null && rpDO.isTrustedAlways();
+        UserRPConsentCache.getInstance().addToCache(cacheKey, trustedAlways, tenantId);
+        return trustedAlways;
     }
 
     /**
@@ -97,6 +108,7 @@ public class OpenIDConnectUserRPStore {
         if (consent != null) {
             dao.delete(consent, tenantId);
         }
+        UserRPConsentCache.getInstance().clearCacheEntry(getAuthenticatedSubjectIdentifier(user), appName, tenantId);
     }
 
     private String getAuthenticatedSubjectIdentifier(AuthenticatedUser user) {
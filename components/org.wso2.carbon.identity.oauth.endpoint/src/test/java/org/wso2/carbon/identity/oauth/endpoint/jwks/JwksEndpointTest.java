@@ -46,19 +46,35 @@ import org.wso2.carbon.utils.CarbonUtils;
 import java.io.FileInputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -162,7 +178,8 @@ public class JwksEndpointTest extends PowerMockIdentityBaseTest {
         when(KeyStoreManager.getInstance(anyInt())).thenReturn(keyStoreManager);
         when(keyStoreManager.getKeyStore("foo-com.jks")).thenReturn(getKeyStoreFromFile("foo-com.jks", "foo.com"));
 
-        String result = jwksEndpoint.jwks();
+        JwksDocumentCache.getInstance().clear();
+        String result = getResponseString(jwksEndpoint.jwks(null));
 
         try {
             JSONObject jwksJson = new JSONObject(result);
@@ -192,6 +209,147 @@ public class JwksEndpointTest extends PowerMockIdentityBaseTest {
         threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
     }
 
+    @Test
+    public void testJwksConditionalRequest() throws Exception {
+
+        mockSuperTenantKeyStore();
+        JwksDocumentCache.getInstance().clear();
+
+        Response response = jwksEndpoint.jwks(null);
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        EntityTag entityTag = (EntityTag) response.getMetadata().getFirst(HttpHeaders.ETAG);
+        assertNotNull(entityTag, "ETag header is not set.");
+        assertNotNull(response.getMetadata().getFirst(HttpHeaders.LAST_MODIFIED), "Last-Modified header is not set.");
+        CacheControl cacheControl = (CacheControl) response.getMetadata().getFirst(HttpHeaders.CACHE_CONTROL);
+        assertEquals(cacheControl.getMaxAge(), 300, "Incorrect Cache-Control max-age.");
+
+        // A client holding the current keyset receives a 304 without a body.
+        Request request = mock(Request.class);
+        when(request.evaluatePreconditions(any(Date.class), eq(entityTag)))
+                .thenReturn(Response.notModified(entityTag));
+        Response notModifiedResponse = jwksEndpoint.jwks(request);
+        assertEquals(notModifiedResponse.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        assertNull(notModifiedResponse.getEntity());
+    }
+
+    @Test
+    public void testJwksIsServedFromCache() throws Exception {
+
+        mockSuperTenantKeyStore();
+        JwksDocumentCache.getInstance().clear();
+
+        String firstResponse = getResponseString(jwksEndpoint.jwks(null));
+        // The keyset is not rebuilt while the keystore is unchanged.
+        when(OAuth2Util.getKID(any(), any(), anyString())).thenReturn("updatedCertThumbPrint");
+        String secondResponse = getResponseString(jwksEndpoint.jwks(null));
+        assertEquals(secondResponse, firstResponse);
+
+        JwksDocumentCache.getInstance().clearDocument(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        String rebuiltResponse = getResponseString(jwksEndpoint.jwks(null));
+        assertTrue(rebuiltResponse.contains("updatedCertThumbPrint"), "JWKS was not rebuilt after eviction.");
+    }
+
+    @Test
+    public void testJwksValidatorsAreDerivedFromKeySet() throws Exception {
+
+        mockSuperTenantKeyStore();
+        JwksDocumentCache.getInstance().clear();
+
+        Response response = jwksEndpoint.jwks(null);
+        JwksDocumentCache.getInstance().clear();
+        Thread.sleep(1000);
+        Response rebuiltResponse = jwksEndpoint.jwks(null);
+
+        // A document built later, e.g. by another node, carries the same validators for the same keyset.
+        assertEquals(rebuiltResponse.getMetadata().getFirst(HttpHeaders.ETAG),
+                response.getMetadata().getFirst(HttpHeaders.ETAG));
+        assertEquals(rebuiltResponse.getMetadata().getFirst(HttpHeaders.LAST_MODIFIED),
+                response.getMetadata().getFirst(HttpHeaders.LAST_MODIFIED));
+        KeyStore keyStore = getKeyStoreFromFile("wso2carbon.jks", "wso2carbon");
+        Date notBefore = ((X509Certificate) keyStore.getCertificate("wso2carbon")).getNotBefore();
+        assertEquals(((Date) response.getMetadata().getFirst(HttpHeaders.LAST_MODIFIED)).getTime(),
+                notBefore.getTime() / 1000 * 1000);
+    }
+
+    @Test
+    public void testTenantJwksIsServedFromCache() throws Exception {
+
+        mockSuperTenantKeyStore();
+        setTenantDomainToContext("foo.com");
+        mockStatic(IdentityUtil.class);
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(1);
+        mockStatic(FrameworkUtils.class);
+        KeyStoreManager tenantKeyStoreManager = mock(KeyStoreManager.class);
+        mockStatic(KeyStoreManager.class);
+        when(KeyStoreManager.getInstance(anyInt())).thenReturn(tenantKeyStoreManager);
+        when(tenantKeyStoreManager.getKeyStore("foo-com.jks")).thenReturn(getKeyStoreFromFile("foo-com.jks",
+                "foo.com"));
+        JwksDocumentCache.getInstance().clear();
+
+        try {
+            String firstResponse = getResponseString(jwksEndpoint.jwks(null));
+            String secondResponse = getResponseString(jwksEndpoint.jwks(null));
+            assertEquals(secondResponse, firstResponse);
+            // The tenant keystore is not loaded again within the revalidation interval.
+            verify(tenantKeyStoreManager, times(1)).getKeyStore("foo-com.jks");
+
+            // Once the interval has elapsed, an unchanged keystore keeps the cached keyset.
+            when(OAuth2Util.getKID(any(), any(), anyString())).thenReturn("updatedCertThumbPrint");
+            when(IdentityUtil.getProperty("OAuth.JWKSEndpoint.KeyStoreRevalidationInterval")).thenReturn("0");
+            String revalidatedResponse = getResponseString(jwksEndpoint.jwks(null));
+            assertEquals(revalidatedResponse, firstResponse);
+            verify(tenantKeyStoreManager, times(2)).getKeyStore("foo-com.jks");
+        } finally {
+            setTenantDomainToContext(null);
+            JwksDocumentCache.getInstance().clear();
+        }
+    }
+
+    private void setTenantDomainToContext(String tenantDomain) throws Exception {
+
+        ThreadLocal<Map<String, Object>> threadLocalProperties = new ThreadLocal() {
+            protected Map<String, Object> initialValue() {
+
+                return new HashMap();
+            }
+        };
+        threadLocalProperties.get().put(OAuthConstants.TENANT_NAME_FROM_CONTEXT, tenantDomain);
+
+        Field threadLocalPropertiesField = identityUtilObj.getClass().getDeclaredField("threadLocalProperties");
+        Field modifiersField = Field.class.getDeclaredField("modifiers");
+        modifiersField.setAccessible(true);
+        modifiersField.setInt(threadLocalPropertiesField, threadLocalPropertiesField.getModifiers() & ~Modifier.FINAL);
+        threadLocalPropertiesField.setAccessible(true);
+        threadLocalPropertiesField.set(identityUtilObj, threadLocalProperties);
+    }
+
+    private void mockSuperTenantKeyStore() throws Exception {
+
+        Path keystorePath = Paths.get(System.getProperty(CarbonBaseConstants.CARBON_HOME), "repository", "resources",
+                "security", "wso2carbon.jks");
+        mockOAuthServerConfiguration();
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(serverConfiguration);
+        when(serverConfiguration.getFirstProperty("Security.KeyStore.Location")).thenReturn(keystorePath.toString());
+        when(serverConfiguration.getFirstProperty("Security.KeyStore.Password")).thenReturn("wso2carbon");
+
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.getKID(any(), any(), anyString())).thenReturn(CERT_THUMB_PRINT);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA256withRSA")).thenReturn(JWSAlgorithm.RS256);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA512withRSA")).thenReturn(JWSAlgorithm.RS512);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA384withRSA")).thenReturn(JWSAlgorithm.RS384);
+    }
+
+    private String getResponseString(Response response) {
+
+        Object entity = response.getEntity();
+        if (entity instanceof byte[]) {
+            return new String((byte[]) entity, StandardCharsets.UTF_8);
+        }
+        return (String) entity;
+    }
+
     private void mockOAuthServerConfiguration() throws Exception {
 
         mockStatic(OAuthServerConfiguration.class);
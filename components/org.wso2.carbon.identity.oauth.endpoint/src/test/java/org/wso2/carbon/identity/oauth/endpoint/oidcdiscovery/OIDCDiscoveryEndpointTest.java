@@ -25,6 +25,7 @@ import org.testng.annotations.Test;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.discovery.DefaultOIDCProcessor;
+import org.wso2.carbon.identity.discovery.DiscoveryUtil;
 import org.wso2.carbon.identity.discovery.OIDCDiscoveryEndPointException;
 import org.wso2.carbon.identity.discovery.OIDProviderConfigResponse;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
@@ -39,6 +40,8 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import static org.mockito.Matchers.any;
@@ -88,6 +91,57 @@ public class OIDCDiscoveryEndpointTest extends PowerMockIdentityBaseTest {
             String tokenEp, Map<String, Object> configMap, int expectedResponse)
             throws Exception {
 
+        ThreadLocal<Map<String, Object>> threadLocalProperties = setTenantDomainInThreadLocal();
+        mockOIDCProcessor(configMap);
+        Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration(tokenEp, httpServletRequest);
+        Assert.assertEquals(expectedResponse, response.getStatus());
+        threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+    }
+
+    @Test
+    public void testGetOIDProviderConfigurationNotModified() throws Exception {
+
+        ThreadLocal<Map<String, Object>> threadLocalProperties = setTenantDomainInThreadLocal();
+        mockOIDCProcessor(getSampleConfigMap());
+        try {
+            Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+            Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+            String eTag = response.getEntityTag().getValue();
+
+            when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"" + eTag + "\"");
+            response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+            Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+            Assert.assertFalse(response.hasEntity());
+            Assert.assertEquals(eTag, response.getEntityTag().getValue());
+
+            when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"staleETag\"");
+            response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+            Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        } finally {
+            when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(null);
+            threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+        }
+    }
+
+    @Test
+    public void testGetOIDProviderConfigurationCacheControl() throws Exception {
+
+        ThreadLocal<Map<String, Object>> threadLocalProperties = setTenantDomainInThreadLocal();
+        mockOIDCProcessor(getSampleConfigMap());
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.getProperty(DiscoveryUtil.OIDC_DISCOVERY_CACHE_MAX_AGE)).thenReturn("120");
+        try {
+            Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+            Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+            CacheControl cacheControl = (CacheControl) response.getMetadata().getFirst(HttpHeaders.CACHE_CONTROL);
+            Assert.assertEquals(120, cacheControl.getMaxAge());
+        } finally {
+            threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+        }
+    }
+
+    private ThreadLocal<Map<String, Object>> setTenantDomainInThreadLocal() throws Exception {
+
         ThreadLocal<Map<String, Object>> threadLocalProperties = new ThreadLocal() {
             protected Map<String, Object> initialValue() {
 
@@ -105,6 +159,10 @@ public class OIDCDiscoveryEndpointTest extends PowerMockIdentityBaseTest {
                 threadLocalPropertiesField.getModifiers() & ~Modifier.FINAL);
         threadLocalPropertiesField.setAccessible(true);
         threadLocalPropertiesField.set(identityUtilObj, threadLocalProperties);
+        return threadLocalProperties;
+    }
+
+    private void mockOIDCProcessor(Map<String, Object> configMap) throws Exception {
 
         mockStatic(EndpointUtil.class);
         when(EndpointUtil.getOIDCService()).thenReturn(defaultOIDCProcessor);
@@ -114,9 +172,6 @@ public class OIDCDiscoveryEndpointTest extends PowerMockIdentityBaseTest {
         when(defaultOIDCProcessor.handleError(any(OIDCDiscoveryEndPointException.class)))
                 .thenReturn(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         oidcDiscoveryEndpoint.setOidProviderResponseBuilder(new OIDProviderJSONResponseBuilder());
-        Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration(tokenEp, httpServletRequest);
-        Assert.assertEquals(expectedResponse, response.getStatus());
-        threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
     }
 
     private Map<String, Object> getSampleConfigMap() {
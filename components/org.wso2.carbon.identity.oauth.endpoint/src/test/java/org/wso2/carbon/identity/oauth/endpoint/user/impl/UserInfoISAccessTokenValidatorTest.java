@@ -27,8 +27,12 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.oauth.endpoint.util.EndpointUtil;
 import org.wso2.carbon.identity.oauth.user.UserInfoEndpointException;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.io.IOException;
 import java.util.Scanner;
@@ -36,12 +40,16 @@ import java.util.Scanner;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.HttpHeaders;
 
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
-@PrepareForTest({UserInforRequestDefaultValidator.class, UserInfoISAccessTokenValidator.class, EndpointUtil.class})
+@PrepareForTest({UserInforRequestDefaultValidator.class, UserInfoISAccessTokenValidator.class, EndpointUtil.class,
+        OAuth2Util.class})
 public class UserInfoISAccessTokenValidatorTest extends PowerMockTestCase {
 
     @Mock
@@ -122,6 +130,33 @@ public class UserInfoISAccessTokenValidatorTest extends PowerMockTestCase {
         assertEquals(responseDTO.getAuthorizationContextToken().getTokenString(), accessTokenIdentifier);
     }
 
+    @Test
+    public void testTokenValidationReusesResolvedToken() throws Exception {
+
+        OAuth2TokenValidationResponseDTO validationResponse = new OAuth2TokenValidationResponseDTO();
+        validationResponse.setValid(true);
+        validationResponse.setScope(new String[]{"openid"});
+        validationResponse.setAuthorizedUser("admin");
+        when(oAuth2TokenValidationService.validate(Matchers.anyObject())).thenReturn(validationResponse);
+        mockStatic(EndpointUtil.class);
+        when(EndpointUtil.getOAuth2TokenValidationService()).thenReturn(oAuth2TokenValidationService);
+        // The token is resolved by the token validation, hence it should not be resolved again.
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.findAccessToken(anyString(), anyBoolean()))
+                .thenThrow(new IdentityOAuth2Exception("The token should not be resolved again."));
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        TokenResolutionContext.start();
+        try {
+            TokenResolutionContext.get().setAccessTokenDO(token, accessTokenDO);
+            OAuth2TokenValidationResponseDTO responseDTO = userInfoISAccessTokenValidator.validateToken(token);
+            assertEquals(responseDTO.getAuthorizationContextToken().getTokenString(), token);
+            assertSame(TokenResolutionContext.get().getAccessTokenDO(token), accessTokenDO);
+        } finally {
+            TokenResolutionContext.clear();
+        }
+    }
+
 //    @Test(dataProvider = "requestBodyWithNonASCII", expectedExceptions = UserInfoEndpointException.class)
 //    public void testValidateTokenWithRequestBodyNonASCII(String contentType, String requestBody, String expected)
 // throws Exception {
@@ -28,7 +28,9 @@ import org.wso2.carbon.base.CarbonBaseConstants;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.cache.UserRPConsentCache;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.dao.TokenManagementDAOImpl;
 import org.wso2.carbon.identity.oauth.tokenprocessor.TokenPersistenceProcessor;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
@@ -40,12 +42,14 @@ import static org.mockito.Matchers.anyString;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @PrepareForTest({IdentityTenantUtil.class, IdentityDatabaseUtil.class, OAuthServerConfiguration.class})
 public class OpenIDConnectUserRPStoreTest extends TestOAuthEndpointBase {
 
     private static final String RETRIEVE_PERSISTED_USER_SQL = "SELECT USER_NAME FROM IDN_OPENID_USER_RPS";
+    private static final String DELETE_PERSISTED_CONSENTS_SQL = "DELETE FROM IDN_OPENID_USER_RPS";
 
     private AuthenticatedUser user;
     private OpenIDConnectUserRPStore store;
@@ -177,4 +181,97 @@ public class OpenIDConnectUserRPStoreTest extends TestOAuthEndpointBase {
             assertTrue(!clientId.equals(consumerKey), "Unexpected exception thrown: " + e.getMessage());
         }
     }
+
+    @Test(dependsOnMethods = {"testHasUserApproved"})
+    public void testHasUserApprovedAfterConsentUpdate() throws Exception {
+
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection()).thenAnswer(invocationOnMock -> dataSource.getConnection());
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenAnswer(invocationOnMock -> dataSource.getConnection());
+
+        user.setUserName(username);
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+
+        // The cached decision must not outlive the consent it was read from.
+        store.putUserRPToStore(user, appName, false, clientId);
+        assertFalse(store.hasUserApproved(user, appName, clientId));
+
+        store.putUserRPToStore(user, appName, true, clientId);
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+    }
+
+    @Test(dependsOnMethods = {"testHasUserApprovedAfterConsentUpdate"})
+    public void testHasUserApprovedFromCache() throws Exception {
+
+        mockConsentStore();
+        user.setUserName(username);
+        store.putUserRPToStore(user, appName, true, clientId);
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+
+        // The consent is removed behind the store, hence only a cached decision approves the user.
+        deletePersistedConsents();
+        try {
+            assertTrue(store.hasUserApproved(user, appName, clientId), "Consent is not served from the cache.");
+        } finally {
+            store.putUserRPToStore(user, appName, true, clientId);
+        }
+    }
+
+    @Test(dependsOnMethods = {"testHasUserApprovedFromCache"})
+    public void testConsentCacheHitAndMissCount() throws Exception {
+
+        mockConsentStore();
+        user.setUserName(username);
+        store.putUserRPToStore(user, appName, true, clientId);
+        UserRPConsentCache cache = UserRPConsentCache.getInstance();
+
+        long hitCount = cache.getHitCount();
+        long missCount = cache.getMissCount();
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+        assertEquals(cache.getHitCount(), hitCount);
+        assertEquals(cache.getMissCount(), missCount + 1);
+
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+        assertEquals(cache.getHitCount(), hitCount + 1);
+        assertEquals(cache.getMissCount(), missCount + 1);
+    }
+
+    @Test(dependsOnMethods = {"testConsentCacheHitAndMissCount"})
+    public void testHasUserApprovedAfterAdminRevocation() throws Exception {
+
+        mockConsentStore();
+        user.setUserName(username);
+        store.putUserRPToStore(user, appName, true, clientId);
+        assertTrue(store.hasUserApproved(user, appName, clientId));
+
+        try {
+            new TokenManagementDAOImpl().revokeOAuthConsentByApplicationAndUser(username, appName);
+            assertFalse(store.hasUserApproved(user, appName, clientId), "Revoked consent is served from the cache.");
+        } finally {
+            store.putUserRPToStore(user, appName, true, clientId);
+        }
+    }
+
+    private void mockConsentStore() throws Exception {
+
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection()).thenAnswer(invocationOnMock -> dataSource.getConnection());
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenAnswer(invocationOnMock -> dataSource.getConnection());
+        mockStatic(OAuthServerConfiguration.class);
+        when(OAuthServerConfiguration.getInstance()).thenReturn(oAuthServerConfiguration);
+        when(oAuthServerConfiguration.getPersistenceProcessor()).thenReturn(tokenPersistenceProcessor);
+        when(tokenPersistenceProcessor.getProcessedClientId(anyString()))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+    }
+
+    private void deletePersistedConsents() throws Exception {
+
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_PERSISTED_CONSENTS_SQL)) {
+            statement.executeUpdate();
+        }
+    }
 }
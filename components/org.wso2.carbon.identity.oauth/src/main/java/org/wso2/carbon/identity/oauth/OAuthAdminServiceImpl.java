@@ -54,12 +54,15 @@ import org.wso2.carbon.identity.oauth2.Oauth2ScopeConstants;
 import org.wso2.carbon.identity.oauth2.authz.handlers.ResponseTypeHandler;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.model.AuthorizedAppDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.oauth2.validators.OAuth2ScopeValidator;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -94,6 +97,7 @@ public class OAuthAdminServiceImpl {
 
     protected static final Log LOG = LogFactory.getLog(OAuthAdminServiceImpl.class);
     private static final String SCOPE_VALIDATION_REGEX = "^[^?#/()]*$";
+    private static final int AUTHORIZED_APPS_PAGE_SIZE = 100;
 
     /**
      * Registers an consumer secret against the logged in user. A given user can only have a single
@@ -305,6 +309,7 @@ public class OAuthAdminServiceImpl {
                     app.setTokenBindingValidationEnabled(application.isTokenBindingValidationEnabled());
                     app.setTokenRevocationWithIDPSessionTerminationEnabled(
                             application.isTokenRevocationWithIDPSessionTerminationEnabled());
+                    setCibaConfigurations(application, app);
                 }
                 dao.addOAuthApplication(app);
                 AppInfoCache.getInstance().addToCache(app.getOauthConsumerKey(), app);
@@ -365,6 +370,75 @@ public class OAuthAdminServiceImpl {
         }
     }
 
+    /**
+     * Validate the CIBA token delivery mode and the client notification endpoint of the application and set them to
+     * the app. When the request does not specify the delivery mode, the CIBA configurations of the app are kept, e.g.
+     * the stored ones on an update, and clients using the CIBA grant without a delivery mode default to poll mode.
+     *
+     * @param application OAuth application in the request.
+     * @param app         OAuth app to set the CIBA configurations.
+     * @throws IdentityOAuthClientException If the CIBA configurations are invalid.
+     */
+    private void setCibaConfigurations(OAuthConsumerAppDTO application, OAuthAppDO app)
+            throws IdentityOAuthClientException {
+
+        String deliveryMode = application.getCibaTokenDeliveryMode();
+        String notificationEndpoint = application.getCibaClientNotificationEndpoint();
+        if (StringUtils.isBlank(deliveryMode)) {
+            deliveryMode = app.getCibaTokenDeliveryMode();
+            if (StringUtils.isBlank(notificationEndpoint)) {
+                notificationEndpoint = app.getCibaClientNotificationEndpoint();
+            }
+        }
+        boolean isCibaGrantAllowed = application.getGrantTypes() != null &&
+                Arrays.asList(application.getGrantTypes().split("\\s")).contains(OAuthConstants.GrantTypes.CIBA);
+        if (StringUtils.isBlank(deliveryMode) && isCibaGrantAllowed) {
+            deliveryMode = OAuthConstants.CibaTokenDeliveryModes.POLL;
+        }
+
+        validateCibaConfigurations(deliveryMode, notificationEndpoint);
+        app.setCibaTokenDeliveryMode(deliveryMode);
+        app.setCibaClientNotificationEndpoint(notificationEndpoint);
+    }
+
+    /**
+     * Validate the CIBA token delivery mode and the client notification endpoint. Either the poll or the ping mode
+     * should be used, since push mode is not supported. The client notification endpoint is mandatory for ping mode
+     * and should be a https URL.
+     *
+     * @param deliveryMode         CIBA token delivery mode.
+     * @param notificationEndpoint CIBA client notification endpoint.
+     * @throws IdentityOAuthClientException If the CIBA configurations are invalid.
+     */
+    private void validateCibaConfigurations(String deliveryMode, String notificationEndpoint)
+            throws IdentityOAuthClientException {
+
+        if (OAuthConstants.CibaTokenDeliveryModes.PUSH.equals(deliveryMode)) {
+            throw handleClientError(INVALID_REQUEST, "CIBA push token delivery mode is not supported.");
+        } else if (StringUtils.isNotBlank(deliveryMode) &&
+                !OAuthConstants.CibaTokenDeliveryModes.POLL.equals(deliveryMode) &&
+                !OAuthConstants.CibaTokenDeliveryModes.PING.equals(deliveryMode)) {
+            throw handleClientError(INVALID_REQUEST,
+                    String.format("'%s' is not a valid CIBA token delivery mode.", deliveryMode));
+        }
+
+        if (StringUtils.isBlank(notificationEndpoint)) {
+            if (OAuthConstants.CibaTokenDeliveryModes.PING.equals(deliveryMode)) {
+                throw handleClientError(INVALID_REQUEST,
+                        "CIBA client notification endpoint is mandatory for the ping token delivery mode.");
+            }
+            return;
+        }
+        try {
+            URI endpoint = new URI(notificationEndpoint);
+            if (!"https".equalsIgnoreCase(endpoint.getScheme()) || StringUtils.isBlank(endpoint.getHost())) {
+                throw handleClientError(INVALID_REQUEST, "CIBA client notification endpoint should be a https URL.");
+            }
+        } catch (URISyntaxException e) {
+            throw handleClientError(INVALID_REQUEST, "CIBA client notification endpoint is not a valid URL.", e);
+        }
+    }
+
     private IdentityOAuthClientException handleClientError(Error errorMessage, String msg) {
 
         return new IdentityOAuthClientException(errorMessage.getErrorCode(), msg);
@@ -497,6 +571,7 @@ public class OAuthAdminServiceImpl {
             oauthappdo.setTokenRevocationWithIDPSessionTerminationEnabled(consumerAppDTO
                     .isTokenRevocationWithIDPSessionTerminationEnabled());
             oauthappdo.setTokenBindingValidationEnabled(consumerAppDTO.isTokenBindingValidationEnabled());
+            setCibaConfigurations(consumerAppDTO, oauthappdo);
         }
         dao.updateConsumerApplication(oauthappdo);
         AppInfoCache.getInstance().addToCache(oauthappdo.getOauthConsumerKey(), oauthappdo);
@@ -927,80 +1002,119 @@ public class OAuthAdminServiceImpl {
      */
     public OAuthConsumerAppDTO[] getAppsAuthorizedByUser() throws IdentityOAuthAdminException {
 
+        AuthenticatedUser loggedInUser = getLoggedInUser();
+        List<OAuthConsumerAppDTO> appDTOs = new ArrayList<>();
+        String afterConsumerKey = null;
+        List<AuthorizedAppDO> authorizedApps;
+        do {
+            authorizedApps = getAuthorizedApps(loggedInUser, afterConsumerKey, AUTHORIZED_APPS_PAGE_SIZE);
+            appDTOs.addAll(buildConsumerAppDTOs(loggedInUser, authorizedApps));
+            if (!authorizedApps.isEmpty()) {
+                afterConsumerKey = authorizedApps.get(authorizedApps.size() - 1).getConsumerKey();
+            }
+        } while (authorizedApps.size() == AUTHORIZED_APPS_PAGE_SIZE);
+        return appDTOs.toArray(new OAuthConsumerAppDTO[0]);
+    }
+
+    /**
+     * Get a page of the apps that are authorized by the given user, ordered by the consumer key.
+     *
+     * @param afterConsumerKey Consumer key of the last app of the previous page, or null for the first page.
+     * @param limit            Maximum number of apps to return.
+     * @return OAuth applications authorized by the user that have tokens in ACTIVE or EXPIRED state
+     */
+    public OAuthConsumerAppDTO[] getAppsAuthorizedByUser(String afterConsumerKey, int limit)
+            throws IdentityOAuthAdminException {
+
+        if (limit <= 0 || limit > AUTHORIZED_APPS_PAGE_SIZE) {
+            throw handleClientError(INVALID_REQUEST, "The limit should be between 1 and " +
+                    AUTHORIZED_APPS_PAGE_SIZE + ".");
+        }
+        AuthenticatedUser loggedInUser = getLoggedInUser();
+        return buildConsumerAppDTOs(loggedInUser, getAuthorizedApps(loggedInUser, afterConsumerKey, limit))
+                .toArray(new OAuthConsumerAppDTO[0]);
+    }
+
+    private AuthenticatedUser getLoggedInUser() {
+
         String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
         String tenantAwareLoggedInUserName = PrivilegedCarbonContext.getThreadLocalCarbonContext().getUsername();
-        AuthenticatedUser loggedInUser = buildAuthenticatedUser(tenantAwareLoggedInUserName, tenantDomain);
+        return buildAuthenticatedUser(tenantAwareLoggedInUserName, tenantDomain);
+    }
 
-        String username = UserCoreUtil.addTenantDomainToEntry(tenantAwareLoggedInUserName, tenantDomain);
-        String userStoreDomain = null;
-        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
-            try {
-                userStoreDomain = OAuth2Util.getUserStoreForFederatedUser(loggedInUser);
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while getting user store domain for User ID : " + loggedInUser;
-                throw handleError(errorMsg, e);
+    private List<OAuthConsumerAppDTO> buildConsumerAppDTOs(AuthenticatedUser user,
+                                                           List<AuthorizedAppDO> authorizedApps)
+            throws IdentityOAuthAdminException {
+
+        List<String> consumerKeys = new ArrayList<>(authorizedApps.size());
+        for (AuthorizedAppDO authorizedApp : authorizedApps) {
+            consumerKeys.add(authorizedApp.getConsumerKey());
+        }
+        Map<String, OAuthAppDO> appDOs = getOAuthApps(consumerKeys);
+
+        List<OAuthConsumerAppDTO> appDTOs = new ArrayList<>(authorizedApps.size());
+        for (String consumerKey : consumerKeys) {
+            OAuthAppDO appDO = appDOs.get(consumerKey);
+            if (appDO == null) {
+                // The app has been deleted after its tokens were read.
+                continue;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Found App: " + appDO.getApplicationName() + " for user: " + user);
+            }
+            appDTOs.add(OAuthUtil.buildConsumerAppDTO(appDO));
+        }
+        return appDTOs;
+    }
+
+    /**
+     * Get the given OAuth apps from the AppInfoCache, and read the apps which are not cached from the database at
+     * once.
+     *
+     * @param consumerKeys Consumer keys of the apps.
+     * @return Map of consumer key to the app.
+     * @throws IdentityOAuthAdminException If an error occurs while retrieving the apps.
+     */
+    private Map<String, OAuthAppDO> getOAuthApps(List<String> consumerKeys) throws IdentityOAuthAdminException {
+
+        Map<String, OAuthAppDO> appDOs = new HashMap<>();
+        List<String> uncachedConsumerKeys = new ArrayList<>();
+        for (String consumerKey : consumerKeys) {
+            OAuthAppDO appDO = AppInfoCache.getInstance().getValueFromCache(consumerKey);
+            if (appDO != null) {
+                appDOs.put(consumerKey, appDO);
+            } else {
+                uncachedConsumerKeys.add(consumerKey);
             }
         }
+        if (uncachedConsumerKeys.isEmpty()) {
+            return appDOs;
+        }
 
-        Set<String> clientIds;
+        Map<String, OAuthAppDO> uncachedAppDOs;
         try {
-            clientIds = OAuthTokenPersistenceFactory.getInstance().getTokenManagementDAO()
-                    .getAllTimeAuthorizedClientIds(loggedInUser);
+            uncachedAppDOs = new OAuthAppDAO().getAppsInformation(uncachedConsumerKeys);
         } catch (IdentityOAuth2Exception e) {
-            String errorMsg = "Error occurred while retrieving apps authorized by User ID : " + username;
-            throw handleError(errorMsg, e);
+            throw handleError("Error occurred while retrieving app information for Client IDs : " +
+                    uncachedConsumerKeys, e);
         }
-        Set<OAuthConsumerAppDTO> appDTOs = new HashSet<OAuthConsumerAppDTO>();
-        for (String clientId : clientIds) {
-            Set<AccessTokenDO> accessTokenDOs;
-            try {
-                accessTokenDOs = OAuthTokenPersistenceFactory.getInstance()
-                        .getAccessTokenDAO().getAccessTokens(
-                                clientId, loggedInUser, userStoreDomain, true);
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while retrieving access tokens issued for " +
-                        "Client ID : " + clientId + ", User ID : " + username;
-                throw handleError(errorMsg, e);
-            }
-            if (!accessTokenDOs.isEmpty()) {
-                Set<String> distinctClientUserScopeCombo = new HashSet<String>();
-                for (AccessTokenDO accessTokenDO : accessTokenDOs) {
-                    AccessTokenDO scopedToken;
-                    String scopeString = buildScopeString(accessTokenDO.getScope());
-                    try {
-                        scopedToken = OAuthTokenPersistenceFactory.getInstance().
-                                getAccessTokenDAO().getLatestAccessToken(clientId, loggedInUser, userStoreDomain,
-                                scopeString, true);
-                        if (scopedToken != null && !distinctClientUserScopeCombo.contains(clientId + ":" + username)) {
-                            OAuthAppDO appDO = getOAuthAppDO(scopedToken.getConsumerKey());
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("Found App: " + appDO.getApplicationName() + " for user: " + username);
-                            }
-                            appDTOs.add(OAuthUtil.buildConsumerAppDTO(appDO));
-                            distinctClientUserScopeCombo.add(clientId + ":" + username);
-                        }
-                    } catch (IdentityOAuth2Exception e) {
-                        String errorMsg = "Error occurred while retrieving latest access token issued for Client ID :" +
-                                " " + clientId + ", User ID : " + username + " and Scope : " + scopeString;
-                        throw handleError(errorMsg, e);
-                    }
-                }
-            }
+        for (Map.Entry<String, OAuthAppDO> entry : uncachedAppDOs.entrySet()) {
+            AppInfoCache.getInstance().addToCache(entry.getKey(), entry.getValue());
         }
-        return appDTOs.toArray(new OAuthConsumerAppDTO[0]);
+        appDOs.putAll(uncachedAppDOs);
+        return appDOs;
     }
 
-    private OAuthAppDO getOAuthAppDO(String consumerKey) throws IdentityOAuthAdminException {
+    private List<AuthorizedAppDO> getAuthorizedApps(AuthenticatedUser user, String afterConsumerKey, int limit)
+            throws IdentityOAuthAdminException {
 
-        OAuthAppDO appDO;
         try {
-            appDO = getOAuthApp(consumerKey);
-        } catch (InvalidOAuthClientException e) {
-            throw handleClientError(INVALID_OAUTH_CLIENT, "Invalid ConsumerKey: " + consumerKey, e);
+            return OAuthTokenPersistenceFactory.getInstance().getTokenManagementDAO()
+                    .getAuthorizedApps(user, afterConsumerKey, limit);
         } catch (IdentityOAuth2Exception e) {
-            throw handleError("Error occurred while retrieving app information for Client ID : " + consumerKey, e);
+            String errorMsg = "Error occurred while retrieving apps authorized by User ID : " + user;
+            throw handleError(errorMsg, e);
         }
-        return appDO;
     }
 
     /**
@@ -1019,6 +1133,25 @@ public class OAuthAdminServiceImpl {
             AuthenticatedUser user = buildAuthenticatedUser(tenantAwareLoggedInUserName, tenantDomain);
 
             String userName = UserCoreUtil.addTenantDomainToEntry(tenantAwareLoggedInUserName, tenantDomain);
+            Set<String> appNames = new HashSet<>(Arrays.asList(revokeRequestDTO.getApps()));
+            List<AuthorizedAppDO> appsToRevoke = new ArrayList<>();
+            String afterConsumerKey = null;
+            List<AuthorizedAppDO> authorizedApps;
+            do {
+                authorizedApps = getAuthorizedApps(user, afterConsumerKey, AUTHORIZED_APPS_PAGE_SIZE);
+                for (AuthorizedAppDO authorizedApp : authorizedApps) {
+                    if (appNames.contains(authorizedApp.getApplicationName())) {
+                        appsToRevoke.add(authorizedApp);
+                    }
+                }
+                if (!authorizedApps.isEmpty()) {
+                    afterConsumerKey = authorizedApps.get(authorizedApps.size() - 1).getConsumerKey();
+                }
+            } while (authorizedApps.size() == AUTHORIZED_APPS_PAGE_SIZE);
+            if (appsToRevoke.isEmpty()) {
+                return new OAuthRevocationResponseDTO();
+            }
+
             String userStoreDomain = null;
             if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
                 try {
@@ -1027,84 +1160,70 @@ public class OAuthAdminServiceImpl {
                     throw handleError("Error occurred while getting user store domain from User ID : " + user, e);
                 }
             }
-            OAuthConsumerAppDTO[] appDTOs = getAppsAuthorizedByUser();
-            for (String appName : revokeRequestDTO.getApps()) {
-                for (OAuthConsumerAppDTO appDTO : appDTOs) {
-                    if (appDTO.getApplicationName().equals(appName)) {
-                        Set<AccessTokenDO> accessTokenDOs;
-                        try {
-                            // Retrieve all ACTIVE or EXPIRED access tokens for particular client authorized by this
-                            // user
-                            accessTokenDOs = OAuthTokenPersistenceFactory.getInstance()
-                                    .getAccessTokenDAO().getAccessTokens(
-                                            appDTO.getOauthConsumerKey(), user, userStoreDomain, true);
-                        } catch (IdentityOAuth2Exception e) {
-                            String errorMsg = "Error occurred while retrieving access tokens issued for " +
-                                    "Client ID : " + appDTO.getOauthConsumerKey() + ", User ID : " + userName;
-                            throw handleError(errorMsg, e);
-                        }
-                        AuthenticatedUser authzUser;
-                        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
-                            //Clear cache with AccessTokenDO
-                            authzUser = accessTokenDO.getAuthzUser();
-
-                            String tokenBindingReference = NONE;
-                            if (accessTokenDO.getTokenBinding() != null && StringUtils
-                                    .isNotBlank(accessTokenDO.getTokenBinding().getBindingReference())) {
-                                tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
-                            }
-                            OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
-                                    buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
-                            OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
-                                    buildScopeString(accessTokenDO.getScope()));
-                            OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser);
-                            OAuthUtil.clearOAuthCache(accessTokenDO);
-                            AccessTokenDO scopedToken;
-                            try {
-                                // Retrieve latest access token for particular client, user and scope combination if
-                                // its ACTIVE or EXPIRED.
-                                scopedToken = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                                        .getLatestAccessToken(
-                                                appDTO.getOauthConsumerKey(), user,
-                                                userStoreDomain,
-                                                buildScopeString(
-                                                        accessTokenDO.getScope()),
-                                                true);
-                            } catch (IdentityOAuth2Exception e) {
-                                String errorMsg = "Error occurred while retrieving latest " +
-                                        "access token issued for Client ID : " +
-                                        appDTO.getOauthConsumerKey() + ", User ID : " + userName +
-                                        " and Scope : " + buildScopeString(accessTokenDO.getScope());
-                                throw handleError(errorMsg, e);
-                            }
-                            if (scopedToken != null) {
-                                //Revoking token from database
-                                try {
-                                    OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                                            .revokeAccessTokens(new String[]{scopedToken
-                                                    .getAccessToken()});
-                                } catch (IdentityOAuth2Exception e) {
-                                    String errorMsg = "Error occurred while revoking " + "Access Token : " +
-                                            scopedToken.getAccessToken();
-                                    throw handleError(errorMsg, e);
-                                }
-                                //Revoking the oauth consent from database.
-                                try {
-                                    OAuthTokenPersistenceFactory.getInstance().getTokenManagementDAO()
-                                            .revokeOAuthConsentByApplicationAndUser(
-                                                    authzUser.getAuthenticatedSubjectIdentifier(),
-                                                    tenantDomain, appName);
-                                } catch (IdentityOAuth2Exception e) {
-                                    String errorMsg = "Error occurred while removing OAuth Consent of Application: " +
-                                            appName + " of user: " + userName;
-                                    throw handleError(errorMsg, e);
-                                }
-                            }
-                            triggerPostRevokeListeners(revokeRequestDTO, new OAuthRevocationResponseDTO
-                                    (), accessTokenDOs.toArray(new AccessTokenDO[0]));
-                        }
+            Map<String, List<AccessTokenDO>> accessTokensOfApps = new HashMap<>();
+            try {
+                // Retrieve all ACTIVE or EXPIRED access tokens of the user for all the clients at once.
+                for (AccessTokenDO accessTokenDO : OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                        .getAccessTokensOfUser(user, userStoreDomain)) {
+                    accessTokensOfApps.computeIfAbsent(accessTokenDO.getConsumerKey(), key -> new ArrayList<>())
+                            .add(accessTokenDO);
+                }
+            } catch (IdentityOAuth2Exception e) {
+                String errorMsg = "Error occurred while retrieving access tokens issued for User ID : " + userName;
+                throw handleError(errorMsg, e);
+            }
+
+            for (AuthorizedAppDO authorizedApp : appsToRevoke) {
+                String consumerKey = authorizedApp.getConsumerKey();
+                String appName = authorizedApp.getApplicationName();
+                List<AccessTokenDO> accessTokenDOs = accessTokensOfApps.get(consumerKey);
+                if (accessTokenDOs == null) {
+                    continue;
+                }
+
+                AuthenticatedUser authzUser = null;
+                for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+                    //Clear cache with AccessTokenDO
+                    authzUser = accessTokenDO.getAuthzUser();
+
+                    String tokenBindingReference = NONE;
+                    if (accessTokenDO.getTokenBinding() != null && StringUtils
+                            .isNotBlank(accessTokenDO.getTokenBinding().getBindingReference())) {
+                        tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
                     }
+                    OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
+                            buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                    OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
+                            buildScopeString(accessTokenDO.getScope()));
+                    OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser);
+                    OAuthUtil.clearOAuthCache(accessTokenDO);
+                }
+
+                // Only the latest ACTIVE or EXPIRED token of each scope of the client is revoked.
+                List<String> accessTokens = new ArrayList<>();
+                for (AccessTokenDO scopedToken : OAuthUtil.getLatestTokensWithScopes(accessTokenDOs)) {
+                    accessTokens.add(scopedToken.getAccessToken());
+                }
+                try {
+                    OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                            .revokeAccessTokens(accessTokens.toArray(new String[0]));
+                } catch (IdentityOAuth2Exception e) {
+                    String errorMsg = "Error occurred while revoking the access tokens issued for Client ID : " +
+                            consumerKey + ", User ID : " + userName;
+                    throw handleError(errorMsg, e);
+                }
+                //Revoking the oauth consent from database.
+                try {
+                    OAuthTokenPersistenceFactory.getInstance().getTokenManagementDAO()
+                            .revokeOAuthConsentByApplicationAndUser(
+                                    authzUser.getAuthenticatedSubjectIdentifier(), tenantDomain, appName);
+                } catch (IdentityOAuth2Exception e) {
+                    String errorMsg = "Error occurred while removing OAuth Consent of Application: " +
+                            appName + " of user: " + userName;
+                    throw handleError(errorMsg, e);
                 }
+                triggerPostRevokeListeners(revokeRequestDTO, new OAuthRevocationResponseDTO(),
+                        accessTokenDOs.toArray(new AccessTokenDO[0]));
             }
         } else {
             OAuthRevocationResponseDTO revokeRespDTO = new OAuthRevocationResponseDTO();
@@ -42,6 +42,9 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2ServerException;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.IntrospectionResponseCache;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCUserClaimCache;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCUserClaimCacheKey;
 import org.wso2.carbon.registry.core.utils.UUIDGenerator;
 import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
@@ -49,8 +52,11 @@ import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,6 +75,9 @@ public final class OAuthUtil {
 
     public static final Log LOG = LogFactory.getLog(OAuthUtil.class);
     private static final String ALGORITHM = "HmacSHA1";
+    // This config property is defined in identity.xml
+    private static final String TOKEN_REVOCATION_BATCH_SIZE = "OAuth.TokenRevocation.UserTokenRevocationBatchSize";
+    private static final int DEFAULT_TOKEN_REVOCATION_BATCH_SIZE = 100;
 
     private OAuthUtil() {
 
@@ -316,6 +325,8 @@ public final class OAuthUtil {
 
         OAuthCacheKey cacheKey = new OAuthCacheKey(oauthCacheKey);
         OAuthCache.getInstance().clearCacheEntry(cacheKey);
+        // The key can be an access token identifier, hence its cached introspection result is removed as well.
+        IntrospectionResponseCache.getInstance().removeEntry(oauthCacheKey);
     }
 
     public static void clearOAuthCache(AccessTokenDO accessTokenDO) {
@@ -323,6 +334,7 @@ public final class OAuthUtil {
         OAuthCacheKey cacheKey = new OAuthCacheKey(accessTokenDO.getAccessToken());
         String tenantDomain = accessTokenDO.getAuthzUser().getTenantDomain();
         OAuthCache.getInstance().clearCacheEntry(cacheKey,  tenantDomain);
+        IntrospectionResponseCache.getInstance().removeEntry(accessTokenDO.getAccessToken());
     }
 
     public static AuthenticatedUser getAuthenticatedUser(String fullyQualifiedUserName) {
@@ -427,6 +439,8 @@ public final class OAuthUtil {
         dto.setTokenRevocationWithIDPSessionTerminationEnabled(appDO
                 .isTokenRevocationWithIDPSessionTerminationEnabled());
         dto.setTokenBindingValidationEnabled(appDO.isTokenBindingValidationEnabled());
+        dto.setCibaTokenDeliveryMode(appDO.getCibaTokenDeliveryMode());
+        dto.setCibaClientNotificationEndpoint(appDO.getCibaClientNotificationEndpoint());
         return dto;
     }
 
@@ -437,6 +451,9 @@ public final class OAuthUtil {
      */
     public static void invokePostRevocationBySystemListeners(AccessTokenDO accessTokenDO, Map<String, Object> params) {
 
+        if (accessTokenDO != null) {
+            IntrospectionResponseCache.getInstance().removeEntry(accessTokenDO.getAccessToken());
+        }
         OAuthEventInterceptor oAuthEventInterceptorProxy = OAuthComponentServiceHolder.getInstance()
                 .getOAuthEventInterceptorProxy();
         if (oAuthEventInterceptorProxy != null && oAuthEventInterceptorProxy.isEnabled()) {
@@ -448,6 +465,29 @@ public final class OAuthUtil {
         }
     }
 
+    /**
+     * This will be called after a set of tokens is revoked through listeners directly.
+     *
+     * @param accessTokenDOs Revoked {@link AccessTokenDO}s.
+     * @param params         Additional parameters.
+     */
+    public static void invokePostRevocationBySystemListeners(List<AccessTokenDO> accessTokenDOs,
+                                                             Map<String, Object> params) {
+
+        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+            IntrospectionResponseCache.getInstance().removeEntry(accessTokenDO.getAccessToken());
+        }
+        OAuthEventInterceptor oAuthEventInterceptorProxy = OAuthComponentServiceHolder.getInstance()
+                .getOAuthEventInterceptorProxy();
+        if (oAuthEventInterceptorProxy != null && oAuthEventInterceptorProxy.isEnabled()) {
+            try {
+                oAuthEventInterceptorProxy.onPostTokenRevocationBySystem(accessTokenDOs, params);
+            } catch (IdentityOAuth2Exception e) {
+                LOG.error("Error while triggering listener for post token revocation by system.", e);
+            }
+        }
+    }
+
     /**
      * This will be called before when Tokens Revoked through Listeners directly.
      *
@@ -466,6 +506,26 @@ public final class OAuthUtil {
         }
     }
 
+    /**
+     * This will be called before a set of tokens is revoked through listeners directly.
+     *
+     * @param accessTokenDOs {@link AccessTokenDO}s to be revoked.
+     * @param params         Additional parameters.
+     */
+    public static void invokePreRevocationBySystemListeners(List<AccessTokenDO> accessTokenDOs,
+                                                            Map<String, Object> params) {
+
+        OAuthEventInterceptor oAuthEventInterceptorProxy = OAuthComponentServiceHolder.getInstance()
+                .getOAuthEventInterceptorProxy();
+        if (oAuthEventInterceptorProxy != null && oAuthEventInterceptorProxy.isEnabled()) {
+            try {
+                oAuthEventInterceptorProxy.onPreTokenRevocationBySystem(accessTokenDOs, params);
+            } catch (IdentityOAuth2Exception e) {
+                LOG.error("Error while triggering listener for pre token revocation by system.", e);
+            }
+        }
+    }
+
     /**
      * Remove user claims from ClaimCache
      *
@@ -483,9 +543,27 @@ public final class OAuthUtil {
         if (cacheKey != null) {
             claimCache.clearCacheEntry(cacheKey, userStoreManager.getTenantId());
         }
+        removeOIDCUserClaimsFromCache(userName, userStoreManager);
         return true;
     }
 
+    /**
+     * Remove user claims from OIDCUserClaimCache.
+     *
+     * @param userName         Username.
+     * @param userStoreManager User store manager of the user.
+     */
+    public static void removeOIDCUserClaimsFromCache(String userName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+
+        OIDCUserClaimCache userClaimCache = OIDCUserClaimCache.getInstance();
+        if (userClaimCache.isEnabled()) {
+            userClaimCache.clearUserClaims(new OIDCUserClaimCacheKey(userName,
+                    UserCoreUtil.getDomainName(userStoreManager.getRealmConfiguration()),
+                    IdentityTenantUtil.getTenantDomain(userStoreManager.getTenantId())));
+        }
+    }
+
     /**
      * This method will revoke the accesstokens of user.
      * @param username username.
@@ -514,128 +592,163 @@ public final class OAuthUtil {
             }
         }
 
-        Set<String> clientIds;
+        boolean isTokenPreservingAtPasswordUpdateEnabled =
+                Boolean.parseBoolean(IdentityUtil.getProperty(PRESERVE_LOGGED_IN_SESSION_AT_PASSWORD_UPDATE));
+        String currentTokenBindingReference = "";
+        if (isTokenPreservingAtPasswordUpdateEnabled) {
+            if (IdentityUtil.threadLocalProperties.get().get(CURRENT_SESSION_IDENTIFIER) != null) {
+                currentTokenBindingReference =
+                        (String) IdentityUtil.threadLocalProperties.get().get(CURRENT_SESSION_IDENTIFIER);
+            }
+        }
+
+        Set<AccessTokenDO> accessTokenDOs;
         try {
-            // get all the distinct client Ids authorized by this user
-            clientIds = OAuthTokenPersistenceFactory.getInstance()
-                    .getTokenManagementDAO().getAllTimeAuthorizedClientIds(authenticatedUser);
+            // Retrieve all ACTIVE or EXPIRED access tokens of the user for all the clients at once.
+            accessTokenDOs = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                    .getAccessTokensOfUser(authenticatedUser, userStoreDomain);
         } catch (IdentityOAuth2Exception e) {
-            LOG.error("Error occurred while retrieving apps authorized by User ID : " + authenticatedUser, e);
+            String errorMsg = "Error occurred while retrieving access tokens issued for User ID : " +
+                    authenticatedUser;
+            LOG.error(errorMsg, e);
             throw new UserStoreException(e);
         }
-        for (String clientId : clientIds) {
-            Set<AccessTokenDO> accessTokenDOs;
-            try {
-                // retrieve all ACTIVE or EXPIRED access tokens for particular client authorized by this user
-                accessTokenDOs = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                        .getAccessTokens(clientId, authenticatedUser, userStoreDomain, true);
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while retrieving access tokens issued for " +
-                        "Client ID : " + clientId + ", User ID : " + authenticatedUser;
-                LOG.error(errorMsg, e);
-                throw new UserStoreException(e);
-            }
 
-            boolean isTokenPreservingAtPasswordUpdateEnabled =
-                    Boolean.parseBoolean(IdentityUtil.getProperty(PRESERVE_LOGGED_IN_SESSION_AT_PASSWORD_UPDATE));
-            String currentTokenBindingReference = "";
-            if (isTokenPreservingAtPasswordUpdateEnabled) {
-                if (IdentityUtil.threadLocalProperties.get().get(CURRENT_SESSION_IDENTIFIER) != null) {
-                    currentTokenBindingReference =
-                            (String) IdentityUtil.threadLocalProperties.get().get(CURRENT_SESSION_IDENTIFIER);
+        Map<String, List<AccessTokenDO>> accessTokensOfClients = new LinkedHashMap<>();
+        Set<String> tokenBindingEnabledClients = new HashSet<>();
+        Set<String> cacheKeys = new LinkedHashSet<>();
+        String userId = null;
+        boolean isUserIdResolutionFailed = false;
+        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+            String clientId = accessTokenDO.getConsumerKey();
+            String tokenBindingReference = NONE;
+            if (accessTokenDO.getTokenBinding() != null && StringUtils
+                    .isNotBlank(accessTokenDO.getTokenBinding().getBindingReference())) {
+                tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
+                tokenBindingEnabledClients.add(clientId);
+                // Skip current token from being revoked.
+                if (StringUtils.equals(accessTokenDO.getTokenBinding().getBindingValue(),
+                        currentTokenBindingReference)) {
+                    continue;
                 }
             }
-
-            Set<String> scopes = new HashSet<>();
-            List<AccessTokenDO> accessTokens = new ArrayList<>();
-            boolean tokenBindingEnabled = false;
-            for (AccessTokenDO accessTokenDO : accessTokenDOs) {
-                // Clear cache
-                String tokenBindingReference = NONE;
-                if (accessTokenDO.getTokenBinding() != null && StringUtils
-                        .isNotBlank(accessTokenDO.getTokenBinding().getBindingReference())) {
-                    tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
-                    tokenBindingEnabled = true;
-                    // Skip current token from being revoked.
-                    if (StringUtils.equals(accessTokenDO.getTokenBinding().getBindingValue(),
-                            currentTokenBindingReference)) {
-                        continue;
-                    }
+            String scope = OAuth2Util.buildScopeString(accessTokenDO.getScope());
+            if (userId == null && !isUserIdResolutionFailed) {
+                // All the tokens belong to the same user, hence the user id is resolved only once.
+                try {
+                    userId = accessTokenDO.getAuthzUser().getUserId();
+                } catch (UserIdNotFoundException e) {
+                    LOG.error("User id cannot be found for user: " + accessTokenDO.getAuthzUser().getLoggableUserId());
+                    isUserIdResolutionFailed = true;
                 }
-                OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
-                OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
-                OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
-                OAuthUtil.clearOAuthCache(accessTokenDO);
-                // Get unique scopes list
-                scopes.add(OAuth2Util.buildScopeString(accessTokenDO.getScope()));
-                accessTokens.add(accessTokenDO);
             }
+            if (userId != null) {
+                // Collect the distinct cache keys, since many tokens of the user share the same client and scopes.
+                String authenticatedIDP = accessTokenDO.getAuthzUser().getFederatedIdPName();
+                cacheKeys.add(buildCacheKeyStringForToken(clientId, scope, userId, authenticatedIDP,
+                        tokenBindingReference));
+                cacheKeys.add(clientId + ":" + userId + ":" + scope + ":" + authenticatedIDP);
+                cacheKeys.add(clientId + ":" + userId + ":" + authenticatedIDP);
+            }
+            OAuthUtil.clearOAuthCache(accessTokenDO);
+            accessTokensOfClients.computeIfAbsent(clientId, key -> new ArrayList<>()).add(accessTokenDO);
+        }
+        for (String cacheKey : cacheKeys) {
+            clearOAuthCache(cacheKey);
+        }
 
-            if (!tokenBindingEnabled && OAuth2Util.isHashDisabled()) {
-                return revokeLatestTokensWithScopes(scopes, clientId, authenticatedUser);
+        List<AccessTokenDO> accessTokensToRevoke = new ArrayList<>();
+        for (Map.Entry<String, List<AccessTokenDO>> accessTokensOfClient : accessTokensOfClients.entrySet()) {
+            String clientId = accessTokensOfClient.getKey();
+            if (!tokenBindingEnabledClients.contains(clientId) && OAuth2Util.isHashDisabled()) {
+                accessTokensToRevoke.addAll(getLatestTokensWithScopes(accessTokensOfClient.getValue()));
             } else {
                 // If the hashed token is enabled, there can be multiple active tokens with a user with same scope.
                 // Also, if token binding is enabled, there can be multiple active tokens for the same user, scope
                 // and client combination.
                 // So need to revoke all the tokens.
-                try {
-                    return revokeTokens(accessTokens);
-                } catch (IdentityOAuth2Exception e) {
-                    String errorMsg = "Error occurred while revoking Access Token";
-                    LOG.error(errorMsg, e);
-                    throw new UserStoreException(e);
-                }
+                accessTokensToRevoke.addAll(accessTokensOfClient.getValue());
             }
         }
-        return true;
+
+        try {
+            return revokeTokens(accessTokensToRevoke);
+        } catch (IdentityOAuth2Exception e) {
+            String errorMsg = "Error occurred while revoking access tokens of user " + authenticatedUser;
+            LOG.error(errorMsg, e);
+            throw new UserStoreException(e);
+        }
     }
 
+    /**
+     * Revoke the given tokens in batches, invoking the revocation listeners once per batch.
+     *
+     * @param accessTokens Access tokens to be revoked.
+     * @return true if the revocation is successful.
+     * @throws IdentityOAuth2Exception
+     */
     private static boolean revokeTokens(List<AccessTokenDO> accessTokens) throws IdentityOAuth2Exception {
 
         if (!accessTokens.isEmpty()) {
-            // Revoking token from database.
-            for (AccessTokenDO accessToken : accessTokens) {
-                OAuthUtil.invokePreRevocationBySystemListeners(accessToken, Collections.emptyMap());
+            int batchSize = getTokenRevocationBatchSize();
+            for (int fromIndex = 0; fromIndex < accessTokens.size(); fromIndex += batchSize) {
+                List<AccessTokenDO> batch = accessTokens.subList(fromIndex,
+                        Math.min(fromIndex + batchSize, accessTokens.size()));
+                OAuthUtil.invokePreRevocationBySystemListeners(batch, Collections.emptyMap());
+                // Revoking tokens from database.
                 OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                        .revokeAccessTokens(new String[]{accessToken.getAccessToken()}, OAuth2Util.isHashEnabled());
-                OAuthUtil.invokePostRevocationBySystemListeners(accessToken, Collections.emptyMap());
+                        .revokeAccessTokens(batch, OAuth2Util.isHashEnabled());
+                OAuthUtil.invokePostRevocationBySystemListeners(batch, Collections.emptyMap());
             }
         }
         return true;
     }
 
-    private static boolean revokeLatestTokensWithScopes(Set<String> scopes, String clientId,
-                                                        AuthenticatedUser authenticatedUser) throws
-            UserStoreException {
+    private static int getTokenRevocationBatchSize() {
 
-        for (String scope : scopes) {
-            AccessTokenDO scopedToken = null;
+        String batchSize = IdentityUtil.getProperty(TOKEN_REVOCATION_BATCH_SIZE);
+        if (StringUtils.isNotBlank(batchSize)) {
             try {
-                // Retrieve latest access token for particular client, user and scope combination
-                // if its ACTIVE or EXPIRED.
-                scopedToken = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                        .getLatestAccessToken(clientId, authenticatedUser, authenticatedUser.getUserStoreDomain(),
-                                scope, true);
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while retrieving latest access token issued for Client ID : " +
-                        clientId + ", User ID : " + authenticatedUser + " and Scope : " + scope;
-                LOG.error(errorMsg, e);
-                throw new UserStoreException(e);
-            }
-            if (scopedToken != null) {
-                try {
-                    // Revoking token from database
-                    revokeTokens(Collections.singletonList(scopedToken));
-                } catch (IdentityOAuth2Exception e) {
-                    String errorMsg = "Error occurred while revoking " + "Access Token : "
-                            + scopedToken.getAccessToken() + " for user " + authenticatedUser;
-                    LOG.error(errorMsg, e);
-                    throw new UserStoreException(e);
+                int size = Integer.parseInt(batchSize.trim());
+                if (size > 0) {
+                    return size;
                 }
+            } catch (NumberFormatException e) {
+                LOG.warn("Invalid value: " + batchSize + " configured for: " + TOKEN_REVOCATION_BATCH_SIZE +
+                        ". Using the default value: " + DEFAULT_TOKEN_REVOCATION_BATCH_SIZE);
             }
         }
-        return true;
+        return DEFAULT_TOKEN_REVOCATION_BATCH_SIZE;
+    }
+
+    /**
+     * Pick the latest ACTIVE or EXPIRED token of each scope combination from the tokens of a client. Without token
+     * hashing only the latest token of a client, user and scope combination is usable, hence only that token needs
+     * to be revoked. The tokens are already loaded, so the selection is done in memory instead of querying the
+     * latest token of each scope.
+     *
+     * @param accessTokens Access tokens of a single client and user.
+     * @return Latest access token of each scope.
+     */
+    static Collection<AccessTokenDO> getLatestTokensWithScopes(List<AccessTokenDO> accessTokens) {
+
+        Map<String, AccessTokenDO> latestTokens = new LinkedHashMap<>();
+        for (AccessTokenDO accessTokenDO : accessTokens) {
+            String scope = OAuth2Util.buildScopeString(accessTokenDO.getScope());
+            AccessTokenDO latestToken = latestTokens.get(scope);
+            if (latestToken == null || isIssuedAfter(accessTokenDO, latestToken)) {
+                latestTokens.put(scope, accessTokenDO);
+            }
+        }
+        return latestTokens.values();
+    }
+
+    private static boolean isIssuedAfter(AccessTokenDO accessTokenDO, AccessTokenDO otherAccessTokenDO) {
+
+        if (accessTokenDO.getIssuedTime() == null) {
+            return false;
+        }
+        return otherAccessTokenDO.getIssuedTime() == null ||
+                accessTokenDO.getIssuedTime().after(otherAccessTokenDO.getIssuedTime());
     }
 }
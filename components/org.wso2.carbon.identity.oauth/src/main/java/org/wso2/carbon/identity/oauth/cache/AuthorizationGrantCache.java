@@ -43,12 +43,14 @@ public class AuthorizationGrantCache extends
 
     private static volatile AuthorizationGrantCache instance;
     private static final Log log = LogFactory.getLog(AuthorizationGrantCache.class);
+    private final boolean isCompactSerializationEnabled;
 
     /**
      * Private constructor which will not allow to create objects of this class from outside
      */
     private AuthorizationGrantCache() {
         super(AUTHORIZATION_GRANT_CACHE_NAME);
+        isCompactSerializationEnabled = CompactCacheEntry.isCompactSerializationEnabled();
     }
 
     /**
@@ -257,8 +259,8 @@ public class AuthorizationGrantCache extends
      * @return
      */
     private AuthorizationGrantCacheEntry getFromSessionStore(String id) {
-        return (AuthorizationGrantCacheEntry) SessionDataStore.getInstance().getSessionData(id,
-                AUTHORIZATION_GRANT_CACHE_NAME);
+        return CompactCacheEntry.toAuthorizationGrantCacheEntry(SessionDataStore.getInstance().getSessionData(id,
+                AUTHORIZATION_GRANT_CACHE_NAME));
     }
 
     /**
@@ -267,7 +269,8 @@ public class AuthorizationGrantCache extends
      * @param entry cache entry to store
      */
     private void storeToSessionStore(String id, AuthorizationGrantCacheEntry entry) {
-        SessionDataStore.getInstance().storeSessionData(id, AUTHORIZATION_GRANT_CACHE_NAME, entry);
+        SessionDataStore.getInstance().storeSessionData(id, AUTHORIZATION_GRANT_CACHE_NAME,
+                isCompactSerializationEnabled ? CompactCacheEntry.of(entry) : entry);
     }
 
 }
@@ -0,0 +1,704 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.Claim;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.oauth2.model.OAuth2Parameters;
+import org.wso2.carbon.identity.openidconnect.model.RequestObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned binary codec of {@link AuthorizationGrantCacheEntry} and {@link SessionDataCacheEntry}, used to store them
+ * in the session data store as a {@link CompactCacheEntry}.
+ * <p>
+ * Strings are written once per entry and referred to by index afterwards, and the claim URIs, claim names and scopes
+ * which appear in most entries are replaced by their index in a dictionary fixed by the format version. Numbers are
+ * written as variable length integers. Values of types which are not owned by this component, i.e. the authenticated
+ * user, the request object and the endpoint parameters, are embedded with Java serialization.
+ * <p>
+ * The dictionary must not be changed within a format version, since entries are read by other nodes of the cluster
+ * and after restarts. A new dictionary or layout needs a new format version, while decoding of the older versions
+ * is kept.
+ */
+public final class CacheEntryCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    static final byte AUTHORIZATION_GRANT_CACHE_ENTRY = 1;
+    static final byte SESSION_DATA_CACHE_ENTRY = 2;
+
+    private static final String WSO2_CLAIM_DIALECT = "http://wso2.org/claims/";
+
+    private static final String[] DICTIONARY_V1 = {
+            // Local claim URIs.
+            WSO2_CLAIM_DIALECT + "username", WSO2_CLAIM_DIALECT + "userid", WSO2_CLAIM_DIALECT + "emailaddress",
+            WSO2_CLAIM_DIALECT + "givenname", WSO2_CLAIM_DIALECT + "lastname", WSO2_CLAIM_DIALECT + "fullname",
+            WSO2_CLAIM_DIALECT + "middleName", WSO2_CLAIM_DIALECT + "nickname", WSO2_CLAIM_DIALECT + "displayName",
+            WSO2_CLAIM_DIALECT + "telephone", WSO2_CLAIM_DIALECT + "mobile", WSO2_CLAIM_DIALECT + "streetaddress",
+            WSO2_CLAIM_DIALECT + "locality", WSO2_CLAIM_DIALECT + "region", WSO2_CLAIM_DIALECT + "postalcode",
+            WSO2_CLAIM_DIALECT + "country", WSO2_CLAIM_DIALECT + "addresses", WSO2_CLAIM_DIALECT + "role",
+            WSO2_CLAIM_DIALECT + "roles", WSO2_CLAIM_DIALECT + "groups", WSO2_CLAIM_DIALECT + "dob",
+            WSO2_CLAIM_DIALECT + "gender", WSO2_CLAIM_DIALECT + "url", WSO2_CLAIM_DIALECT + "photourl",
+            WSO2_CLAIM_DIALECT + "organization", WSO2_CLAIM_DIALECT + "created", WSO2_CLAIM_DIALECT + "modified",
+            WSO2_CLAIM_DIALECT + "local", WSO2_CLAIM_DIALECT + "timeZone", WSO2_CLAIM_DIALECT + "stateorprovince",
+            WSO2_CLAIM_DIALECT + "identity/emailVerified", WSO2_CLAIM_DIALECT + "identity/phoneVerified",
+            WSO2_CLAIM_DIALECT + "identity/accountLocked", WSO2_CLAIM_DIALECT + "userprincipal",
+            // OIDC claim names.
+            "sub", "name", "given_name", "family_name", "middle_name", "nickname", "preferred_username", "profile",
+            "picture", "website", "email", "email_verified", "gender", "birthdate", "zoneinfo", "locale",
+            "phone_number", "phone_number_verified", "address", "updated_at", "groups", "roles", "upn",
+            "street_address", "locality", "region", "postal_code", "country", "formatted",
+            // Scopes and response types.
+            "openid", "phone", "offline_access", "internal_login", "code", "token", "id_token", "code id_token",
+            "id_token token", "code id_token token", "query", "fragment", "form_post", "plain", "S256",
+            // Common values.
+            "true", "false", "PRIMARY", "carbon.super", "LOCAL"
+    };
+
+    private static final Map<String, Integer> DICTIONARY_V1_INDEXES = new HashMap<>();
+
+    // String tags, followed by the dictionary indexes and then the indexes of the strings already written.
+    private static final int NULL_STRING = 0;
+    private static final int LITERAL_STRING = 1;
+    private static final int FIRST_DICTIONARY_TAG = 2;
+
+    private static final int NULL_COLLECTION = 0;
+
+    private static final int FLAG_HAS_NON_OIDC_CLAIMS = 1;
+    private static final int FLAG_REQUEST_OBJECT_FLOW = 1 << 1;
+    private static final int FLAG_HAS_PARAMETERS = 1 << 2;
+
+    private static final int FLAG_REQUESTED = 1;
+    private static final int FLAG_MANDATORY = 1 << 1;
+    private static final int FLAG_HAS_LOCAL_CLAIM = 1 << 2;
+    private static final int FLAG_HAS_REMOTE_CLAIM = 1 << 3;
+
+    static {
+        for (int i = 0; i < DICTIONARY_V1.length; i++) {
+            if (DICTIONARY_V1_INDEXES.put(DICTIONARY_V1[i], i) != null) {
+                throw new IllegalStateException("Duplicate cache entry dictionary value: " + DICTIONARY_V1[i]);
+            }
+        }
+    }
+
+    private CacheEntryCodec() {
+
+    }
+
+    /**
+     * Whether an authorization grant cache entry can be encoded without losing any of its state. Sub classes and ACR
+     * values other than strings are left to Java serialization.
+     *
+     * @param entry Cache entry.
+     * @return True if the entry can be encoded.
+     */
+    public static boolean canEncode(AuthorizationGrantCacheEntry entry) {
+
+        if (entry.getClass() != AuthorizationGrantCacheEntry.class || !containsOnlyStrings(entry.getAcrValue())) {
+            return false;
+        }
+        if (entry.getUserAttributes() != null) {
+            for (ClaimMapping claimMapping : entry.getUserAttributes().keySet()) {
+                if (claimMapping == null || claimMapping.getClass() != ClaimMapping.class ||
+                        !isPlainClaim(claimMapping.getLocalClaim()) || !isPlainClaim(claimMapping.getRemoteClaim())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a session data cache entry can be encoded without losing any of its state.
+     *
+     * @param entry Cache entry.
+     * @return True if the entry can be encoded.
+     */
+    public static boolean canEncode(SessionDataCacheEntry entry) {
+
+        if (entry.getClass() != SessionDataCacheEntry.class) {
+            return false;
+        }
+        OAuth2Parameters parameters = entry.getoAuth2Parameters();
+        return parameters == null || (parameters.getClass() == OAuth2Parameters.class &&
+                containsOnlyStrings(parameters.getACRValues()));
+    }
+
+    /**
+     * @param entry Authorization grant cache entry, which {@link #canEncode(AuthorizationGrantCacheEntry)}.
+     * @return Encoded entry.
+     * @throws IOException If a value embedded with Java serialization could not be written.
+     */
+    public static byte[] encode(AuthorizationGrantCacheEntry entry) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        EntryWriter writer = new EntryWriter(bytes, AUTHORIZATION_GRANT_CACHE_ENTRY, entry.getValidityPeriod());
+
+        writer.writeString(entry.getCodeId());
+        writer.writeString(entry.getAuthorizationCode());
+        writer.writeString(entry.getTokenId());
+        writer.writeString(entry.getNonceValue());
+        writer.writeString(entry.getPkceCodeChallenge());
+        writer.writeString(entry.getPkceCodeChallengeMethod());
+        writer.writeString(entry.getSelectedAcrValue());
+        writer.writeString(entry.getEssentialClaims());
+        writer.writeString(entry.getSubjectClaim());
+        writer.writeString(entry.getTokenBindingValue());
+        writer.writeString(entry.getSessionContextIdentifier());
+        writer.writeString(entry.getOidcSessionId());
+        writer.writeLong(entry.getAuthTime());
+        writer.writeLong(entry.getMaxAge());
+        writer.writeInt((entry.isHasNonOIDCClaims() ? FLAG_HAS_NON_OIDC_CLAIMS : 0) |
+                (entry.isRequestObjectFlow() ? FLAG_REQUEST_OBJECT_FLOW : 0));
+
+        Map<ClaimMapping, String> userAttributes = entry.getUserAttributes();
+        writer.writeCollectionSize(userAttributes != null ? userAttributes.keySet() : null);
+        if (userAttributes != null) {
+            for (Map.Entry<ClaimMapping, String> userAttribute : userAttributes.entrySet()) {
+                writer.writeClaimMapping(userAttribute.getKey());
+                writer.writeString(userAttribute.getValue());
+            }
+        }
+        writer.writeStrings(entry.getAcrValue());
+        writer.writeStrings(entry.getAmrList());
+        writer.writeObject(entry.getRequestObject());
+        return writer.finish();
+    }
+
+    /**
+     * @param entry Session data cache entry, which {@link #canEncode(SessionDataCacheEntry)}.
+     * @return Encoded entry.
+     * @throws IOException If a value embedded with Java serialization could not be written.
+     */
+    public static byte[] encode(SessionDataCacheEntry entry) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        EntryWriter writer = new EntryWriter(bytes, SESSION_DATA_CACHE_ENTRY, entry.getValidityPeriod());
+
+        writer.writeString(entry.getAuthenticatedIdPs());
+        writer.writeString(entry.getEssentialClaims());
+        writer.writeString(entry.getSessionContextIdentifier());
+        writer.writeString(entry.getQueryString());
+        writer.writeLong(entry.getAuthTime());
+        writer.writeObject(entry.getLoggedInUser());
+
+        OAuth2Parameters parameters = entry.getoAuth2Parameters();
+        if (parameters == null) {
+            writer.writeInt(0);
+        } else {
+            writer.writeInt(FLAG_HAS_PARAMETERS | (parameters.isRequestObjectFlow() ? FLAG_REQUEST_OBJECT_FLOW : 0));
+            writer.writeString(parameters.getApplicationName());
+            writer.writeString(parameters.getRedirectURI());
+            writer.writeString(parameters.getState());
+            writer.writeString(parameters.getResponseType());
+            writer.writeString(parameters.getClientId());
+            writer.writeString(parameters.getNonce());
+            writer.writeString(parameters.getDisplay());
+            writer.writeString(parameters.getPrompt());
+            writer.writeString(parameters.getIDTokenHint());
+            writer.writeString(parameters.getLoginHint());
+            writer.writeString(parameters.getPkceCodeChallenge());
+            writer.writeString(parameters.getPkceCodeChallengeMethod());
+            writer.writeString(parameters.getTenantDomain());
+            writer.writeString(parameters.getResponseMode());
+            writer.writeString(parameters.getEssentialClaims());
+            writer.writeString(parameters.getDisplayName());
+            writer.writeString(parameters.getSessionDataKey());
+            writer.writeString(parameters.getLoginTenantDomain());
+            writer.writeLong(parameters.getAuthTime());
+            writer.writeLong(parameters.getMaxAge());
+            writer.writeStrings(parameters.getScopes());
+            writer.writeStrings(parameters.getConsentRequiredScopes());
+            writer.writeStrings(parameters.getACRValues());
+        }
+
+        Map<String, String[]> paramMap = entry.getParamMap();
+        writer.writeCollectionSize(paramMap != null ? paramMap.keySet() : null);
+        if (paramMap != null) {
+            for (Map.Entry<String, String[]> param : paramMap.entrySet()) {
+                writer.writeString(param.getKey());
+                String[] values = param.getValue();
+                writer.writeInt(values != null ? values.length + 1 : NULL_COLLECTION);
+                if (values != null) {
+                    for (String value : values) {
+                        writer.writeString(value);
+                    }
+                }
+            }
+        }
+
+        Map<String, Serializable> endpointParams = entry.getEndpointParams();
+        writer.writeCollectionSize(endpointParams != null ? endpointParams.keySet() : null);
+        if (endpointParams != null) {
+            for (Map.Entry<String, Serializable> endpointParam : endpointParams.entrySet()) {
+                writer.writeString(endpointParam.getKey());
+                writer.writeObject(endpointParam.getValue());
+            }
+        }
+        return writer.finish();
+    }
+
+    /**
+     * @param data Encoded authorization grant cache entry.
+     * @return Decoded entry.
+     * @throws IOException If the data is not an encoded authorization grant cache entry of a known format version.
+     */
+    public static AuthorizationGrantCacheEntry decodeAuthorizationGrantCacheEntry(byte[] data) throws IOException {
+
+        EntryReader reader = new EntryReader(data, AUTHORIZATION_GRANT_CACHE_ENTRY);
+
+        AuthorizationGrantCacheEntry entry = new AuthorizationGrantCacheEntry(null);
+        entry.setValidityPeriod(reader.getValidityPeriod());
+        entry.setCodeId(reader.readString());
+        entry.setAuthorizationCode(reader.readString());
+        entry.setTokenId(reader.readString());
+        entry.setNonceValue(reader.readString());
+        entry.setPkceCodeChallenge(reader.readString());
+        entry.setPkceCodeChallengeMethod(reader.readString());
+        entry.setSelectedAcrValue(reader.readString());
+        entry.setEssentialClaims(reader.readString());
+        entry.setSubjectClaim(reader.readString());
+        entry.setTokenBindingValue(reader.readString());
+        entry.setSessionContextIdentifier(reader.readString());
+        entry.setOidcSessionId(reader.readString());
+        entry.setAuthTime(reader.readLong());
+        entry.setMaxAge(reader.readLong());
+        int flags = reader.readInt();
+        entry.setHasNonOIDCClaims((flags & FLAG_HAS_NON_OIDC_CLAIMS) != 0);
+        entry.setRequestObjectFlow((flags & FLAG_REQUEST_OBJECT_FLOW) != 0);
+
+        int userAttributeCount = reader.readCollectionSize();
+        if (userAttributeCount >= 0) {
+            Map<ClaimMapping, String> userAttributes = new LinkedHashMap<>();
+            for (int i = 0; i < userAttributeCount; i++) {
+                ClaimMapping claimMapping = reader.readClaimMapping();
+                userAttributes.put(claimMapping, reader.readString());
+            }
+            entry.setUserAttributes(userAttributes);
+        }
+        entry.setAcrValue(reader.readStrings());
+        LinkedHashSet<String> amrList = reader.readStrings();
+        if (amrList != null) {
+            for (String amr : amrList) {
+                entry.addAmr(amr);
+            }
+        }
+        entry.setRequestObject(reader.readObject(RequestObject.class));
+        reader.finish();
+        return entry;
+    }
+
+    /**
+     * @param data Encoded session data cache entry.
+     * @return Decoded entry.
+     * @throws IOException If the data is not an encoded session data cache entry of a known format version.
+     */
+    public static SessionDataCacheEntry decodeSessionDataCacheEntry(byte[] data) throws IOException {
+
+        EntryReader reader = new EntryReader(data, SESSION_DATA_CACHE_ENTRY);
+
+        SessionDataCacheEntry entry = new SessionDataCacheEntry();
+        entry.setValidityPeriod(reader.getValidityPeriod());
+        entry.setAuthenticatedIdPs(reader.readString());
+        entry.setEssentialClaims(reader.readString());
+        entry.setSessionContextIdentifier(reader.readString());
+        entry.setQueryString(reader.readString());
+        entry.setAuthTime(reader.readLong());
+        entry.setLoggedInUser(reader.readObject(AuthenticatedUser.class));
+
+        int flags = reader.readInt();
+        if ((flags & FLAG_HAS_PARAMETERS) != 0) {
+            OAuth2Parameters parameters = new OAuth2Parameters();
+            parameters.setRequestObjectFlow((flags & FLAG_REQUEST_OBJECT_FLOW) != 0);
+            parameters.setApplicationName(reader.readString());
+            parameters.setRedirectURI(reader.readString());
+            parameters.setState(reader.readString());
+            parameters.setResponseType(reader.readString());
+            parameters.setClientId(reader.readString());
+            parameters.setNonce(reader.readString());
+            parameters.setDisplay(reader.readString());
+            parameters.setPrompt(reader.readString());
+            parameters.setIDTokenHint(reader.readString());
+            parameters.setLoginHint(reader.readString());
+            parameters.setPkceCodeChallenge(reader.readString());
+            parameters.setPkceCodeChallengeMethod(reader.readString());
+            parameters.setTenantDomain(reader.readString());
+            parameters.setResponseMode(reader.readString());
+            parameters.setEssentialClaims(reader.readString());
+            parameters.setDisplayName(reader.readString());
+            parameters.setSessionDataKey(reader.readString());
+            parameters.setLoginTenantDomain(reader.readString());
+            parameters.setAuthTime(reader.readLong());
+            parameters.setMaxAge(reader.readLong());
+            parameters.setScopes(reader.readStrings());
+            parameters.setConsentRequiredScopes(reader.readStrings());
+            parameters.setACRValues(reader.readStrings());
+            entry.setoAuth2Parameters(parameters);
+        }
+
+        int paramCount = reader.readCollectionSize();
+        if (paramCount >= 0) {
+            ConcurrentHashMap<String, String[]> paramMap = new ConcurrentHashMap<>();
+            for (int i = 0; i < paramCount; i++) {
+                String name = reader.readString();
+                int valueCount = reader.readInt() - 1;
+                String[] values = null;
+                if (valueCount >= 0) {
+                    values = new String[valueCount];
+                    for (int j = 0; j < valueCount; j++) {
+                        values[j] = reader.readString();
+                    }
+                }
+                if (name != null && values != null) {
+                    paramMap.put(name, values);
+                }
+            }
+            entry.setParamMap(paramMap);
+        }
+
+        int endpointParamCount = reader.readCollectionSize();
+        for (int i = 0; i < endpointParamCount; i++) {
+            String name = reader.readString();
+            entry.getEndpointParams().put(name, reader.readObject(Serializable.class));
+        }
+        reader.finish();
+        return entry;
+    }
+
+    private static boolean containsOnlyStrings(Collection<?> values) {
+
+        if (values != null) {
+            for (Object value : values) {
+                if (value != null && !(value instanceof String)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlainClaim(Claim claim) {
+
+        return claim == null || claim.getClass() == Claim.class;
+    }
+
+    /**
+     * Writes the values of a single entry.
+     */
+    private static class EntryWriter {
+
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream out;
+        private final Map<String, Integer> writtenStrings = new HashMap<>();
+
+        EntryWriter(ByteArrayOutputStream bytes, byte entryType, long validityPeriod) throws IOException {
+
+            this.bytes = bytes;
+            this.out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(entryType);
+            writeLong(validityPeriod);
+        }
+
+        void writeInt(int value) throws IOException {
+
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                out.writeByte((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            out.writeByte(remaining);
+        }
+
+        /**
+         * Longs are zig-zag encoded, so small negative values are short as well.
+         */
+        void writeLong(long value) throws IOException {
+
+            long remaining = (value << 1) ^ (value >> 63);
+            while ((remaining & ~0x7FL) != 0) {
+                out.writeByte((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            out.writeByte((int) remaining);
+        }
+
+        void writeString(String value) throws IOException {
+
+            if (value == null) {
+                writeInt(NULL_STRING);
+                return;
+            }
+            Integer dictionaryIndex = DICTIONARY_V1_INDEXES.get(value);
+            if (dictionaryIndex != null) {
+                writeInt(FIRST_DICTIONARY_TAG + dictionaryIndex);
+                return;
+            }
+            Integer writtenIndex = writtenStrings.get(value);
+            if (writtenIndex != null) {
+                writeInt(FIRST_DICTIONARY_TAG + DICTIONARY_V1.length + writtenIndex);
+                return;
+            }
+            writtenStrings.put(value, writtenStrings.size());
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(LITERAL_STRING);
+            writeInt(utf8.length);
+            out.write(utf8);
+        }
+
+        void writeCollectionSize(Collection<?> values) throws IOException {
+
+            writeInt(values != null ? values.size() + 1 : NULL_COLLECTION);
+        }
+
+        void writeStrings(Collection<?> values) throws IOException {
+
+            writeCollectionSize(values);
+            if (values != null) {
+                for (Object value : values) {
+                    writeString((String) value);
+                }
+            }
+        }
+
+        void writeClaimMapping(ClaimMapping claimMapping) throws IOException {
+
+            Claim localClaim = claimMapping.getLocalClaim();
+            Claim remoteClaim = claimMapping.getRemoteClaim();
+            writeInt((claimMapping.isRequested() ? FLAG_REQUESTED : 0) |
+                    (claimMapping.isMandatory() ? FLAG_MANDATORY : 0) |
+                    (localClaim != null ? FLAG_HAS_LOCAL_CLAIM : 0) |
+                    (remoteClaim != null ? FLAG_HAS_REMOTE_CLAIM : 0));
+            if (localClaim != null) {
+                writeString(localClaim.getClaimUri());
+                writeInt(localClaim.getClaimId());
+            }
+            if (remoteClaim != null) {
+                writeString(remoteClaim.getClaimUri());
+                writeInt(remoteClaim.getClaimId());
+            }
+            writeString(claimMapping.getDefaultValue());
+        }
+
+        void writeObject(Object value) throws IOException {
+
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            ByteArrayOutputStream objectBytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(objectBytes)) {
+                objectOut.writeObject(value);
+            }
+            writeInt(objectBytes.size() + 1);
+            objectBytes.writeTo(out);
+        }
+
+        byte[] finish() throws IOException {
+
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Reads the values of a single entry.
+     */
+    private static class EntryReader {
+
+        private final DataInputStream in;
+        private final List<String> readStrings = new ArrayList<>();
+        private final long validityPeriod;
+
+        EntryReader(byte[] data, byte entryType) throws IOException {
+
+            this.in = new DataInputStream(new ByteArrayInputStream(data));
+            int formatVersion = in.readUnsignedByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new InvalidObjectException("Unsupported cache entry format version: " + formatVersion);
+            }
+            byte type = in.readByte();
+            if (type != entryType) {
+                throw new InvalidObjectException("Unexpected cache entry type: " + type + ". Expected: " +
+                        entryType);
+            }
+            validityPeriod = readLong();
+        }
+
+        long getValidityPeriod() {
+
+            return validityPeriod;
+        }
+
+        int readInt() throws IOException {
+
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new InvalidObjectException("Malformed variable length integer in cache entry.");
+        }
+
+        long readLong() throws IOException {
+
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (value >>> 1) ^ -(value & 1);
+                }
+            }
+            throw new InvalidObjectException("Malformed variable length long in cache entry.");
+        }
+
+        String readString() throws IOException {
+
+            int tag = readInt();
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == LITERAL_STRING) {
+                byte[] utf8 = new byte[readLength()];
+                in.readFully(utf8);
+                String value = new String(utf8, StandardCharsets.UTF_8);
+                readStrings.add(value);
+                return value;
+            }
+            int index = tag - FIRST_DICTIONARY_TAG;
+            if (index < DICTIONARY_V1.length) {
+                return DICTIONARY_V1[index];
+            }
+            index -= DICTIONARY_V1.length;
+            if (index >= readStrings.size()) {
+                throw new InvalidObjectException("Invalid string reference in cache entry: " + tag);
+            }
+            return readStrings.get(index);
+        }
+
+        /**
+         * @return Size of the collection, or -1 if it is null.
+         */
+        int readCollectionSize() throws IOException {
+
+            return readInt() - 1;
+        }
+
+        LinkedHashSet<String> readStrings() throws IOException {
+
+            int size = readCollectionSize();
+            if (size < 0) {
+                return null;
+            }
+            LinkedHashSet<String> values = new LinkedHashSet<>();
+            for (int i = 0; i < size; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        ClaimMapping readClaimMapping() throws IOException {
+
+            int flags = readInt();
+            ClaimMapping claimMapping = new ClaimMapping();
+            claimMapping.setRequested((flags & FLAG_REQUESTED) != 0);
+            claimMapping.setMandatory((flags & FLAG_MANDATORY) != 0);
+            if ((flags & FLAG_HAS_LOCAL_CLAIM) != 0) {
+                claimMapping.setLocalClaim(readClaim());
+            }
+            if ((flags & FLAG_HAS_REMOTE_CLAIM) != 0) {
+                claimMapping.setRemoteClaim(readClaim());
+            }
+            claimMapping.setDefaultValue(readString());
+            return claimMapping;
+        }
+
+        <T> T readObject(Class<T> type) throws IOException {
+
+            int length = readInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > in.available()) {
+                throw new InvalidObjectException("Invalid value length in cache entry: " + length);
+            }
+            byte[] objectBytes = new byte[length];
+            in.readFully(objectBytes);
+            try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(objectBytes))) {
+                Object value = objectIn.readObject();
+                if (!type.isInstance(value)) {
+                    throw new InvalidObjectException("Unexpected value of type: " + value.getClass().getName() +
+                            " in cache entry. Expected: " + type.getName());
+                }
+                return type.cast(value);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Error while reading a value of type: " + type.getName() +
+                        " from cache entry.", e);
+            }
+        }
+
+        void finish() throws IOException {
+
+            if (in.available() > 0) {
+                throw new InvalidObjectException("Unexpected trailing data in cache entry.");
+            }
+        }
+
+        private Claim readClaim() throws IOException {
+
+            Claim claim = new Claim();
+            claim.setClaimUri(readString());
+            claim.setClaimId(readInt());
+            return claim;
+        }
+
+        private int readLength() throws IOException {
+
+            int length = readInt();
+            if (length < 0 || length > in.available()) {
+                throw new InvalidObjectException("Invalid string length in cache entry: " + length);
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.io.IOException;
+
+/**
+ * Cache entry which holds another cache entry encoded by {@link CacheEntryCodec}. This is what is stored in the
+ * session data store in place of an {@link AuthorizationGrantCacheEntry} or a {@link SessionDataCacheEntry}, so the
+ * Java serialization done by the store only writes a byte array. The validity period of the encoded entry is kept, as
+ * the store reads it to set the expiry of the stored entry.
+ * <p>
+ * Compact entries are written only when enabled with the OAuth.SessionDataStore.CompactSerialization property, since
+ * nodes of a cluster which do not read them yet would fail to read the stored entries. It should be enabled once all
+ * the nodes are upgraded. Entries stored with Java serialization are always read.
+ */
+public class CompactCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 2837526034581376402L;
+
+    private static final Log log = LogFactory.getLog(CompactCacheEntry.class);
+
+    // This config property is defined in identity.xml
+    private static final String COMPACT_SERIALIZATION = "OAuth.SessionDataStore.CompactSerialization";
+
+    private final byte[] data;
+
+    private CompactCacheEntry(byte[] data, long validityPeriod) {
+
+        this.data = data;
+        setValidityPeriod(validityPeriod);
+    }
+
+    /**
+     * @return True if entries are stored in the session data store in the compact form. False unless configured.
+     */
+    public static boolean isCompactSerializationEnabled() {
+
+        String enabled = IdentityUtil.getProperty(COMPACT_SERIALIZATION);
+        return StringUtils.isNotBlank(enabled) && Boolean.parseBoolean(enabled.trim());
+    }
+
+    /**
+     * Get the form in which an authorization grant cache entry is stored in the session data store.
+     *
+     * @param entry Cache entry.
+     * @return Compact entry, or the given entry if it can not be encoded.
+     */
+    public static CacheEntry of(AuthorizationGrantCacheEntry entry) {
+
+        if (CacheEntryCodec.canEncode(entry)) {
+            try {
+                return new CompactCacheEntry(CacheEntryCodec.encode(entry), entry.getValidityPeriod());
+            } catch (IOException e) {
+                log.error("Error while encoding the authorization grant cache entry. The entry is stored with " +
+                        "Java serialization.", e);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Get the form in which a session data cache entry is stored in the session data store.
+     *
+     * @param entry Cache entry.
+     * @return Compact entry, or the given entry if it can not be encoded.
+     */
+    public static CacheEntry of(SessionDataCacheEntry entry) {
+
+        if (CacheEntryCodec.canEncode(entry)) {
+            try {
+                return new CompactCacheEntry(CacheEntryCodec.encode(entry), entry.getValidityPeriod());
+            } catch (IOException e) {
+                log.error("Error while encoding the session data cache entry. The entry is stored with Java " +
+                        "serialization.", e);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Get an authorization grant cache entry read from the session data store.
+     *
+     * @param storedEntry Entry read from the session data store.
+     * @return Cache entry, or null if there is none or it could not be decoded.
+     */
+    public static AuthorizationGrantCacheEntry toAuthorizationGrantCacheEntry(Object storedEntry) {
+
+        if (storedEntry instanceof CompactCacheEntry) {
+            try {
+                return CacheEntryCodec.decodeAuthorizationGrantCacheEntry(((CompactCacheEntry) storedEntry).data);
+            } catch (IOException e) {
+                log.error("Error while decoding the authorization grant cache entry read from the session data " +
+                        "store.", e);
+                return null;
+            }
+        }
+        return (AuthorizationGrantCacheEntry) storedEntry;
+    }
+
+    /**
+     * Get a session data cache entry read from the session data store.
+     *
+     * @param storedEntry Entry read from the session data store.
+     * @return Cache entry, or null if there is none or it could not be decoded.
+     */
+    public static SessionDataCacheEntry toSessionDataCacheEntry(Object storedEntry) {
+
+        if (storedEntry instanceof CompactCacheEntry) {
+            try {
+                return CacheEntryCodec.decodeSessionDataCacheEntry(((CompactCacheEntry) storedEntry).data);
+            } catch (IOException e) {
+                log.error("Error while decoding the session data cache entry read from the session data store.", e);
+                return null;
+            }
+        }
+        return (SessionDataCacheEntry) storedEntry;
+    }
+
+    /**
+     * @return Size of the encoded entry in bytes.
+     */
+    public int getEncodedSize() {
+
+        return data.length;
+    }
+}
@@ -33,6 +33,7 @@ public class SessionDataCache extends AuthenticationBaseCache<SessionDataCacheKe
 
     private static volatile SessionDataCache instance;
     private boolean isTemporarySessionDataPersistEnabled = false;
+    private boolean isCompactSerializationEnabled = false;
 
     private SessionDataCache() {
         super(SESSION_DATA_CACHE_NAME, true);
@@ -40,6 +41,7 @@ public class SessionDataCache extends AuthenticationBaseCache<SessionDataCacheKe
             isTemporarySessionDataPersistEnabled = Boolean.parseBoolean(
                     IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.Temporary"));
         }
+        isCompactSerializationEnabled = CompactCacheEntry.isCompactSerializationEnabled();
     }
 
     public static SessionDataCache getInstance() {
@@ -57,15 +59,16 @@ public class SessionDataCache extends AuthenticationBaseCache<SessionDataCacheKe
     public void addToCache(SessionDataCacheKey key, SessionDataCacheEntry entry) {
         super.addToCache(key, entry);
         if (isTemporarySessionDataPersistEnabled) {
-            SessionDataStore.getInstance().storeSessionData(key.getSessionDataId(), SESSION_DATA_CACHE_NAME, entry);
+            SessionDataStore.getInstance().storeSessionData(key.getSessionDataId(), SESSION_DATA_CACHE_NAME,
+                    isCompactSerializationEnabled ? CompactCacheEntry.of(entry) : entry);
         }
     }
 
     public SessionDataCacheEntry getValueFromCache(SessionDataCacheKey key) {
         SessionDataCacheEntry cacheEntry = super.getValueFromCache(key);
         if (cacheEntry == null && isTemporarySessionDataPersistEnabled) {
-            cacheEntry = (SessionDataCacheEntry) SessionDataStore.getInstance().
-                    getSessionData(key.getSessionDataId(), SESSION_DATA_CACHE_NAME);
+            cacheEntry = CompactCacheEntry.toSessionDataCacheEntry(SessionDataStore.getInstance().
+                    getSessionData(key.getSessionDataId(), SESSION_DATA_CACHE_NAME));
         }
         return cacheEntry;
     }
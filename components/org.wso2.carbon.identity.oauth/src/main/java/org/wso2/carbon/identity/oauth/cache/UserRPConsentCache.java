@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.cache.BaseCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the approve always decisions of the users on the applications, which are recorded in the
+ * IDN_OPENID_USER_RPS table. A user who has not approved the application is cached as well, so that the silent
+ * authorization requests of the application do not read the database. The entries are maintained per tenant.
+ */
+public class UserRPConsentCache extends BaseCache<UserRPConsentCacheKey, Boolean> {
+
+    private static final Log log = LogFactory.getLog(UserRPConsentCache.class);
+    private static final String USER_RP_CONSENT_CACHE_NAME = "UserRPConsentCache";
+    private static volatile UserRPConsentCache instance;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private UserRPConsentCache() {
+
+        super(USER_RP_CONSENT_CACHE_NAME);
+    }
+
+    /**
+     * Returns UserRPConsentCache singleton instance.
+     *
+     * @return UserRPConsentCache instance.
+     */
+    public static UserRPConsentCache getInstance() {
+
+        if (instance == null) {
+            synchronized (UserRPConsentCache.class) {
+                if (instance == null) {
+                    instance = new UserRPConsentCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Retrieves the consent decision of the user on the application.
+     *
+     * @param key      Key of the consent.
+     * @param tenantId Tenant where the cache is maintained.
+     * @return Whether the user approved the application always, or null if the decision is not cached.
+     */
+    @Override
+    public Boolean getValueFromCache(UserRPConsentCacheKey key, int tenantId) {
+
+        Boolean trustedAlways = super.getValueFromCache(key, tenantId);
+        if (trustedAlways == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return trustedAlways;
+    }
+
+    /**
+     * Clears the consent decision of the user on the application, on all the nodes.
+     *
+     * @param userName User name the consent is stored with.
+     * @param appName  Name of the application.
+     * @param tenantId Tenant where the cache is maintained.
+     */
+    public void clearCacheEntry(String userName, String appName, int tenantId) {
+
+        super.clearCacheEntry(new UserRPConsentCacheKey(userName, appName), tenantId);
+        if (log.isDebugEnabled()) {
+            log.debug("Consent of user: " + userName + " on application: " + appName + " is removed from the " +
+                    "cache of tenant: " + tenantId);
+        }
+    }
+
+    /**
+     * @return Number of consent decisions served from the cache.
+     */
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of consent decisions which were not found in the cache.
+     */
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+}
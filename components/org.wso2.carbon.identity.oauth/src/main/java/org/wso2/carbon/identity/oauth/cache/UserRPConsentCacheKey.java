@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import java.util.Objects;
+
+/**
+ * Key of the {@link UserRPConsentCache}. A consent is identified by the user name it is stored with, which is the
+ * authenticated subject identifier of the user, and the name of the application.
+ */
+public class UserRPConsentCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = 3106521927356102848L;
+
+    private final String userName;
+    private final String appName;
+
+    public UserRPConsentCacheKey(String userName, String appName) {
+
+        this.userName = userName;
+        this.appName = appName;
+    }
+
+    public String getUserName() {
+
+        return userName;
+    }
+
+    public String getAppName() {
+
+        return appName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (!(o instanceof UserRPConsentCacheKey)) {
+            return false;
+        }
+        UserRPConsentCacheKey other = (UserRPConsentCacheKey) o;
+        return Objects.equals(userName, other.userName) && Objects.equals(appName, other.appName);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(userName, appName);
+    }
+}
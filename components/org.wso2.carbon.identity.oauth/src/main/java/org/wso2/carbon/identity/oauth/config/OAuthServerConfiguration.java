@@ -49,6 +49,7 @@ import org.wso2.carbon.identity.oauth2.authz.handlers.ResponseTypeHandler;
 import org.wso2.carbon.identity.oauth2.model.TokenIssuerDO;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuerImpl;
+import org.wso2.carbon.identity.oauth2.token.TokenIssuerResolutionPlan;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHandler;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.SAML2TokenCallbackHandler;
 import org.wso2.carbon.identity.oauth2.validators.OAuth2ScopeHandler;
@@ -167,6 +168,7 @@ public class OAuthServerConfiguration {
     private Map<String, TokenIssuerDO> supportedTokenIssuers = new HashMap<>();
     private List<String> supportedTokenTypes = new ArrayList<>();
     private Map<String, OauthTokenIssuer> oauthTokenIssuerMap = new HashMap<>();
+    private volatile TokenIssuerResolutionPlan tokenIssuerResolutionPlan;
     private String[] supportedClaims = null;
     private Map<String, Properties> supportedClientAuthHandlerData = new HashMap<>();
     private String saml2TokenCallbackHandlerName = null;
@@ -741,6 +743,32 @@ public class OAuthServerConfiguration {
         return oauthTokenIssuerMap;
     }
 
+    /**
+     * Returns the resolution plan used to find the token issuers which can resolve a received token identifier.
+     * The plan is rebuilt lazily whenever the token issuer map changes.
+     *
+     * @return Token issuer resolution plan.
+     */
+    public TokenIssuerResolutionPlan getTokenIssuerResolutionPlan() {
+
+        TokenIssuerResolutionPlan plan = tokenIssuerResolutionPlan;
+        if (plan == null) {
+            synchronized (this) {
+                plan = tokenIssuerResolutionPlan;
+                if (plan == null) {
+                    plan = TokenIssuerResolutionPlan.build(oauthTokenIssuerMap);
+                    tokenIssuerResolutionPlan = plan;
+                }
+            }
+        }
+        return plan;
+    }
+
+    private synchronized void invalidateTokenIssuerResolutionPlan() {
+
+        tokenIssuerResolutionPlan = null;
+    }
+
     /**
      * Check if token renewal is enabled for each call to the token endpoint.
      *
@@ -2247,6 +2275,7 @@ public class OAuthServerConfiguration {
                     oauthTokenIssuer.setPersistAccessTokenAlias(
                             supportedTokenIssuers.get(tokenType).isPersistAccessTokenAlias());
                     oauthTokenIssuerMap.put(tokenType, oauthTokenIssuer);
+                    invalidateTokenIssuerResolutionPlan();
                     log.info("An instance of " + tokenIssuerDO.getTokenImplClass()
                             + " is created for Identity OAuth token generation.");
                 } else {
@@ -2966,6 +2995,7 @@ public class OAuthServerConfiguration {
                     OauthTokenIssuer oauthTokenIssuer = (OauthTokenIssuer) clazz.newInstance();
                     oauthTokenIssuer.setPersistAccessTokenAlias(tokenIssuerDO.getValue().isPersistAccessTokenAlias());
                     oauthTokenIssuerMap.put(tokenIssuerDO.getKey(), oauthTokenIssuer);
+                    invalidateTokenIssuerResolutionPlan();
 
                 } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e) {
                     throw new IdentityOAuth2Exception("Error while populating OAuth Token Issuer Map. Issuer key: " +
@@ -66,6 +66,8 @@ import java.util.Set;
 import static org.wso2.carbon.identity.oauth.OAuthUtil.handleError;
 import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.BACK_CHANNEL_LOGOUT_URL;
 import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.BYPASS_CLIENT_CREDENTIALS;
+import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.CIBA_BACKCHANNEL_TOKEN_DELIVERY_MODE;
+import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.CIBA_CLIENT_NOTIFICATION_ENDPOINT;
 import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.FRONT_CHANNEL_LOGOUT_URL;
 import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.ID_TOKEN_ENCRYPTED;
 import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OIDCConfigProperties.ID_TOKEN_ENCRYPTION_ALGORITHM;
@@ -338,33 +340,9 @@ public class OAuthAppDAO {
                         // There is at least one application associated with a given key
                         appExists = true;
                         if (rSet.getString(4) != null && rSet.getString(4).length() > 0) {
-                            oauthApp = new OAuthAppDO();
-                            oauthApp.setOauthConsumerKey(consumerKey);
-                            if (isHashDisabled) {
-                                oauthApp.setOauthConsumerSecret(persistenceProcessor.getPreprocessedClientSecret(rSet
-                                        .getString(1)));
-                            } else {
-                                oauthApp.setOauthConsumerSecret(rSet.getString(1));
-                            }
-                            AuthenticatedUser authenticatedUser = new AuthenticatedUser();
-                            authenticatedUser.setUserName(rSet.getString(2));
-                            oauthApp.setApplicationName(rSet.getString(3));
-                            oauthApp.setOauthVersion(rSet.getString(4));
-                            oauthApp.setCallbackUrl(rSet.getString(5));
-                            authenticatedUser.setTenantDomain(IdentityTenantUtil.getTenantDomain(rSet.getInt(6)));
-                            authenticatedUser.setUserStoreDomain(rSet.getString(7));
-                            oauthApp.setUser(authenticatedUser);
-                            oauthApp.setGrantTypes(rSet.getString(8));
-                            oauthApp.setId(rSet.getInt(9));
-                            oauthApp.setPkceMandatory(!"0".equals(rSet.getString(10)));
-                            oauthApp.setPkceSupportPlain(!"0".equals(rSet.getString(11)));
-                            oauthApp.setUserAccessTokenExpiryTime(rSet.getLong(12));
-                            oauthApp.setApplicationAccessTokenExpiryTime(rSet.getLong(13));
-                            oauthApp.setRefreshTokenExpiryTime(rSet.getLong(14));
-                            oauthApp.setIdTokenExpiryTime(rSet.getLong(15));
-                            oauthApp.setState(rSet.getString(16));
+                            oauthApp = buildAppInformation(rSet, consumerKey);
 
-                            String spTenantDomain = authenticatedUser.getTenantDomain();
+                            String spTenantDomain = oauthApp.getUser().getTenantDomain();
                             handleSpOIDCProperties(connection, preprocessedClientId, spTenantDomain, oauthApp);
                             oauthApp.setScopeValidators(getScopeValidators(connection, oauthApp.getId()));
                         }
@@ -382,6 +360,99 @@ public class OAuthAppDAO {
         return oauthApp;
     }
 
+    /**
+     * Retrieve the information of the given applications at once, with their OIDC properties and scope validators.
+     * The number of consumer keys should be bounded by the caller, as they are bound to a single IN clause.
+     *
+     * @param consumerKeys Consumer keys of the applications.
+     * @return Map of consumer key to the application. Consumer keys without an application are not included.
+     * @throws IdentityOAuth2Exception If an error occurs while retrieving the applications.
+     */
+    public Map<String, OAuthAppDO> getAppsInformation(List<String> consumerKeys) throws IdentityOAuth2Exception {
+
+        Map<String, OAuthAppDO> oauthApps = new HashMap<>();
+        if (consumerKeys.isEmpty()) {
+            return oauthApps;
+        }
+        List<String> processedClientIds = new ArrayList<>(consumerKeys.size());
+        for (String consumerKey : consumerKeys) {
+            processedClientIds.add(persistenceProcessor.getProcessedClientId(consumerKey));
+        }
+        String inClause = StringUtils.repeat("?", ",", processedClientIds.size()) + ")";
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false)) {
+            Map<String, OAuthAppDO> oauthAppsByProcessedClientId = new HashMap<>();
+            Map<String, Integer> tenantIdsByProcessedClientId = new HashMap<>();
+            List<Integer> appIds = new ArrayList<>();
+            try (PreparedStatement prepStmt = connection.prepareStatement(
+                    SQLQueries.OAuthAppDAOSQLQueries.GET_APPS_INFO_WITH_PKCE + inClause)) {
+                setValues(prepStmt, processedClientIds);
+                try (ResultSet rSet = prepStmt.executeQuery()) {
+                    while (rSet.next()) {
+                        if (StringUtils.isEmpty(rSet.getString(4))) {
+                            continue;
+                        }
+                        String processedClientId = rSet.getString(17);
+                        OAuthAppDO oauthApp = buildAppInformation(rSet,
+                                persistenceProcessor.getPreprocessedClientId(processedClientId));
+                        oauthAppsByProcessedClientId.put(processedClientId, oauthApp);
+                        tenantIdsByProcessedClientId.put(processedClientId, rSet.getInt(6));
+                        appIds.add(oauthApp.getId());
+                    }
+                }
+            }
+            if (oauthAppsByProcessedClientId.isEmpty()) {
+                return oauthApps;
+            }
+
+            Map<String, Map<String, List<String>>> spOIDCPropertiesOfClients = new HashMap<>();
+            try (PreparedStatement prepStmt = connection.prepareStatement(
+                    SQLQueries.OAuthAppDAOSQLQueries.GET_ALL_SP_OIDC_PROPERTIES_OF_CLIENTS + inClause)) {
+                setValues(prepStmt, processedClientIds);
+                try (ResultSet rSet = prepStmt.executeQuery()) {
+                    while (rSet.next()) {
+                        String processedClientId = rSet.getString(1);
+                        // The properties are stored against the tenant of the application.
+                        Integer tenantId = tenantIdsByProcessedClientId.get(processedClientId);
+                        if (tenantId == null || tenantId != rSet.getInt(2)) {
+                            continue;
+                        }
+                        spOIDCPropertiesOfClients.computeIfAbsent(processedClientId, k -> new HashMap<>())
+                                .computeIfAbsent(rSet.getString(3), k -> new ArrayList<>()).add(rSet.getString(4));
+                    }
+                }
+            }
+
+            Map<Integer, List<String>> scopeValidatorsOfApps = new HashMap<>();
+            try (PreparedStatement prepStmt = connection.prepareStatement(
+                    SQLQueries.OAuthAppDAOSQLQueries.GET_SCOPE_VALIDATORS_OF_APPS +
+                            StringUtils.repeat("?", ",", appIds.size()) + ")")) {
+                for (int i = 0; i < appIds.size(); i++) {
+                    prepStmt.setInt(i + 1, appIds.get(i));
+                }
+                try (ResultSet rSet = prepStmt.executeQuery()) {
+                    while (rSet.next()) {
+                        scopeValidatorsOfApps.computeIfAbsent(rSet.getInt(1), k -> new ArrayList<>())
+                                .add(rSet.getString(2));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, OAuthAppDO> entry : oauthAppsByProcessedClientId.entrySet()) {
+                OAuthAppDO oauthApp = entry.getValue();
+                setSpOIDCProperties(spOIDCPropertiesOfClients.getOrDefault(entry.getKey(), new HashMap<>()),
+                        oauthApp);
+                oauthApp.setScopeValidators(scopeValidatorsOfApps.getOrDefault(oauthApp.getId(),
+                        new ArrayList<>()).toArray(new String[0]));
+                oauthApps.put(oauthApp.getOauthConsumerKey(), oauthApp);
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while retrieving the information of " + consumerKeys.size() +
+                    " apps", e);
+        }
+        return oauthApps;
+    }
+
     public OAuthAppDO getAppInformationByAppName(String appName) throws
             InvalidOAuthClientException, IdentityOAuth2Exception {
         OAuthAppDO oauthApp;
@@ -651,6 +722,21 @@ public class OAuthAppDAO {
                 TOKEN_BINDING_VALIDATION, String.valueOf(oauthAppDO.isTokenBindingValidationEnabled()),
                 prepStatementForPropertyAdd, preparedStatementForPropertyUpdate);
 
+        // The stored CIBA configurations are kept unless the app specifies the token delivery mode.
+        if (oauthAppDO.getCibaTokenDeliveryMode() != null) {
+            addOrUpdateOIDCSpProperty(preprocessedClientId, spTenantId, spOIDCProperties,
+                    CIBA_BACKCHANNEL_TOKEN_DELIVERY_MODE, oauthAppDO.getCibaTokenDeliveryMode(),
+                    prepStatementForPropertyAdd, preparedStatementForPropertyUpdate);
+
+            if (propertyAlreadyExists(spOIDCProperties, CIBA_CLIENT_NOTIFICATION_ENDPOINT)) {
+                addToBatchForOIDCPropertyUpdate(preprocessedClientId, spTenantId, preparedStatementForPropertyUpdate,
+                        CIBA_CLIENT_NOTIFICATION_ENDPOINT, oauthAppDO.getCibaClientNotificationEndpoint());
+            } else if (oauthAppDO.getCibaClientNotificationEndpoint() != null) {
+                addToBatchForOIDCPropertyAdd(preprocessedClientId, spTenantId, prepStatementForPropertyAdd,
+                        CIBA_CLIENT_NOTIFICATION_ENDPOINT, oauthAppDO.getCibaClientNotificationEndpoint());
+            }
+        }
+
         // Execute batched add/update/delete.
         prepStatementForPropertyAdd.executeBatch();
         preparedStatementForPropertyUpdate.executeBatch();
@@ -1047,6 +1133,43 @@ public class OAuthAppDAO {
         }
     }
 
+    private OAuthAppDO buildAppInformation(ResultSet rSet, String consumerKey) throws SQLException,
+            IdentityOAuth2Exception {
+
+        OAuthAppDO oauthApp = new OAuthAppDO();
+        oauthApp.setOauthConsumerKey(consumerKey);
+        if (isHashDisabled) {
+            oauthApp.setOauthConsumerSecret(persistenceProcessor.getPreprocessedClientSecret(rSet.getString(1)));
+        } else {
+            oauthApp.setOauthConsumerSecret(rSet.getString(1));
+        }
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser();
+        authenticatedUser.setUserName(rSet.getString(2));
+        oauthApp.setApplicationName(rSet.getString(3));
+        oauthApp.setOauthVersion(rSet.getString(4));
+        oauthApp.setCallbackUrl(rSet.getString(5));
+        authenticatedUser.setTenantDomain(IdentityTenantUtil.getTenantDomain(rSet.getInt(6)));
+        authenticatedUser.setUserStoreDomain(rSet.getString(7));
+        oauthApp.setUser(authenticatedUser);
+        oauthApp.setGrantTypes(rSet.getString(8));
+        oauthApp.setId(rSet.getInt(9));
+        oauthApp.setPkceMandatory(!"0".equals(rSet.getString(10)));
+        oauthApp.setPkceSupportPlain(!"0".equals(rSet.getString(11)));
+        oauthApp.setUserAccessTokenExpiryTime(rSet.getLong(12));
+        oauthApp.setApplicationAccessTokenExpiryTime(rSet.getLong(13));
+        oauthApp.setRefreshTokenExpiryTime(rSet.getLong(14));
+        oauthApp.setIdTokenExpiryTime(rSet.getLong(15));
+        oauthApp.setState(rSet.getString(16));
+        return oauthApp;
+    }
+
+    private void setValues(PreparedStatement prepStmt, List<String> values) throws SQLException {
+
+        for (int i = 0; i < values.size(); i++) {
+            prepStmt.setString(i + 1, values.get(i));
+        }
+    }
+
     /**
      * Retrieve all scope validators for specific appId.
      *
@@ -1195,6 +1318,16 @@ public class OAuthAppDAO {
                     TOKEN_BINDING_VALIDATION,
                     String.valueOf(consumerAppDO.isTokenBindingValidationEnabled()));
 
+            if (consumerAppDO.getCibaTokenDeliveryMode() != null) {
+                addToBatchForOIDCPropertyAdd(processedClientId, spTenantId, prepStmtAddOIDCProperty,
+                        CIBA_BACKCHANNEL_TOKEN_DELIVERY_MODE, consumerAppDO.getCibaTokenDeliveryMode());
+            }
+
+            if (consumerAppDO.getCibaClientNotificationEndpoint() != null) {
+                addToBatchForOIDCPropertyAdd(processedClientId, spTenantId, prepStmtAddOIDCProperty,
+                        CIBA_CLIENT_NOTIFICATION_ENDPOINT, consumerAppDO.getCibaClientNotificationEndpoint());
+            }
+
             prepStmtAddOIDCProperty.executeBatch();
         }
     }
@@ -1298,6 +1431,10 @@ public class OAuthAppDAO {
         String renewRefreshToken = getFirstPropertyValue(spOIDCProperties, RENEW_REFRESH_TOKEN);
         oauthApp.setRenewRefreshTokenEnabled(renewRefreshToken);
 
+        oauthApp.setCibaTokenDeliveryMode(getFirstPropertyValue(spOIDCProperties,
+                CIBA_BACKCHANNEL_TOKEN_DELIVERY_MODE));
+        oauthApp.setCibaClientNotificationEndpoint(getFirstPropertyValue(spOIDCProperties,
+                CIBA_CLIENT_NOTIFICATION_ENDPOINT));
     }
 
     private String getFirstPropertyValue(Map<String, List<String>> propertyMap, String key) {
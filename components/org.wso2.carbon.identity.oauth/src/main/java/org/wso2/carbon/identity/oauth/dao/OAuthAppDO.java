@@ -73,6 +73,8 @@ public class OAuthAppDO implements Serializable {
     private String tokenBindingType;
     private boolean tokenRevocationWithIDPSessionTerminationEnabled;
     private boolean tokenBindingValidationEnabled;
+    private String cibaTokenDeliveryMode;
+    private String cibaClientNotificationEndpoint;
 
     public AuthenticatedUser getAppOwner() {
 
@@ -334,4 +336,24 @@ public class OAuthAppDO implements Serializable {
 
         this.tokenBindingValidationEnabled = tokenBindingValidationEnabled;
     }
+
+    public String getCibaTokenDeliveryMode() {
+
+        return cibaTokenDeliveryMode;
+    }
+
+    public void setCibaTokenDeliveryMode(String cibaTokenDeliveryMode) {
+
+        this.cibaTokenDeliveryMode = cibaTokenDeliveryMode;
+    }
+
+    public String getCibaClientNotificationEndpoint() {
+
+        return cibaClientNotificationEndpoint;
+    }
+
+    public void setCibaClientNotificationEndpoint(String cibaClientNotificationEndpoint) {
+
+        this.cibaClientNotificationEndpoint = cibaClientNotificationEndpoint;
+    }
 }
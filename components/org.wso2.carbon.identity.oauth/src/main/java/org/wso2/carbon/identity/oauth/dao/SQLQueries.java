@@ -99,6 +99,15 @@ public class SQLQueries {
         public static final String GET_ALL_SP_OIDC_PROPERTIES =
                 "SELECT PROPERTY_KEY, PROPERTY_VALUE FROM IDN_OIDC_PROPERTY WHERE TENANT_ID = ? AND CONSUMER_KEY = ?";
 
+        public static final String GET_APPS_INFO_WITH_PKCE = "SELECT CONSUMER_SECRET, USERNAME, APP_NAME, " +
+                "OAUTH_VERSION, CALLBACK_URL, TENANT_ID, USER_DOMAIN, GRANT_TYPES, ID, PKCE_MANDATORY, " +
+                "PKCE_SUPPORT_PLAIN, USER_ACCESS_TOKEN_EXPIRE_TIME, APP_ACCESS_TOKEN_EXPIRE_TIME, " +
+                "REFRESH_TOKEN_EXPIRE_TIME, ID_TOKEN_EXPIRE_TIME, APP_STATE, CONSUMER_KEY FROM " +
+                "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY IN (";
+
+        public static final String GET_ALL_SP_OIDC_PROPERTIES_OF_CLIENTS = "SELECT CONSUMER_KEY, TENANT_ID, " +
+                "PROPERTY_KEY, PROPERTY_VALUE FROM IDN_OIDC_PROPERTY WHERE CONSUMER_KEY IN (";
+
         public static final String GET_SP_OIDC_PROPERTY =
                 "SELECT PROPERTY_VALUE FROM IDN_OIDC_PROPERTY WHERE TENANT_ID = ? AND CONSUMER_KEY = ? " +
                         "AND PROPERTY_KEY = ?";
@@ -193,6 +202,9 @@ public class SQLQueries {
         public static final String GET_APP_SCOPE_VALIDATORS = "SELECT SCOPE_VALIDATOR " +
                 "FROM IDN_OAUTH2_SCOPE_VALIDATORS WHERE APP_ID=?";
 
+        public static final String GET_SCOPE_VALIDATORS_OF_APPS = "SELECT APP_ID, SCOPE_VALIDATOR " +
+                "FROM IDN_OAUTH2_SCOPE_VALIDATORS WHERE APP_ID IN (";
+
         public static final String REMOVE_APP_SCOPE_VALIDATORS = "DELETE FROM IDN_OAUTH2_SCOPE_VALIDATORS " +
                 "WHERE APP_ID=?";
 
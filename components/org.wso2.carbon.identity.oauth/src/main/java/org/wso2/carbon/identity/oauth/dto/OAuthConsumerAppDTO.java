@@ -52,6 +52,8 @@ public class OAuthConsumerAppDTO {
     private String tokenBindingType;
     private boolean tokenRevocationWithIDPSessionTerminationEnabled;
     private boolean tokenBindingValidationEnabled;
+    private String cibaTokenDeliveryMode;
+    private String cibaClientNotificationEndpoint;
 
     public long getUserAccessTokenExpiryTime() {
         return userAccessTokenExpiryTime;
@@ -300,5 +302,24 @@ public class OAuthConsumerAppDTO {
 
         this.tokenBindingValidationEnabled = tokenBindingValidationEnabled;
     }
-}
 
+    public String getCibaTokenDeliveryMode() {
+
+        return cibaTokenDeliveryMode;
+    }
+
+    public void setCibaTokenDeliveryMode(String cibaTokenDeliveryMode) {
+
+        this.cibaTokenDeliveryMode = cibaTokenDeliveryMode;
+    }
+
+    public String getCibaClientNotificationEndpoint() {
+
+        return cibaClientNotificationEndpoint;
+    }
+
+    public void setCibaClientNotificationEndpoint(String cibaClientNotificationEndpoint) {
+
+        this.cibaClientNotificationEndpoint = cibaClientNotificationEndpoint;
+    }
+}
@@ -33,6 +33,7 @@ import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -226,4 +227,36 @@ public interface OAuthEventInterceptor extends IdentityHandler {
             throws IdentityOAuth2Exception {
 
     }
+
+    /**
+     * This will be called before a set of tokens is revoked through listeners directly. By default the token level
+     * method is called for each token, hence implementations only need to override this to handle the set at once.
+     *
+     * @param accessTokenDOs {@link AccessTokenDO}s to be revoked
+     * @param params         Additional parameters
+     * @throws IdentityOAuth2Exception
+     */
+    default void onPreTokenRevocationBySystem(List<AccessTokenDO> accessTokenDOs, Map<String, Object> params)
+            throws IdentityOAuth2Exception {
+
+        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+            onPreTokenRevocationBySystem(accessTokenDO, params);
+        }
+    }
+
+    /**
+     * This will be called after a set of tokens is revoked through listeners directly. By default the token level
+     * method is called for each token, hence implementations only need to override this to handle the set at once.
+     *
+     * @param accessTokenDOs Revoked {@link AccessTokenDO}s
+     * @param params         Additional parameters
+     * @throws IdentityOAuth2Exception
+     */
+    default void onPostTokenRevocationBySystem(List<AccessTokenDO> accessTokenDOs, Map<String, Object> params)
+            throws IdentityOAuth2Exception {
+
+        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+            onPostTokenRevocationBySystem(accessTokenDO, params);
+        }
+    }
 }
@@ -84,6 +84,7 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         }
 
         removeClaimCacheEntry(username, userStoreManager);
+        OAuthUtil.removeOIDCUserClaimsFromCache(username, userStoreManager);
 
         return OAuthUtil.revokeTokens(username, userStoreManager);
 
@@ -118,6 +119,7 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         if (!isEnable()) {
             return true;
         }
+        OAuthUtil.removeOIDCUserClaimsFromCache(userName, userStoreManager);
         return true;
     }
 
@@ -128,9 +130,30 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         if (!isEnable()) {
             return true;
         }
+        OAuthUtil.removeOIDCUserClaimsFromCache(userName, userStoreManager);
         return true;
     }
 
+    @Override
+    public boolean doPostDeleteUserClaimValue(String userName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+
+        if (!isEnable()) {
+            return true;
+        }
+        return OAuthUtil.removeUserClaimsFromCache(userName, userStoreManager);
+    }
+
+    @Override
+    public boolean doPostDeleteUserClaimValues(String userName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+
+        if (!isEnable()) {
+            return true;
+        }
+        return OAuthUtil.removeUserClaimsFromCache(userName, userStoreManager);
+    }
+
     @Override
     public boolean doPostAuthenticate(String userName, boolean authenticated, UserStoreManager userStoreManager)
             throws UserStoreException {
@@ -26,6 +26,7 @@ import org.wso2.carbon.identity.oauth.cache.OAuthCache;
 import org.wso2.carbon.identity.oauth.cache.OAuthCacheKey;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.IntrospectionResponseCache;
 
 import javax.cache.event.CacheEntryEvent;
 import javax.cache.event.CacheEntryListenerException;
@@ -57,6 +58,7 @@ public class OAuthCacheRemoveListener extends AbstractCacheListener<OAuthCacheKe
 
         OAuthCacheKey oauthcacheKey = new OAuthCacheKey(accessTokenDO.getAccessToken());
         oauthCache.clearCacheEntry(oauthcacheKey);
+        IntrospectionResponseCache.getInstance().removeEntry(accessTokenDO.getAccessToken());
 
         try {
             String userId = accessTokenDO.getAuthzUser().getUserId();
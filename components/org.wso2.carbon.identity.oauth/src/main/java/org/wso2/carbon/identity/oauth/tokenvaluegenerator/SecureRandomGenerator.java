@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenvaluegenerator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.oltu.oauth2.as.issuer.ValueGenerator;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Token value generator which encodes 256 random bits as a base64url string (43 characters).
+ * <p>
+ * Each thread draws from its own deterministic random bit generator, so token generation does not contend on the
+ * shared {@link SecureRandom} used by {@link java.util.UUID#randomUUID()}. The generators are reseeded from the
+ * platform entropy source after {@link #RESEED_INTERVAL} values. It can be enabled with,
+ * <pre>
+ * &lt;AccessTokenValueGenerator&gt;
+ *     org.wso2.carbon.identity.oauth.tokenvaluegenerator.SecureRandomGenerator
+ * &lt;/AccessTokenValueGenerator&gt;
+ * </pre>
+ */
+public class SecureRandomGenerator implements ValueGenerator {
+
+    private static final Log log = LogFactory.getLog(SecureRandomGenerator.class);
+
+    private static final int TOKEN_LENGTH_IN_BYTES = 32;
+    private static final int SEED_LENGTH_IN_BYTES = 32;
+    private static final int RESEED_INTERVAL = 1 << 16;
+    private static final String[] DRBG_ALGORITHMS = {"DRBG", "SHA1PRNG"};
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    private final ThreadLocal<ThreadRandom> threadRandom = ThreadLocal.withInitial(ThreadRandom::new);
+
+    @Override
+    public String generateValue() throws OAuthSystemException {
+
+        byte[] bytes = new byte[TOKEN_LENGTH_IN_BYTES];
+        threadRandom.get().nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
+    }
+
+    @Override
+    public String generateValue(String value) throws OAuthSystemException {
+
+        if (value == null) {
+            throw new OAuthSystemException("Value to generate the token value from is null.");
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ENCODER.encodeToString(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new OAuthSystemException("Error while generating the token value.", e);
+        }
+    }
+
+    private static SecureRandom newRandom() {
+
+        for (String algorithm : DRBG_ALGORITHMS) {
+            try {
+                SecureRandom random = SecureRandom.getInstance(algorithm);
+                random.setSeed(SEED_SOURCE.generateSeed(SEED_LENGTH_IN_BYTES));
+                return random;
+            } catch (NoSuchAlgorithmException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Random number generator algorithm: " + algorithm + " is not available.");
+                }
+            }
+        }
+        return new SecureRandom();
+    }
+
+    /**
+     * Random bit generator of a single thread.
+     */
+    private static class ThreadRandom {
+
+        private final SecureRandom random = newRandom();
+        private int generatedCount;
+
+        void nextBytes(byte[] bytes) {
+
+            if (++generatedCount >= RESEED_INTERVAL) {
+                random.setSeed(SEED_SOURCE.generateSeed(SEED_LENGTH_IN_BYTES));
+                generatedCount = 0;
+            }
+            random.nextBytes(bytes);
+        }
+    }
+}
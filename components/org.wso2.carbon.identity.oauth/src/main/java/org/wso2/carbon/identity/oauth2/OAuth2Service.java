@@ -53,6 +53,8 @@ import org.wso2.carbon.identity.oauth2.model.OAuth2Parameters;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLockManagerFactory;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.user.api.Claim;
 import org.wso2.carbon.user.core.UserStoreManager;
@@ -426,8 +428,8 @@ public class OAuth2Service extends AbstractAdmin {
                         OAuthUtil.clearOAuthCache(accessTokenDO);
                         String scope = OAuth2Util.buildScopeString(accessTokenDO.getScope());
                         String userId = accessTokenDO.getAuthzUser().getUserId();
-                        synchronized ((revokeRequestDTO.getConsumerKey() + ":" + userId + ":" + scope + ":"
-                                + tokenBindingReference).intern()) {
+                        try (TokenLock ignored = TokenLockManagerFactory.getTokenIssuanceLockManager()
+                                .acquire(revokeRequestDTO.getConsumerKey(), userId, scope, tokenBindingReference)) {
                             OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
                                     .revokeAccessTokens(new String[]{accessTokenDO.getAccessToken()});
                         }
@@ -48,6 +48,8 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeRespDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLockManagerFactory;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.IDTokenBuilder;
 
@@ -137,7 +139,8 @@ public class TokenResponseTypeHandler extends AbstractResponseTypeHandler {
 
         AccessTokenDO tokenDO = null;
 
-        synchronized ((consumerKey + ":" + authorizedUserId + ":" + scope).intern()) {
+        try (TokenLock ignored = TokenLockManagerFactory.getTokenIssuanceLockManager()
+                .acquire(consumerKey, authorizedUserId, scope)) {
 
             AccessTokenDO existingAccessTokenDO = null;
             // check if valid access token exists in cache
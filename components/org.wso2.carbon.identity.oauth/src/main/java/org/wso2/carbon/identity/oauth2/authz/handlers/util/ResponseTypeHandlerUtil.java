@@ -54,6 +54,8 @@ import org.wso2.carbon.identity.oauth2.dto.OAuthRevocationResponseDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLockManagerFactory;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.IDTokenBuilder;
 
@@ -159,7 +161,8 @@ public class ResponseTypeHandlerUtil {
                     + authorizationReqDTO.getUser().getLoggableUserId());
         }
 
-        synchronized ((consumerKey + ":" + authorizedUserId + ":" + scope).intern()) {
+        try (TokenLock ignored = TokenLockManagerFactory.getTokenIssuanceLockManager()
+                .acquire(consumerKey, authorizedUserId, scope)) {
 
             AccessTokenDO existingTokenBean = getExistingToken(oauthAuthzMsgCtx, authorizedUserId, cacheEnabled);
 
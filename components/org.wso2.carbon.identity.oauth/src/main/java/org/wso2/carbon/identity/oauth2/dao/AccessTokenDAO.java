@@ -25,6 +25,7 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -40,6 +41,23 @@ public interface AccessTokenDAO {
                               AccessTokenDO newAccessTokenDO, AccessTokenDO existingAccessTokenDO,
                               String rawUserStoreDomain) throws IdentityOAuth2Exception;
 
+    /**
+     * Persist a batch of access tokens. Existing tokens carried by the context objects are marked as expired in
+     * the same transaction.
+     *
+     * @param accessContextTokenDOs access token context objects to be persisted.
+     * @throws IdentityOAuth2Exception in case of failure.
+     */
+    default void insertAccessTokensInBatch(List<AccessContextTokenDO> accessContextTokenDOs)
+            throws IdentityOAuth2Exception {
+
+        for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+            insertAccessToken(accessContextTokenDO.getAccessToken(), accessContextTokenDO.getConsumerKey(),
+                    accessContextTokenDO.getNewAccessTokenDO(), accessContextTokenDO.getExistingAccessTokenDO(),
+                    accessContextTokenDO.getUserStoreDomain());
+        }
+    }
+
     AccessTokenDO getLatestAccessToken(String consumerKey, AuthenticatedUser authzUser, String userStoreDomain,
                                        String scope, boolean includeExpiredTokens) throws IdentityOAuth2Exception;
 
@@ -87,6 +105,27 @@ public interface AccessTokenDAO {
     Set<AccessTokenDO> getAccessTokens(String consumerKey, AuthenticatedUser userName,
                                        String userStoreDomain, boolean includeExpired) throws IdentityOAuth2Exception;
 
+    /**
+     * Retrieve the ACTIVE or EXPIRED access tokens issued to the given user for all the clients at once.
+     *
+     * @param authzUser       Authorized user.
+     * @param userStoreDomain User store domain of the access token table partition, or null if the access token
+     *                        table is not partitioned.
+     * @return Access tokens of the user.
+     * @throws IdentityOAuth2Exception
+     */
+    default Set<AccessTokenDO> getAccessTokensOfUser(AuthenticatedUser authzUser, String userStoreDomain)
+            throws IdentityOAuth2Exception {
+
+        Set<AccessTokenDO> accessTokenDOs = new HashSet<>();
+        Set<String> clientIds = OAuthTokenPersistenceFactory.getInstance().getTokenManagementDAO()
+                .getAllTimeAuthorizedClientIds(authzUser);
+        for (String clientId : clientIds) {
+            accessTokenDOs.addAll(getAccessTokens(clientId, authzUser, userStoreDomain, true));
+        }
+        return accessTokenDOs;
+    }
+
     AccessTokenDO getAccessToken(String accessTokenIdentifier, boolean includeExpired) throws IdentityOAuth2Exception;
 
     Set<String> getAccessTokensByUser(AuthenticatedUser authenticatedUser) throws IdentityOAuth2Exception;
@@ -153,6 +192,26 @@ public interface AccessTokenDAO {
     default void revokeAccessTokensIndividually(String[] tokens, boolean isHashedToken) throws IdentityOAuth2Exception {
     }
 
+    /**
+     * Revoke the given set of access tokens with as few statements as the token table layout allows.
+     *
+     * @param accessTokenDOs Access tokens that needs to be revoked.
+     * @param isHashedToken  Given tokens are hashed tokens or plain text.
+     * @throws IdentityOAuth2Exception
+     */
+    default void revokeAccessTokens(List<AccessTokenDO> accessTokenDOs, boolean isHashedToken)
+            throws IdentityOAuth2Exception {
+
+        if (accessTokenDOs == null || accessTokenDOs.isEmpty()) {
+            return;
+        }
+        String[] tokens = new String[accessTokenDOs.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = accessTokenDOs.get(i).getAccessToken();
+        }
+        revokeAccessTokens(tokens, isHashedToken);
+    }
+
     void revokeAccessToken(String tokenId, String userId) throws IdentityOAuth2Exception;
 
     void invalidateAndCreateNewAccessToken(String oldAccessTokenId, String tokenState, String consumerKey,
@@ -43,6 +43,7 @@ import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.UnknownTokenCache;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinding;
 import org.wso2.carbon.identity.oauth2.util.OAuth2TokenUtil;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
@@ -83,7 +84,6 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
     private static final String OAUTH_TOKEN_PERSISTENCE_RETRY_COUNT = "OAuth.TokenPersistence.RetryCount";
     private static final int DEFAULT_TOKEN_PERSIST_RETRY_COUNT = 5;
     private static final String IDN_OAUTH2_ACCESS_TOKEN = "IDN_OAUTH2_ACCESS_TOKEN";
-    private boolean isTokenCleanupFeatureEnabled = OAuthServerConfiguration.getInstance().isTokenCleanupEnabled();
     private static final String DEFAULT_TOKEN_TO_SESSION_MAPPING = "DEFAULT";
 
     private static final Log log = LogFactory.getLog(AccessTokenDAOImpl.class);
@@ -124,23 +124,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     "Authorized user should be available for further execution.");
         }
 
-        String accessTokenHash = accessToken;
-        try {
-            OauthTokenIssuer oauthTokenIssuer = OAuth2Util.getOAuthTokenIssuerForOAuthApp(consumerKey);
-            //check for persist alias for the token type
-            if (oauthTokenIssuer.usePersistedAccessTokenAlias()) {
-                accessTokenHash = oauthTokenIssuer.getAccessTokenHash(accessToken);
-            }
-        } catch (OAuthSystemException e) {
-            if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
-                log.debug("Error while getting access token hash for token(hashed): " + DigestUtils
-                        .sha256Hex(accessTokenHash));
-            }
-            throw new IdentityOAuth2Exception("Error while getting access token hash.", e);
-        } catch (InvalidOAuthClientException e) {
-            throw new IdentityOAuth2Exception(
-                    "Error while retrieving oauth issuer for the app with clientId: " + consumerKey, e);
-        }
+        String accessTokenHash = getAccessTokenHash(accessToken, consumerKey);
 
         if (log.isDebugEnabled()) {
             if (IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
@@ -181,51 +165,10 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
 
         try {
             insertTokenPrepStmt = connection.prepareStatement(sql);
-            insertTokenPrepStmt.setString(1, getPersistenceProcessor().getProcessedAccessTokenIdentifier(
-                    accessTokenHash));
-
-            if (accessTokenDO.getRefreshToken() != null) {
-                insertTokenPrepStmt.setString(2,
-                        getPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
-            } else {
-                insertTokenPrepStmt.setString(2, accessTokenDO.getRefreshToken());
-            }
-
-            insertTokenPrepStmt.setString(3, accessTokenDO.getAuthzUser().getUserName());
             int tenantId = OAuth2Util.getTenantId(accessTokenDO.getAuthzUser().getTenantDomain());
-            insertTokenPrepStmt.setInt(4, tenantId);
-            insertTokenPrepStmt.setString(5, OAuth2Util.getSanitizedUserStoreDomain(userDomain));
-            insertTokenPrepStmt
-                    .setTimestamp(6, accessTokenDO.getIssuedTime(), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-            insertTokenPrepStmt.setTimestamp(7, accessTokenDO.getRefreshTokenIssuedTime(), Calendar.getInstance(TimeZone
-                    .getTimeZone(UTC)));
-            insertTokenPrepStmt.setLong(8, accessTokenDO.getValidityPeriodInMillis());
-            insertTokenPrepStmt.setLong(9, accessTokenDO.getRefreshTokenValidityPeriodInMillis());
-            insertTokenPrepStmt.setString(10, OAuth2Util.hashScopes(accessTokenDO.getScope()));
-            insertTokenPrepStmt.setString(11, accessTokenDO.getTokenState());
-            insertTokenPrepStmt.setString(12, accessTokenDO.getTokenType());
-            insertTokenPrepStmt.setString(13, accessTokenDO.getTokenId());
-            insertTokenPrepStmt.setString(14, accessTokenDO.getGrantType());
-            insertTokenPrepStmt.setString(15, accessTokenDO.getAuthzUser().getAuthenticatedSubjectIdentifier());
-            insertTokenPrepStmt
-                    .setString(16, getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(accessTokenHash));
-            if (accessTokenDO.getRefreshToken() != null) {
-                insertTokenPrepStmt.setString(17,
-                        getHashingPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
-            } else {
-                insertTokenPrepStmt.setString(17, accessTokenDO.getRefreshToken());
-            }
+            setInsertAccessTokenParameters(insertTokenPrepStmt, accessTokenHash, consumerKey, accessTokenDO,
+                    userDomain, authenticatedIDP, tenantId);
             boolean tokenBindingAvailable = isTokenBindingAvailable(accessTokenDO.getTokenBinding());
-            if (tokenBindingAvailable) {
-                insertTokenPrepStmt.setString(18, accessTokenDO.getTokenBinding().getBindingReference());
-            } else {
-                insertTokenPrepStmt.setString(18, NONE);
-            }
-            insertTokenPrepStmt.setString(19, getPersistenceProcessor().getProcessedClientId(consumerKey));
-            if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
-                insertTokenPrepStmt.setString(20, authenticatedIDP);
-                insertTokenPrepStmt.setInt(21, tenantId);
-            }
             insertTokenPrepStmt.execute();
 
             String accessTokenId = accessTokenDO.getTokenId();
@@ -262,6 +205,8 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 log.info("Successfully recovered 'CON_APP_KEY' constraint violation with the attempt : " +
                         retryAttemptCounter);
             }
+            // The token could have been looked up on this node before it got persisted.
+            UnknownTokenCache.getInstance().removeUnknownToken(accessToken);
         } catch (SQLIntegrityConstraintViolationException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
             if (retryAttemptCounter >= getTokenPersistRetryCount()) {
@@ -338,7 +283,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             }
             insertAccessToken(accessToken, consumerKey, newAccessTokenDO, connection, userStoreDomain);
 
-            if (isTokenCleanupFeatureEnabled && existingAccessTokenDO != null) {
+            if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled() && existingAccessTokenDO != null) {
                 oldTokenCleanupObject.cleanupTokenByTokenId(existingAccessTokenDO.getTokenId(), connection);
             }
             IdentityDatabaseUtil.commitTransaction(connection);
@@ -351,6 +296,206 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         }
     }
 
+    @Override
+    public void insertAccessTokensInBatch(List<AccessContextTokenDO> accessContextTokenDOs)
+            throws IdentityOAuth2Exception {
+
+        if (!isPersistenceEnabled() || accessContextTokenDOs == null || accessContextTokenDOs.isEmpty()) {
+            return;
+        }
+
+        // Statements differ per user store when token partitioning is enabled, hence group the batch by the
+        // partitioned user store domain of the token owner.
+        Map<String, List<AccessContextTokenDO>> tokensByUserDomain = new HashMap<>();
+        for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+            AccessTokenDO accessTokenDO = accessContextTokenDO.getNewAccessTokenDO();
+            if (accessTokenDO == null || accessTokenDO.getAuthzUser() == null) {
+                throw new IdentityOAuth2Exception("Access token data object with an authorized user should be " +
+                        "available for further execution.");
+            }
+            String userDomain = OAuth2Util.getUserStoreDomain(accessTokenDO.getAuthzUser());
+            tokensByUserDomain.computeIfAbsent(userDomain, k -> new ArrayList<>()).add(accessContextTokenDO);
+        }
+
+        boolean persistedInBatch = false;
+        List<AccessTokenDO> expiredTokenDOs = new ArrayList<>();
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            for (Map.Entry<String, List<AccessContextTokenDO>> entry : tokensByUserDomain.entrySet()) {
+                expiredTokenDOs.addAll(expireExistingAccessTokensInBatch(connection, entry.getValue()));
+                insertAccessTokensInBatch(connection, entry.getKey(), entry.getValue());
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+            persistedInBatch = true;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            if (log.isDebugEnabled()) {
+                log.debug("Batch persistence of " + accessContextTokenDOs.size() + " access tokens failed. " +
+                        "Falling back to persisting the tokens individually.", e);
+            }
+        } catch (IdentityOAuth2Exception e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw e;
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+
+        if (!persistedInBatch) {
+            // A single conflicting row (ex: 'CON_APP_KEY' violation) fails the whole batch. Persisting individually
+            // lets the regular insert path recover from such conflicts without losing the rest of the batch.
+            insertAccessTokensIndividually(accessContextTokenDOs);
+            return;
+        }
+
+        // Listeners are notified only once the batch is committed. On the fallback path the individual inserts
+        // notify them instead, hence they must not be notified for the rolled back batch.
+        for (AccessTokenDO expiredTokenDO : expiredTokenDOs) {
+            OAuth2TokenUtil.postUpdateAccessToken(expiredTokenDO.getTokenId(),
+                    OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED,
+                    !(StringUtils.equals(expiredTokenDO.getGrantType(), OAuthConstants.GrantTypes.CLIENT_CREDENTIALS)
+                            || StringUtils.equals(expiredTokenDO.getGrantType(),
+                            OAuthConstants.GrantTypes.PASSWORD)));
+        }
+
+        if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled()) {
+            cleanupExistingAccessTokens(accessContextTokenDOs);
+        }
+    }
+
+    /**
+     * Marks the existing access tokens of the given batch as expired, without committing the transaction.
+     *
+     * @param connection            Database connection.
+     * @param accessContextTokenDOs Batch of tokens being persisted.
+     * @return Existing access tokens which were marked as expired.
+     * @throws SQLException If an error occurs while updating the token states.
+     */
+    private List<AccessTokenDO> expireExistingAccessTokensInBatch(Connection connection,
+                                                                  List<AccessContextTokenDO> accessContextTokenDOs)
+            throws SQLException {
+
+        List<AccessTokenDO> expiredTokenDOs = new ArrayList<>();
+        Map<String, List<AccessTokenDO>> existingTokensByUserStore = new HashMap<>();
+        for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+            if (accessContextTokenDO.getExistingAccessTokenDO() != null) {
+                String userStoreDomain =
+                        OAuth2Util.getSanitizedUserStoreDomain(accessContextTokenDO.getUserStoreDomain());
+                existingTokensByUserStore.computeIfAbsent(userStoreDomain, k -> new ArrayList<>())
+                        .add(accessContextTokenDO.getExistingAccessTokenDO());
+            }
+        }
+
+        for (Map.Entry<String, List<AccessTokenDO>> entry : existingTokensByUserStore.entrySet()) {
+            String sql = OAuth2Util.getTokenPartitionedSqlByUserStore(SQLQueries.UPDATE_TOKEN_STATE, entry.getKey());
+            try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+                for (AccessTokenDO existingTokenDO : entry.getValue()) {
+                    prepStmt.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED);
+                    prepStmt.setString(2, UUID.randomUUID().toString());
+                    prepStmt.setString(3, existingTokenDO.getTokenId());
+                    prepStmt.addBatch();
+                }
+                prepStmt.executeBatch();
+            }
+            expiredTokenDOs.addAll(entry.getValue());
+        }
+        return expiredTokenDOs;
+    }
+
+    private void insertAccessTokensInBatch(Connection connection, String userDomain,
+                                           List<AccessContextTokenDO> accessContextTokenDOs)
+            throws IdentityOAuth2Exception, SQLException {
+
+        String sql;
+        if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+            sql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN_WITH_IDP_NAME;
+        } else {
+            sql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN;
+        }
+        sql = OAuth2Util.getTokenPartitionedSqlByUserStore(sql, userDomain);
+        String sqlAddScopes = OAuth2Util.getTokenPartitionedSqlByUserStore(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE,
+                userDomain);
+
+        try (PreparedStatement insertTokenPrepStmt = connection.prepareStatement(sql);
+             PreparedStatement addScopePrepStmt = connection.prepareStatement(sqlAddScopes);
+             PreparedStatement tokenBindingPrepStmt = connection.prepareStatement(STORE_TOKEN_BINDING)) {
+            boolean hasScopes = false;
+            boolean hasTokenBindings = false;
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+                String consumerKey = accessContextTokenDO.getConsumerKey();
+                AccessTokenDO accessTokenDO = accessContextTokenDO.getNewAccessTokenDO();
+                String accessTokenHash = getAccessTokenHash(accessContextTokenDO.getAccessToken(), consumerKey);
+                int tenantId = OAuth2Util.getTenantId(accessTokenDO.getAuthzUser().getTenantDomain());
+                setInsertAccessTokenParameters(insertTokenPrepStmt, accessTokenHash, consumerKey, accessTokenDO,
+                        userDomain, OAuth2Util.getAuthenticatedIDP(accessTokenDO.getAuthzUser()), tenantId);
+                insertTokenPrepStmt.addBatch();
+
+                if (accessTokenDO.getScope() != null) {
+                    for (String scope : accessTokenDO.getScope()) {
+                        addScopePrepStmt.setString(1, accessTokenDO.getTokenId());
+                        addScopePrepStmt.setString(2, scope);
+                        addScopePrepStmt.setInt(3, tenantId);
+                        addScopePrepStmt.addBatch();
+                        hasScopes = true;
+                    }
+                }
+
+                if (isTokenBindingAvailable(accessTokenDO.getTokenBinding())) {
+                    tokenBindingPrepStmt.setString(1, accessTokenDO.getTokenId());
+                    tokenBindingPrepStmt.setString(2, accessTokenDO.getTokenBinding().getBindingType());
+                    tokenBindingPrepStmt.setString(3, accessTokenDO.getTokenBinding().getBindingReference());
+                    tokenBindingPrepStmt.setString(4, accessTokenDO.getTokenBinding().getBindingValue());
+                    tokenBindingPrepStmt.setInt(5, tenantId);
+                    tokenBindingPrepStmt.addBatch();
+                    hasTokenBindings = true;
+                }
+            }
+            // Scope and binding rows reference the token rows, hence the token batch has to be executed first.
+            insertTokenPrepStmt.executeBatch();
+            if (hasScopes) {
+                addScopePrepStmt.executeBatch();
+            }
+            if (hasTokenBindings) {
+                tokenBindingPrepStmt.executeBatch();
+            }
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+                UnknownTokenCache.getInstance().removeUnknownToken(accessContextTokenDO.getAccessToken());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Persisted " + accessContextTokenDOs.size() + " access tokens in batch for user store " +
+                        "domain: " + userDomain);
+            }
+        }
+    }
+
+    private void insertAccessTokensIndividually(List<AccessContextTokenDO> accessContextTokenDOs) {
+
+        for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+            try {
+                insertAccessToken(accessContextTokenDO.getAccessToken(), accessContextTokenDO.getConsumerKey(),
+                        accessContextTokenDO.getNewAccessTokenDO(), accessContextTokenDO.getExistingAccessTokenDO(),
+                        accessContextTokenDO.getUserStoreDomain());
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error occurred while persisting access token with id: " +
+                        accessContextTokenDO.getNewAccessTokenDO().getTokenId() + " for client: " +
+                        accessContextTokenDO.getConsumerKey(), e);
+            }
+        }
+    }
+
+    private void cleanupExistingAccessTokens(List<AccessContextTokenDO> accessContextTokenDOs) {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection()) {
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+                if (accessContextTokenDO.getExistingAccessTokenDO() != null) {
+                    oldTokenCleanupObject.cleanupTokenByTokenId(
+                            accessContextTokenDO.getExistingAccessTokenDO().getTokenId(), connection);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error occurred while cleaning up the old access tokens of the persisted batch.", e);
+        }
+    }
+
     @Override
     public AccessTokenDO getLatestAccessToken(String consumerKey, AuthenticatedUser authzUser, String userStoreDomain,
                                               String scope, boolean includeExpiredTokens)
@@ -844,6 +989,115 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         return new HashSet<>(accessTokenDOMap.values());
     }
 
+    @Override
+    public Set<AccessTokenDO> getAccessTokensOfUser(AuthenticatedUser authzUser, String userStoreDomain)
+            throws IdentityOAuth2Exception {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieving access tokens of all the clients for user: " + authzUser.toString());
+        }
+
+        String tenantDomain = authzUser.getTenantDomain();
+        String tenantAwareUsernameWithNoUserDomain = authzUser.getUserName();
+        String userDomain = OAuth2Util.getUserStoreDomain(authzUser);
+        int tenantId = OAuth2Util.getTenantId(tenantDomain);
+        boolean isUsernameCaseSensitive
+                = IdentityUtil.isUserStoreCaseSensitive(authzUser.getUserStoreDomain(), tenantId);
+        userStoreDomain = OAuth2Util.getSanitizedUserStoreDomain(userStoreDomain);
+        String authenticatedIDP = OAuth2Util.getAuthenticatedIDP(authzUser);
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        Map<String, AccessTokenDO> accessTokenDOMap = new HashMap<>();
+        // The service provider is resolved once per client, not once per token.
+        Map<String, ServiceProvider> serviceProviders = new HashMap<>();
+        try {
+            String sql;
+            if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+                sql = SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_OF_USER_IDP_NAME;
+            } else {
+                sql = SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_OF_USER;
+            }
+
+            sql = OAuth2Util.getTokenPartitionedSqlByUserStore(sql, userStoreDomain);
+
+            if (!isUsernameCaseSensitive) {
+                sql = sql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
+            }
+
+            prepStmt = connection.prepareStatement(sql);
+            if (isUsernameCaseSensitive) {
+                prepStmt.setString(1, tenantAwareUsernameWithNoUserDomain);
+            } else {
+                prepStmt.setString(1, tenantAwareUsernameWithNoUserDomain.toLowerCase());
+            }
+            prepStmt.setInt(2, tenantId);
+            prepStmt.setString(3, userDomain);
+            if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+                prepStmt.setString(4, authenticatedIDP);
+            }
+
+            resultSet = prepStmt.executeQuery();
+
+            while (resultSet.next()) {
+                String accessToken = getPersistenceProcessor()
+                        .getPreprocessedAccessTokenIdentifier(resultSet.getString(1));
+                if (accessTokenDOMap.get(accessToken) == null) {
+                    String refreshToken = getPersistenceProcessor().getPreprocessedRefreshToken(resultSet.getString(2));
+                    Timestamp issuedTime = resultSet.getTimestamp(3, Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+                    Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(4, Calendar.getInstance(TimeZone
+                            .getTimeZone(UTC)));
+                    long validityPeriodInMillis = resultSet.getLong(5);
+                    long refreshTokenValidityPeriodMillis = resultSet.getLong(6);
+                    String tokenType = resultSet.getString(7);
+                    String[] scope = OAuth2Util.buildScopeArray(resultSet.getString(8));
+                    String tokenId = resultSet.getString(9);
+                    String subjectIdentifier = resultSet.getString(10);
+                    String tokenBindingReference = resultSet.getString(11);
+                    String consumerKey = getPersistenceProcessor().getPreprocessedClientId(resultSet.getString(12));
+
+                    AuthenticatedUser user = OAuth2Util.createAuthenticatedUser(tenantAwareUsernameWithNoUserDomain,
+                            userDomain, tenantDomain, authenticatedIDP);
+                    ServiceProvider serviceProvider = serviceProviders.get(consumerKey);
+                    if (serviceProvider == null) {
+                        try {
+                            serviceProvider = OAuth2ServiceComponentHolder.getApplicationMgtService()
+                                    .getServiceProviderByClientId(consumerKey, OAuthConstants.Scope.OAUTH2,
+                                            tenantDomain);
+                        } catch (IdentityApplicationManagementException e) {
+                            throw new IdentityOAuth2Exception("Error occurred while retrieving OAuth2 application " +
+                                    "data for client id " + consumerKey, e);
+                        }
+                        serviceProviders.put(consumerKey, serviceProvider);
+                    }
+                    user.setAuthenticatedSubjectIdentifier(subjectIdentifier, serviceProvider);
+                    AccessTokenDO dataDO = new AccessTokenDO(consumerKey, user, scope, issuedTime,
+                            refreshTokenIssuedTime, validityPeriodInMillis,
+                            refreshTokenValidityPeriodMillis, tokenType);
+                    dataDO.setAccessToken(accessToken);
+                    dataDO.setRefreshToken(refreshToken);
+                    dataDO.setTokenId(tokenId);
+                    if (StringUtils.isNotBlank(tokenBindingReference) && !NONE.equals(tokenBindingReference)) {
+                        setTokenBindingToAccessTokenDO(dataDO, connection, tokenId);
+                    }
+                    accessTokenDOMap.put(accessToken, dataDO);
+                } else {
+                    String scope = resultSet.getString(8).trim();
+                    AccessTokenDO accessTokenDO = accessTokenDOMap.get(accessToken);
+                    accessTokenDO.setScope((String[]) ArrayUtils.add(accessTokenDO.getScope(), scope));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error occurred while retrieving 'ACTIVE or EXPIRED' access tokens of " +
+                    "User ID : " + authzUser, e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, resultSet, prepStmt);
+        }
+
+        return new HashSet<>(accessTokenDOMap.values());
+    }
+
     @Override
     public AccessTokenDO getAccessToken(String accessTokenIdentifier, boolean includeExpired)
             throws IdentityOAuth2Exception {
@@ -1079,7 +1333,8 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 prepStmt.executeUpdate();
                 tokenUpdateSuccessful = true;
 
-                if (isTokenCleanupFeatureEnabled && !OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE.equals(tokenState)) {
+                if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled() &&
+                        !OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE.equals(tokenState)) {
                     oldTokenCleanupObject.cleanupTokenByTokenId(tokenId, connection);
                 }
 
@@ -1247,7 +1502,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 // To revoke request objects which have persisted against the access token.
                 OAuth2TokenUtil.postUpdateAccessTokens(Arrays.asList(tokens), OAuthConstants.TokenStates.
                         TOKEN_STATE_REVOKED);
-                if (isTokenCleanupFeatureEnabled) {
+                if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled()) {
                     oldTokenCleanupObject.cleanupTokensInBatch(oldTokens, connection);
                 }
             } catch (SQLException e) {
@@ -1276,7 +1531,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 // To revoke request objects which have persisted against the access token.
                 OAuth2TokenUtil.postUpdateAccessTokens(Arrays.asList(tokens), OAuthConstants.TokenStates.
                         TOKEN_STATE_REVOKED);
-                if (isTokenCleanupFeatureEnabled) {
+                if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled()) {
                     oldTokenCleanupObject.cleanupTokenByTokenValue(
                             getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(tokens[0]), connection);
                 }
@@ -1350,7 +1605,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                         TOKEN_STATE_REVOKED);
             }
 
-            if (isTokenCleanupFeatureEnabled) {
+            if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled()) {
                 for (String token : tokens) {
                     oldTokenCleanupObject.cleanupTokenByTokenValue(
                             getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token), connection);
@@ -1395,7 +1650,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             IdentityDatabaseUtil.commitTransaction(connection);
             revoked = true;
 
-            if (isTokenCleanupFeatureEnabled && tokenId != null) {
+            if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled() && tokenId != null) {
                 oldTokenCleanupObject.cleanupTokenByTokenId(tokenId, connection);
             }
         } catch (SQLException e) {
@@ -1824,7 +2079,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 updateTokenIdIfAutzCodeGrantType(oldAccessTokenId, accessTokenDO.getTokenId(), connection);
             }
 
-            if (isTokenCleanupFeatureEnabled && oldAccessTokenId != null) {
+            if (OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled() && oldAccessTokenId != null) {
                 oldTokenCleanupObject.cleanupTokenByTokenId(oldAccessTokenId, connection);
             }
             IdentityDatabaseUtil.commitTransaction(connection);
@@ -2301,6 +2556,78 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         }
     }
 
+    private String getAccessTokenHash(String accessToken, String consumerKey) throws IdentityOAuth2Exception {
+
+        String accessTokenHash = accessToken;
+        try {
+            OauthTokenIssuer oauthTokenIssuer = OAuth2Util.getOAuthTokenIssuerForOAuthApp(consumerKey);
+            //check for persist alias for the token type
+            if (oauthTokenIssuer.usePersistedAccessTokenAlias()) {
+                accessTokenHash = oauthTokenIssuer.getAccessTokenHash(accessToken);
+            }
+        } catch (OAuthSystemException e) {
+            if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
+                log.debug("Error while getting access token hash for token(hashed): " + DigestUtils
+                        .sha256Hex(accessTokenHash));
+            }
+            throw new IdentityOAuth2Exception("Error while getting access token hash.", e);
+        } catch (InvalidOAuthClientException e) {
+            throw new IdentityOAuth2Exception(
+                    "Error while retrieving oauth issuer for the app with clientId: " + consumerKey, e);
+        }
+        return accessTokenHash;
+    }
+
+    private void setInsertAccessTokenParameters(PreparedStatement insertTokenPrepStmt, String accessTokenHash,
+                                                String consumerKey, AccessTokenDO accessTokenDO, String userDomain,
+                                                String authenticatedIDP, int tenantId)
+            throws IdentityOAuth2Exception, SQLException {
+
+        insertTokenPrepStmt.setString(1, getPersistenceProcessor().getProcessedAccessTokenIdentifier(
+                accessTokenHash));
+
+        if (accessTokenDO.getRefreshToken() != null) {
+            insertTokenPrepStmt.setString(2,
+                    getPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
+        } else {
+            insertTokenPrepStmt.setString(2, accessTokenDO.getRefreshToken());
+        }
+
+        insertTokenPrepStmt.setString(3, accessTokenDO.getAuthzUser().getUserName());
+        insertTokenPrepStmt.setInt(4, tenantId);
+        insertTokenPrepStmt.setString(5, OAuth2Util.getSanitizedUserStoreDomain(userDomain));
+        insertTokenPrepStmt
+                .setTimestamp(6, accessTokenDO.getIssuedTime(), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        insertTokenPrepStmt.setTimestamp(7, accessTokenDO.getRefreshTokenIssuedTime(), Calendar.getInstance(TimeZone
+                .getTimeZone(UTC)));
+        insertTokenPrepStmt.setLong(8, accessTokenDO.getValidityPeriodInMillis());
+        insertTokenPrepStmt.setLong(9, accessTokenDO.getRefreshTokenValidityPeriodInMillis());
+        insertTokenPrepStmt.setString(10, OAuth2Util.hashScopes(accessTokenDO.getScope()));
+        insertTokenPrepStmt.setString(11, accessTokenDO.getTokenState());
+        insertTokenPrepStmt.setString(12, accessTokenDO.getTokenType());
+        insertTokenPrepStmt.setString(13, accessTokenDO.getTokenId());
+        insertTokenPrepStmt.setString(14, accessTokenDO.getGrantType());
+        insertTokenPrepStmt.setString(15, accessTokenDO.getAuthzUser().getAuthenticatedSubjectIdentifier());
+        insertTokenPrepStmt
+                .setString(16, getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(accessTokenHash));
+        if (accessTokenDO.getRefreshToken() != null) {
+            insertTokenPrepStmt.setString(17,
+                    getHashingPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
+        } else {
+            insertTokenPrepStmt.setString(17, accessTokenDO.getRefreshToken());
+        }
+        if (isTokenBindingAvailable(accessTokenDO.getTokenBinding())) {
+            insertTokenPrepStmt.setString(18, accessTokenDO.getTokenBinding().getBindingReference());
+        } else {
+            insertTokenPrepStmt.setString(18, NONE);
+        }
+        insertTokenPrepStmt.setString(19, getPersistenceProcessor().getProcessedClientId(consumerKey));
+        if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+            insertTokenPrepStmt.setString(20, authenticatedIDP);
+            insertTokenPrepStmt.setInt(21, tenantId);
+        }
+    }
+
     private int getTokenPersistRetryCount() {
 
         int tokenPersistRetryCount = DEFAULT_TOKEN_PERSIST_RETRY_COUNT;
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background purger of the access tokens and authorization codes which are no longer usable. Tokens which are revoked,
+ * inactive, or expired along with their refresh tokens are moved to the audit table, or deleted if the old tokens are
+ * not retained, and expired authorization codes are deleted along with their scopes.
+ * <p>
+ * Each purge cycle scans a bounded number of rows of each table in pages, and pauses between the batches so that the
+ * purge does not compete with the token requests for the database. The next cycle continues from where the previous
+ * one stopped. The access token partition tables are scanned like the main token table, each from its own position.
+ * Only one node of the cluster purges at a time, which is the node holding the cleanup lease. If the lease table is not
+ * created, the purger is not started and the old tokens are cleaned up when they are replaced or revoked instead.
+ */
+public class ExpiredTokenPurger {
+
+    private static final Log log = LogFactory.getLog(ExpiredTokenPurger.class);
+
+    // These config properties are defined in identity.xml
+    private static final String OAUTH_TOKEN_CLEANUP_INTERVAL = "OAuth.TokenCleanup.Interval";
+    private static final String OAUTH_TOKEN_CLEANUP_PAGE_SIZE = "OAuth.TokenCleanup.PageSize";
+    private static final String OAUTH_TOKEN_CLEANUP_MAX_ROWS_PER_CYCLE = "OAuth.TokenCleanup.MaxRowsPerCycle";
+    private static final String OAUTH_TOKEN_CLEANUP_BATCH_PAUSE = "OAuth.TokenCleanup.BatchPause";
+    private static final String OAUTH_TOKEN_CLEANUP_LEASE_DURATION = "OAuth.TokenCleanup.LeaseDuration";
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 1800;
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int DEFAULT_MAX_ROWS_PER_CYCLE = 100000;
+    private static final long DEFAULT_BATCH_PAUSE_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    static final String LEASE_NAME = "OAUTH2_TOKEN_CLEANUP";
+
+    private static volatile ExpiredTokenPurger instance;
+
+    private final TokenCleanupDAO tokenCleanupDAO;
+    private final boolean retainOldTokens;
+    private final long intervalMillis;
+    private final int pageSize;
+    private final int maxRowsPerCycle;
+    private final long batchPauseMillis;
+    private final long leaseDurationMillis;
+    private final String owner = UUID.randomUUID().toString();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean leaseHeld;
+
+    // Keys from which the next cycle continues the scans, per access token table. A missing or null key starts the scan
+    // from the first row.
+    private final Map<String, String> nextTokenIds = new HashMap<>();
+    private String nextCodeId;
+
+    /**
+     * Create a purger. Purge cycles are not scheduled until {@link #start()} is invoked.
+     *
+     * @param leaseDurationMillis Time in milliseconds for which the lease is held after it is renewed. The lease is
+     *                            renewed before each batch, so this should be longer than the interval, so that the
+     *                            elected node keeps the lease between the cycles.
+     */
+    ExpiredTokenPurger(TokenCleanupDAO tokenCleanupDAO, boolean retainOldTokens, long intervalMillis, int pageSize,
+                       int maxRowsPerCycle, long batchPauseMillis, long leaseDurationMillis) {
+
+        this.tokenCleanupDAO = tokenCleanupDAO;
+        this.retainOldTokens = retainOldTokens;
+        this.intervalMillis = intervalMillis;
+        this.pageSize = pageSize;
+        this.maxRowsPerCycle = maxRowsPerCycle;
+        this.batchPauseMillis = batchPauseMillis;
+        this.leaseDurationMillis = leaseDurationMillis;
+    }
+
+    /**
+     * Start the purger configured in identity.xml, if the token cleanup is enabled. Old tokens are cleaned up when they
+     * are replaced or revoked if the purger cannot be started.
+     */
+    public static void startInstance() {
+
+        OAuthServerConfiguration config = OAuthServerConfiguration.getInstance();
+        if (!config.isTokenCleanupEnabled()) {
+            return;
+        }
+        synchronized (ExpiredTokenPurger.class) {
+            if (instance != null) {
+                return;
+            }
+            long intervalMillis = TimeUnit.SECONDS.toMillis(Math.max(1, readLongProperty(OAUTH_TOKEN_CLEANUP_INTERVAL,
+                    DEFAULT_INTERVAL_SECONDS)));
+            long leaseDurationMillis = TimeUnit.SECONDS.toMillis(readLongProperty(OAUTH_TOKEN_CLEANUP_LEASE_DURATION,
+                    0));
+            if (leaseDurationMillis <= 0) {
+                leaseDurationMillis = 2 * intervalMillis;
+            }
+            ExpiredTokenPurger purger = new ExpiredTokenPurger(new TokenCleanupDAO(),
+                    config.useRetainOldAccessTokens(), intervalMillis,
+                    Math.max(1, readIntProperty(OAUTH_TOKEN_CLEANUP_PAGE_SIZE, DEFAULT_PAGE_SIZE)),
+                    Math.max(1, readIntProperty(OAUTH_TOKEN_CLEANUP_MAX_ROWS_PER_CYCLE, DEFAULT_MAX_ROWS_PER_CYCLE)),
+                    Math.max(0, readLongProperty(OAUTH_TOKEN_CLEANUP_BATCH_PAUSE, DEFAULT_BATCH_PAUSE_MILLIS)),
+                    leaseDurationMillis);
+            if (purger.start()) {
+                instance = purger;
+            }
+        }
+    }
+
+    /**
+     * Stop the purger, if it was started, and release the cleanup lease if this node holds it.
+     */
+    public static void shutdownInstance() {
+
+        synchronized (ExpiredTokenPurger.class) {
+            if (instance != null) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Schedule the purge cycles, if the lease table is created.
+     *
+     * @return true if the purge cycles are scheduled.
+     */
+    boolean start() {
+
+        if (!tokenCleanupDAO.isLeaseTableAvailable()) {
+            log.warn("Table: " + TokenCleanupDAO.LEASE_TABLE + " is not found in the identity database, hence the " +
+                    "expired token purger is not started. Old tokens are cleaned up when they are replaced or " +
+                    "revoked instead. Create the table to purge them in the background.");
+            OAuth2ServiceComponentHolder.setInlineTokenCleanupEnabled(true);
+            return false;
+        }
+        OAuth2ServiceComponentHolder.setInlineTokenCleanupEnabled(false);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "OAuthExpiredTokenPurger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::purgeSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug("Expired token purger started with interval: " + intervalMillis + "ms, page size: " + pageSize +
+                    ", max rows per cycle: " + maxRowsPerCycle + " and batch pause: " + batchPauseMillis + "ms.");
+        }
+        return true;
+    }
+
+    void shutdown() {
+
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Expired token purger did not terminate within " + SHUTDOWN_TIMEOUT_MILLIS + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (leaseHeld) {
+            try {
+                tokenCleanupDAO.releaseLease(LEASE_NAME, owner);
+            } catch (IdentityOAuth2Exception e) {
+                log.warn("Error while releasing the token cleanup lease. Another node takes over the cleanup after " +
+                        "the lease expires.", e);
+            }
+            leaseHeld = false;
+        }
+    }
+
+    private void purgeSafely() {
+
+        try {
+            purge();
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while purging the expired access tokens and authorization codes.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // A scheduled task which throws is not run again.
+            log.error("Unexpected error while purging the expired access tokens and authorization codes.", e);
+        }
+    }
+
+    /**
+     * Run a purge cycle, if this node holds the cleanup lease.
+     *
+     * @throws IdentityOAuth2Exception If a batch could not be read or purged. The next cycle retries it.
+     * @throws InterruptedException    If the purger is shut down during the cycle.
+     */
+    void purge() throws IdentityOAuth2Exception, InterruptedException {
+
+        if (!renewLease()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Token cleanup lease is held by another node. Skipping the purge cycle.");
+            }
+            return;
+        }
+        int purgedTokens = 0;
+        for (String tokenTable : tokenCleanupDAO.getAccessTokenTables()) {
+            if (!leaseHeld) {
+                break;
+            }
+            purgedTokens += purgeAccessTokens(tokenTable);
+        }
+        int purgedCodes = leaseHeld ? purgeAuthorizationCodes() : 0;
+        if (log.isDebugEnabled()) {
+            log.debug("Purged " + purgedTokens + " access tokens and " + purgedCodes + " authorization codes.");
+        }
+    }
+
+    private int purgeAccessTokens(String tokenTable) throws IdentityOAuth2Exception, InterruptedException {
+
+        int scanned = 0;
+        int purged = 0;
+        while (scanned < maxRowsPerCycle) {
+            int limit = Math.min(pageSize, maxRowsPerCycle - scanned);
+            TokenCleanupDAO.CleanupPage page = tokenCleanupDAO.getPurgeableAccessTokens(tokenTable,
+                    nextTokenIds.get(tokenTable), limit, System.currentTimeMillis());
+            List<String> tokenIds = page.getPurgeableIds();
+            purged += tokenCleanupDAO.purgeAccessTokens(tokenTable, tokenIds, retainOldTokens);
+            scanned += page.getScannedCount();
+            if (page.getScannedCount() < limit) {
+                // Reached the end of the table. The next cycle starts from the first token.
+                nextTokenIds.remove(tokenTable);
+                break;
+            }
+            nextTokenIds.put(tokenTable, page.getLastScannedId());
+            if (!pauseAndRenewLease(!tokenIds.isEmpty())) {
+                break;
+            }
+        }
+        return purged;
+    }
+
+    private int purgeAuthorizationCodes() throws IdentityOAuth2Exception, InterruptedException {
+
+        int scanned = 0;
+        int purged = 0;
+        while (scanned < maxRowsPerCycle) {
+            int limit = Math.min(pageSize, maxRowsPerCycle - scanned);
+            TokenCleanupDAO.CleanupPage page = tokenCleanupDAO.getPurgeableAuthorizationCodes(nextCodeId, limit,
+                    System.currentTimeMillis());
+            List<String> codeIds = page.getPurgeableIds();
+            purged += tokenCleanupDAO.purgeAuthorizationCodes(codeIds);
+            scanned += page.getScannedCount();
+            if (page.getScannedCount() < limit) {
+                nextCodeId = null;
+                break;
+            }
+            nextCodeId = page.getLastScannedId();
+            if (!pauseAndRenewLease(!codeIds.isEmpty())) {
+                break;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Pause after a batch which purged rows, and renew the lease before the next batch.
+     *
+     * @return true if this node still holds the lease.
+     */
+    private boolean pauseAndRenewLease(boolean purgedBatch) throws IdentityOAuth2Exception, InterruptedException {
+
+        if (purgedBatch && batchPauseMillis > 0) {
+            Thread.sleep(batchPauseMillis);
+        }
+        if (renewLease()) {
+            return true;
+        }
+        log.warn("Token cleanup lease was taken over by another node during the purge cycle.");
+        return false;
+    }
+
+    private boolean renewLease() throws IdentityOAuth2Exception {
+
+        leaseHeld = tokenCleanupDAO.acquireLease(LEASE_NAME, owner, leaseDurationMillis);
+        return leaseHeld;
+    }
+
+    private static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+}
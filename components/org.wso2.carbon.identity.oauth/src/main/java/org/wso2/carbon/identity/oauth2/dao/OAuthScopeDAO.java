@@ -24,8 +24,12 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2ScopeException;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2ScopeServerException;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
 
 import java.sql.Connection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -66,4 +70,24 @@ public interface OAuthScopeDAO {
     boolean validateScope(Connection connection, String accessToken, String resourceUri);
 
     Set<String> getBindingsOfScopeByScopeName(String scopeName, int tenantId) throws IdentityOAuth2Exception;
+
+    /**
+     * Get the bindings of all the OAuth2 scopes of the tenant.
+     *
+     * @param tenantId Tenant ID.
+     * @return Map of scope name to the bindings of the scope, regardless of the binding type.
+     * @throws IdentityOAuth2ScopeServerException If an error occurs while retrieving the bindings.
+     */
+    default Map<String, Set<String>> getBindingsOfScopes(int tenantId) throws IdentityOAuth2ScopeServerException {
+
+        Map<String, Set<String>> bindingsOfScopes = new HashMap<>();
+        for (Scope scope : getAllScopes(tenantId)) {
+            Set<String> bindings = new HashSet<>();
+            for (ScopeBinding scopeBinding : scope.getScopeBindings()) {
+                bindings.addAll(scopeBinding.getBindings());
+            }
+            bindingsOfScopes.put(scope.getName(), bindings);
+        }
+        return bindingsOfScopes;
+    }
 }
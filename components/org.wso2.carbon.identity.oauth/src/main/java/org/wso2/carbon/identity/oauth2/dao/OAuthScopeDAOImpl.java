@@ -33,6 +33,7 @@ import org.wso2.carbon.identity.oauth2.bean.Scope;
 import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
 import org.wso2.carbon.identity.oauth2.util.NamedPreparedStatement;
 import org.wso2.carbon.identity.oauth2.util.Oauth2ScopeUtils;
+import org.wso2.carbon.identity.oauth2.validators.ResourceScopeIndex;
 import org.wso2.carbon.utils.DBUtils;
 
 import java.sql.Connection;
@@ -85,6 +86,7 @@ public class OAuthScopeDAOImpl implements OAuthScopeDAO {
             try {
                 addScope(scope, conn, tenantID);
                 IdentityDatabaseUtil.commitTransaction(conn);
+                ResourceScopeIndex.getInstance().onScopeUpdated(scope, tenantID);
             } catch (SQLException e1) {
                 IdentityDatabaseUtil.rollbackTransaction(conn);
                 String msg = "SQL error occurred while creating scope :" + scope.getName();
@@ -743,6 +745,7 @@ public class OAuthScopeDAOImpl implements OAuthScopeDAO {
             try {
                 deleteScope(name, tenantID, conn);
                 IdentityDatabaseUtil.commitTransaction(conn);
+                ResourceScopeIndex.getInstance().onScopeDeleted(name, tenantID);
             } catch (SQLException e1) {
                 IdentityDatabaseUtil.rollbackTransaction(conn);
                 String msg = "Error occurred while deleting scopes ";
@@ -776,6 +779,7 @@ public class OAuthScopeDAOImpl implements OAuthScopeDAO {
                     deleteBindings(scopeId, conn);
                     addScopeBinding(updatedScope, conn, scopeId);
                     IdentityDatabaseUtil.commitTransaction(conn);
+                    ResourceScopeIndex.getInstance().onScopeUpdated(updatedScope, tenantID);
                 }
             } catch (SQLException e1) {
                 IdentityDatabaseUtil.rollbackTransaction(conn);
@@ -1004,6 +1008,49 @@ public class OAuthScopeDAOImpl implements OAuthScopeDAO {
         }
     }
 
+    /**
+     * Get the bindings of all the OAuth2 scopes of the tenant.
+     *
+     * @param tenantId Tenant ID.
+     * @return Map of scope name to the bindings of the scope, regardless of the binding type.
+     * @throws IdentityOAuth2ScopeServerException If an SQL error occurs while retrieving the bindings.
+     */
+    @Override
+    public Map<String, Set<String>> getBindingsOfScopes(int tenantId) throws IdentityOAuth2ScopeServerException {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieving bindings of all OAUTH2 scopes of tenant id: " + tenantId);
+        }
+
+        Map<String, Set<String>> bindingsOfScopes = new HashMap<>();
+        String sql;
+        try (Connection conn = IdentityDatabaseUtil.getDBConnection(false)) {
+            if (conn.getMetaData().getDriverName().contains(Oauth2ScopeConstants.DataBaseType.ORACLE)) {
+                sql = SQLQueries.RETRIEVE_BINDINGS_OF_OAUTH2_SCOPES_FOR_TENANT_ORACLE;
+            } else {
+                sql = SQLQueries.RETRIEVE_BINDINGS_OF_OAUTH2_SCOPES_FOR_TENANT;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, tenantId);
+                ps.setString(2, Oauth2ScopeConstants.SCOPE_TYPE_OAUTH2);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Set<String> bindings = bindingsOfScopes.computeIfAbsent(rs.getString("NAME"),
+                                name -> new HashSet<>());
+                        String binding = rs.getString("SCOPE_BINDING");
+                        if (StringUtils.isNotEmpty(binding)) {
+                            bindings.add(binding);
+                        }
+                    }
+                }
+            }
+            return bindingsOfScopes;
+        } catch (SQLException e) {
+            String msg = "Error occurred while getting bindings of OAUTH2 scopes in tenant :" + tenantId;
+            throw new IdentityOAuth2ScopeServerException(msg, e);
+        }
+    }
+
     /**
      * Get the list of roles associated for a given scope.
      *
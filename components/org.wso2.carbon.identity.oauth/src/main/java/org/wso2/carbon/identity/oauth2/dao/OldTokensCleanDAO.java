@@ -35,6 +35,9 @@ import java.util.List;
  * This is DAO class for cleaning old Tokens. When new tokens is generated ,refreshed or revoked old access token
  * will be moved to Audit table and deleted from the Access token table. Token cleaning process can be enable or
  * disable and old tokens can retain enable or disable by the configuration setting.
+ * <p>
+ * Old tokens are purged in the background by the {@link ExpiredTokenPurger}, and this DAO is used only when the
+ * purger cannot be started since its lease table is not created.
  */
 public class OldTokensCleanDAO {
 
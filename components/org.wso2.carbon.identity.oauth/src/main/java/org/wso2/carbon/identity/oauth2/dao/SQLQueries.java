@@ -229,6 +229,30 @@ public class SQLQueries {
             "ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
             "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_OF_USER = "SELECT ACCESS_TOKEN, " +
+            "REFRESH_TOKEN, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD," +
+            " USER_TYPE, TOKEN_SCOPE, ACCESS_TOKEN_TABLE.TOKEN_ID, SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, " +
+            "CONSUMER_KEY FROM (SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, " +
+            "SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, CONSUMER_KEY FROM IDN_OAUTH2_ACCESS_TOKEN JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND " +
+            "(TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED')) ACCESS_TOKEN_TABLE LEFT JOIN " +
+            "IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_OF_USER_IDP_NAME = "SELECT ACCESS_TOKEN, " +
+            "REFRESH_TOKEN, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD," +
+            " USER_TYPE, TOKEN_SCOPE, ACCESS_TOKEN_TABLE.TOKEN_ID, SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, " +
+            "CONSUMER_KEY FROM (SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, " +
+            "SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, CONSUMER_KEY FROM IDN_OAUTH2_ACCESS_TOKEN JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND " +
+            "(TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED') AND " +
+            "IDP_ID=(SELECT ID FROM IDP WHERE NAME=? AND TENANT_ID=IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID)) " +
+            "ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACTIVE_ACCESS_TOKEN = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
             "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
             "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
@@ -389,6 +413,38 @@ public class SQLQueries {
             "ID WHERE AUTHZ_USER=? AND IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? " +
             "AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED')";
 
+    // The apps authorized by a user are paged by the consumer key. The first page is read without a key condition,
+    // since Oracle treats an empty key as null.
+    public static final String GET_APPS_AUTHORIZED_BY_USER = "SELECT CONSUMER_KEY, APP_NAME, " +
+            "MAX(IDN_OAUTH2_ACCESS_TOKEN.TIME_CREATED), SUM(CASE WHEN TOKEN_STATE='ACTIVE' THEN 1 ELSE 0 END), " +
+            "COUNT(IDN_OAUTH2_ACCESS_TOKEN.TOKEN_ID) FROM IDN_OAUTH2_ACCESS_TOKEN JOIN IDN_OAUTH_CONSUMER_APPS ON " +
+            "CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED') " +
+            "GROUP BY CONSUMER_KEY, APP_NAME ORDER BY CONSUMER_KEY";
+
+    public static final String GET_APPS_AUTHORIZED_BY_USER_AFTER_CONSUMER_KEY = "SELECT CONSUMER_KEY, APP_NAME, " +
+            "MAX(IDN_OAUTH2_ACCESS_TOKEN.TIME_CREATED), SUM(CASE WHEN TOKEN_STATE='ACTIVE' THEN 1 ELSE 0 END), " +
+            "COUNT(IDN_OAUTH2_ACCESS_TOKEN.TOKEN_ID) FROM IDN_OAUTH2_ACCESS_TOKEN JOIN IDN_OAUTH_CONSUMER_APPS ON " +
+            "CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED') AND " +
+            "CONSUMER_KEY > ? GROUP BY CONSUMER_KEY, APP_NAME ORDER BY CONSUMER_KEY";
+
+    public static final String GET_APPS_AUTHORIZED_BY_USER_IDP_NAME = "SELECT CONSUMER_KEY, APP_NAME, " +
+            "MAX(IDN_OAUTH2_ACCESS_TOKEN.TIME_CREATED), SUM(CASE WHEN TOKEN_STATE='ACTIVE' THEN 1 ELSE 0 END), " +
+            "COUNT(IDN_OAUTH2_ACCESS_TOKEN.TOKEN_ID) FROM IDN_OAUTH2_ACCESS_TOKEN JOIN IDN_OAUTH_CONSUMER_APPS ON " +
+            "CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED') AND " +
+            "IDP_ID=(SELECT ID FROM IDP WHERE NAME=? AND TENANT_ID=IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID) " +
+            "GROUP BY CONSUMER_KEY, APP_NAME ORDER BY CONSUMER_KEY";
+
+    public static final String GET_APPS_AUTHORIZED_BY_USER_IDP_NAME_AFTER_CONSUMER_KEY = "SELECT CONSUMER_KEY, " +
+            "APP_NAME, MAX(IDN_OAUTH2_ACCESS_TOKEN.TIME_CREATED), SUM(CASE WHEN TOKEN_STATE='ACTIVE' THEN 1 ELSE 0 " +
+            "END), COUNT(IDN_OAUTH2_ACCESS_TOKEN.TOKEN_ID) FROM IDN_OAUTH2_ACCESS_TOKEN JOIN IDN_OAUTH_CONSUMER_APPS " +
+            "ON CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID=? AND " +
+            "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN=? AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED') AND " +
+            "IDP_ID=(SELECT ID FROM IDP WHERE NAME=? AND TENANT_ID=IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID) AND " +
+            "CONSUMER_KEY > ? GROUP BY CONSUMER_KEY, APP_NAME ORDER BY CONSUMER_KEY";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MYSQL = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
             "REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
@@ -606,6 +662,54 @@ public class SQLQueries {
 
     public static final String DELETE_OLD_TOKEN_BY_ID = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID = ?";
 
+    // The token cleanup queries below are completed with a list of placeholders and a closing parenthesis.
+    public static final String STORE_TOKENS_IN_AUDIT =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ? " +
+                    "FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID IN (";
+
+    public static final String STORE_TOKENS_IN_AUDIT_WITH_IDP_NAME =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME, IDP_ID) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ?, " +
+                    "IDP_ID FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID IN (";
+
+    public static final String DELETE_TOKENS_BY_ID = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID IN (";
+
+    public static final String DELETE_AUTHZ_CODE_SCOPES_BY_CODE_ID = "DELETE FROM IDN_OAUTH2_AUTHZ_CODE_SCOPE WHERE " +
+            "CODE_ID IN (";
+
+    public static final String DELETE_AUTHZ_CODES_BY_CODE_ID = "DELETE FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE " +
+            "CODE_ID IN (";
+
+    // The first page of the token cleanup scans is read without a key condition, since Oracle treats an empty key as
+    // null.
+    public static final String GET_TOKEN_CLEANUP_STATES = "SELECT TOKEN_ID, TOKEN_STATE, TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, CASE WHEN REFRESH_TOKEN IS " +
+            "NULL THEN 0 ELSE 1 END AS HAS_REFRESH_TOKEN FROM IDN_OAUTH2_ACCESS_TOKEN ORDER BY TOKEN_ID";
+
+    public static final String GET_TOKEN_CLEANUP_STATES_AFTER_TOKEN_ID = "SELECT TOKEN_ID, TOKEN_STATE, " +
+            "TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, CASE WHEN " +
+            "REFRESH_TOKEN IS NULL THEN 0 ELSE 1 END AS HAS_REFRESH_TOKEN FROM IDN_OAUTH2_ACCESS_TOKEN WHERE " +
+            "TOKEN_ID > ? ORDER BY TOKEN_ID";
+
+    public static final String GET_AUTHZ_CODE_CLEANUP_STATES = "SELECT CODE_ID, TIME_CREATED, VALIDITY_PERIOD FROM " +
+            "IDN_OAUTH2_AUTHORIZATION_CODE ORDER BY CODE_ID";
+
+    public static final String GET_AUTHZ_CODE_CLEANUP_STATES_AFTER_CODE_ID = "SELECT CODE_ID, TIME_CREATED, " +
+            "VALIDITY_PERIOD FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE CODE_ID > ? ORDER BY CODE_ID";
+
     public static final String DELETE_ACCESS_TOKEN = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN = ? ";
 
     public static final String REVOKE_SAAS_TOKENS_OF_OTHER_TENANTS = "UPDATE IDN_OAUTH2_ACCESS_TOKEN " +
@@ -613,6 +717,9 @@ public class SQLQueries {
             "WHERE TOKEN_STATE=? AND CONSUMER_KEY_ID = (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE " +
             "CONSUMER_KEY = ? ) AND TENANT_ID != ? ";
 
+    public static final String GET_TENANTS_OF_USER_RPS = "SELECT DISTINCT TENANT_ID FROM IDN_OPENID_USER_RPS " +
+            "WHERE USER_NAME = ? AND RP_URL = ?";
+
     public static final String DELETE_USER_RPS = "DELETE FROM IDN_OPENID_USER_RPS WHERE USER_NAME = ? AND " +
             "RP_URL = ?";
 
@@ -1153,6 +1260,24 @@ public class SQLQueries {
                     "LEFT JOIN IDN_OAUTH2_SCOPE_BINDING SCOPEBINDINGS ON SCOPES.SCOPE_ID=SCOPEBINDINGS.SCOPE_ID " +
                     "WHERE SCOPES.NAME = ? AND TENANT_ID = ?";
 
+    public static final String RETRIEVE_BINDINGS_OF_OAUTH2_SCOPES_FOR_TENANT =
+            "SELECT SCOPES.NAME, SCOPEBINDINGS.SCOPE_BINDING FROM IDN_OAUTH2_SCOPE AS SCOPES " +
+                    "LEFT JOIN IDN_OAUTH2_SCOPE_BINDING AS SCOPEBINDINGS ON SCOPES.SCOPE_ID=SCOPEBINDINGS.SCOPE_ID " +
+                    "WHERE SCOPES.TENANT_ID = ? AND SCOPES.SCOPE_TYPE = ?";
+
+    public static final String RETRIEVE_BINDINGS_OF_OAUTH2_SCOPES_FOR_TENANT_ORACLE =
+            "SELECT SCOPES.NAME, SCOPEBINDINGS.SCOPE_BINDING FROM IDN_OAUTH2_SCOPE SCOPES " +
+                    "LEFT JOIN IDN_OAUTH2_SCOPE_BINDING SCOPEBINDINGS ON SCOPES.SCOPE_ID=SCOPEBINDINGS.SCOPE_ID " +
+                    "WHERE SCOPES.TENANT_ID = ? AND SCOPES.SCOPE_TYPE = ?";
+
+    public static final String RETRIEVE_SCOPES_OF_RESOURCE_PATTERNS = "SELECT SCOPERESOURCES.RESOURCE_PATH, " +
+            "SCOPES.NAME, SCOPES.TENANT_ID FROM IDN_OAUTH2_SCOPE AS SCOPES, IDN_OAUTH2_RESOURCE_SCOPE AS " +
+            "SCOPERESOURCES WHERE SCOPERESOURCES.RESOURCE_PATH LIKE ? AND SCOPERESOURCES.SCOPE_ID = SCOPES.SCOPE_ID";
+
+    public static final String RETRIEVE_SCOPES_OF_RESOURCE_PATTERNS_ORACLE = "SELECT SCOPERESOURCES.RESOURCE_PATH, " +
+            "SCOPES.NAME, SCOPES.TENANT_ID FROM IDN_OAUTH2_SCOPE SCOPES, IDN_OAUTH2_RESOURCE_SCOPE SCOPERESOURCES " +
+            "WHERE SCOPERESOURCES.RESOURCE_PATH LIKE ? AND SCOPERESOURCES.SCOPE_ID = SCOPES.SCOPE_ID";
+
     public static final String RETRIEVE_REFRESH_TOKEN =
             "SELECT CONSUMER_KEY, " +
                     "AUTHZ_USER, " +
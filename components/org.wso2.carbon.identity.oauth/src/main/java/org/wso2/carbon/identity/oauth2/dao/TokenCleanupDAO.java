@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * DAO used by the {@link ExpiredTokenPurger} to find the access tokens and authorization codes which are no longer
+ * usable, and to move them out of the token tables in batches.
+ * <p>
+ * Tokens and codes are scanned in pages ordered by their identifiers, so that each page is read with an index range
+ * scan from the last identifier of the previous page. When access token partitioning is enabled, the partition tables
+ * of the user store domains mapped in AccessTokenPartitioningDomains are scanned along with the main token table.
+ * <p>
+ * The purger of the cluster is elected with a lease row, which the elected node renews while it purges. Existing
+ * databases should be migrated by creating the lease table, without which the old tokens are cleaned up when they are
+ * replaced or revoked instead:
+ * <pre>
+ * CREATE TABLE IDN_OAUTH2_TOKEN_CLEANUP_LEASE (
+ *     LEASE_NAME VARCHAR (64) NOT NULL,
+ *     OWNER VARCHAR (255) NOT NULL,
+ *     EXPIRY_TIME BIGINT NOT NULL,
+ *     PRIMARY KEY (LEASE_NAME)
+ * );
+ * </pre>
+ */
+public class TokenCleanupDAO {
+
+    private static final Log log = LogFactory.getLog(TokenCleanupDAO.class);
+
+    private static final String UTC = "UTC";
+    static final String LEASE_TABLE = "IDN_OAUTH2_TOKEN_CLEANUP_LEASE";
+
+    private static final String CHECK_LEASE_TABLE = "SELECT LEASE_NAME FROM " + LEASE_TABLE + " WHERE 1 = 0";
+
+    private static final String RENEW_LEASE = "UPDATE IDN_OAUTH2_TOKEN_CLEANUP_LEASE SET OWNER = ?, EXPIRY_TIME = ? " +
+            "WHERE LEASE_NAME = ? AND (OWNER = ? OR EXPIRY_TIME < ?)";
+    private static final String INSERT_LEASE = "INSERT INTO IDN_OAUTH2_TOKEN_CLEANUP_LEASE (LEASE_NAME, OWNER, " +
+            "EXPIRY_TIME) VALUES (?, ?, ?)";
+    private static final String RELEASE_LEASE = "UPDATE IDN_OAUTH2_TOKEN_CLEANUP_LEASE SET EXPIRY_TIME = 0 WHERE " +
+            "LEASE_NAME = ? AND OWNER = ?";
+
+    /**
+     * Check whether the lease table is created in the database.
+     *
+     * @return true if the lease table can be read.
+     */
+    public boolean isLeaseTableAvailable() {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement prepStmt = connection.prepareStatement(CHECK_LEASE_TABLE);
+             ResultSet ignored = prepStmt.executeQuery()) {
+            return true;
+        } catch (SQLException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while reading the table: " + LEASE_TABLE, e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Acquire the lease, or renew it if it is already held by the owner.
+     *
+     * @param leaseName           Name of the lease.
+     * @param owner               Identifier of the node acquiring the lease.
+     * @param leaseDurationMillis Time in milliseconds for which the lease is held.
+     * @return true if the owner holds the lease.
+     * @throws IdentityOAuth2Exception If the lease could not be read or written.
+     */
+    public boolean acquireLease(String leaseName, String owner, long leaseDurationMillis)
+            throws IdentityOAuth2Exception {
+
+        long currentTime = System.currentTimeMillis();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try {
+                try (PreparedStatement prepStmt = connection.prepareStatement(RENEW_LEASE)) {
+                    prepStmt.setString(1, owner);
+                    prepStmt.setLong(2, currentTime + leaseDurationMillis);
+                    prepStmt.setString(3, leaseName);
+                    prepStmt.setString(4, owner);
+                    prepStmt.setLong(5, currentTime);
+                    if (prepStmt.executeUpdate() > 0) {
+                        IdentityDatabaseUtil.commitTransaction(connection);
+                        return true;
+                    }
+                }
+                try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_LEASE)) {
+                    prepStmt.setString(1, leaseName);
+                    prepStmt.setString(2, owner);
+                    prepStmt.setLong(3, currentTime + leaseDurationMillis);
+                    prepStmt.executeUpdate();
+                }
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return true;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                if (!isDuplicateLease(e)) {
+                    throw e;
+                }
+            }
+            // The lease is held by another node.
+            return false;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while acquiring the token cleanup lease: " + leaseName, e);
+        }
+    }
+
+    /**
+     * Release the lease if it is held by the owner, so that another node can take over without waiting for the lease
+     * to expire.
+     *
+     * @param leaseName Name of the lease.
+     * @param owner     Identifier of the node holding the lease.
+     * @throws IdentityOAuth2Exception If the lease could not be released.
+     */
+    public void releaseLease(String leaseName, String owner) throws IdentityOAuth2Exception {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+             PreparedStatement prepStmt = connection.prepareStatement(RELEASE_LEASE)) {
+            prepStmt.setString(1, leaseName);
+            prepStmt.setString(2, owner);
+            prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while releasing the token cleanup lease: " + leaseName, e);
+        }
+    }
+
+    /**
+     * Get the tables in which access tokens are stored. These are the main token table and, when access token
+     * partitioning is enabled, the partition tables of the user store domains mapped in AccessTokenPartitioningDomains.
+     * Partition tables of user store domains which are not mapped are not known here, and are not purged.
+     *
+     * @return names of the access token tables.
+     * @throws IdentityOAuth2Exception If the user store domain mappings are invalid.
+     */
+    public List<String> getAccessTokenTables() throws IdentityOAuth2Exception {
+
+        List<String> tables = new ArrayList<>();
+        tables.add(OAuthConstants.ACCESS_TOKEN_STORE_TABLE);
+        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
+            for (String mappedDomain : new TreeSet<>(OAuth2Util.getAvailableUserStoreDomainMappings().values())) {
+                String table = OAuthConstants.ACCESS_TOKEN_STORE_TABLE + "_" + mappedDomain;
+                if (!tables.contains(table)) {
+                    tables.add(table);
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Read a page of access tokens and pick the ones which can be purged. A token can be purged when it is revoked or
+     * inactive, or when both the access token and its refresh token are expired.
+     *
+     * @param tokenTable   Access token table, one of {@link #getAccessTokenTables()}.
+     * @param afterTokenId Identifier of the last token of the previous page, or null for the first page.
+     * @param pageSize     Maximum number of tokens read.
+     * @param currentTime  Time in milliseconds against which the expiry is checked.
+     * @return page of tokens.
+     * @throws IdentityOAuth2Exception If the tokens could not be read.
+     */
+    public CleanupPage getPurgeableAccessTokens(String tokenTable, String afterTokenId, int pageSize, long currentTime)
+            throws IdentityOAuth2Exception {
+
+        String sql = toTokenTable(afterTokenId == null ? SQLQueries.GET_TOKEN_CLEANUP_STATES :
+                SQLQueries.GET_TOKEN_CLEANUP_STATES_AFTER_TOKEN_ID, tokenTable);
+        CleanupPage page = new CleanupPage();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            prepStmt.setMaxRows(pageSize);
+            prepStmt.setFetchSize(pageSize);
+            if (afterTokenId != null) {
+                prepStmt.setString(1, afterTokenId);
+            }
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone(UTC));
+                while (resultSet.next()) {
+                    String tokenId = resultSet.getString(1);
+                    page.addScanned(tokenId);
+                    if (isAccessTokenPurgeable(resultSet.getString(2), resultSet.getTimestamp(3, utcCalendar),
+                            resultSet.getLong(4), resultSet.getInt(7) == 1, resultSet.getTimestamp(5, utcCalendar),
+                            resultSet.getLong(6), currentTime)) {
+                        page.addPurgeable(tokenId);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while reading the access tokens of: " + tokenTable +
+                    " after the token id: " + afterTokenId + " for cleanup.", e);
+        }
+        return page;
+    }
+
+    /**
+     * Delete the given access tokens, moving them to the audit table first if the old tokens are retained. The scopes
+     * and bindings of the tokens are deleted with them by the foreign keys of their tables.
+     *
+     * @param tokenTable    Access token table of the tokens.
+     * @param tokenIds      Identifiers of the tokens.
+     * @param retainInAudit Whether the tokens are copied to the audit table.
+     * @return number of deleted tokens.
+     * @throws IdentityOAuth2Exception If the tokens could not be purged. No token of the batch is purged in that case.
+     */
+    public int purgeAccessTokens(String tokenTable, List<String> tokenIds, boolean retainInAudit)
+            throws IdentityOAuth2Exception {
+
+        if (tokenIds.isEmpty()) {
+            return 0;
+        }
+        String inClause = buildInClause(tokenIds.size());
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try {
+                if (retainInAudit) {
+                    String sql = OAuth2ServiceComponentHolder.isIDPIdColumnEnabled() ?
+                            SQLQueries.STORE_TOKENS_IN_AUDIT_WITH_IDP_NAME : SQLQueries.STORE_TOKENS_IN_AUDIT;
+                    try (PreparedStatement prepStmt = connection.prepareStatement(toTokenTable(sql, tokenTable) +
+                            inClause)) {
+                        prepStmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()),
+                                Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+                        setIdentifiers(prepStmt, 2, tokenIds);
+                        prepStmt.executeUpdate();
+                    }
+                }
+                int deleted;
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        toTokenTable(SQLQueries.DELETE_TOKENS_BY_ID, tokenTable) + inClause)) {
+                    setIdentifiers(prepStmt, 1, tokenIds);
+                    deleted = prepStmt.executeUpdate();
+                }
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return deleted;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while purging a batch of " + tokenIds.size() +
+                    " access tokens of: " + tokenTable, e);
+        }
+    }
+
+    /**
+     * Read a page of authorization codes and pick the expired ones. Codes which are used or revoked are kept until
+     * they expire, so that a replayed code is still detected until then.
+     *
+     * @param afterCodeId Identifier of the last code of the previous page, or null for the first page.
+     * @param pageSize    Maximum number of codes read.
+     * @param currentTime Time in milliseconds against which the expiry is checked.
+     * @return page of codes.
+     * @throws IdentityOAuth2Exception If the codes could not be read.
+     */
+    public CleanupPage getPurgeableAuthorizationCodes(String afterCodeId, int pageSize, long currentTime)
+            throws IdentityOAuth2Exception {
+
+        String sql = afterCodeId == null ? SQLQueries.GET_AUTHZ_CODE_CLEANUP_STATES :
+                SQLQueries.GET_AUTHZ_CODE_CLEANUP_STATES_AFTER_CODE_ID;
+        CleanupPage page = new CleanupPage();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            prepStmt.setMaxRows(pageSize);
+            prepStmt.setFetchSize(pageSize);
+            if (afterCodeId != null) {
+                prepStmt.setString(1, afterCodeId);
+            }
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone(UTC));
+                while (resultSet.next()) {
+                    String codeId = resultSet.getString(1);
+                    page.addScanned(codeId);
+                    if (isExpired(resultSet.getTimestamp(2, utcCalendar), resultSet.getLong(3), currentTime)) {
+                        page.addPurgeable(codeId);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while reading the authorization codes after the code id: " +
+                    afterCodeId + " for cleanup.", e);
+        }
+        return page;
+    }
+
+    /**
+     * Delete the given authorization codes and their scopes.
+     *
+     * @param codeIds Identifiers of the codes.
+     * @return number of deleted codes.
+     * @throws IdentityOAuth2Exception If the codes could not be purged. No code of the batch is purged in that case.
+     */
+    public int purgeAuthorizationCodes(List<String> codeIds) throws IdentityOAuth2Exception {
+
+        if (codeIds.isEmpty()) {
+            return 0;
+        }
+        String inClause = buildInClause(codeIds.size());
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try {
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        SQLQueries.DELETE_AUTHZ_CODE_SCOPES_BY_CODE_ID + inClause)) {
+                    setIdentifiers(prepStmt, 1, codeIds);
+                    prepStmt.executeUpdate();
+                }
+                int deleted;
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        SQLQueries.DELETE_AUTHZ_CODES_BY_CODE_ID + inClause)) {
+                    setIdentifiers(prepStmt, 1, codeIds);
+                    deleted = prepStmt.executeUpdate();
+                }
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return deleted;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while purging a batch of " + codeIds.size() +
+                    " authorization codes.", e);
+        }
+    }
+
+    static boolean isAccessTokenPurgeable(String tokenState, Timestamp timeCreated, long validityPeriod,
+                                          boolean hasRefreshToken, Timestamp refreshTokenTimeCreated,
+                                          long refreshTokenValidityPeriod, long currentTime) {
+
+        if (OAuthConstants.TokenStates.TOKEN_STATE_REVOKED.equals(tokenState) ||
+                OAuthConstants.TokenStates.TOKEN_STATE_INACTIVE.equals(tokenState)) {
+            return true;
+        }
+        // Tokens in the expired state may still be refreshed, so they are purged only after the refresh token expires.
+        if (!isExpired(timeCreated, validityPeriod, currentTime)) {
+            return false;
+        }
+        return !hasRefreshToken || isExpired(refreshTokenTimeCreated, refreshTokenValidityPeriod, currentTime);
+    }
+
+    /**
+     * A negative validity period never expires. The expiry is compared without adding the validity period to the
+     * created time, which would overflow for the tokens issued with a very long validity period.
+     */
+    static boolean isExpired(Timestamp timeCreated, long validityPeriodMillis, long currentTime) {
+
+        if (timeCreated == null || validityPeriodMillis < 0) {
+            return false;
+        }
+        return currentTime - timeCreated.getTime() > validityPeriodMillis;
+    }
+
+    private String toTokenTable(String sql, String tokenTable) {
+
+        // The audit table name is not matched, since the word boundary is not found before its suffix.
+        return sql.replaceAll("\\b" + OAuthConstants.ACCESS_TOKEN_STORE_TABLE + "\\b", tokenTable);
+    }
+
+    private String buildInClause(int size) {
+
+        return StringUtils.repeat("?", ",", size) + ")";
+    }
+
+    private void setIdentifiers(PreparedStatement prepStmt, int firstIndex, List<String> identifiers)
+            throws SQLException {
+
+        int index = firstIndex;
+        for (String identifier : identifiers) {
+            prepStmt.setString(index++, identifier);
+        }
+    }
+
+    private boolean isDuplicateLease(SQLException e) {
+
+        // Constraint violations of JDBC drivers which don't throw SQLIntegrityConstraintViolationException have the
+        // integrity constraint violation SQL state class.
+        return e instanceof SQLIntegrityConstraintViolationException || StringUtils.startsWith(e.getSQLState(), "23");
+    }
+
+    /**
+     * Page of a token or authorization code scan.
+     */
+    public static class CleanupPage {
+
+        private final List<String> purgeableIds = new ArrayList<>();
+        private String lastScannedId;
+        private int scannedCount;
+
+        void addScanned(String id) {
+
+            lastScannedId = id;
+            scannedCount++;
+        }
+
+        void addPurgeable(String id) {
+
+            purgeableIds.add(id);
+        }
+
+        /**
+         * @return identifiers of the rows of the page which can be purged.
+         */
+        public List<String> getPurgeableIds() {
+
+            return Collections.unmodifiableList(purgeableIds);
+        }
+
+        /**
+         * @return identifier of the last row of the page, from which the next page is read.
+         */
+        public String getLastScannedId() {
+
+            return lastScannedId;
+        }
+
+        /**
+         * @return number of rows read.
+         */
+        public int getScannedCount() {
+
+            return scannedCount;
+        }
+    }
+}
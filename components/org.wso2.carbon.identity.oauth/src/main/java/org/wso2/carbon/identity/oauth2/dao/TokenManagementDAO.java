@@ -23,12 +23,21 @@ package org.wso2.carbon.identity.oauth2.dao;
 import org.apache.commons.lang3.tuple.Pair;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.model.AuthorizedAppDO;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Token management data access interface.
@@ -44,6 +53,18 @@ public interface TokenManagementDAO {
 
     Pair<String, Integer> findTenantAndScopeOfResource(String resourceUri) throws IdentityOAuth2Exception;
 
+    /**
+     * Get the scope and the tenant id of the resources protected with a wildcard pattern, i.e. the resource paths
+     * ending with '*'.
+     *
+     * @return Map of resource path to the pair which contains the scope name and the tenant id.
+     * @throws IdentityOAuth2Exception If an error occurs while retrieving the resources.
+     */
+    default Map<String, Pair<String, Integer>> getScopesOfResourcePatterns() throws IdentityOAuth2Exception {
+
+        return Collections.emptyMap();
+    }
+
     void revokeOAuthConsentByApplicationAndUser(String username, String tenantDomain, String applicationName)
             throws IdentityOAuth2Exception;
 
@@ -61,4 +82,62 @@ public interface TokenManagementDAO {
             IdentityOAuth2Exception;
 
     Set<String> getAllTimeAuthorizedClientIds(AuthenticatedUser authzUser) throws IdentityOAuth2Exception;
+
+    /**
+     * Get a page of the applications authorized by the user, i.e. the applications which have ACTIVE or EXPIRED
+     * access tokens issued to the user, with the metadata of those tokens. Applications are ordered by the consumer
+     * key, and the next page is read after the consumer key of the last application of the previous page.
+     * <p>
+     * The default implementation reads the tokens of each client authorized by the user. Implementations should
+     * aggregate the tokens in the data store instead.
+     *
+     * @param authzUser        Authorized user.
+     * @param afterConsumerKey Consumer key of the last application of the previous page, or null for the first page.
+     * @param limit            Maximum number of applications to return.
+     * @return Applications authorized by the user.
+     * @throws IdentityOAuth2Exception If an error occurs while retrieving the applications.
+     */
+    default List<AuthorizedAppDO> getAuthorizedApps(AuthenticatedUser authzUser, String afterConsumerKey, int limit)
+            throws IdentityOAuth2Exception {
+
+        List<AuthorizedAppDO> authorizedApps = new ArrayList<>();
+        if (limit <= 0) {
+            return authorizedApps;
+        }
+        String userStoreDomain = null;
+        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
+            userStoreDomain = OAuth2Util.getUserStoreForFederatedUser(authzUser);
+        }
+        AccessTokenDAO accessTokenDAO = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO();
+        for (String clientId : new TreeSet<>(getAllTimeAuthorizedClientIds(authzUser))) {
+            if (authorizedApps.size() >= limit) {
+                break;
+            }
+            if (afterConsumerKey != null && clientId.compareTo(afterConsumerKey) <= 0) {
+                continue;
+            }
+            Set<AccessTokenDO> accessTokenDOs = accessTokenDAO.getAccessTokens(clientId, authzUser, userStoreDomain,
+                    true);
+            if (accessTokenDOs.isEmpty()) {
+                continue;
+            }
+            Timestamp latestTokenIssuedTime = null;
+            for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+                Timestamp issuedTime = accessTokenDO.getIssuedTime();
+                if (issuedTime != null && (latestTokenIssuedTime == null || issuedTime.after(latestTokenIssuedTime))) {
+                    latestTokenIssuedTime = issuedTime;
+                }
+            }
+            int activeTokenCount = accessTokenDAO.getAccessTokens(clientId, authzUser, userStoreDomain, false).size();
+            String applicationName;
+            try {
+                applicationName = OAuth2Util.getAppInformationByClientId(clientId).getApplicationName();
+            } catch (InvalidOAuthClientException e) {
+                throw new IdentityOAuth2Exception("Invalid client id: " + clientId, e);
+            }
+            authorizedApps.add(new AuthorizedAppDO(clientId, applicationName, latestTokenIssuedTime,
+                    activeTokenCount, accessTokenDOs.size()));
+        }
+        return authorizedApps;
+    }
 }
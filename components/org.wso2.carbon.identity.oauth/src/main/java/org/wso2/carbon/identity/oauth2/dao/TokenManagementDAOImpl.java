@@ -32,11 +32,13 @@ import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.UserRPConsentCache;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.Oauth2ScopeConstants;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.model.AuthorizedAppDO;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
@@ -47,6 +49,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -337,6 +340,37 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
         }
     }
 
+    @Override
+    public Map<String, Pair<String, Integer>> getScopesOfResourcePatterns() throws IdentityOAuth2Exception {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieving tenant and scope of the resource patterns.");
+        }
+        String sql;
+        Map<String, Pair<String, Integer>> scopesOfPatterns = new HashMap<>();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false)) {
+
+            if (connection.getMetaData().getDriverName().contains(Oauth2ScopeConstants.DataBaseType.ORACLE)) {
+                sql = SQLQueries.RETRIEVE_SCOPES_OF_RESOURCE_PATTERNS_ORACLE;
+            } else {
+                sql = SQLQueries.RETRIEVE_SCOPES_OF_RESOURCE_PATTERNS;
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, "%*");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        scopesOfPatterns.put(rs.getString("RESOURCE_PATH"),
+                                Pair.of(rs.getString("NAME"), rs.getInt("TENANT_ID")));
+                    }
+                }
+            }
+            return scopesOfPatterns;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error getting scopes of the resource patterns", e);
+        }
+    }
+
     /**
      * Revoke the OAuth Consent which is recorded in the IDN_OPENID_USER_RPS table against the user for a particular
      * Application
@@ -361,6 +395,19 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
         PreparedStatement ps = null;
 
         try {
+            // The consents are removed from every tenant, hence the cached consents of those tenants are cleared.
+            List<Integer> tenantIds = new ArrayList<>();
+            try (PreparedStatement tenantsPrepStmt =
+                         connection.prepareStatement(SQLQueries.GET_TENANTS_OF_USER_RPS)) {
+                tenantsPrepStmt.setString(1, username);
+                tenantsPrepStmt.setString(2, applicationName);
+                try (ResultSet resultSet = tenantsPrepStmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        tenantIds.add(resultSet.getInt(1));
+                    }
+                }
+            }
+
             String sql = SQLQueries.DELETE_USER_RPS;
 
             ps = connection.prepareStatement(sql);
@@ -368,6 +415,9 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
             ps.setString(2, applicationName);
             ps.execute();
             IdentityDatabaseUtil.commitTransaction(connection);
+            for (int tenantId : tenantIds) {
+                UserRPConsentCache.getInstance().clearCacheEntry(username, applicationName, tenantId);
+            }
 
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
@@ -407,12 +457,14 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
         try {
             String sql = SQLQueries.DELETE_USER_RPS_IN_TENANT;
 
+            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
             ps = connection.prepareStatement(sql);
             ps.setString(1, username);
-            ps.setInt(2, IdentityTenantUtil.getTenantId(tenantDomain));
+            ps.setInt(2, tenantId);
             ps.setString(3, applicationName);
             ps.execute();
             IdentityDatabaseUtil.commitTransaction(connection);
+            UserRPConsentCache.getInstance().clearCacheEntry(username, applicationName, tenantId);
 
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
@@ -454,13 +506,15 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
         try {
             String sql = SQLQueries.UPDATE_TRUSTED_ALWAYS_IDN_OPENID_USER_RPS;
 
+            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
             ps = connection.prepareStatement(sql);
             ps.setString(1, state);
             ps.setString(2, tenantAwareUserName);
-            ps.setInt(3, IdentityTenantUtil.getTenantId(tenantDomain));
+            ps.setInt(3, tenantId);
             ps.setString(4, applicationName);
             ps.execute();
             IdentityDatabaseUtil.commitTransaction(connection);
+            UserRPConsentCache.getInstance().clearCacheEntry(tenantAwareUserName, applicationName, tenantId);
 
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
@@ -719,4 +773,67 @@ public class TokenManagementDAOImpl extends AbstractOAuthDAO implements TokenMan
         return distinctConsumerKeys;
     }
 
+    @Override
+    public List<AuthorizedAppDO> getAuthorizedApps(AuthenticatedUser authzUser, String afterConsumerKey, int limit)
+            throws IdentityOAuth2Exception {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieving authorized apps of user: " + authzUser.toString() + " after the client: " +
+                    afterConsumerKey + " with limit: " + limit);
+        }
+
+        List<AuthorizedAppDO> authorizedApps = new ArrayList<>();
+        if (limit <= 0) {
+            return authorizedApps;
+        }
+        boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(authzUser.toString());
+        boolean isIdpIdColumnEnabled = OAuth2ServiceComponentHolder.isIDPIdColumnEnabled();
+        String tenantAwareUsernameWithNoUserDomain = authzUser.getUserName();
+        String userDomain = OAuth2Util.getSanitizedUserStoreDomain(authzUser.getUserStoreDomain());
+        int tenantId = OAuth2Util.getTenantId(authzUser.getTenantDomain());
+
+        String sqlQuery;
+        if (isIdpIdColumnEnabled) {
+            sqlQuery = afterConsumerKey == null ? SQLQueries.GET_APPS_AUTHORIZED_BY_USER_IDP_NAME :
+                    SQLQueries.GET_APPS_AUTHORIZED_BY_USER_IDP_NAME_AFTER_CONSUMER_KEY;
+        } else {
+            sqlQuery = afterConsumerKey == null ? SQLQueries.GET_APPS_AUTHORIZED_BY_USER :
+                    SQLQueries.GET_APPS_AUTHORIZED_BY_USER_AFTER_CONSUMER_KEY;
+        }
+        sqlQuery = OAuth2Util.getTokenPartitionedSqlByUserStore(sqlQuery, authzUser.getUserStoreDomain());
+        if (!isUsernameCaseSensitive) {
+            sqlQuery = sqlQuery.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
+            tenantAwareUsernameWithNoUserDomain = tenantAwareUsernameWithNoUserDomain.toLowerCase();
+        }
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+             PreparedStatement ps = connection.prepareStatement(sqlQuery)) {
+            int parameterIndex = 1;
+            ps.setString(parameterIndex++, tenantAwareUsernameWithNoUserDomain);
+            ps.setInt(parameterIndex++, tenantId);
+            ps.setString(parameterIndex++, userDomain);
+            if (isIdpIdColumnEnabled) {
+                ps.setString(parameterIndex++, OAuth2Util.getAuthenticatedIDP(authzUser));
+            }
+            if (afterConsumerKey != null) {
+                ps.setString(parameterIndex, getPersistenceProcessor().getProcessedClientId(afterConsumerKey));
+            }
+            ps.setMaxRows(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String consumerKey = getPersistenceProcessor().getPreprocessedClientId(rs.getString(1));
+                    authorizedApps.add(new AuthorizedAppDO(consumerKey, rs.getString(2),
+                            rs.getTimestamp(3, Calendar.getInstance(TimeZone.getTimeZone(UTC))), rs.getInt(4),
+                            rs.getInt(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error occurred while retrieving the apps authorized by user: " +
+                    authzUser, e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Found " + authorizedApps.size() + " authorized apps for user: " + authzUser.toString());
+        }
+        return authorizedApps;
+    }
 }
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous access token persistence pipeline. Tokens are put on a bounded queue and a configurable number of
+ * {@link TokenPersistenceTask} writers drain the queue and persist the tokens with JDBC batch inserts. A batch is
+ * flushed when it reaches the configured batch size or when the flush interval elapses, whichever comes first.
+ * <p>
+ * When the queue is full the pipeline either blocks the caller for a bounded time or falls back to a synchronous
+ * write, based on the configured {@link QueueFullPolicy}. The pipeline is disabled when the pool size is not
+ * configured, in which case every token is persisted synchronously.
+ */
+public class TokenPersistencePipeline {
+
+    private static final Log log = LogFactory.getLog(TokenPersistencePipeline.class);
+
+    // These config properties are defined in identity.xml
+    private static final String OAUTH_TOKEN_PERSISTENCE_POOL_SIZE = "OAuth.TokenPersistence.PoolSize";
+    private static final String OAUTH_TOKEN_PERSISTENCE_QUEUE_SIZE = "OAuth.TokenPersistence.QueueSize";
+    private static final String OAUTH_TOKEN_PERSISTENCE_BATCH_SIZE = "OAuth.TokenPersistence.BatchSize";
+    private static final String OAUTH_TOKEN_PERSISTENCE_FLUSH_INTERVAL = "OAuth.TokenPersistence.FlushInterval";
+    private static final String OAUTH_TOKEN_PERSISTENCE_QUEUE_FULL_POLICY = "OAuth.TokenPersistence.QueueFullPolicy";
+    private static final String OAUTH_TOKEN_PERSISTENCE_BLOCK_TIMEOUT = "OAuth.TokenPersistence.BlockTimeout";
+
+    private static final int DEFAULT_POOL_SIZE = 0;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    private static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private static volatile TokenPersistencePipeline instance;
+
+    private final int poolSize;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long blockTimeoutMillis;
+    private final QueueFullPolicy queueFullPolicy;
+    private final BlockingQueue<AccessContextTokenDO> accessContextTokenQueue;
+    private final AccessTokenDAO accessTokenDAO;
+    private ExecutorService writerPool;
+    private volatile boolean running;
+
+    private final AtomicLong persistedTokenCount = new AtomicLong();
+    private final AtomicLong failedTokenCount = new AtomicLong();
+    private final AtomicLong syncFallbackCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushLatencyMillis = new AtomicLong();
+    private final AtomicLong maxFlushLatencyMillis = new AtomicLong();
+
+    /**
+     * Behaviour of the pipeline when the queue is full.
+     */
+    public enum QueueFullPolicy {
+
+        /**
+         * Block the caller until space is available or the block timeout elapses. The token is persisted
+         * synchronously if the timeout elapses.
+         */
+        BLOCK,
+
+        /**
+         * Persist the token synchronously on the caller thread without waiting.
+         */
+        SYNC
+    }
+
+    /**
+     * Create a token persistence pipeline. Writers are not started until {@link #start()} is invoked.
+     *
+     * @param accessTokenDAO DAO used to persist the tokens. The DAO of {@link OAuthTokenPersistenceFactory} is used
+     *                       when this is null.
+     */
+    TokenPersistencePipeline(int poolSize, int queueSize, int batchSize, long flushIntervalMillis,
+                             QueueFullPolicy queueFullPolicy, long blockTimeoutMillis, AccessTokenDAO accessTokenDAO) {
+
+        this.poolSize = poolSize;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queueFullPolicy = queueFullPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.accessTokenDAO = accessTokenDAO;
+        this.accessContextTokenQueue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Get the token persistence pipeline configured in identity.xml. Writer threads are started on first access.
+     *
+     * @return token persistence pipeline.
+     */
+    public static TokenPersistencePipeline getInstance() {
+
+        if (instance == null) {
+            synchronized (TokenPersistencePipeline.class) {
+                if (instance == null) {
+                    TokenPersistencePipeline pipeline = new TokenPersistencePipeline(
+                            readIntProperty(OAUTH_TOKEN_PERSISTENCE_POOL_SIZE, DEFAULT_POOL_SIZE),
+                            readIntProperty(OAUTH_TOKEN_PERSISTENCE_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+                            readIntProperty(OAUTH_TOKEN_PERSISTENCE_BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                            readLongProperty(OAUTH_TOKEN_PERSISTENCE_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL_MILLIS),
+                            readQueueFullPolicy(),
+                            readLongProperty(OAUTH_TOKEN_PERSISTENCE_BLOCK_TIMEOUT, DEFAULT_BLOCK_TIMEOUT_MILLIS),
+                            null);
+                    pipeline.start();
+                    instance = pipeline;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the writers of the configured pipeline, if it was started, and persist the remaining queued tokens.
+     */
+    public static void shutdownInstance() {
+
+        synchronized (TokenPersistencePipeline.class) {
+            if (instance != null) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Whether tokens are persisted asynchronously by this pipeline.
+     *
+     * @return true if the pipeline has writer threads running.
+     */
+    public boolean isEnabled() {
+
+        return poolSize > 0 && running;
+    }
+
+    /**
+     * Persist the given access token. The token is queued for a batched write if the pipeline is enabled and the
+     * queue has capacity. Otherwise it is persisted synchronously on the caller thread.
+     *
+     * @param accessContextTokenDO access token context to be persisted.
+     * @throws IdentityOAuth2Exception if the token is persisted synchronously and the persistence fails.
+     */
+    public void persist(AccessContextTokenDO accessContextTokenDO) throws IdentityOAuth2Exception {
+
+        if (!isEnabled()) {
+            persistSynchronously(accessContextTokenDO);
+            return;
+        }
+
+        boolean queued;
+        if (queueFullPolicy == QueueFullPolicy.BLOCK) {
+            try {
+                queued = accessContextTokenQueue.offer(accessContextTokenDO, blockTimeoutMillis,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = accessContextTokenQueue.offer(accessContextTokenDO);
+        }
+
+        if (queued && !running && accessContextTokenQueue.remove(accessContextTokenDO)) {
+            // The pipeline was shut down while the token was queued, and the queue may already be drained. The token
+            // is persisted here unless it was already taken by the drain or a writer.
+            persistSynchronously(accessContextTokenDO);
+            return;
+        }
+        if (!queued) {
+            syncFallbackCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Token persistence queue is full with " + accessContextTokenQueue.size() + " tokens. " +
+                        "Persisting the access token synchronously for client: " +
+                        accessContextTokenDO.getConsumerKey());
+            }
+            persistSynchronously(accessContextTokenDO);
+        }
+    }
+
+    void start() {
+
+        if (poolSize <= 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("Token persistence pool size is not configured. Access tokens will be persisted " +
+                        "synchronously.");
+            }
+            return;
+        }
+        running = true;
+        AtomicInteger writerIndex = new AtomicInteger();
+        writerPool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "OAuthTokenPersistenceWriter-" + writerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < poolSize; i++) {
+            writerPool.execute(new TokenPersistenceTask(accessContextTokenQueue, this));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Token persistence pipeline started with " + poolSize + " writers, queue capacity: " +
+                    accessContextTokenQueue.remainingCapacity() + ", batch size: " + batchSize +
+                    ", flush interval: " + flushIntervalMillis + "ms and queue full policy: " + queueFullPolicy);
+        }
+    }
+
+    void shutdown() {
+
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerPool.shutdownNow();
+        try {
+            if (!writerPool.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Token persistence writers did not terminate within " + SHUTDOWN_TIMEOUT_MILLIS + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Persist whatever is left in the queue so that issued tokens are not lost on shutdown.
+        List<AccessContextTokenDO> remaining = new ArrayList<>(batchSize);
+        while (accessContextTokenQueue.drainTo(remaining, batchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+    }
+
+    boolean isRunning() {
+
+        return running;
+    }
+
+    int getBatchSize() {
+
+        return batchSize;
+    }
+
+    long getFlushIntervalMillis() {
+
+        return flushIntervalMillis;
+    }
+
+    /**
+     * Persist the given batch of tokens and record the flush metrics. Failures are logged since there is no caller
+     * to propagate them to.
+     *
+     * @param batch tokens to be persisted.
+     */
+    void flush(List<AccessContextTokenDO> batch) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            getAccessTokenDAO().insertAccessTokensInBatch(batch);
+            persistedTokenCount.addAndGet(batch.size());
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            failedTokenCount.addAndGet(batch.size());
+            log.error("Error occurred while persisting a batch of " + batch.size() + " access tokens.", e);
+        } finally {
+            long latency = System.currentTimeMillis() - startTime;
+            flushCount.incrementAndGet();
+            totalFlushLatencyMillis.addAndGet(latency);
+            maxFlushLatencyMillis.accumulateAndGet(latency, Math::max);
+            if (log.isDebugEnabled()) {
+                log.debug("Flushed " + batch.size() + " access tokens in " + latency + "ms. Queue depth: " +
+                        accessContextTokenQueue.size());
+            }
+        }
+    }
+
+    private void persistSynchronously(AccessContextTokenDO accessContextTokenDO) throws IdentityOAuth2Exception {
+
+        getAccessTokenDAO().insertAccessToken(accessContextTokenDO.getAccessToken(),
+                accessContextTokenDO.getConsumerKey(), accessContextTokenDO.getNewAccessTokenDO(),
+                accessContextTokenDO.getExistingAccessTokenDO(), accessContextTokenDO.getUserStoreDomain());
+    }
+
+    private AccessTokenDAO getAccessTokenDAO() {
+
+        if (accessTokenDAO != null) {
+            return accessTokenDAO;
+        }
+        return OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO();
+    }
+
+    /**
+     * Get the number of tokens waiting to be persisted.
+     *
+     * @return current queue depth.
+     */
+    public int getQueueDepth() {
+
+        return accessContextTokenQueue.size();
+    }
+
+    /**
+     * Get the number of tokens persisted by the writers.
+     *
+     * @return persisted token count.
+     */
+    public long getPersistedTokenCount() {
+
+        return persistedTokenCount.get();
+    }
+
+    /**
+     * Get the number of queued tokens which could not be persisted.
+     *
+     * @return failed token count.
+     */
+    public long getFailedTokenCount() {
+
+        return failedTokenCount.get();
+    }
+
+    /**
+     * Get the number of tokens persisted synchronously because the queue was full.
+     *
+     * @return synchronous fallback count.
+     */
+    public long getSyncFallbackCount() {
+
+        return syncFallbackCount.get();
+    }
+
+    /**
+     * Get the number of batches flushed by the writers.
+     *
+     * @return flush count.
+     */
+    public long getFlushCount() {
+
+        return flushCount.get();
+    }
+
+    /**
+     * Get the average time taken to flush a batch.
+     *
+     * @return average flush latency in milliseconds.
+     */
+    public double getAverageFlushLatencyMillis() {
+
+        long flushes = flushCount.get();
+        return flushes == 0 ? 0 : (double) totalFlushLatencyMillis.get() / flushes;
+    }
+
+    /**
+     * Get the maximum time taken to flush a batch.
+     *
+     * @return maximum flush latency in milliseconds.
+     */
+    public long getMaxFlushLatencyMillis() {
+
+        return maxFlushLatencyMillis.get();
+    }
+
+    private static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static QueueFullPolicy readQueueFullPolicy() {
+
+        String value = IdentityUtil.getProperty(OAUTH_TOKEN_PERSISTENCE_QUEUE_FULL_POLICY);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return QueueFullPolicy.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid value: " + value + " configured for: " + OAUTH_TOKEN_PERSISTENCE_QUEUE_FULL_POLICY
+                        + ". Using the default policy: " + QueueFullPolicy.SYNC);
+            }
+        }
+        return QueueFullPolicy.SYNC;
+    }
+}
@@ -19,20 +19,28 @@ package org.wso2.carbon.identity.oauth2.dao;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.identity.base.IdentityException;
 
-import java.util.concurrent.BlockingDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
- * OAuth token persistence task.
+ * OAuth token persistence task. Drains the token queue of the {@link TokenPersistencePipeline} and persists the
+ * tokens in batches. A batch is flushed once it reaches the batch size or once the flush interval has elapsed
+ * since its first token was taken from the queue.
  */
 public class TokenPersistenceTask implements Runnable {
 
     private static final Log log = LogFactory.getLog(TokenPersistenceTask.class);
-    private BlockingDeque<AccessContextTokenDO> accessContextTokenQueue;
+    private BlockingQueue<AccessContextTokenDO> accessContextTokenQueue;
+    private TokenPersistencePipeline pipeline;
+
+    public TokenPersistenceTask(BlockingQueue<AccessContextTokenDO> accessContextTokenQueue,
+                                TokenPersistencePipeline pipeline) {
 
-    public TokenPersistenceTask(BlockingDeque<AccessContextTokenDO> accessContextTokenQueue) {
         this.accessContextTokenQueue = accessContextTokenQueue;
+        this.pipeline = pipeline;
     }
 
     @Override
@@ -40,25 +48,42 @@ public class TokenPersistenceTask implements Runnable {
 
         log.debug("Access Token context persist consumer is started");
 
-        while (true) {
-            AccessContextTokenDO accessContextTokenDO = null;
-            String accessToken = null;
+        int batchSize = pipeline.getBatchSize();
+        long flushIntervalMillis = pipeline.getFlushIntervalMillis();
+        List<AccessContextTokenDO> batch = new ArrayList<>(batchSize);
+        while (pipeline.isRunning()) {
             try {
-                accessContextTokenDO =  accessContextTokenQueue.take();
-                if (accessContextTokenDO != null) {
-                    accessToken = accessContextTokenDO.getAccessToken();
-                    log.debug("Access Token Data persisting Task is started to run");
-                    OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                            .insertAccessToken(accessToken, accessContextTokenDO.getConsumerKey(),
-                                    accessContextTokenDO.getNewAccessTokenDO(),
-                                    accessContextTokenDO.getExistingAccessTokenDO(),
-                                    accessContextTokenDO.getUserStoreDomain());
+                AccessContextTokenDO accessContextTokenDO =
+                        accessContextTokenQueue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (accessContextTokenDO == null) {
+                    continue;
+                }
+                batch.add(accessContextTokenDO);
+                long flushDeadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+                    if (accessContextTokenQueue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remainingMillis = flushDeadline - System.currentTimeMillis();
+                    if (remainingMillis <= 0) {
+                        break;
+                    }
+                    accessContextTokenDO = accessContextTokenQueue.poll(remainingMillis, TimeUnit.MILLISECONDS);
+                    if (accessContextTokenDO == null) {
+                        break;
+                    }
+                    batch.add(accessContextTokenDO);
                 }
+                pipeline.flush(batch);
+                batch.clear();
             } catch (InterruptedException e) {
-                log.error("Error occurred while getting AccessContextTokenDO instance from accessContextTokenQueue", e);
-            } catch (IdentityException e) {
-                log.error("Error occurred while persisting access token :" + accessToken, e);
+                // The pipeline is shutting down. Persist the partially collected batch before exiting.
+                pipeline.flush(batch);
+                batch.clear();
+                Thread.currentThread().interrupt();
+                break;
             }
         }
+        log.debug("Access Token context persist consumer is stopped");
     }
 }
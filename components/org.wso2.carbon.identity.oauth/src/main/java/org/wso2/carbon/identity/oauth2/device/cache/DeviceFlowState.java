@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.device.cache;
+
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+import org.wso2.carbon.identity.oauth2.device.model.DeviceFlowDO;
+
+import java.sql.Timestamp;
+
+/**
+ * State of a device code whose user has not completed the authorization yet.
+ * <p>
+ * The last poll time is updated in place by the token requests polling on this node, and is written to the database
+ * when the status of the device code is read again from the database or changes.
+ */
+public class DeviceFlowState extends CacheEntry {
+
+    private static final long serialVersionUID = 3120584628619423511L;
+
+    private final String deviceCode;
+    private final String clientId;
+    private final String status;
+    private final long expiryTime;
+    private final long pollTime;
+    private volatile long lastPollTime;
+    private volatile boolean pollStateChanged;
+    private volatile long validatedTime;
+    private volatile String[] scopes;
+
+    private DeviceFlowState(String deviceCode, String clientId, DeviceFlowDO deviceFlowDO, long validatedTime) {
+
+        this.deviceCode = deviceCode;
+        this.clientId = clientId;
+        this.status = deviceFlowDO.getStatus();
+        this.expiryTime = deviceFlowDO.getExpiryTime().getTime();
+        this.pollTime = deviceFlowDO.getPollTime();
+        this.lastPollTime = deviceFlowDO.getLastPollTime().getTime();
+        this.validatedTime = validatedTime;
+    }
+
+    /**
+     * Create the state of a device code whose user has not completed the authorization.
+     *
+     * @param deviceCode    Code that is used to identify the device.
+     * @param clientId      Consumer key of the application.
+     * @param deviceFlowDO  Details of the device code read from the database.
+     * @param validatedTime Time the status of the device code was read from the database.
+     * @return State of the device code.
+     */
+    public static DeviceFlowState of(String deviceCode, String clientId, DeviceFlowDO deviceFlowDO,
+                                     long validatedTime) {
+
+        return new DeviceFlowState(deviceCode, clientId, deviceFlowDO, validatedTime);
+    }
+
+    /**
+     * Build the details of the device code with the poll state of this node.
+     *
+     * @return Details of the device code.
+     */
+    public DeviceFlowDO toDeviceFlowDO() {
+
+        DeviceFlowDO deviceFlowDO = new DeviceFlowDO();
+        deviceFlowDO.setDeviceCode(deviceCode);
+        deviceFlowDO.setStatus(status);
+        deviceFlowDO.setExpiryTime(new Timestamp(expiryTime));
+        deviceFlowDO.setPollTime(pollTime);
+        deviceFlowDO.setLastPollTime(new Timestamp(lastPollTime));
+        return deviceFlowDO;
+    }
+
+    public String getDeviceCode() {
+
+        return deviceCode;
+    }
+
+    public String getClientId() {
+
+        return clientId;
+    }
+
+    public String getStatus() {
+
+        return status;
+    }
+
+    public long getLastPollTime() {
+
+        return lastPollTime;
+    }
+
+    public void setLastPollTime(long lastPollTime) {
+
+        this.lastPollTime = lastPollTime;
+        this.pollStateChanged = true;
+    }
+
+    /**
+     * Mark the last poll time as stored in the database, and take the stored last poll time if the device was polled
+     * later on another node.
+     *
+     * @param storedLastPollTime Last poll time read from the database.
+     */
+    public void setStoredLastPollTime(long storedLastPollTime) {
+
+        if (storedLastPollTime > lastPollTime) {
+            this.lastPollTime = storedLastPollTime;
+        }
+        this.pollStateChanged = false;
+    }
+
+    /**
+     * @return true if the last poll time is updated since it was read from the database.
+     */
+    public boolean isPollStateChanged() {
+
+        return pollStateChanged;
+    }
+
+    public long getValidatedTime() {
+
+        return validatedTime;
+    }
+
+    public void setValidatedTime(long validatedTime) {
+
+        this.validatedTime = validatedTime;
+    }
+
+    /**
+     * @return Scopes of the device code, or null if they are not read yet.
+     */
+    public String[] getScopes() {
+
+        return scopes;
+    }
+
+    public void setScopes(String[] scopes) {
+
+        this.scopes = scopes;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.device.cache;
+
+import org.wso2.carbon.identity.application.authentication.framework.cache.AuthenticationBaseCache;
+
+/**
+ * Cache of the device codes whose users have not completed the authorization, keyed by the device code. An entry
+ * cleared on a node is invalidated on the other nodes of the cluster.
+ */
+public class DeviceFlowStateCache extends AuthenticationBaseCache<String, DeviceFlowState> {
+
+    private static final String DEVICE_FLOW_STATE_CACHE_NAME = "DeviceFlowStateCache";
+
+    private static volatile DeviceFlowStateCache instance;
+
+    private DeviceFlowStateCache() {
+
+        super(DEVICE_FLOW_STATE_CACHE_NAME);
+    }
+
+    /**
+     * Returns DeviceFlowStateCache singleton instance.
+     *
+     * @return DeviceFlowStateCache instance.
+     */
+    public static DeviceFlowStateCache getInstance() {
+
+        if (instance == null) {
+            synchronized (DeviceFlowStateCache.class) {
+                if (instance == null) {
+                    instance = new DeviceFlowStateCache();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.device.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.device.cache.DeviceFlowState;
+import org.wso2.carbon.identity.oauth2.device.cache.DeviceFlowStateCache;
+import org.wso2.carbon.identity.oauth2.device.constants.Constants;
+import org.wso2.carbon.identity.oauth2.device.model.DeviceFlowDO;
+
+import java.sql.Timestamp;
+
+/**
+ * {@link DeviceFlowDAO} which keeps the device codes whose users have not completed the authorization in memory.
+ * <p>
+ * Token requests polling with such a device code are served from the {@link DeviceFlowStateCache}, and their last poll
+ * time is kept in the memory of the node. The status of a cached device code is read again from the database after the
+ * status refresh interval, which bounds the time a node may serve a stale status when a status change races with a
+ * poll on that node. On that read the last poll time of the node is written to the database if it is newer than the
+ * stored one, and the node takes the stored one otherwise, so the polls of the device on other nodes are applied to the
+ * slow_down check within the status refresh interval. The last poll time is also written to the database when the
+ * status of the device code changes, and the cache entry is then cleared on all the nodes, so that the next poll reads
+ * the new status from the database.
+ */
+public class CachedDeviceFlowDAO implements DeviceFlowDAO {
+
+    private static final Log log = LogFactory.getLog(CachedDeviceFlowDAO.class);
+
+    private final DeviceFlowDAO deviceFlowDAO;
+    private final DeviceFlowStateCache stateCache;
+    private final long statusRefreshIntervalMillis;
+
+    /**
+     * @param deviceFlowDAO               DAO which accesses the database.
+     * @param stateCache                  Cache of the device codes awaiting authorization.
+     * @param statusRefreshIntervalMillis Time in milliseconds after which the status of a cached device code is read
+     *                                    again from the database.
+     */
+    public CachedDeviceFlowDAO(DeviceFlowDAO deviceFlowDAO, DeviceFlowStateCache stateCache,
+                               long statusRefreshIntervalMillis) {
+
+        this.deviceFlowDAO = deviceFlowDAO;
+        this.stateCache = stateCache;
+        this.statusRefreshIntervalMillis = statusRefreshIntervalMillis;
+    }
+
+    @Override
+    public String insertDeviceFlowParametersWithQuantifier(String deviceCode, String userCode, long quantifier,
+                                                           String consumerKey, String scopes)
+            throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.insertDeviceFlowParametersWithQuantifier(deviceCode, userCode, quantifier, consumerKey,
+                scopes);
+    }
+
+    @Override
+    @Deprecated
+    public void insertDeviceFlowParameters(String deviceCode, String userCode, String consumerKey, Long expiresIn,
+                                           int interval, String scopes) throws IdentityOAuth2Exception {
+
+        deviceFlowDAO.insertDeviceFlowParameters(deviceCode, userCode, consumerKey, expiresIn, interval, scopes);
+    }
+
+    @Override
+    public String getClientIdByUserCode(String userCode) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.getClientIdByUserCode(userCode);
+    }
+
+    @Override
+    public void setAuthenticationStatus(String userCode) throws IdentityOAuth2Exception {
+
+        String deviceCode = getDeviceCode(userCode);
+        flushPollState(deviceCode);
+        deviceFlowDAO.setAuthenticationStatus(userCode);
+        clearState(deviceCode);
+    }
+
+    @Override
+    @Deprecated
+    public void setAuthenticationStatus(String userCode, String status) throws IdentityOAuth2Exception {
+
+        String deviceCode = getDeviceCode(userCode);
+        flushPollState(deviceCode);
+        deviceFlowDAO.setAuthenticationStatus(userCode, status);
+        clearState(deviceCode);
+    }
+
+    @Override
+    public DeviceFlowDO getAuthenticationDetails(String deviceCode, String clientId) throws IdentityOAuth2Exception {
+
+        long currentTime = System.currentTimeMillis();
+        DeviceFlowState state = getState(deviceCode, clientId);
+        if (state != null && currentTime - state.getValidatedTime() < statusRefreshIntervalMillis) {
+            return state.toDeviceFlowDO();
+        }
+
+        DeviceFlowDO deviceFlowDO = deviceFlowDAO.getAuthenticationDetails(deviceCode, clientId);
+        if (!isAwaitingAuthorization(deviceFlowDO)) {
+            if (state != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Status of the device_code: " + deviceCode + " was changed on another node.");
+                }
+                stateCache.clearCacheEntry(deviceCode);
+            }
+            return deviceFlowDO;
+        }
+        if (state != null && state.getStatus().equals(deviceFlowDO.getStatus())) {
+            long storedLastPollTime = deviceFlowDO.getLastPollTime().getTime();
+            if (state.isPollStateChanged() && state.getLastPollTime() > storedLastPollTime) {
+                // Share the polls of this node, so that the other nodes apply the poll interval to them as well.
+                deviceFlowDAO.setLastPollTime(deviceCode, new Timestamp(state.getLastPollTime()));
+            }
+            state.setStoredLastPollTime(storedLastPollTime);
+            state.setValidatedTime(currentTime);
+            return state.toDeviceFlowDO();
+        }
+        DeviceFlowState newState = DeviceFlowState.of(deviceCode, clientId, deviceFlowDO, currentTime);
+        if (state != null) {
+            newState.setLastPollTime(state.getLastPollTime());
+        }
+        stateCache.addToCache(deviceCode, newState);
+        return deviceFlowDO;
+    }
+
+    @Override
+    @Deprecated
+    public DeviceFlowDO getAuthenticationDetails(String deviceCode) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.getAuthenticationDetails(deviceCode);
+    }
+
+    @Override
+    public boolean checkClientIdExist(String clientId) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.checkClientIdExist(clientId);
+    }
+
+    @Override
+    public String getStatusForUserCode(String userCode) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.getStatusForUserCode(userCode);
+    }
+
+    @Override
+    public void setLastPollTime(String deviceCode, Timestamp newPollTime) throws IdentityOAuth2Exception {
+
+        DeviceFlowState state = stateCache.getValueFromCache(deviceCode);
+        if (state == null) {
+            deviceFlowDAO.setLastPollTime(deviceCode, newPollTime);
+            return;
+        }
+        state.setLastPollTime(newPollTime.getTime());
+    }
+
+    @Override
+    public void setAuthzUserAndStatus(String userCode, String status, AuthenticatedUser authzUser)
+            throws IdentityOAuth2Exception {
+
+        String deviceCode = getDeviceCode(userCode);
+        flushPollState(deviceCode);
+        deviceFlowDAO.setAuthzUserAndStatus(userCode, status, authzUser);
+        clearState(deviceCode);
+    }
+
+    @Override
+    public void setDeviceCodeExpired(String deviceCode, String status) throws IdentityOAuth2Exception {
+
+        flushPollState(deviceCode);
+        deviceFlowDAO.setDeviceCodeExpired(deviceCode, status);
+        clearState(deviceCode);
+    }
+
+    @Override
+    public void setCallbackURI(String clientId, String callBackUri) throws IdentityOAuth2Exception {
+
+        deviceFlowDAO.setCallbackURI(clientId, callBackUri);
+    }
+
+    @Override
+    public String[] getScopesForUserCode(String userCode) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.getScopesForUserCode(userCode);
+    }
+
+    @Override
+    public String[] getScopesForDeviceCode(String deviceCode) throws IdentityOAuth2Exception {
+
+        DeviceFlowState state = stateCache.getValueFromCache(deviceCode);
+        if (state != null && state.getScopes() != null) {
+            return state.getScopes();
+        }
+        String[] scopes = deviceFlowDAO.getScopesForDeviceCode(deviceCode);
+        if (state != null) {
+            // The scopes of a device code never change.
+            state.setScopes(scopes);
+        }
+        return scopes;
+    }
+
+    @Override
+    public DeviceFlowDO getDetailsForUserCode(String userCode) throws IdentityOAuth2Exception {
+
+        return deviceFlowDAO.getDetailsForUserCode(userCode);
+    }
+
+    private DeviceFlowState getState(String deviceCode, String clientId) {
+
+        DeviceFlowState state = stateCache.getValueFromCache(deviceCode);
+        if (state == null || !state.getClientId().equals(clientId)) {
+            // A device code polled by another client is validated against the database.
+            return null;
+        }
+        return state;
+    }
+
+    /**
+     * The status of a device code is changed through its user code, so the device code is read from the database to
+     * find the state to be cleared. Status changes are rare compared to the polls, so this read is not cached.
+     */
+    private String getDeviceCode(String userCode) throws IdentityOAuth2Exception {
+
+        DeviceFlowDO deviceFlowDO = deviceFlowDAO.getDetailsForUserCode(userCode);
+        return deviceFlowDO == null ? null : deviceFlowDO.getDeviceCode();
+    }
+
+    /**
+     * Write the last poll time of this node to the database before the status of the device code is changed.
+     */
+    private void flushPollState(String deviceCode) throws IdentityOAuth2Exception {
+
+        if (deviceCode == null) {
+            return;
+        }
+        DeviceFlowState state = stateCache.getValueFromCache(deviceCode);
+        if (state == null || !state.isPollStateChanged()) {
+            return;
+        }
+        deviceFlowDAO.setLastPollTime(deviceCode, new Timestamp(state.getLastPollTime()));
+    }
+
+    private void clearState(String deviceCode) {
+
+        if (deviceCode != null) {
+            stateCache.clearCacheEntry(deviceCode);
+        }
+    }
+
+    private boolean isAwaitingAuthorization(DeviceFlowDO deviceFlowDO) {
+
+        return Constants.PENDING.equals(deviceFlowDO.getStatus()) || Constants.USED.equals(deviceFlowDO.getStatus());
+    }
+}
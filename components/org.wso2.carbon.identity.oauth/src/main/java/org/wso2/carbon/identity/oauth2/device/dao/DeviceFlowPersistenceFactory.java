@@ -18,17 +18,31 @@
 
 package org.wso2.carbon.identity.oauth2.device.dao;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.device.cache.DeviceFlowStateCache;
+
 /**
  * This class is device flow DAO factory.
  */
 public class DeviceFlowPersistenceFactory {
 
+    private static final Log log = LogFactory.getLog(DeviceFlowPersistenceFactory.class);
+
+    // These config properties are defined in identity.xml
+    private static final String DEVICE_FLOW_STATE_CACHE_ENABLE = "OAuth.DeviceFlow.StateCache.Enable";
+    private static final String DEVICE_FLOW_STATE_CACHE_STATUS_REFRESH_INTERVAL =
+            "OAuth.DeviceFlow.StateCache.StatusRefreshInterval";
+
+    private static final long DEFAULT_STATUS_REFRESH_INTERVAL_MILLIS = 10000;
+
     private static DeviceFlowPersistenceFactory factory = new DeviceFlowPersistenceFactory();
-    private DeviceFlowDAO deviceFlowDAO;
+    private volatile DeviceFlowDAO deviceFlowDAO;
 
     private DeviceFlowPersistenceFactory() {
 
-        this.deviceFlowDAO = new DeviceFlowDAOImpl();
     }
 
     public static DeviceFlowPersistenceFactory getInstance() {
@@ -38,6 +52,41 @@ public class DeviceFlowPersistenceFactory {
 
     public DeviceFlowDAO getDeviceFlowDAO() {
 
+        if (deviceFlowDAO == null) {
+            synchronized (this) {
+                if (deviceFlowDAO == null) {
+                    deviceFlowDAO = createDeviceFlowDAO();
+                }
+            }
+        }
         return deviceFlowDAO;
     }
+
+    private static DeviceFlowDAO createDeviceFlowDAO() {
+
+        DeviceFlowDAO deviceFlowDAO = new DeviceFlowDAOImpl();
+        if (!Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(DEVICE_FLOW_STATE_CACHE_ENABLE)))) {
+            return deviceFlowDAO;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Keeping the device codes awaiting authorization in memory.");
+        }
+        return new CachedDeviceFlowDAO(deviceFlowDAO, DeviceFlowStateCache.getInstance(),
+                readLongProperty(DEVICE_FLOW_STATE_CACHE_STATUS_REFRESH_INTERVAL,
+                        DEFAULT_STATUS_REFRESH_INTERVAL_MILLIS));
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -45,7 +45,9 @@ import org.wso2.carbon.identity.oauth2.client.authentication.BasicAuthClientAuth
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthnService;
 import org.wso2.carbon.identity.oauth2.client.authentication.PublicClientAuthenticator;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenPurger;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+import org.wso2.carbon.identity.oauth2.dao.TokenPersistencePipeline;
 import org.wso2.carbon.identity.oauth2.device.api.DeviceAuthService;
 import org.wso2.carbon.identity.oauth2.device.api.DeviceAuthServiceImpl;
 import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
@@ -248,6 +250,18 @@ public class OAuth2ServiceComponent {
             }
             OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(false);
         }
+        // Started after the IDP_ID column check, which decides the columns copied to the audit table.
+        ExpiredTokenPurger.startInstance();
+    }
+
+    protected void deactivate(ComponentContext context) {
+
+        // Persist the access tokens which are still queued for asynchronous persistence.
+        TokenPersistencePipeline.shutdownInstance();
+        ExpiredTokenPurger.shutdownInstance();
+        if (log.isDebugEnabled()) {
+            log.debug("Identity OAuth bundle is deactivated");
+        }
     }
 
     /**
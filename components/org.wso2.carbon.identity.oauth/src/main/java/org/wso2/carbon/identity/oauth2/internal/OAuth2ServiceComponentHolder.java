@@ -49,6 +49,7 @@ public class OAuth2ServiceComponentHolder {
     private static List<OAuthClientAuthenticator> authenticationHandlers = new ArrayList<>();
     private static List<ClaimProvider> claimProviders = new ArrayList<>();
     private static boolean idpIdColumnEnabled = false;
+    private static boolean inlineTokenCleanupEnabled = false;
     private List<TokenBinder> tokenBinders = new ArrayList<>();
     private OAuthAdminServiceImpl oauthAdminService;
     private static AuthenticationDataPublisher authenticationDataPublisherProxy;
@@ -116,6 +117,20 @@ public class OAuth2ServiceComponentHolder {
         OAuth2ServiceComponentHolder.idpIdColumnEnabled = idpIdColumnEnabled;
     }
 
+    /**
+     * @return true if the old tokens are cleaned up when they are replaced or revoked, since the background purger
+     * could not be started.
+     */
+    public static boolean isInlineTokenCleanupEnabled() {
+
+        return inlineTokenCleanupEnabled;
+    }
+
+    public static void setInlineTokenCleanupEnabled(boolean inlineTokenCleanupEnabled) {
+
+        OAuth2ServiceComponentHolder.inlineTokenCleanupEnabled = inlineTokenCleanupEnabled;
+    }
+
     public static RegistryService getRegistryService() {
 
         return registryService;
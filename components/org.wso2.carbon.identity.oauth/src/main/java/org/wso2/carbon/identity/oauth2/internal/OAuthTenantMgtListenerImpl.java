@@ -25,6 +25,7 @@ import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimFilterPlanCache;
 import org.wso2.carbon.stratos.common.exception.StratosException;
 
 import java.util.ArrayList;
@@ -41,6 +42,7 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
     @Override
     public void onPreDelete(int tenantId) throws StratosException {
 
+        OIDCScopeClaimFilterPlanCache.getInstance().clearFilterPlan(tenantId);
         clearTokenData(tenantId);
     }
 
@@ -52,6 +54,7 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
 
     private void clearTokenData(int tenantId) throws StratosException {
 
+        OAuth2Util.clearSigningKeyCache(tenantId);
         try {
             Set<AccessTokenDO> accessTokenDOs = OAuthTokenPersistenceFactory.getInstance()
                     .getAccessTokenDAO().getAccessTokensByTenant(tenantId);
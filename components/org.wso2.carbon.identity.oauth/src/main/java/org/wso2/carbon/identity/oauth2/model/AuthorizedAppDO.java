@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Application authorized by a user, with the metadata of the ACTIVE or EXPIRED access tokens issued to the user for
+ * the application.
+ */
+public class AuthorizedAppDO {
+
+    private final String consumerKey;
+    private final String applicationName;
+    private final Timestamp latestTokenIssuedTime;
+    private final int activeTokenCount;
+    private final int tokenCount;
+
+    public AuthorizedAppDO(String consumerKey, String applicationName, Timestamp latestTokenIssuedTime,
+                           int activeTokenCount, int tokenCount) {
+
+        this.consumerKey = consumerKey;
+        this.applicationName = applicationName;
+        this.latestTokenIssuedTime = latestTokenIssuedTime;
+        this.activeTokenCount = activeTokenCount;
+        this.tokenCount = tokenCount;
+    }
+
+    public String getConsumerKey() {
+
+        return consumerKey;
+    }
+
+    public String getApplicationName() {
+
+        return applicationName;
+    }
+
+    /**
+     * @return Issued time of the latest ACTIVE or EXPIRED access token of the user.
+     */
+    public Timestamp getLatestTokenIssuedTime() {
+
+        return latestTokenIssuedTime;
+    }
+
+    /**
+     * @return Number of ACTIVE access tokens of the user.
+     */
+    public int getActiveTokenCount() {
+
+        return activeTokenCount;
+    }
+
+    /**
+     * @return Number of ACTIVE or EXPIRED access tokens of the user.
+     */
+    public int getTokenCount() {
+
+        return tokenCount;
+    }
+}
@@ -21,14 +21,10 @@ package org.wso2.carbon.identity.oauth2.token;
 import com.nimbusds.jose.Algorithm;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
-import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.PlainJWT;
-import com.nimbusds.jwt.SignedJWT;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -58,8 +54,6 @@ import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.common.AbstractUserStoreManager;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 
-import java.security.Key;
-import java.security.interfaces.RSAPrivateKey;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -68,7 +62,6 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
-import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.getPrivateKey;
 
 /**
  * Self contained access token builder.
@@ -332,16 +325,8 @@ public class JWTTokenIssuer extends OauthTokenIssuerImpl {
             String tenantDomain = resolveSigningTenantDomain(tokenContext, authorizationContext);
             int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
 
-            Key privateKey = getPrivateKey(tenantDomain, tenantId);
-            JWSSigner signer = OAuth2Util.createJWSSigner((RSAPrivateKey) privateKey);
-            JWSHeader.Builder headerBuilder = new JWSHeader.Builder((JWSAlgorithm) signatureAlgorithm);
-            String certThumbPrint = OAuth2Util.getThumbPrint(tenantDomain, tenantId);
-            headerBuilder.keyID(OAuth2Util.getKID(OAuth2Util.getCertificate(tenantDomain, tenantId),
-                    (JWSAlgorithm) signatureAlgorithm, tenantDomain));
-            headerBuilder.x509CertThumbprint(new Base64URL(certThumbPrint));
-            SignedJWT signedJWT = new SignedJWT(headerBuilder.build(), jwtClaimsSet);
-            signedJWT.sign(signer);
-            return signedJWT.serialize();
+            return OAuth2Util.getJWTSigningContext(tenantDomain, tenantId, (JWSAlgorithm) signatureAlgorithm)
+                    .sign(jwtClaimsSet).serialize();
         } catch (JOSEException e) {
             throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
         }
@@ -356,13 +341,29 @@ public class JWTTokenIssuer extends OauthTokenIssuerImpl {
                 "by the current implementation.");
     }
 
-    // TODO: Implement JWT signing with ECDSA (SHA-256, SHA-384, SHA-512).
+    /**
+     * Sign the JWT token with ECDSA (SHA-256, SHA-384, SHA-512). The signing key of the tenant has to be an EC key
+     * on the curve of the configured algorithm.
+     *
+     * @param jwtClaimsSet         Claim set.
+     * @param tokenContext         Token context.
+     * @param authorizationContext Authorization context.
+     * @return Signed JWT.
+     * @throws IdentityOAuth2Exception
+     */
     protected String signJWTWithECDSA(JWTClaimsSet jwtClaimsSet,
                                       OAuthTokenReqMessageContext tokenContext,
                                       OAuthAuthzReqMessageContext authorizationContext) throws IdentityOAuth2Exception {
 
-        throw new IdentityOAuth2Exception("Given signature algorithm " + signatureAlgorithm + " is not supported " +
-                "by the current implementation.");
+        try {
+            String tenantDomain = resolveSigningTenantDomain(tokenContext, authorizationContext);
+            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+
+            return OAuth2Util.getJWTSigningContext(tenantDomain, tenantId, (JWSAlgorithm) signatureAlgorithm)
+                    .sign(jwtClaimsSet).serialize();
+        } catch (JOSEException e) {
+            throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
+        }
     }
 
     /**
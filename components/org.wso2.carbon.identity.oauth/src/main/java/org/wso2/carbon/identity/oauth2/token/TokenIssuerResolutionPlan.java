@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-ordered view of the configured token issuers used when resolving an access token from its
+ * identifier. The issuers are classified once, so that a lookup only walks the issuers which can possibly
+ * understand the shape of the received token, instead of probing every configured issuer.
+ */
+public class TokenIssuerResolutionPlan {
+
+    private static final String DOT_SEPARATOR = ".";
+
+    private final Map<String, OauthTokenIssuer> jwtShapedTokenIssuers;
+    private final Map<String, OauthTokenIssuer> opaqueTokenIssuers;
+    private final int issuerCount;
+
+    private TokenIssuerResolutionPlan(Map<String, OauthTokenIssuer> jwtShapedTokenIssuers,
+                                      Map<String, OauthTokenIssuer> opaqueTokenIssuers, int issuerCount) {
+
+        this.jwtShapedTokenIssuers = Collections.unmodifiableMap(jwtShapedTokenIssuers);
+        this.opaqueTokenIssuers = Collections.unmodifiableMap(opaqueTokenIssuers);
+        this.issuerCount = issuerCount;
+    }
+
+    /**
+     * Build a resolution plan from the given token issuers.
+     * <p>
+     * For JWT shaped tokens the JWT issuers are tried first, followed by the rest in the same order as for opaque
+     * tokens. For opaque tokens the {@link JWTTokenIssuer}s are skipped altogether since they can only resolve
+     * tokens which are parsable as JWTs. The default issuer is always preferred over custom issuers.
+     *
+     * @param tokenIssuerMap Configured token issuers keyed by the token type.
+     * @return Resolution plan.
+     */
+    public static TokenIssuerResolutionPlan build(Map<String, OauthTokenIssuer> tokenIssuerMap) {
+
+        List<Map.Entry<String, OauthTokenIssuer>> jwtIssuers = new ArrayList<>();
+        List<Map.Entry<String, OauthTokenIssuer>> otherIssuers = new ArrayList<>();
+        int issuerCount = 0;
+        if (tokenIssuerMap != null) {
+            for (Map.Entry<String, OauthTokenIssuer> entry : new LinkedHashMap<>(tokenIssuerMap).entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                issuerCount++;
+                if (entry.getValue() instanceof JWTTokenIssuer) {
+                    jwtIssuers.add(entry);
+                } else {
+                    otherIssuers.add(entry);
+                }
+            }
+        }
+        jwtIssuers.sort((first, second) -> compareIssuers(first.getKey(), second.getKey(),
+                OAuthServerConfiguration.JWT_TOKEN_TYPE));
+        otherIssuers.sort((first, second) -> compareIssuers(first.getKey(), second.getKey(),
+                OAuthServerConfiguration.DEFAULT_TOKEN_TYPE));
+
+        Map<String, OauthTokenIssuer> jwtShapedTokenIssuers = new LinkedHashMap<>();
+        Map<String, OauthTokenIssuer> opaqueTokenIssuers = new LinkedHashMap<>();
+        for (Map.Entry<String, OauthTokenIssuer> entry : jwtIssuers) {
+            jwtShapedTokenIssuers.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, OauthTokenIssuer> entry : otherIssuers) {
+            jwtShapedTokenIssuers.put(entry.getKey(), entry.getValue());
+            opaqueTokenIssuers.put(entry.getKey(), entry.getValue());
+        }
+        return new TokenIssuerResolutionPlan(jwtShapedTokenIssuers, opaqueTokenIssuers, issuerCount);
+    }
+
+    /**
+     * Returns the ordered token issuers which should be tried to resolve the given token identifier.
+     *
+     * @param tokenIdentifier Received token identifier.
+     * @return Ordered, unmodifiable map of candidate token issuers.
+     */
+    public Map<String, OauthTokenIssuer> getCandidateTokenIssuers(String tokenIdentifier) {
+
+        if (isJWTShaped(tokenIdentifier)) {
+            return jwtShapedTokenIssuers;
+        }
+        return opaqueTokenIssuers;
+    }
+
+    /**
+     * Returns the number of token issuers this plan was built from.
+     *
+     * @return Number of token issuers.
+     */
+    public int getIssuerCount() {
+
+        return issuerCount;
+    }
+
+    private static boolean isJWTShaped(String tokenIdentifier) {
+
+        // A signed JWT has 3 and an encrypted JWT has 5 components separated by periods.
+        int separatorCount = StringUtils.countMatches(tokenIdentifier, DOT_SEPARATOR);
+        return separatorCount == 2 || separatorCount == 4;
+    }
+
+    private static int compareIssuers(String firstKey, String secondKey, String preferredKey) {
+
+        if (firstKey.equals(preferredKey)) {
+            return -1;
+        }
+        if (secondKey.equals(preferredKey)) {
+            return 1;
+        }
+        return firstKey.compareTo(secondKey);
+    }
+}
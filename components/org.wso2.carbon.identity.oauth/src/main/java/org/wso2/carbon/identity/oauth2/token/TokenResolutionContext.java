@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCache;
+import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
+import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+/**
+ * Request scoped holder of the data resolved for the access token presented in a request, e.g. a userinfo request.
+ * <p>
+ * The token is validated, its claims retrieved and the response built by different components, which would otherwise
+ * each resolve the token through the token issuers and caches, and look up the service provider and the authorization
+ * grant cache entry again. A context is bound to the current thread by {@link #start()} and must be released by
+ * {@link #clear()} when the request completes. Without a started context, the lookups are not shared.
+ */
+public class TokenResolutionContext {
+
+    private static final Log log = LogFactory.getLog(TokenResolutionContext.class);
+
+    private static final ThreadLocal<TokenResolutionContext> currentContext = new ThreadLocal<>();
+
+    private String token;
+    private AccessTokenDO accessTokenDO;
+    private String serviceProviderKey;
+    private ServiceProvider serviceProvider;
+    private String grantCacheToken;
+    private AuthorizationGrantCacheEntry grantCacheEntry;
+
+    /**
+     * Bind a new context to the current thread.
+     */
+    public static void start() {
+
+        currentContext.set(new TokenResolutionContext());
+        if (log.isDebugEnabled()) {
+            log.debug("Started a token resolution context.");
+        }
+    }
+
+    /**
+     * @return Context bound to the current thread, or null if there is none.
+     */
+    public static TokenResolutionContext get() {
+
+        return currentContext.get();
+    }
+
+    /**
+     * Release the context bound to the current thread.
+     */
+    public static void clear() {
+
+        currentContext.remove();
+    }
+
+    /**
+     * Get the authorization grant cache entry of an access token, reusing the entry already looked up in the current
+     * context.
+     *
+     * @param accessTokenIdentifier Access token identifier, as persisted.
+     * @return Cache entry, or null if there is none.
+     */
+    public static AuthorizationGrantCacheEntry getAuthorizationGrantCacheEntry(String accessTokenIdentifier) {
+
+        TokenResolutionContext context = currentContext.get();
+        if (context != null && StringUtils.equals(context.grantCacheToken, accessTokenIdentifier)) {
+            return context.grantCacheEntry;
+        }
+        AuthorizationGrantCacheEntry cacheEntry = AuthorizationGrantCache.getInstance()
+                .getValueFromCacheByToken(new AuthorizationGrantCacheKey(accessTokenIdentifier));
+        if (context != null) {
+            // A missing entry is kept as well, since it would be looked up from the session store again.
+            context.grantCacheToken = accessTokenIdentifier;
+            context.grantCacheEntry = cacheEntry;
+        }
+        return cacheEntry;
+    }
+
+    /**
+     * @param token Access token presented in the request.
+     * @return Access token DO resolved for the presented token, or null if it is not resolved yet.
+     */
+    public AccessTokenDO getAccessTokenDO(String token) {
+
+        return StringUtils.equals(this.token, token) ? accessTokenDO : null;
+    }
+
+    /**
+     * @param accessTokenIdentifier Access token identifier, as persisted.
+     * @return Access token DO resolved with the given identifier, or null if it is not resolved yet.
+     */
+    public AccessTokenDO getAccessTokenDOByIdentifier(String accessTokenIdentifier) {
+
+        if (accessTokenDO != null && StringUtils.equals(accessTokenDO.getAccessToken(), accessTokenIdentifier)) {
+            return accessTokenDO;
+        }
+        return null;
+    }
+
+    /**
+     * @param token         Access token presented in the request.
+     * @param accessTokenDO Active access token DO resolved for the presented token.
+     */
+    public void setAccessTokenDO(String token, AccessTokenDO accessTokenDO) {
+
+        this.token = token;
+        this.accessTokenDO = accessTokenDO;
+    }
+
+    /**
+     * @param clientId     Client id.
+     * @param tenantDomain Tenant domain of the service provider.
+     * @return Service provider looked up for the client, or null if it is not looked up yet.
+     */
+    public ServiceProvider getServiceProvider(String clientId, String tenantDomain) {
+
+        return StringUtils.equals(serviceProviderKey, getServiceProviderKey(clientId, tenantDomain)) ?
+                serviceProvider : null;
+    }
+
+    /**
+     * @param clientId        Client id.
+     * @param tenantDomain    Tenant domain of the service provider.
+     * @param serviceProvider Service provider of the client.
+     */
+    public void setServiceProvider(String clientId, String tenantDomain, ServiceProvider serviceProvider) {
+
+        this.serviceProviderKey = getServiceProviderKey(clientId, tenantDomain);
+        this.serviceProvider = serviceProvider;
+    }
+
+    private static String getServiceProviderKey(String clientId, String tenantDomain) {
+
+        return clientId + ":" + tenantDomain;
+    }
+}
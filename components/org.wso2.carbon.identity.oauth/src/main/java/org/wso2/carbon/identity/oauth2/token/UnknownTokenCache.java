@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node local, bounded negative cache of token identifiers for which no ACTIVE access token could be found.
+ * <p>
+ * Repeated validation requests for unknown, revoked or expired tokens are answered from this cache instead of
+ * walking every token issuer and hitting the database again. Entries are stored against the SHA-256 hash of the
+ * token identifier, so that received credentials are not retained in memory. Entries are bucketed by the cheap
+ * {@link String#hashCode()} of the identifier, so that the SHA-256 hash is only computed when a bucket exists, i.e.
+ * never on the lookup of a valid token which was not reported as unknown. The cache is backed by a
+ * {@link ConcurrentHashMap} and evicts approximately: once the capacity is exceeded, expired entries and then
+ * arbitrary entries are removed until the cache is below the capacity again.
+ * <p>
+ * The cache is intentionally not distributed: populating a cluster-wide cache on every miss would turn a flood of
+ * invalid tokens into a flood of cluster messages. The entry timeout bounds the window in which a token persisted by
+ * another node can be reported as unknown, so it should be kept short when asynchronous token persistence is enabled.
+ */
+public class UnknownTokenCache {
+
+    private static final Log log = LogFactory.getLog(UnknownTokenCache.class);
+
+    // These config properties are defined in identity.xml
+    private static final String UNKNOWN_TOKEN_CACHE_ENABLE = "OAuth.TokenValidation.UnknownTokenCache.Enable";
+    private static final String UNKNOWN_TOKEN_CACHE_CAPACITY = "OAuth.TokenValidation.UnknownTokenCache.Capacity";
+    private static final String UNKNOWN_TOKEN_CACHE_TIMEOUT = "OAuth.TokenValidation.UnknownTokenCache.Timeout";
+
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private static volatile UnknownTokenCache instance;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int evictionThreshold;
+    private final long timeoutMillis;
+    private final Map<Integer, UnknownToken> unknownTokens = new ConcurrentHashMap<>();
+
+    UnknownTokenCache(boolean enabled, int capacity, long timeoutMillis) {
+
+        this.enabled = enabled && capacity > 0 && timeoutMillis > 0;
+        this.capacity = capacity;
+        // Evicting a tenth of the capacity at once amortizes the eviction scan over the following insertions.
+        this.evictionThreshold = capacity - capacity / 10;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the UnknownTokenCache instance configured through identity.xml.
+     *
+     * @return UnknownTokenCache instance.
+     */
+    public static UnknownTokenCache getInstance() {
+
+        if (instance == null) {
+            synchronized (UnknownTokenCache.class) {
+                if (instance == null) {
+                    String enabledValue = IdentityUtil.getProperty(UNKNOWN_TOKEN_CACHE_ENABLE);
+                    boolean enabled = StringUtils.isBlank(enabledValue) || Boolean.parseBoolean(enabledValue.trim());
+                    instance = new UnknownTokenCache(enabled,
+                            (int) readLongProperty(UNKNOWN_TOKEN_CACHE_CAPACITY, DEFAULT_CAPACITY),
+                            readLongProperty(UNKNOWN_TOKEN_CACHE_TIMEOUT, DEFAULT_TIMEOUT_MILLIS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether the given token identifier was recently resolved to no ACTIVE access token.
+     *
+     * @param tokenIdentifier Token identifier.
+     * @return true if the token identifier is known to be unknown.
+     */
+    public boolean isUnknown(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return false;
+        }
+        Integer bucket = tokenIdentifier.hashCode();
+        UnknownToken unknownToken = unknownTokens.get(bucket);
+        if (unknownToken == null) {
+            return false;
+        }
+        if (unknownToken.expiryTime < System.currentTimeMillis()) {
+            unknownTokens.remove(bucket, unknownToken);
+            return false;
+        }
+        return unknownToken.tokenHash.equals(DigestUtils.sha256Hex(tokenIdentifier));
+    }
+
+    /**
+     * Record that no ACTIVE access token exists for the given token identifier.
+     *
+     * @param tokenIdentifier Token identifier.
+     */
+    public void addUnknownToken(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return;
+        }
+        Integer bucket = tokenIdentifier.hashCode();
+        // A colliding token replaces the existing entry of the bucket, which only costs a cache miss for the latter.
+        unknownTokens.put(bucket, new UnknownToken(DigestUtils.sha256Hex(tokenIdentifier),
+                System.currentTimeMillis() + timeoutMillis));
+        if (unknownTokens.size() > capacity) {
+            evict(bucket);
+        }
+    }
+
+    /**
+     * Remove the given token identifier from the cache, e.g. once the token has been persisted.
+     *
+     * @param tokenIdentifier Token identifier.
+     */
+    public void removeUnknownToken(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return;
+        }
+        // Removing the whole bucket avoids hashing on the token persistence path. At worst an entry of a colliding
+        // token is dropped, which only costs a cache miss for that token.
+        unknownTokens.remove(tokenIdentifier.hashCode());
+    }
+
+    /**
+     * Clear all the entries in the cache.
+     */
+    public void clear() {
+
+        unknownTokens.clear();
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public int size() {
+
+        return unknownTokens.size();
+    }
+
+    private void evict(Integer retainedBucket) {
+
+        long currentTime = System.currentTimeMillis();
+        unknownTokens.values().removeIf(unknownToken -> unknownToken.expiryTime < currentTime);
+        Iterator<Integer> buckets = unknownTokens.keySet().iterator();
+        while (unknownTokens.size() > evictionThreshold && buckets.hasNext()) {
+            Integer bucket = buckets.next();
+            if (!bucket.equals(retainedBucket)) {
+                buckets.remove();
+            }
+        }
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Cache entry holding the hash of an unknown token identifier and the time at which the entry expires.
+     */
+    private static class UnknownToken {
+
+        private final String tokenHash;
+        private final long expiryTime;
+
+        UnknownToken(String tokenHash, long expiryTime) {
+
+            this.tokenHash = tokenHash;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
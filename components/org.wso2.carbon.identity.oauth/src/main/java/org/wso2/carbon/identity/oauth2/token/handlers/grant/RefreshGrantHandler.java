@@ -49,6 +49,8 @@ import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinding;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenLockManagerFactory;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.sql.Timestamp;
@@ -112,21 +114,24 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
         }
 
         AccessTokenDO accessTokenBean = createAccessTokenBean(tokReqMsgCtx, tokenReq, validationBean);
-        persistNewToken(tokReqMsgCtx, accessTokenBean, tokenReq.getClientId());
-        if (log.isDebugEnabled()) {
-            log.debug("Persisted an access token for the refresh token, " +
-                    "Client ID : " + tokenReq.getClientId() +
-                    ", Authorized user : " + tokReqMsgCtx.getAuthorizedUser() +
-                    ", Timestamp : " + accessTokenBean.getIssuedTime() +
-                    ", Validity period (s) : " + accessTokenBean.getValidityPeriod() +
-                    ", Scope : " + OAuth2Util.buildScopeString(tokReqMsgCtx.getScope()) +
-                    ", Token State : " + OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE +
-                    " and User Type : " + getTokenType());
-        }
-
-        setTokenDataToMessageContext(tokReqMsgCtx, accessTokenBean);
-        addUserAttributesToCache(accessTokenBean, tokReqMsgCtx);
-        return buildTokenResponse(tokReqMsgCtx, accessTokenBean);
+        // Serialize with the other grants issuing tokens for the same client, user, scope and token binding.
+        try (TokenLock ignored = acquireTokenIssuanceLock(tokReqMsgCtx, tokenReq.getClientId(), validationBean)) {
+            persistNewToken(tokReqMsgCtx, accessTokenBean, tokenReq.getClientId());
+            if (log.isDebugEnabled()) {
+                log.debug("Persisted an access token for the refresh token, " +
+                        "Client ID : " + tokenReq.getClientId() +
+                        ", Authorized user : " + tokReqMsgCtx.getAuthorizedUser() +
+                        ", Timestamp : " + accessTokenBean.getIssuedTime() +
+                        ", Validity period (s) : " + accessTokenBean.getValidityPeriod() +
+                        ", Scope : " + OAuth2Util.buildScopeString(tokReqMsgCtx.getScope()) +
+                        ", Token State : " + OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE +
+                        " and User Type : " + getTokenType());
+            }
+
+            setTokenDataToMessageContext(tokReqMsgCtx, accessTokenBean);
+            addUserAttributesToCache(accessTokenBean, tokReqMsgCtx);
+            return buildTokenResponse(tokReqMsgCtx, accessTokenBean);
+        }
     }
 
     @Override
@@ -306,6 +311,22 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
         return tokenResp;
     }
 
+    private TokenLock acquireTokenIssuanceLock(OAuthTokenReqMessageContext tokReqMsgCtx, String clientId,
+                                               RefreshTokenValidationDataDO validationBean)
+            throws IdentityOAuth2Exception {
+
+        String userId;
+        try {
+            userId = tokReqMsgCtx.getAuthorizedUser().getUserId();
+        } catch (UserIdNotFoundException e) {
+            throw new IdentityOAuth2Exception("User id is not available for user: "
+                    + tokReqMsgCtx.getAuthorizedUser().getLoggableUserId(), e);
+        }
+        String tokenBindingReference = StringUtils.defaultIfBlank(validationBean.getTokenBindingReference(), NONE);
+        return TokenLockManagerFactory.getTokenIssuanceLockManager().acquire(clientId, userId,
+                OAuth2Util.buildScopeString(tokReqMsgCtx.getScope()), tokenBindingReference);
+    }
+
     private void persistNewToken(OAuthTokenReqMessageContext tokReqMsgCtx, AccessTokenDO accessTokenBean,
                                  String clientId) throws IdentityOAuth2Exception {
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.opensaml.xmlsec.signature.X509Digest;
+import org.opensaml.xmlsec.signature.X509IssuerSerial;
+import org.wso2.carbon.identity.application.common.model.CertificateInfo;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.util.X509CredentialImpl;
+
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Credentials built from the certificates of identity providers, used to validate the signature of SAML assertions.
+ * The certificates of an identity provider are decoded once and the credentials are reused until the certificates of
+ * the identity provider change, e.g. when the identity provider is updated.
+ * <p>
+ * The credentials of the certificate referred from the KeyInfo of the signature, by the certificate itself, its
+ * digest or its serial number, are returned first. The other credentials follow in the order of the certificates of
+ * the identity provider, so the signature is still validated against all of them if there is no such reference.
+ */
+public class IdPCertificateCredentialCache {
+
+    private static final Log log = LogFactory.getLog(IdPCertificateCredentialCache.class);
+
+    private static final String SHA1_DIGEST_ALGORITHM = "http://www.w3.org/2000/09/xmldsig#sha1";
+    private static final String SHA256_DIGEST_ALGORITHM = "http://www.w3.org/2001/04/xmlenc#sha256";
+    private static final int MAX_CACHED_IDENTITY_PROVIDERS = 1000;
+
+    private final Map<String, IdPCredentials> credentialsOfIdPs = new ConcurrentHashMap<>();
+
+    /**
+     * Get the credentials to validate a signature of an identity provider.
+     *
+     * @param identityProvider Identity provider.
+     * @param tenantDomain     Tenant domain of the identity provider.
+     * @param signature        Signature to be validated.
+     * @return Credentials in the order they should be tried.
+     */
+    public List<IdPCredential> getCredentials(IdentityProvider identityProvider, String tenantDomain,
+                                              Signature signature) {
+
+        CertificateInfo[] certificateInfos = identityProvider.getCertificateInfoArray();
+        String idpKey = tenantDomain + ":" + identityProvider.getIdentityProviderName();
+        IdPCredentials idpCredentials = credentialsOfIdPs.get(idpKey);
+        if (idpCredentials == null || !idpCredentials.isBuiltFrom(certificateInfos)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Building the credentials from the certificates of Identity Provider " +
+                        identityProvider.getIdentityProviderName() + " of tenant domain " + tenantDomain);
+            }
+            idpCredentials = buildCredentials(identityProvider, tenantDomain, certificateInfos);
+            if (credentialsOfIdPs.size() >= MAX_CACHED_IDENTITY_PROVIDERS) {
+                // Drop the credentials of deleted or renamed identity providers along with the others.
+                credentialsOfIdPs.clear();
+            }
+            credentialsOfIdPs.put(idpKey, idpCredentials);
+        }
+        return idpCredentials.getCredentials(signature);
+    }
+
+    private IdPCredentials buildCredentials(IdentityProvider identityProvider, String tenantDomain,
+                                            CertificateInfo[] certificateInfos) {
+
+        List<IdPCredential> credentials = new ArrayList<>(certificateInfos.length);
+        for (int index = 0; index < certificateInfos.length; index++) {
+            CertificateInfo certificateInfo = certificateInfos[index];
+            try {
+                X509Certificate x509Certificate = (X509Certificate) IdentityApplicationManagementUtil
+                        .decodeCertificate(certificateInfo.getCertValue());
+                credentials.add(new IdPCredential(index, certificateInfo.getThumbPrint(), x509Certificate));
+            } catch (CertificateException e) {
+                // The error is reported only if the signature is validated against this certificate, as the signature
+                // may be validated against a certificate preceding it.
+                credentials.add(new IdPCredential(index, certificateInfo.getThumbPrint(),
+                        "Error occurred while decoding public certificate with thumbprint " +
+                                certificateInfo.getThumbPrint() + " of Identity Provider " +
+                                identityProvider.getIdentityProviderName() + " for tenant domain " + tenantDomain, e));
+            }
+        }
+        return new IdPCredentials(certificateInfos, credentials);
+    }
+
+    /**
+     * Credential of a certificate of an identity provider.
+     */
+    public static class IdPCredential {
+
+        private final int index;
+        private final String thumbPrint;
+        private final X509Credential credential;
+        private final byte[] sha1Digest;
+        private final byte[] sha256Digest;
+        private final BigInteger serialNumber;
+        private final String decodingErrorMessage;
+        private final CertificateException decodingError;
+
+        IdPCredential(int index, String thumbPrint, String decodingErrorMessage, CertificateException decodingError) {
+
+            this.index = index;
+            this.thumbPrint = thumbPrint;
+            this.decodingErrorMessage = decodingErrorMessage;
+            this.decodingError = decodingError;
+            this.credential = null;
+            this.serialNumber = null;
+            this.sha1Digest = null;
+            this.sha256Digest = null;
+        }
+
+        IdPCredential(int index, String thumbPrint, X509Certificate certificate) {
+
+            this.index = index;
+            this.thumbPrint = thumbPrint;
+            this.decodingErrorMessage = null;
+            this.decodingError = null;
+            this.credential = new X509CredentialImpl(certificate);
+            this.serialNumber = certificate.getSerialNumber();
+
+            byte[] encodedCertificate = null;
+            try {
+                encodedCertificate = certificate.getEncoded();
+            } catch (CertificateEncodingException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to encode certificate " + thumbPrint + ". The certificate can not be " +
+                            "referred by its digest.", e);
+                }
+            }
+            this.sha1Digest = encodedCertificate == null ? null : DigestUtils.sha(encodedCertificate);
+            this.sha256Digest = encodedCertificate == null ? null : DigestUtils.sha256(encodedCertificate);
+        }
+
+        /**
+         * @return Index of the certificate in the certificates of the identity provider.
+         */
+        public int getIndex() {
+
+            return index;
+        }
+
+        /**
+         * @return Thumbprint of the certificate as configured in the identity provider.
+         */
+        public String getThumbPrint() {
+
+            return thumbPrint;
+        }
+
+        /**
+         * @return Credential of the certificate.
+         * @throws IdentityOAuth2Exception If the certificate could not be decoded.
+         */
+        public X509Credential getCredential() throws IdentityOAuth2Exception {
+
+            if (decodingError != null) {
+                throw new IdentityOAuth2Exception(decodingErrorMessage, decodingError);
+            }
+            return credential;
+        }
+
+        private boolean hasDigest(String algorithm, byte[] digest) {
+
+            if (SHA256_DIGEST_ALGORITHM.equals(algorithm)) {
+                return sha256Digest != null && Arrays.equals(sha256Digest, digest);
+            }
+            if (SHA1_DIGEST_ALGORITHM.equals(algorithm)) {
+                return sha1Digest != null && Arrays.equals(sha1Digest, digest);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Credentials of all the certificates of an identity provider.
+     */
+    private static class IdPCredentials {
+
+        private final String[] certValues;
+        private final List<IdPCredential> credentials;
+
+        IdPCredentials(CertificateInfo[] certificateInfos, List<IdPCredential> credentials) {
+
+            this.certValues = new String[certificateInfos.length];
+            for (int i = 0; i < certificateInfos.length; i++) {
+                certValues[i] = certificateInfos[i].getCertValue();
+            }
+            this.credentials = Collections.unmodifiableList(credentials);
+        }
+
+        boolean isBuiltFrom(CertificateInfo[] certificateInfos) {
+
+            if (certificateInfos.length != certValues.length) {
+                return false;
+            }
+            for (int i = 0; i < certificateInfos.length; i++) {
+                if (!StringUtils.equals(certificateInfos[i].getCertValue(), certValues[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<IdPCredential> getCredentials(Signature signature) {
+
+            KeyInfo keyInfo = signature == null ? null : signature.getKeyInfo();
+            if (keyInfo == null || credentials.size() < 2) {
+                return credentials;
+            }
+            Set<IdPCredential> orderedCredentials = new LinkedHashSet<>();
+            for (X509Data x509Data : keyInfo.getX509Datas()) {
+                for (org.opensaml.xmlsec.signature.X509Certificate certificate : x509Data.getX509Certificates()) {
+                    if (StringUtils.isNotBlank(certificate.getValue())) {
+                        addReferred(orderedCredentials, SHA256_DIGEST_ALGORITHM,
+                                DigestUtils.sha256(Base64.decodeBase64(certificate.getValue())));
+                    }
+                }
+                for (X509Digest digest : x509Data.getX509Digests()) {
+                    if (StringUtils.isNotBlank(digest.getValue())) {
+                        addReferred(orderedCredentials, digest.getAlgorithm(),
+                                Base64.decodeBase64(digest.getValue()));
+                    }
+                }
+                for (X509IssuerSerial issuerSerial : x509Data.getX509IssuerSerials()) {
+                    if (issuerSerial.getX509SerialNumber() != null) {
+                        addReferred(orderedCredentials, issuerSerial.getX509SerialNumber().getValue());
+                    }
+                }
+            }
+            if (orderedCredentials.isEmpty()) {
+                return credentials;
+            }
+            orderedCredentials.addAll(credentials);
+            return new ArrayList<>(orderedCredentials);
+        }
+
+        private void addReferred(Set<IdPCredential> orderedCredentials, String algorithm, byte[] digest) {
+
+            for (IdPCredential credential : credentials) {
+                if (credential.hasDigest(algorithm, digest)) {
+                    orderedCredentials.add(credential);
+                }
+            }
+        }
+
+        private void addReferred(Set<IdPCredential> orderedCredentials, BigInteger serialNumber) {
+
+            for (IdPCredential credential : credentials) {
+                if (serialNumber != null && serialNumber.equals(credential.serialNumber)) {
+                    orderedCredentials.add(credential);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SAMLAssertionReplayStore} which keeps the used assertions in the memory of a node.
+ * <p>
+ * Assertions are expired with a time wheel. Each slot of the wheel holds the assertions which expire in a tick of
+ * the wheel, and the slots of the ticks passed since the last request are swept by the first request of a new tick.
+ * An assertion which expires after a full turn of the wheel stays in its slot until the sweep after its expiry. The
+ * number of assertions is bounded, and new assertions are rejected rather than letting a used assertion be forgotten
+ * before its expiry.
+ */
+public class InMemorySAMLAssertionReplayStore implements SAMLAssertionReplayStore {
+
+    private static final Log log = LogFactory.getLog(InMemorySAMLAssertionReplayStore.class);
+
+    private final int maxEntries;
+    private final long tickMillis;
+    private final Map<String, Long> expiryTimes = new ConcurrentHashMap<>();
+    private final Set<String>[] wheel;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private volatile long sweptTick;
+
+    /**
+     * @param maxEntries Maximum number of assertions kept.
+     * @param wheelSize  Number of slots of the time wheel.
+     * @param tickMillis Time in milliseconds covered by a slot of the time wheel.
+     */
+    @SuppressWarnings("unchecked")
+    public InMemorySAMLAssertionReplayStore(int maxEntries, int wheelSize, long tickMillis) {
+
+        this.maxEntries = Math.max(1, maxEntries);
+        this.tickMillis = Math.max(1, tickMillis);
+        this.wheel = new Set[Math.max(1, wheelSize)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new HashSet<>();
+        }
+        this.sweptTick = System.currentTimeMillis() / this.tickMillis;
+    }
+
+    @Override
+    public boolean markAsUsed(String assertionKey, long expiryTime) throws IdentityOAuth2Exception {
+
+        long currentTime = System.currentTimeMillis();
+        sweep(currentTime);
+
+        while (true) {
+            Long usedUntil = expiryTimes.get(assertionKey);
+            if (usedUntil != null) {
+                if (usedUntil > currentTime) {
+                    return false;
+                }
+                // The assertion was used earlier but has expired and is not swept yet.
+                if (expiryTimes.replace(assertionKey, usedUntil, expiryTime)) {
+                    break;
+                }
+                continue;
+            }
+            if (expiryTimes.size() >= maxEntries) {
+                log.warn("SAML assertion replay store is full with " + maxEntries + " assertions.");
+                throw new IdentityOAuth2Exception("Unable to record the SAML assertion to detect replays.");
+            }
+            if (expiryTimes.putIfAbsent(assertionKey, expiryTime) == null) {
+                break;
+            }
+        }
+
+        // The slot of the tick after the expiry time is swept only after the assertion expires.
+        Set<String> slot = wheel[(int) ((expiryTime / tickMillis + 1) % wheel.length)];
+        synchronized (slot) {
+            slot.add(assertionKey);
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of assertions kept.
+     */
+    public int size() {
+
+        return expiryTimes.size();
+    }
+
+    private void sweep(long currentTime) {
+
+        long currentTick = currentTime / tickMillis;
+        if (currentTick <= sweptTick || !sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            // A slot is swept at most once, even if more than a full turn of the wheel has passed.
+            for (long tick = Math.max(sweptTick + 1, currentTick - wheel.length + 1); tick <= currentTick; tick++) {
+                sweepSlot(wheel[(int) (tick % wheel.length)], currentTime);
+            }
+            sweptTick = currentTick;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void sweepSlot(Set<String> slot, long currentTime) {
+
+        synchronized (slot) {
+            Iterator<String> assertionKeys = slot.iterator();
+            while (assertionKeys.hasNext()) {
+                String assertionKey = assertionKeys.next();
+                Long usedUntil = expiryTimes.get(assertionKey);
+                if (usedUntil == null) {
+                    assertionKeys.remove();
+                } else if (usedUntil <= currentTime) {
+                    expiryTimes.remove(assertionKey, usedUntil);
+                    assertionKeys.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SAMLAssertionReplayStore} which shares the used assertions between the nodes of a cluster through the
+ * database.
+ * <p>
+ * An assertion is first recorded in the memory of the node, so an assertion replayed to the same node is rejected
+ * without a database call. It is then inserted to the IDN_OAUTH2_SAML_ASSERTION table, whose primary key rejects an
+ * assertion used on another node. Expired assertions are deleted by the first request after each sweep interval. The
+ * table is expected to exist:
+ * <pre>
+ * CREATE TABLE IDN_OAUTH2_SAML_ASSERTION (
+ *     ASSERTION_KEY VARCHAR (64) NOT NULL,
+ *     EXPIRY_TIME BIGINT NOT NULL,
+ *     PRIMARY KEY (ASSERTION_KEY)
+ * );
+ * CREATE INDEX IDX_SAML_ASSERTION_EXPIRY ON IDN_OAUTH2_SAML_ASSERTION (EXPIRY_TIME);
+ * </pre>
+ */
+public class JDBCSAMLAssertionReplayStore implements SAMLAssertionReplayStore {
+
+    private static final Log log = LogFactory.getLog(JDBCSAMLAssertionReplayStore.class);
+
+    private static final String INSERT_ASSERTION = "INSERT INTO IDN_OAUTH2_SAML_ASSERTION (ASSERTION_KEY, " +
+            "EXPIRY_TIME) VALUES (?, ?)";
+    private static final String RENEW_EXPIRED_ASSERTION = "UPDATE IDN_OAUTH2_SAML_ASSERTION SET EXPIRY_TIME = ? " +
+            "WHERE ASSERTION_KEY = ? AND EXPIRY_TIME <= ?";
+    private static final String DELETE_EXPIRED_ASSERTIONS = "DELETE FROM IDN_OAUTH2_SAML_ASSERTION WHERE " +
+            "EXPIRY_TIME <= ?";
+
+    private final InMemorySAMLAssertionReplayStore localStore;
+    private final long sweepIntervalMillis;
+    private final AtomicLong nextSweepTime;
+
+    /**
+     * @param localStore          Store of the assertions used on this node.
+     * @param sweepIntervalMillis Time in milliseconds between deletions of the expired assertions.
+     */
+    public JDBCSAMLAssertionReplayStore(InMemorySAMLAssertionReplayStore localStore, long sweepIntervalMillis) {
+
+        this.localStore = localStore;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.nextSweepTime = new AtomicLong(System.currentTimeMillis() + sweepIntervalMillis);
+    }
+
+    @Override
+    public boolean markAsUsed(String assertionKey, long expiryTime) throws IdentityOAuth2Exception {
+
+        if (!localStore.markAsUsed(assertionKey, expiryTime)) {
+            return false;
+        }
+        long currentTime = System.currentTimeMillis();
+        deleteExpiredAssertions(currentTime);
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try {
+                insertAssertion(connection, assertionKey, expiryTime);
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return true;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                if (!isDuplicateAssertion(e)) {
+                    throw e;
+                }
+            }
+            // The assertion was used on another node, or was used earlier and is not deleted yet.
+            boolean renewed = renewExpiredAssertion(connection, assertionKey, expiryTime, currentTime);
+            IdentityDatabaseUtil.commitTransaction(connection);
+            if (!renewed && log.isDebugEnabled()) {
+                log.debug("SAML assertion: " + assertionKey + " was used on another node.");
+            }
+            return renewed;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while recording the SAML assertion: " + assertionKey, e);
+        }
+    }
+
+    private void insertAssertion(Connection connection, String assertionKey, long expiryTime) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_ASSERTION)) {
+            prepStmt.setString(1, assertionKey);
+            prepStmt.setLong(2, expiryTime);
+            prepStmt.executeUpdate();
+        }
+    }
+
+    private boolean renewExpiredAssertion(Connection connection, String assertionKey, long expiryTime,
+                                          long currentTime) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(RENEW_EXPIRED_ASSERTION)) {
+            prepStmt.setLong(1, expiryTime);
+            prepStmt.setString(2, assertionKey);
+            prepStmt.setLong(3, currentTime);
+            return prepStmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Expired assertions are deleted by a single node at a time, which claims the sweep by moving the next sweep time.
+     * A failure is only logged, since the expired assertions are deleted by the next sweep.
+     */
+    private void deleteExpiredAssertions(long currentTime) {
+
+        long sweepTime = nextSweepTime.get();
+        if (currentTime < sweepTime || !nextSweepTime.compareAndSet(sweepTime, currentTime + sweepIntervalMillis)) {
+            return;
+        }
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+             PreparedStatement prepStmt = connection.prepareStatement(DELETE_EXPIRED_ASSERTIONS)) {
+            prepStmt.setLong(1, currentTime);
+            int deleted = prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+            if (log.isDebugEnabled()) {
+                log.debug("Deleted " + deleted + " expired SAML assertions.");
+            }
+        } catch (SQLException e) {
+            log.error("Error while deleting the expired SAML assertions.", e);
+        }
+    }
+
+    private boolean isDuplicateAssertion(SQLException e) {
+
+        // Constraint violations of JDBC drivers which don't throw SQLIntegrityConstraintViolationException have the
+        // integrity constraint violation SQL state class.
+        return e instanceof SQLIntegrityConstraintViolationException || StringUtils.startsWith(e.getSQLState(), "23");
+    }
+}
@@ -19,6 +19,7 @@
 package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -121,6 +122,7 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
     public static final String SECURITY_SAML_SIGN_KEY_STORE_KEY_PASSWORD = "Security.SAMLSignKeyStore.KeyPassword";
 
     SAMLSignatureProfileValidator profileValidator = null;
+    private final IdPCertificateCredentialCache idpCredentialCache = new IdPCertificateCredentialCache();
 
     @Override
     public void init() throws IdentityOAuth2Exception {
@@ -186,6 +188,7 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
         long timestampSkewInMillis = OAuthServerConfiguration.getInstance().getTimeStampSkewInSeconds() * 1000;
         validateAssertionTimeWindow(timestampSkewInMillis, getNotOnOrAfter(assertion), getNotBefore(assertion));
         processSubjectConfirmation(tokReqMsgCtx, assertion, identityProvider, tenantDomain, timestampSkewInMillis);
+        validateAssertionNotReplayed(tokReqMsgCtx, assertion, timestampSkewInMillis);
 
         /*
           The authorization server MUST verify that the Assertion is valid in all other respects per
@@ -387,6 +390,31 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
         }
     }
 
+    /**
+     * Reject an Assertion whose ID was already used, if a replay store is configured. The ID is kept until the
+     * applicable NotOnOrAfter instant, subject to allowable clock skew, has passed.
+     * @param tokReqMsgCtx
+     * @param assertion
+     * @param timestampSkewInMillis
+     * @throws IdentityOAuth2Exception
+     */
+    private void validateAssertionNotReplayed(OAuthTokenReqMessageContext tokReqMsgCtx, Assertion assertion,
+                                              long timestampSkewInMillis) throws IdentityOAuth2Exception {
+
+        SAMLAssertionReplayStore replayStore = SAMLAssertionReplayStoreFactory.getReplayStore();
+        if (replayStore == null) {
+            return;
+        }
+        if (StringUtils.isBlank(assertion.getID())) {
+            throw new IdentityOAuth2Exception("Assertion does not have an ID to detect replays");
+        }
+        long expiryTime = System.currentTimeMillis() + tokReqMsgCtx.getValidityPeriod() + timestampSkewInMillis;
+        String assertionKey = DigestUtils.sha256Hex(assertion.getIssuer().getValue() + "\n" + assertion.getID());
+        if (!replayStore.markAsUsed(assertionKey, expiryTime)) {
+            throw new IdentityOAuth2Exception("Assertion with ID: " + assertion.getID() + " has already been used");
+        }
+    }
+
     /**
      * The <Subject> element MUST contain at least one <SubjectConfirmation> element that allows the authorization
      * server to confirm it as a Bearer Assertion.  Such a <SubjectConfirmation> element MUST have a Method attribute
@@ -567,24 +595,23 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
             thread.setContextClassLoader(SignatureValidationProvider.class.getClassLoader());
 
             try {
-                int index = 0;
-                for (CertificateInfo certificateInfo : certificateInfos) {
-                    X509Certificate x509Certificate = getIdpCertificate(tenantDomain, identityProvider,
-                            certificateInfo);
-                    X509Credential x509Credential = new X509CredentialImpl(x509Certificate);
+                List<IdPCertificateCredentialCache.IdPCredential> idpCredentials =
+                        idpCredentialCache.getCredentials(identityProvider, tenantDomain, assertion.getSignature());
+                for (IdPCertificateCredentialCache.IdPCredential idpCredential : idpCredentials) {
+                    X509Credential x509Credential = idpCredential.getCredential();
 
                     try {
                         if (log.isDebugEnabled()) {
-                            log.debug("Validating the signature with certificate " + certificateInfo.getThumbPrint()
-                                    + " at index: " + index);
+                            log.debug("Validating the signature with certificate " + idpCredential.getThumbPrint()
+                                    + " at index: " + idpCredential.getIndex());
                         }
                         SignatureValidator.validate(assertion.getSignature(), x509Credential);
                         isExceptionThrown = false;
                         break;
                     } catch (SignatureException e) {
                         if (log.isDebugEnabled()) {
-                            log.debug("Signature validation failed with certificate " + certificateInfo.getThumbPrint()
-                                    + " at index: " + index);
+                            log.debug("Signature validation failed with certificate " + idpCredential.getThumbPrint()
+                                    + " at index: " + idpCredential.getIndex());
                         }
                         isExceptionThrown = true;
                         if (signatureException == null) {
@@ -593,7 +620,6 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
                             signatureException.addSuppressed(e);
                         }
                     }
-                    index++;
                 }
                 // If all the certification validation fails, then throw the exception.
                 if (isExceptionThrown) {
@@ -608,21 +634,6 @@ public class SAML2BearerGrantHandler extends AbstractAuthorizationGrantHandler {
         }
     }
 
-    private X509Certificate getIdpCertificate(String tenantDomain, IdentityProvider identityProvider,
-                                              CertificateInfo certificateInfo) throws IdentityOAuth2Exception {
-
-        X509Certificate x509Certificate;
-        try {
-            x509Certificate = (X509Certificate) IdentityApplicationManagementUtil
-                    .decodeCertificate(certificateInfo.getCertValue());
-        } catch (CertificateException e) {
-            throw new IdentityOAuth2Exception("Error occurred while decoding public certificate with thumbprint " +
-                    certificateInfo.getThumbPrint() + " of Identity Provider " +
-                    identityProvider.getIdentityProviderName() + " for tenant domain " + tenantDomain, e);
-        }
-        return x509Certificate;
-    }
-
     /**
      * The Assertion MUST be digitally signed by the issuer and the authorization server MUST verify the signature.
      * @param assertion
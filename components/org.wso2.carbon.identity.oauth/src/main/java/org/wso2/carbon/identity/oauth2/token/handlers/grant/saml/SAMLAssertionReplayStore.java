@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * Keeps the used SAML bearer assertions for the length of time they would be considered valid, so a replayed
+ * assertion can be rejected.
+ */
+public interface SAMLAssertionReplayStore {
+
+    /**
+     * Record an assertion as used, unless it was already used.
+     *
+     * @param assertionKey Key of the assertion, derived from its issuer and ID.
+     * @param expiryTime   Time in milliseconds until which the assertion has to be remembered.
+     * @return True if the assertion was recorded, false if it was already used.
+     * @throws IdentityOAuth2Exception If the assertion could not be recorded.
+     */
+    boolean markAsUsed(String assertionKey, long expiryTime) throws IdentityOAuth2Exception;
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+/**
+ * Provides the {@link SAMLAssertionReplayStore} configured through identity.xml. Replayed SAML bearer assertions are
+ * not detected unless the store is enabled.
+ */
+public class SAMLAssertionReplayStoreFactory {
+
+    private static final Log log = LogFactory.getLog(SAMLAssertionReplayStoreFactory.class);
+
+    // These config properties are defined in identity.xml
+    private static final String REPLAY_STORE_ENABLE = "OAuth.SAML2Grant.AssertionReplayStore.Enable";
+    private static final String REPLAY_STORE_MODE = "OAuth.SAML2Grant.AssertionReplayStore.Mode";
+    private static final String REPLAY_STORE_MAX_ENTRIES = "OAuth.SAML2Grant.AssertionReplayStore.MaxEntries";
+    private static final String REPLAY_STORE_SWEEP_INTERVAL = "OAuth.SAML2Grant.AssertionReplayStore.SweepInterval";
+
+    private static final String LOCAL_MODE = "local";
+    private static final String JDBC_MODE = "jdbc";
+    private static final long DEFAULT_MAX_ENTRIES = 100000;
+    private static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60000;
+    private static final int WHEEL_SIZE = 512;
+    private static final long WHEEL_TICK_MILLIS = 1000;
+
+    private static volatile SAMLAssertionReplayStore replayStore;
+
+    private SAMLAssertionReplayStoreFactory() {
+
+    }
+
+    /**
+     * Get the configured replay store.
+     *
+     * @return Replay store, or null if replayed assertions are not detected.
+     */
+    public static SAMLAssertionReplayStore getReplayStore() {
+
+        if (replayStore == null) {
+            if (!Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(REPLAY_STORE_ENABLE)))) {
+                return null;
+            }
+            synchronized (SAMLAssertionReplayStoreFactory.class) {
+                if (replayStore == null) {
+                    replayStore = createReplayStore();
+                }
+            }
+        }
+        return replayStore;
+    }
+
+    private static SAMLAssertionReplayStore createReplayStore() {
+
+        int maxEntries = (int) Math.min(Integer.MAX_VALUE, readLongProperty(REPLAY_STORE_MAX_ENTRIES,
+                DEFAULT_MAX_ENTRIES));
+        InMemorySAMLAssertionReplayStore localStore =
+                new InMemorySAMLAssertionReplayStore(maxEntries, WHEEL_SIZE, WHEEL_TICK_MILLIS);
+        String mode = StringUtils.defaultIfBlank(IdentityUtil.getProperty(REPLAY_STORE_MODE), LOCAL_MODE).trim();
+
+        if (JDBC_MODE.equalsIgnoreCase(mode)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Using the database to detect replayed SAML assertions.");
+            }
+            return new JDBCSAMLAssertionReplayStore(localStore,
+                    readLongProperty(REPLAY_STORE_SWEEP_INTERVAL, DEFAULT_SWEEP_INTERVAL_MILLIS));
+        }
+        if (!LOCAL_MODE.equalsIgnoreCase(mode)) {
+            log.warn("Invalid SAML assertion replay store mode: " + mode + " configured for: " + REPLAY_STORE_MODE +
+                    ". Using the default mode: " + LOCAL_MODE);
+        }
+        return localStore;
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+}
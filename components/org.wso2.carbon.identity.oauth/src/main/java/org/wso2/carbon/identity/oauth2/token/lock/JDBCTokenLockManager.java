@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link TokenLockManager} which coordinates the nodes of a cluster through lease rows in the database.
+ * <p>
+ * Each lock stripe is a row of the IDN_OAUTH2_TOKEN_LOCK table. A node holds the lock of a stripe by inserting the
+ * row with an expiry time, and releases it by deleting the row. Every statement runs on a connection of its own, so
+ * no database connection or row lock is held while the lock is held. A lease which outlives its expiry time, e.g.
+ * because the node holding it went down, is deleted by the next node waiting for the stripe. Hence the lease
+ * duration must be longer than any work done under the lock, and the clocks of the nodes must be kept in sync.
+ * A node first acquires its local stripe lock, so at most one thread of a node competes for a lease row.
+ * The table is expected to exist:
+ * <pre>
+ * CREATE TABLE IDN_OAUTH2_TOKEN_LOCK (
+ *     LOCK_NAME VARCHAR (64) NOT NULL,
+ *     STRIPE_ID INTEGER NOT NULL,
+ *     LOCK_OWNER VARCHAR (64) NOT NULL,
+ *     EXPIRY_TIME BIGINT NOT NULL,
+ *     PRIMARY KEY (LOCK_NAME, STRIPE_ID)
+ * );
+ * </pre>
+ */
+public class JDBCTokenLockManager extends StripedTokenLockManager {
+
+    private static final Log log = LogFactory.getLog(JDBCTokenLockManager.class);
+
+    private static final String INSERT_LEASE = "INSERT INTO IDN_OAUTH2_TOKEN_LOCK (LOCK_NAME, STRIPE_ID, LOCK_OWNER, " +
+            "EXPIRY_TIME) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_EXPIRED_LEASE = "DELETE FROM IDN_OAUTH2_TOKEN_LOCK WHERE LOCK_NAME = ? AND " +
+            "STRIPE_ID = ? AND EXPIRY_TIME < ?";
+    private static final String DELETE_LEASE = "DELETE FROM IDN_OAUTH2_TOKEN_LOCK WHERE LOCK_NAME = ? AND " +
+            "STRIPE_ID = ? AND LOCK_OWNER = ?";
+
+    // SQL state class of integrity constraint violations, raised when another node holds the lease.
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+    private static final long MIN_RETRY_INTERVAL_MILLIS = 5;
+    private static final long MAX_RETRY_INTERVAL_MILLIS = 200;
+
+    private final String lockName;
+    private final long leaseDurationMillis;
+
+    /**
+     * @param lockName            Name of the lock, which separates the rows of different lock managers.
+     * @param stripeCount         Number of lock stripes. Rounded up to the next power of two.
+     * @param timeoutMillis       Maximum time to wait for a lock.
+     * @param leaseDurationMillis Time after which a lease which was not released may be taken over by another node.
+     */
+    public JDBCTokenLockManager(String lockName, int stripeCount, long timeoutMillis, long leaseDurationMillis) {
+
+        super(stripeCount, timeoutMillis);
+        this.lockName = lockName;
+        this.leaseDurationMillis = leaseDurationMillis;
+    }
+
+    @Override
+    public TokenLock acquire(String... keyParts) throws IdentityOAuth2Exception {
+
+        int stripe = getStripe(keyParts);
+        ReentrantLock localLock = getStripeLock(stripe);
+        lockStripe(localLock);
+        if (localLock.getHoldCount() > 1) {
+            // The lease is already held by this thread.
+            return localLock::unlock;
+        }
+
+        String owner = UUID.randomUUID().toString();
+        try {
+            acquireLease(stripe, owner);
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            localLock.unlock();
+            throw e;
+        }
+        return () -> {
+            try {
+                releaseLease(stripe, owner);
+            } finally {
+                localLock.unlock();
+            }
+        };
+    }
+
+    /**
+     * @return Time after which a lease which was not released may be taken over by another node, in milliseconds.
+     */
+    public long getLeaseDurationMillis() {
+
+        return leaseDurationMillis;
+    }
+
+    private void acquireLease(int stripe, String owner) throws IdentityOAuth2Exception {
+
+        long deadline = System.currentTimeMillis() + getTimeoutMillis();
+        long retryInterval = MIN_RETRY_INTERVAL_MILLIS;
+        while (true) {
+            try {
+                if (insertLease(stripe, owner)) {
+                    return;
+                }
+                if (deleteExpiredLease(stripe)) {
+                    // The previous holder did not release the lease in time, hence retry right away.
+                    continue;
+                }
+            } catch (SQLException e) {
+                throw new IdentityOAuth2Exception("Error while acquiring the token lock: " + lockName, e);
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                getMetrics().recordTimeout();
+                if (log.isDebugEnabled()) {
+                    log.debug("Timed out after " + getTimeoutMillis() + "ms while waiting for the token lock: " +
+                            lockName + " and stripe: " + stripe);
+                }
+                throw new IdentityOAuth2Exception("Timed out while waiting for the token lock.");
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.min(retryInterval, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdentityOAuth2Exception("Interrupted while waiting for the token lock.", e);
+            }
+            retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * @return true if the lease was inserted, false if another node holds the lease.
+     */
+    private boolean insertLease(int stripe, String owner) throws SQLException {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_LEASE)) {
+                prepStmt.setString(1, lockName);
+                prepStmt.setInt(2, stripe);
+                prepStmt.setString(3, owner);
+                prepStmt.setLong(4, System.currentTimeMillis() + leaseDurationMillis);
+                prepStmt.executeUpdate();
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return true;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private boolean deleteExpiredLease(int stripe) throws SQLException {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+             PreparedStatement prepStmt = connection.prepareStatement(DELETE_EXPIRED_LEASE)) {
+            prepStmt.setString(1, lockName);
+            prepStmt.setInt(2, stripe);
+            prepStmt.setLong(3, System.currentTimeMillis());
+            int deleted = prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+            if (deleted > 0) {
+                log.warn("Took over an expired lease of the token lock: " + lockName + " and stripe: " + stripe +
+                        ". The lease duration may be shorter than the work done under the lock.");
+            }
+            return deleted > 0;
+        }
+    }
+
+    private void releaseLease(int stripe, String owner) {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+             PreparedStatement prepStmt = connection.prepareStatement(DELETE_LEASE)) {
+            prepStmt.setString(1, lockName);
+            prepStmt.setInt(2, stripe);
+            prepStmt.setString(3, owner);
+            int deleted = prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+            if (deleted == 0) {
+                log.warn("Lease of the token lock: " + lockName + " and stripe: " + stripe + " expired before it " +
+                        "was released.");
+            }
+        } catch (SQLException e) {
+            // The lease expires on its own, hence the lock is not lost.
+            log.error("Error while releasing the token lock: " + lockName + " and stripe: " + stripe, e);
+        }
+    }
+}
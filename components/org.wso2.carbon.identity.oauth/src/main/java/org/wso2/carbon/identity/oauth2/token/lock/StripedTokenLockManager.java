@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node local {@link TokenLockManager} backed by a fixed number of lock stripes.
+ * <p>
+ * A key is mapped to a stripe by its hash, so the memory used does not grow with the number of distinct keys, unlike
+ * synchronizing on interned key strings. The locks are reentrant, so a thread may acquire the lock of a key it
+ * already holds.
+ */
+public class StripedTokenLockManager implements TokenLockManager {
+
+    private static final Log log = LogFactory.getLog(StripedTokenLockManager.class);
+
+    private static final int MAX_STRIPE_COUNT = 1 << 16;
+
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final long timeoutMillis;
+    private final TokenLockMetrics metrics = new TokenLockMetrics();
+
+    /**
+     * @param stripeCount   Number of lock stripes. Rounded up to the next power of two.
+     * @param timeoutMillis Maximum time to wait for a lock.
+     */
+    public StripedTokenLockManager(int stripeCount, long timeoutMillis) {
+
+        int size = 1;
+        while (size < stripeCount && size < MAX_STRIPE_COUNT) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public TokenLock acquire(String... keyParts) throws IdentityOAuth2Exception {
+
+        ReentrantLock lock = stripes[getStripe(keyParts)];
+        lockStripe(lock);
+        return lock::unlock;
+    }
+
+    @Override
+    public TokenLockMetrics getMetrics() {
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of lock stripes.
+     */
+    public int getStripeCount() {
+
+        return stripes.length;
+    }
+
+    /**
+     * @return Maximum time to wait for a lock, in milliseconds.
+     */
+    public long getTimeoutMillis() {
+
+        return timeoutMillis;
+    }
+
+    int getStripe(String... keyParts) {
+
+        int hash = Arrays.hashCode(keyParts);
+        // Spread the higher bits, since only the lower bits select the stripe.
+        hash ^= (hash >>> 16);
+        return hash & stripeMask;
+    }
+
+    ReentrantLock getStripeLock(int stripe) {
+
+        return stripes[stripe];
+    }
+
+    void lockStripe(ReentrantLock lock) throws IdentityOAuth2Exception {
+
+        if (lock.tryLock()) {
+            metrics.recordAcquired();
+            return;
+        }
+
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdentityOAuth2Exception("Interrupted while waiting for the token lock.", e);
+        }
+        if (!acquired) {
+            metrics.recordTimeout();
+            if (log.isDebugEnabled()) {
+                log.debug("Timed out after " + timeoutMillis + "ms while waiting for the token lock.");
+            }
+            throw new IdentityOAuth2Exception("Timed out while waiting for the token lock.");
+        }
+        metrics.recordContendedAcquired(System.nanoTime() - waitStart);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * Serializes the token operations on the same client, user, scope and token binding, e.g. looking up an active
+ * token and issuing a new one when there is none.
+ * <p>
+ * A lock is identified by its key parts. Different keys may share a lock, so a caller must not wait on anything
+ * held by another thread while holding a lock of the same manager.
+ */
+public interface TokenLockManager {
+
+    /**
+     * Acquire the lock of the given key, waiting up to the configured timeout.
+     *
+     * @param keyParts Parts of the lock key, e.g. client id, user id, scope and token binding reference.
+     * @return Acquired lock, which has to be closed to release it.
+     * @throws IdentityOAuth2Exception If the lock could not be acquired within the timeout.
+     */
+    TokenLock acquire(String... keyParts) throws IdentityOAuth2Exception;
+
+    /**
+     * Get the lock metrics.
+     *
+     * @return Lock metrics.
+     */
+    TokenLockMetrics getMetrics();
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the {@link TokenLockManager}s configured through identity.xml.
+ * <p>
+ * Lock managers are separated by name, so locks of different names never share a stripe. When locks of two names
+ * are nested, they must always be acquired in the same order, e.g. the CIBA authentication request lock before the
+ * token issuance lock.
+ */
+public class TokenLockManagerFactory {
+
+    private static final Log log = LogFactory.getLog(TokenLockManagerFactory.class);
+
+    public static final String TOKEN_ISSUANCE_LOCK = "TokenIssuance";
+    public static final String CIBA_AUTH_REQUEST_LOCK = "CibaAuthRequest";
+
+    // These config properties are defined in identity.xml
+    private static final String TOKEN_LOCK_MODE = "OAuth.TokenLock.Mode";
+    private static final String TOKEN_LOCK_STRIPE_COUNT = "OAuth.TokenLock.StripeCount";
+    private static final String TOKEN_LOCK_TIMEOUT = "OAuth.TokenLock.Timeout";
+    private static final String TOKEN_LOCK_LEASE_DURATION = "OAuth.TokenLock.LeaseDuration";
+
+    private static final String LOCAL_MODE = "local";
+    private static final String JDBC_MODE = "jdbc";
+    private static final int DEFAULT_STRIPE_COUNT = 1024;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    private static final long DEFAULT_LEASE_DURATION_MILLIS = 60000;
+
+    private static final Map<String, TokenLockManager> lockManagers = new ConcurrentHashMap<>();
+
+    private TokenLockManagerFactory() {
+
+    }
+
+    /**
+     * Get the lock manager which serializes token issuance for a client, user, scope and token binding.
+     *
+     * @return Token issuance lock manager.
+     */
+    public static TokenLockManager getTokenIssuanceLockManager() {
+
+        return getLockManager(TOKEN_ISSUANCE_LOCK);
+    }
+
+    /**
+     * Get the lock manager of the given name.
+     *
+     * @param lockName Lock name.
+     * @return Lock manager.
+     */
+    public static TokenLockManager getLockManager(String lockName) {
+
+        return lockManagers.computeIfAbsent(lockName, TokenLockManagerFactory::createLockManager);
+    }
+
+    private static TokenLockManager createLockManager(String lockName) {
+
+        int stripeCount = (int) readLongProperty(TOKEN_LOCK_STRIPE_COUNT, DEFAULT_STRIPE_COUNT);
+        long timeoutMillis = readLongProperty(TOKEN_LOCK_TIMEOUT, DEFAULT_TIMEOUT_MILLIS);
+        String mode = StringUtils.defaultIfBlank(IdentityUtil.getProperty(TOKEN_LOCK_MODE), LOCAL_MODE).trim();
+
+        if (JDBC_MODE.equalsIgnoreCase(mode)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Using database token locks for: " + lockName);
+            }
+            long leaseDurationMillis = readLongProperty(TOKEN_LOCK_LEASE_DURATION, DEFAULT_LEASE_DURATION_MILLIS);
+            return new JDBCTokenLockManager(lockName, stripeCount, timeoutMillis, leaseDurationMillis);
+        }
+        if (!LOCAL_MODE.equalsIgnoreCase(mode)) {
+            log.warn("Invalid token lock mode: " + mode + " configured for: " + TOKEN_LOCK_MODE +
+                    ". Using the default mode: " + LOCAL_MODE);
+        }
+        return new StripedTokenLockManager(stripeCount, timeoutMillis);
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+}
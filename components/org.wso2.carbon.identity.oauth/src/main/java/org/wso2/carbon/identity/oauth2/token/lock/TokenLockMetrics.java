@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acquisition and contention metrics of a {@link TokenLockManager}.
+ */
+public class TokenLockMetrics {
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    void recordAcquired() {
+
+        acquiredCount.incrementAndGet();
+    }
+
+    void recordContendedAcquired(long waitNanos) {
+
+        acquiredCount.incrementAndGet();
+        contendedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void recordTimeout() {
+
+        timeoutCount.incrementAndGet();
+    }
+
+    /**
+     * @return Number of acquired locks.
+     */
+    public long getAcquiredCount() {
+
+        return acquiredCount.get();
+    }
+
+    /**
+     * @return Number of acquired locks which were held by another thread or node when requested.
+     */
+    public long getContendedCount() {
+
+        return contendedCount.get();
+    }
+
+    /**
+     * @return Number of lock requests which timed out.
+     */
+    public long getTimeoutCount() {
+
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return Total time spent waiting for contended locks, in milliseconds.
+     */
+    public long getTotalWaitTimeMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * @return Longest time spent waiting for a contended lock, in milliseconds.
+     */
+    public long getMaxWaitTimeMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.util;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.security.Key;
+import java.security.cert.Certificate;
+
+/**
+ * Ready to use signing material of a tenant for a given JWS algorithm.
+ * <p>
+ * Holds the signer, the prebuilt JWS header carrying the 'kid' and 'x5t' values and the key material the context
+ * was built from, so that signing a JWT does not need to recreate the signer or to re-digest the certificate.
+ * Both {@link JWSSigner} and {@link JWSHeader} are safe to be shared between threads.
+ */
+public class JWTSigningContext {
+
+    private final Key privateKey;
+    private final Certificate certificate;
+    private final JWSSigner signer;
+    private final JWSHeader headerTemplate;
+
+    public JWTSigningContext(Key privateKey, Certificate certificate, JWSSigner signer, JWSHeader headerTemplate) {
+
+        this.privateKey = privateKey;
+        this.certificate = certificate;
+        this.signer = signer;
+        this.headerTemplate = headerTemplate;
+    }
+
+    /**
+     * Sign the given claims set.
+     *
+     * @param jwtClaimsSet Claims set to be signed.
+     * @return Signed JWT.
+     * @throws JOSEException If the signing fails.
+     */
+    public SignedJWT sign(JWTClaimsSet jwtClaimsSet) throws JOSEException {
+
+        SignedJWT signedJWT = new SignedJWT(headerTemplate, jwtClaimsSet);
+        signedJWT.sign(signer);
+        return signedJWT;
+    }
+
+    public JWSSigner getSigner() {
+
+        return signer;
+    }
+
+    public JWSHeader getHeaderTemplate() {
+
+        return headerTemplate;
+    }
+
+    public String getKeyId() {
+
+        return headerTemplate.getKeyID();
+    }
+
+    public String getCertificateThumbprint() {
+
+        return headerTemplate.getX509CertThumbprint() != null ? headerTemplate.getX509CertThumbprint().toString() :
+                null;
+    }
+
+    /**
+     * Check whether this context was built from the given key material. A rotated key or certificate results in a
+     * different instance being loaded from the keystore.
+     *
+     * @param privateKey  Current private key of the tenant.
+     * @param certificate Current certificate of the tenant.
+     * @return true if the context is still valid for the given key material.
+     */
+    public boolean isBuiltFrom(Key privateKey, Certificate certificate) {
+
+        return this.privateKey == privateKey && this.certificate == certificate;
+    }
+}
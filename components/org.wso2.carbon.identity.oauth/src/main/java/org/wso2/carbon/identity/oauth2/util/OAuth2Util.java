@@ -30,6 +30,7 @@ import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.ECDSASigner;
 import com.nimbusds.jose.crypto.RSAEncrypter;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
@@ -120,6 +121,9 @@ import org.wso2.carbon.identity.oauth2.model.ClientCredentialDO;
 import org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.TokenIssuerResolutionPlan;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
+import org.wso2.carbon.identity.oauth2.token.UnknownTokenCache;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinding;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHandler;
@@ -162,6 +166,7 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.sql.Timestamp;
@@ -170,6 +175,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -325,6 +331,11 @@ public class OAuth2Util {
 
     private static Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<Integer, Certificate>();
     private static Map<Integer, Key> privateKeys = new ConcurrentHashMap<Integer, Key>();
+    private static Map<String, JWTSigningContext> jwtSigningContexts = new ConcurrentHashMap<>();
+    private static Map<Integer, Long> signingKeyValidatedTimes = new ConcurrentHashMap<>();
+    // This config property is defined in identity.xml
+    private static final String SIGNING_KEY_REVALIDATION_INTERVAL = "OAuth.JWT.SigningKeyRevalidationInterval";
+    private static final long DEFAULT_SIGNING_KEY_REVALIDATION_INTERVAL = 300;
 
     // Supported Signature Algorithms
     private static final String NONE = "NONE";
@@ -1682,6 +1693,16 @@ public class OAuth2Util {
                                                                     boolean includeExpired)
             throws IdentityOAuth2Exception {
 
+        // Reuse the token already resolved in the current request, if any.
+        TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
+        if (tokenResolutionContext != null) {
+            AccessTokenDO resolvedAccessTokenDO =
+                    tokenResolutionContext.getAccessTokenDOByIdentifier(accessTokenIdentifier);
+            if (resolvedAccessTokenDO != null) {
+                return resolvedAccessTokenDO;
+            }
+        }
+
         boolean cacheHit = false;
         AccessTokenDO accessTokenDO = null;
 
@@ -2772,6 +2793,37 @@ public class OAuth2Util {
         return new RSASSASigner(privateKey, allowWeakKey);
     }
 
+    /**
+     * Create JWSSigner for the given private key and make sure that the key can be used with the given algorithm.
+     *
+     * @param privateKey         RSA or EC private key.
+     * @param signatureAlgorithm JWS signing algorithm.
+     * @return JWSSigner
+     * @throws IdentityOAuth2Exception If the key type is not supported or does not match the algorithm.
+     */
+    public static JWSSigner createJWSSigner(Key privateKey, JWSAlgorithm signatureAlgorithm)
+            throws IdentityOAuth2Exception {
+
+        JWSSigner signer;
+        if (privateKey instanceof RSAPrivateKey) {
+            signer = createJWSSigner((RSAPrivateKey) privateKey);
+        } else if (privateKey instanceof ECPrivateKey) {
+            try {
+                signer = new ECDSASigner((ECPrivateKey) privateKey);
+            } catch (JOSEException e) {
+                throw new IdentityOAuth2Exception("Error while creating the EC signer.", e);
+            }
+        } else {
+            throw new IdentityOAuth2Exception("Unsupported signing key type: " +
+                    (privateKey != null ? privateKey.getAlgorithm() : null));
+        }
+        if (!signer.supportedJWSAlgorithms().contains(signatureAlgorithm)) {
+            throw new IdentityOAuth2Exception("Signing key of type: " + privateKey.getAlgorithm() + " cannot be " +
+                    "used with the signature algorithm: " + signatureAlgorithm);
+        }
+        return signer;
+    }
+
     /**
      * Generic Signing function
      *
@@ -2787,13 +2839,15 @@ public class OAuth2Util {
         if (JWSAlgorithm.RS256.equals(signatureAlgorithm) || JWSAlgorithm.RS384.equals(signatureAlgorithm) ||
                 JWSAlgorithm.RS512.equals(signatureAlgorithm) || JWSAlgorithm.PS256.equals(signatureAlgorithm)) {
             return signJWTWithRSA(jwtClaimsSet, signatureAlgorithm, tenantDomain);
+        } else if (JWSAlgorithm.ES256.equals(signatureAlgorithm) || JWSAlgorithm.ES384.equals(signatureAlgorithm) ||
+                JWSAlgorithm.ES512.equals(signatureAlgorithm)) {
+            return signJWTWithECDSA(jwtClaimsSet, signatureAlgorithm, tenantDomain);
         } else if (JWSAlgorithm.HS256.equals(signatureAlgorithm) || JWSAlgorithm.HS384.equals(signatureAlgorithm) ||
                 JWSAlgorithm.HS512.equals(signatureAlgorithm)) {
             // return signWithHMAC(jwtClaimsSet,jwsAlgorithm,request); implementation need to be done
             throw new RuntimeException("Provided signature algorithm: " + signatureAlgorithm +
                     " is not supported");
         } else {
-            // return signWithEC(jwtClaimsSet,jwsAlgorithm,request); implementation need to be done
             throw new RuntimeException("Provided signature algorithm: " + signatureAlgorithm +
                     " is not supported");
         }
@@ -2812,6 +2866,28 @@ public class OAuth2Util {
     public static JWT signJWTWithRSA(JWTClaimsSet jwtClaimsSet, JWSAlgorithm signatureAlgorithm, String tenantDomain)
             throws IdentityOAuth2Exception {
 
+        return signJWTWithTenantKey(jwtClaimsSet, signatureAlgorithm, tenantDomain);
+    }
+
+    /**
+     * Sign JWT token with ECDSA algorithm. The signing key of the tenant has to be an EC key on the curve of the
+     * given algorithm.
+     *
+     * @param jwtClaimsSet       contains JWT body
+     * @param signatureAlgorithm JWT signing algorithm (ES256, ES384 or ES512)
+     * @param tenantDomain       tenant domain
+     * @return signed JWT token
+     * @throws IdentityOAuth2Exception
+     */
+    public static JWT signJWTWithECDSA(JWTClaimsSet jwtClaimsSet, JWSAlgorithm signatureAlgorithm,
+                                       String tenantDomain) throws IdentityOAuth2Exception {
+
+        return signJWTWithTenantKey(jwtClaimsSet, signatureAlgorithm, tenantDomain);
+    }
+
+    private static JWT signJWTWithTenantKey(JWTClaimsSet jwtClaimsSet, JWSAlgorithm signatureAlgorithm,
+                                            String tenantDomain) throws IdentityOAuth2Exception {
+
         try {
             if (StringUtils.isBlank(tenantDomain)) {
                 tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
@@ -2826,19 +2902,112 @@ public class OAuth2Util {
             }
 
             int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
-            Key privateKey = getPrivateKey(tenantDomain, tenantId);
-            JWSSigner signer = OAuth2Util.createJWSSigner((RSAPrivateKey) privateKey);
-            JWSHeader.Builder headerBuilder = new JWSHeader.Builder((JWSAlgorithm) signatureAlgorithm);
-            headerBuilder.keyID(getKID(getCertificate(tenantDomain, tenantId), signatureAlgorithm, tenantDomain));
-            headerBuilder.x509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
-            SignedJWT signedJWT = new SignedJWT(headerBuilder.build(), jwtClaimsSet);
-            signedJWT.sign(signer);
-            return signedJWT;
+            return getJWTSigningContext(tenantDomain, tenantId, signatureAlgorithm).sign(jwtClaimsSet);
         } catch (JOSEException e) {
             throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
         }
     }
 
+    /**
+     * Get the signing context of the tenant for the given algorithm. The signer and the JWS header with the
+     * 'kid' and 'x5t' values are built once and reused until the key or the certificate of the tenant changes.
+     *
+     * @param tenantDomain       Tenant domain.
+     * @param tenantId           Tenant id.
+     * @param signatureAlgorithm JWS signing algorithm.
+     * @return Signing context.
+     * @throws IdentityOAuth2Exception If the signing key or certificate cannot be obtained.
+     */
+    public static JWTSigningContext getJWTSigningContext(String tenantDomain, int tenantId,
+                                                         JWSAlgorithm signatureAlgorithm)
+            throws IdentityOAuth2Exception {
+
+        revalidateSigningKey(tenantDomain, tenantId);
+        Key privateKey = getPrivateKey(tenantDomain, tenantId);
+        Certificate certificate = getCertificate(tenantDomain, tenantId);
+        String contextKey = tenantId + ":" + signatureAlgorithm.getName();
+        JWTSigningContext signingContext = jwtSigningContexts.get(contextKey);
+        if (signingContext == null || !signingContext.isBuiltFrom(privateKey, certificate)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Building the JWT signing context of the tenant: " + tenantDomain + " for the algorithm: "
+                        + signatureAlgorithm);
+            }
+            JWSSigner signer = createJWSSigner(privateKey, signatureAlgorithm);
+            JWSHeader.Builder headerBuilder = new JWSHeader.Builder(signatureAlgorithm);
+            headerBuilder.keyID(getKID(certificate, signatureAlgorithm, tenantDomain));
+            headerBuilder.x509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
+            signingContext = new JWTSigningContext(privateKey, certificate, signer, headerBuilder.build());
+            jwtSigningContexts.put(contextKey, signingContext);
+        }
+        return signingContext;
+    }
+
+    /**
+     * Clear the cached signing key, certificate and signing contexts of the tenant, e.g. once the keystore of the
+     * tenant is rotated. They are loaded from the keystore again with the next signing request.
+     *
+     * @param tenantId Tenant id.
+     */
+    public static void clearSigningKeyCache(int tenantId) {
+
+        privateKeys.remove(tenantId);
+        publicCerts.remove(tenantId);
+        jwtSigningContexts.keySet().removeIf(contextKey -> contextKey.startsWith(tenantId + ":"));
+        signingKeyValidatedTimes.remove(tenantId);
+    }
+
+    /**
+     * Check the cached signing certificate of the tenant against the keystore once the revalidation interval has
+     * elapsed, and clear the signing key cache of the tenant if the keystore now holds a different certificate.
+     * KeyStoreManager reloads a tenant keystore once it is updated in the registry, hence a rotated key is picked up
+     * within the revalidation interval without a tenant event.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @throws IdentityOAuth2Exception If the certificate cannot be loaded from the keystore.
+     */
+    private static void revalidateSigningKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        long revalidationInterval = getSigningKeyRevalidationInterval();
+        if (revalidationInterval < 0) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        Long validatedTime = signingKeyValidatedTimes.putIfAbsent(tenantId, currentTime);
+        if (validatedTime == null || currentTime - validatedTime < revalidationInterval * 1000) {
+            return;
+        }
+        // Only the thread which advances the validated time checks the keystore.
+        if (!signingKeyValidatedTimes.replace(tenantId, validatedTime, currentTime)) {
+            return;
+        }
+        Certificate cachedCertificate = publicCerts.get(tenantId);
+        if (cachedCertificate == null) {
+            return;
+        }
+        // Certificates are equal only if their encoded forms, and hence their fingerprints, are equal.
+        Certificate currentCertificate = loadCertificate(tenantDomain, tenantId);
+        if (currentCertificate != null && !currentCertificate.equals(cachedCertificate)) {
+            log.info("Signing certificate of the tenant: " + tenantDomain + " has changed. Clearing the cached " +
+                    "signing key of the tenant.");
+            clearSigningKeyCache(tenantId);
+        }
+    }
+
+    private static long getSigningKeyRevalidationInterval() {
+
+        String interval = IdentityUtil.getProperty(SIGNING_KEY_REVALIDATION_INTERVAL);
+        if (StringUtils.isNotBlank(interval)) {
+            try {
+                return Long.parseLong(interval.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + interval + " configured for: " + SIGNING_KEY_REVALIDATION_INTERVAL +
+                        ". Using the default value: " + DEFAULT_SIGNING_KEY_REVALIDATION_INTERVAL);
+            }
+        }
+        return DEFAULT_SIGNING_KEY_REVALIDATION_INTERVAL;
+    }
+
     public static Key getPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
 
         Key privateKey;
@@ -2991,52 +3160,59 @@ public class OAuth2Util {
         Certificate publicCert = null;
 
         if (!(publicCerts.containsKey(tenantId))) {
-            if (log.isDebugEnabled()) {
-                log.debug(String.format("Obtaining certificate for the tenant %s", tenantDomain));
-            }
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain,
-                        e);
+            publicCert = loadCertificate(tenantDomain, tenantId);
+            if (publicCert != null) {
+                publicCerts.put(tenantId, publicCert);
             }
+        } else {
+            publicCert = publicCerts.get(tenantId);
+        }
+        return publicCert;
+    }
 
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+    private static Certificate loadCertificate(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
 
-            KeyStore keyStore = null;
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Loading default tenant certificate for tenant : %s from the KeyStore" +
-                            " %s", tenantDomain, ksName));
-                }
-                try {
-                    keyStore = tenantKSM.getKeyStore(jksName);
-                    publicCert = keyStore.getCertificate(tenantDomain);
-                } catch (KeyStoreException e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading public certificate for tenant: " +
-                            tenantDomain, e);
-                } catch (Exception e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading Keystore for tenant: " +
-                            tenantDomain, e);
-                }
+        Certificate publicCert = null;
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Obtaining certificate for the tenant %s", tenantDomain));
+        }
+        try {
+            IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
+        } catch (IdentityException e) {
+            throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain,
+                    e);
+        }
 
-            } else {
-                try {
-                    publicCert = tenantKSM.getDefaultPrimaryCertificate();
-                } catch (Exception e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading default public " +
-                            "certificate for tenant: " + tenantDomain, e);
-                }
+        // get tenant's key store manager
+        KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+
+        KeyStore keyStore = null;
+        if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
+            // derive key store name
+            String ksName = tenantDomain.trim().replace(".", "-");
+            String jksName = ksName + ".jks";
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Loading default tenant certificate for tenant : %s from the KeyStore" +
+                        " %s", tenantDomain, ksName));
             }
-            if (publicCert != null) {
-                publicCerts.put(tenantId, publicCert);
+            try {
+                keyStore = tenantKSM.getKeyStore(jksName);
+                publicCert = keyStore.getCertificate(tenantDomain);
+            } catch (KeyStoreException e) {
+                throw new IdentityOAuth2Exception("Error occurred while loading public certificate for tenant: " +
+                        tenantDomain, e);
+            } catch (Exception e) {
+                throw new IdentityOAuth2Exception("Error occurred while loading Keystore for tenant: " +
+                        tenantDomain, e);
             }
+
         } else {
-            publicCert = publicCerts.get(tenantId);
+            try {
+                publicCert = tenantKSM.getDefaultPrimaryCertificate();
+            } catch (Exception e) {
+                throw new IdentityOAuth2Exception("Error occurred while loading default public " +
+                        "certificate for tenant: " + tenantDomain, e);
+            }
         }
         return publicCert;
     }
@@ -3739,7 +3915,7 @@ public class OAuth2Util {
     }
 
     /**
-     * Find access tokenDO from token identifier by chaining through all available token issuers.
+     * Find access tokenDO from token identifier by chaining through the token issuers which can resolve it.
      *
      * @param tokenIdentifier access token data object from the validation request.
      * @return AccessTokenDO
@@ -3748,30 +3924,30 @@ public class OAuth2Util {
     public static AccessTokenDO findAccessToken(String tokenIdentifier, boolean includeExpired)
             throws IdentityOAuth2Exception {
 
-        AccessTokenDO accessTokenDO;
-
-        // Get a copy of the list of token issuers .
-        Map<String, OauthTokenIssuer> allOAuthTokenIssuerMap = new HashMap<>(
-                OAuthServerConfiguration.getInstance().getOauthTokenIssuerMap());
-
-        // Differentiate default token issuers and other issuers for better performance.
-        Map<String, OauthTokenIssuer> defaultOAuthTokenIssuerMap = new HashMap<>();
-        extractDefaultOauthTokenIssuers(allOAuthTokenIssuerMap, defaultOAuthTokenIssuerMap);
+        // Tokens which were recently found to be not ACTIVE are rejected without walking the token issuers again.
+        UnknownTokenCache unknownTokenCache = UnknownTokenCache.getInstance();
+        if (!includeExpired && unknownTokenCache.isUnknown(tokenIdentifier)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Access token was found in the unknown token cache.");
+            }
+            throw new IllegalArgumentException("Invalid Access Token. ACTIVE access token is not found.");
+        }
 
-        // First try default token issuers.
-        accessTokenDO = getAccessTokenDOFromMatchingTokenIssuer(tokenIdentifier, defaultOAuthTokenIssuerMap,
-                includeExpired);
-        if (accessTokenDO != null) {
-            return accessTokenDO;
+        TokenIssuerResolutionPlan resolutionPlan = OAuthServerConfiguration.getInstance()
+                .getTokenIssuerResolutionPlan();
+        if (resolutionPlan == null) {
+            resolutionPlan = TokenIssuerResolutionPlan.build(
+                    OAuthServerConfiguration.getInstance().getOauthTokenIssuerMap());
         }
 
-        // Loop through other issuer and try to get the hash.
-        accessTokenDO = getAccessTokenDOFromMatchingTokenIssuer(tokenIdentifier, allOAuthTokenIssuerMap,
-                includeExpired);
+        // Only the token issuers which can understand the shape of the token are tried, in a single pass.
+        AccessTokenDO accessTokenDO = getAccessTokenDOFromMatchingTokenIssuer(tokenIdentifier,
+                resolutionPlan.getCandidateTokenIssuers(tokenIdentifier), includeExpired);
 
         // If the lookup is only for tokens in 'ACTIVE' state, APIs calling this method expect an
         // IllegalArgumentException to be thrown to identify inactive/invalid tokens.
         if (accessTokenDO == null && !includeExpired) {
+            unknownTokenCache.addUnknownToken(tokenIdentifier);
             throw new IllegalArgumentException("Invalid Access Token. ACTIVE access token is not found.");
         }
         return accessTokenDO;
@@ -3792,15 +3968,22 @@ public class OAuth2Util {
 
         AccessTokenDO accessTokenDO;
         if (tokenIssuerMap != null) {
+            // Issuers which resolve to the same lookup identifier are only looked up once.
+            Set<String> triedLookupIdentifiers = new HashSet<>();
             for (Map.Entry<String, OauthTokenIssuer> oauthTokenIssuerEntry: tokenIssuerMap.entrySet()) {
                 try {
                     OauthTokenIssuer oauthTokenIssuer = oauthTokenIssuerEntry.getValue();
-                    String tokenAlias = oauthTokenIssuer.getAccessTokenHash(tokenIdentifier);
+                    if (oauthTokenIssuer == null) {
+                        continue;
+                    }
+                    String lookupIdentifier = tokenIdentifier;
                     if (oauthTokenIssuer.usePersistedAccessTokenAlias()) {
-                        accessTokenDO = OAuth2Util.getAccessTokenDOFromTokenIdentifier(tokenAlias, includeExpired);
-                    } else {
-                        accessTokenDO = OAuth2Util.getAccessTokenDOFromTokenIdentifier(tokenIdentifier, includeExpired);
+                        lookupIdentifier = oauthTokenIssuer.getAccessTokenHash(tokenIdentifier);
+                    }
+                    if (!triedLookupIdentifiers.add(lookupIdentifier)) {
+                        continue;
                     }
+                    accessTokenDO = OAuth2Util.getAccessTokenDOFromTokenIdentifier(lookupIdentifier, includeExpired);
                     if (accessTokenDO != null) {
                         return accessTokenDO;
                     }
@@ -3830,29 +4013,9 @@ public class OAuth2Util {
         return null;
     }
 
-    /**
-     * Differentiate default token issuers from all available token issuers map.
-     *
-     * @param allOAuthTokenIssuerMap Map of all available token issuers.
-     * @param defaultOAuthTokenIssuerMap default token issuers
-     */
-    private static void extractDefaultOauthTokenIssuers(Map<String, OauthTokenIssuer> allOAuthTokenIssuerMap,
-                                                        Map<String, OauthTokenIssuer> defaultOAuthTokenIssuerMap) {
-
-        // TODO: 4/9/19 Implement logic to read default issuer from config.
-        // TODO: 4/9/19 add sorting mechanism to use JWT issuer first.
-        defaultOAuthTokenIssuerMap.put(OAuthServerConfiguration.JWT_TOKEN_TYPE,
-                allOAuthTokenIssuerMap.get(OAuthServerConfiguration.JWT_TOKEN_TYPE));
-        allOAuthTokenIssuerMap.remove(OAuthServerConfiguration.JWT_TOKEN_TYPE);
-
-        defaultOAuthTokenIssuerMap.put(OAuthServerConfiguration.DEFAULT_TOKEN_TYPE,
-                allOAuthTokenIssuerMap.get(OAuthServerConfiguration.DEFAULT_TOKEN_TYPE));
-        allOAuthTokenIssuerMap.remove(OAuthServerConfiguration.DEFAULT_TOKEN_TYPE);
-    }
-
     /**
      * Return access token identifier from OAuth2TokenValidationResponseDTO. This method validated the token against
-     * the cache and the DB.
+     * the cache and the DB, unless it is already resolved in the current {@link TokenResolutionContext}.
      *
      * @param tokenResponse OAuth2TokenValidationResponseDTO object.
      * @return extracted access token identifier.
@@ -3861,13 +4024,22 @@ public class OAuth2Util {
     public static String getAccessTokenIdentifier(OAuth2TokenValidationResponseDTO tokenResponse)
             throws UserInfoEndpointException {
 
-        if (tokenResponse.getAuthorizationContextToken().getTokenString() != null) {
+        String tokenString = tokenResponse.getAuthorizationContextToken().getTokenString();
+        if (tokenString != null) {
+            TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
             AccessTokenDO accessTokenDO = null;
-            try {
-                accessTokenDO = OAuth2Util.findAccessToken(
-                        tokenResponse.getAuthorizationContextToken().getTokenString(), false);
-            } catch (IdentityOAuth2Exception e) {
-                throw new UserInfoEndpointException("Error occurred while obtaining access token.", e);
+            if (tokenResolutionContext != null) {
+                accessTokenDO = tokenResolutionContext.getAccessTokenDO(tokenString);
+            }
+            if (accessTokenDO == null) {
+                try {
+                    accessTokenDO = OAuth2Util.findAccessToken(tokenString, false);
+                } catch (IdentityOAuth2Exception e) {
+                    throw new UserInfoEndpointException("Error occurred while obtaining access token.", e);
+                }
+                if (tokenResolutionContext != null && accessTokenDO != null) {
+                    tokenResolutionContext.setAccessTokenDO(tokenString, accessTokenDO);
+                }
             }
 
             if (accessTokenDO != null) {
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node local, bounded cache of active introspection results of access tokens persisted by this server.
+ * <p>
+ * An entry expires at the earlier of the configured timeout and the expiry time of the token. Entries are removed
+ * when the token is revoked through this node, while the timeout bounds the window in which a token revoked through
+ * another node can still be reported as active. Only the hash of the token identifier is kept as the key.
+ * <p>
+ * Tokens such as JWTs are persisted under an alias instead of the introspected token identifier, and are revoked by
+ * that alias. Hence such entries are also indexed under the hash of the persisted alias, so that removing the entry
+ * of the alias removes the entries of the token identifiers persisted under it.
+ * <p>
+ * The cache is split into segments, each being an access ordered LinkedHashMap guarded by its own lock, so that
+ * concurrent requests rarely contend. Once a segment is full, adding an entry evicts its least recently used entry,
+ * hence eviction is O(1) and a full cache keeps caching the most recently used tokens.
+ */
+public class IntrospectionResponseCache {
+
+    private static final Log log = LogFactory.getLog(IntrospectionResponseCache.class);
+
+    // These config properties are defined in identity.xml
+    private static final String INTROSPECTION_CACHE_ENABLE = "OAuth.TokenValidation.IntrospectionCache.Enable";
+    private static final String INTROSPECTION_CACHE_CAPACITY = "OAuth.TokenValidation.IntrospectionCache.Capacity";
+    private static final String INTROSPECTION_CACHE_TIMEOUT = "OAuth.TokenValidation.IntrospectionCache.Timeout";
+
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    private static final int MAX_SEGMENT_COUNT = 16;
+    // Small caches are not segmented, so that their eviction stays close to a global LRU order.
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private static volatile IntrospectionResponseCache instance;
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final Map<String, Entry>[] segments;
+    // Hash of the persisted alias to the keys of the entries of the token identifiers persisted under that alias.
+    private final ConcurrentMap<String, Set<String>> aliasIndex = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    IntrospectionResponseCache(boolean enabled, int capacity, long timeoutMillis) {
+
+        this.enabled = enabled && capacity > 0 && timeoutMillis > 0;
+        this.timeoutMillis = timeoutMillis;
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENT_COUNT, capacity / MIN_SEGMENT_CAPACITY));
+        this.segments = new Map[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The capacity is spread over the segments, the first segments taking the remainder.
+            int segmentCapacity = capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0);
+            segments[i] = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, IntrospectionResponseCache.Entry> eldest) {
+
+                    if (size() > segmentCapacity) {
+                        unindex(eldest.getKey(), eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns the IntrospectionResponseCache instance configured through identity.xml. The cache is disabled unless
+     * it is explicitly enabled.
+     *
+     * @return IntrospectionResponseCache instance.
+     */
+    public static IntrospectionResponseCache getInstance() {
+
+        if (instance == null) {
+            synchronized (IntrospectionResponseCache.class) {
+                if (instance == null) {
+                    instance = new IntrospectionResponseCache(
+                            Boolean.parseBoolean(IdentityUtil.getProperty(INTROSPECTION_CACHE_ENABLE)),
+                            (int) readLongProperty(INTROSPECTION_CACHE_CAPACITY, DEFAULT_CAPACITY),
+                            readLongProperty(INTROSPECTION_CACHE_TIMEOUT, DEFAULT_TIMEOUT_MILLIS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the cached introspection result of the given token identifier.
+     *
+     * @param tokenIdentifier Access token identifier.
+     * @return Cached entry or null if there is no valid entry.
+     */
+    public Entry getEntry(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return null;
+        }
+        String key = DigestUtils.sha256Hex(tokenIdentifier);
+        Map<String, Entry> segment = getSegment(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiryTime < System.currentTimeMillis()) {
+                segment.remove(key);
+                unindex(key, entry);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Cache an active introspection result of the given token identifier.
+     *
+     * @param tokenIdentifier Access token identifier.
+     * @param response        Active introspection response.
+     * @param accessTokenDO   Access token the response was built from.
+     * @param responseScope   Scopes set to the validation response.
+     */
+    public void addEntry(String tokenIdentifier, OAuth2IntrospectionResponseDTO response, AccessTokenDO accessTokenDO,
+                         String[] responseScope) {
+
+        if (!enabled || tokenIdentifier == null || response == null || !response.isActive()) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        long expiryTime = currentTime + timeoutMillis;
+        if (response.getExp() > 0 && response.getExp() < Long.MAX_VALUE / 1000) {
+            expiryTime = Math.min(expiryTime, response.getExp() * 1000);
+        }
+        if (expiryTime <= currentTime) {
+            return;
+        }
+        String key = DigestUtils.sha256Hex(tokenIdentifier);
+        String aliasKey = null;
+        if (accessTokenDO != null && accessTokenDO.getAccessToken() != null &&
+                !tokenIdentifier.equals(accessTokenDO.getAccessToken())) {
+            aliasKey = DigestUtils.sha256Hex(accessTokenDO.getAccessToken());
+        }
+        Entry entry = new Entry(copy(response), accessTokenDO, responseScope, expiryTime, aliasKey);
+        Map<String, Entry> segment = getSegment(key);
+        synchronized (segment) {
+            // Index the entry before it becomes visible, so that a concurrent removal of the alias can find it.
+            if (aliasKey != null) {
+                aliasIndex.computeIfAbsent(aliasKey, k -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            Entry previous = segment.put(key, entry);
+            if (previous != null && previous.aliasKey != null && !previous.aliasKey.equals(aliasKey)) {
+                unindex(key, previous);
+            }
+        }
+    }
+
+    /**
+     * Remove the cached introspection result of the given token identifier, e.g. once the token is revoked. The
+     * identifier can either be the introspected token identifier or the alias the token is persisted under.
+     *
+     * @param tokenIdentifier Access token identifier or its persisted alias.
+     */
+    public void removeEntry(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return;
+        }
+        String key = DigestUtils.sha256Hex(tokenIdentifier);
+        Map<String, Entry> segment = getSegment(key);
+        synchronized (segment) {
+            Entry entry = segment.remove(key);
+            if (entry != null) {
+                unindex(key, entry);
+            }
+        }
+        Set<String> aliasedKeys = aliasIndex.remove(key);
+        if (aliasedKeys != null) {
+            for (String aliasedKey : aliasedKeys) {
+                Map<String, Entry> aliasedSegment = getSegment(aliasedKey);
+                synchronized (aliasedSegment) {
+                    aliasedSegment.remove(aliasedKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear all the entries in the cache.
+     */
+    public void clear() {
+
+        for (Map<String, Entry> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        aliasIndex.clear();
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public int size() {
+
+        int size = 0;
+        for (Map<String, Entry> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private void unindex(String key, Entry entry) {
+
+        if (entry.aliasKey == null) {
+            return;
+        }
+        aliasIndex.computeIfPresent(entry.aliasKey, (aliasKey, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private Map<String, Entry> getSegment(String key) {
+
+        return segments[(key.hashCode() & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static OAuth2IntrospectionResponseDTO copy(OAuth2IntrospectionResponseDTO response) {
+
+        OAuth2IntrospectionResponseDTO copy = new OAuth2IntrospectionResponseDTO();
+        copy.setActive(response.isActive());
+        copy.setScope(response.getScope());
+        copy.setClientId(response.getClientId());
+        copy.setUsername(response.getUsername());
+        copy.setTokenType(response.getTokenType());
+        copy.setNbf(response.getNbf());
+        copy.setAud(response.getAud());
+        copy.setIss(response.getIss());
+        copy.setJti(response.getJti());
+        copy.setSub(response.getSub());
+        copy.setExp(response.getExp());
+        copy.setIat(response.getIat());
+        copy.setUserContext(response.getUserContext());
+        copy.setBindingType(response.getBindingType());
+        copy.setBindingReference(response.getBindingReference());
+        copy.setAut(response.getAut());
+        copy.setAuthorizedUser(response.getAuthorizedUser());
+        copy.setError(response.getError());
+        return copy;
+    }
+
+    private static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Cached introspection result of an access token.
+     */
+    public static class Entry {
+
+        private final OAuth2IntrospectionResponseDTO response;
+        private final AccessTokenDO accessTokenDO;
+        private final String[] responseScope;
+        private final long expiryTime;
+        private final String aliasKey;
+
+        private Entry(OAuth2IntrospectionResponseDTO response, AccessTokenDO accessTokenDO, String[] responseScope,
+                      long expiryTime, String aliasKey) {
+
+            this.response = response;
+            this.accessTokenDO = accessTokenDO;
+            this.responseScope = responseScope;
+            this.expiryTime = expiryTime;
+            this.aliasKey = aliasKey;
+        }
+
+        /**
+         * Returns a copy of the cached response, which can be modified by the caller.
+         *
+         * @return Introspection response.
+         */
+        public OAuth2IntrospectionResponseDTO getResponse() {
+
+            return copy(response);
+        }
+
+        public AccessTokenDO getAccessTokenDO() {
+
+            return accessTokenDO;
+        }
+
+        public String[] getResponseScope() {
+
+            return responseScope != null ? responseScope.clone() : null;
+        }
+
+        public long getExpiryTime() {
+
+            return expiryTime;
+        }
+    }
+}
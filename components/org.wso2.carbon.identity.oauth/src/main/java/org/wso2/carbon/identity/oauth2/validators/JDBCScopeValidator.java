@@ -25,7 +25,6 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.CarbonConstants;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
@@ -57,13 +56,11 @@ import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.api.UserStoreManager;
-import org.wso2.carbon.user.core.UserCoreConstants;
 import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -126,6 +123,11 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             Pair<String, Integer> scopeMap = OAuthTokenPersistenceFactory.getInstance()
                     .getTokenManagementDAO().findTenantAndScopeOfResource(resource);
 
+            if (scopeMap == null) {
+                // Check whether the resource is protected with a wildcard pattern.
+                scopeMap = ResourceScopeIndex.getInstance().findScopeOfResource(resource);
+            }
+
             if (scopeMap != null) {
                 resourceScope = scopeMap.getLeft();
                 resourceTenantId = scopeMap.getRight();
@@ -148,10 +150,8 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             return true;
         }
 
-        List<String> scopeList = new ArrayList<>(Arrays.asList(scopes));
-
         // If the access token does not bear the scope required for accessing the Resource.
-        if (!scopeList.contains(resourceScope)) {
+        if (!ArrayUtils.contains(scopes, resourceScope)) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
                 log.debug("Access token '" + accessTokenDO.getAccessToken() + "' does not bear the scope '" +
                             resourceScope + "'");
@@ -358,6 +358,16 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
 
     private boolean isScopeValid(String scopeName, int tenantId) {
 
+        ResourceScopeIndex resourceScopeIndex = ResourceScopeIndex.getInstance();
+        if (resourceScopeIndex.isEnabled()) {
+            try {
+                return resourceScopeIndex.getScopeRoles(scopeName, tenantId) != null;
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error while retrieving scope with name :" + scopeName, e);
+                return false;
+            }
+        }
+
         Scope scope = null;
 
         try {
@@ -372,10 +382,15 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
     private boolean isUserAuthorizedForScope(String scopeName, String[] userRoles, int tenantId)
             throws IdentityOAuth2Exception {
 
-        Set<String> rolesOfScope = OAuthTokenPersistenceFactory.getInstance().getOAuthScopeDAO().
-                getBindingsOfScopeByScopeName(scopeName, tenantId);
+        ResourceScopeIndex.ScopeRoles scopeRoles = ResourceScopeIndex.getInstance().getScopeRoles(scopeName, tenantId);
+        if (scopeRoles == null) {
+            // The index is disabled or the scope is not an OAuth2 scope of the tenant.
+            scopeRoles = new ResourceScopeIndex.ScopeRoles(OAuthTokenPersistenceFactory.getInstance()
+                    .getOAuthScopeDAO().getBindingsOfScopeByScopeName(scopeName, tenantId));
+        }
+        Set<String> rolesOfScope = scopeRoles.getRoles();
 
-        if (CollectionUtils.isEmpty(rolesOfScope)) {
+        if (rolesOfScope.isEmpty()) {
             if (log.isDebugEnabled()) {
                 log.debug("Did not find any roles associated to the scope " + scopeName);
             }
@@ -395,17 +410,8 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             return false;
         }
 
-        //Check if the user still has a valid role for this scope.
-        Set<String> scopeRoles = new HashSet<>(rolesOfScope);
-        rolesOfScope.retainAll(Arrays.asList(userRoles));
-
-        if (rolesOfScope.isEmpty()) {
-            // when the role is an internal one, check if the user has valid role
-            boolean validInternalUserRole = validateInternalUserRoles(scopeRoles, userRoles);
-
-            if (validInternalUserRole) {
-                return true;
-            }
+        // Check if the user still has a valid role for this scope. Internal roles are matched ignoring the case.
+        if (!scopeRoles.hasAnyRole(userRoles)) {
             if (log.isDebugEnabled()) {
                 log.debug("User does not have required roles for scope " + scopeName);
             }
@@ -415,29 +421,6 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
         return true;
     }
 
-    /**
-     * This method used to validate scopes which bind with internal roles
-     * @param scopeRoles roles in scope
-     * @param userRoles user roles
-     * @return
-     */
-    private boolean validateInternalUserRoles(Set<String> scopeRoles,  String[] userRoles) {
-        for (String role : scopeRoles) {
-            int index = role.indexOf(CarbonConstants.DOMAIN_SEPARATOR);
-            if (index > 0) {
-                String domain = role.substring(0, index);
-                if (UserCoreConstants.INTERNAL_DOMAIN.equalsIgnoreCase(domain)) {
-                    for (String userRole : userRoles) {
-                        if (role.equalsIgnoreCase(userRole)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     private String[] getUserRoles(AuthenticatedUser user) throws UserStoreException {
 
         UserStoreManager userStoreManager;
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.CarbonConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2ScopeServerException;
+import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+import org.wso2.carbon.user.core.UserCoreConstants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node local index of the roles bound to the OAuth2 scopes of each tenant and of the resources protected with
+ * wildcard patterns, used by {@link JDBCScopeValidator} to authorize a request without querying the database.
+ * <p>
+ * The scopes of a tenant are loaded with a single query. Scopes written through the OAuthScopeDAO of this node update
+ * the index in place, while the timeout bounds the window in which a change done through another node is not
+ * visible. A resource path ending with '*' protects every resource starting with the rest of the path, the longest
+ * matching path wins.
+ */
+public class ResourceScopeIndex {
+
+    private static final Log log = LogFactory.getLog(ResourceScopeIndex.class);
+
+    // These config properties are defined in identity.xml
+    private static final String RESOURCE_SCOPE_INDEX_ENABLE = "OAuth.ScopeValidation.ResourceScopeIndex.Enable";
+    private static final String RESOURCE_SCOPE_INDEX_TIMEOUT = "OAuth.ScopeValidation.ResourceScopeIndex.Timeout";
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+    private static final String WILDCARD = "*";
+
+    private static volatile ResourceScopeIndex instance;
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final Map<Integer, TenantScopes> tenantScopes = new ConcurrentHashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private volatile ResourcePatterns resourcePatterns;
+
+    ResourceScopeIndex(boolean enabled, long timeoutMillis) {
+
+        this.enabled = enabled && timeoutMillis > 0;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the ResourceScopeIndex instance configured through identity.xml. The index is enabled unless it is
+     * explicitly disabled.
+     *
+     * @return ResourceScopeIndex instance.
+     */
+    public static ResourceScopeIndex getInstance() {
+
+        if (instance == null) {
+            synchronized (ResourceScopeIndex.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(RESOURCE_SCOPE_INDEX_ENABLE);
+                    instance = new ResourceScopeIndex(StringUtils.isBlank(enable) || Boolean.parseBoolean(enable),
+                            readTimeout());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the roles bound to an OAuth2 scope of the tenant.
+     *
+     * @param scopeName Name of the scope.
+     * @param tenantId  Tenant ID.
+     * @return Roles of the scope or null if the tenant does not have an OAuth2 scope with the given name.
+     * @throws IdentityOAuth2Exception If an error occurs while loading the scopes of the tenant.
+     */
+    public ScopeRoles getScopeRoles(String scopeName, int tenantId) throws IdentityOAuth2Exception {
+
+        if (!enabled || scopeName == null) {
+            return null;
+        }
+        return getTenantScopes(tenantId).scopes.get(scopeName);
+    }
+
+    /**
+     * Find the scope of a resource protected with a wildcard pattern.
+     *
+     * @param resource Resource path.
+     * @return Pair which contains the scope name and the tenant id or null if no pattern matches the resource.
+     * @throws IdentityOAuth2Exception If an error occurs while loading the resource patterns.
+     */
+    public Pair<String, Integer> findScopeOfResource(String resource) throws IdentityOAuth2Exception {
+
+        if (!enabled || resource == null) {
+            return null;
+        }
+        ResourcePatterns patterns = resourcePatterns;
+        if (patterns == null || patterns.expiryTime < System.currentTimeMillis()) {
+            patterns = loadResourcePatterns();
+        }
+        for (ResourcePattern pattern : patterns.patterns) {
+            if (resource.startsWith(pattern.prefix)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Resource: " + resource + " matched the pattern: " + pattern.prefix + WILDCARD);
+                }
+                return pattern.scope;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Update the index once an OAuth2 scope is added or updated.
+     *
+     * @param scope    Added or updated scope.
+     * @param tenantId Tenant ID.
+     */
+    public void onScopeUpdated(Scope scope, int tenantId) {
+
+        if (!enabled || scope == null || scope.getName() == null) {
+            return;
+        }
+        modificationCount.incrementAndGet();
+        TenantScopes scopes = tenantScopes.get(tenantId);
+        if (scopes != null) {
+            Set<String> bindings = new HashSet<>();
+            if (scope.getScopeBindings() != null) {
+                for (ScopeBinding scopeBinding : scope.getScopeBindings()) {
+                    bindings.addAll(scopeBinding.getBindings());
+                }
+            }
+            scopes.scopes.put(scope.getName(), new ScopeRoles(bindings));
+        }
+    }
+
+    /**
+     * Update the index once an OAuth2 scope is deleted. The resources of the scope are deleted along with it.
+     *
+     * @param scopeName Name of the deleted scope.
+     * @param tenantId  Tenant ID.
+     */
+    public void onScopeDeleted(String scopeName, int tenantId) {
+
+        if (!enabled || scopeName == null) {
+            return;
+        }
+        modificationCount.incrementAndGet();
+        TenantScopes scopes = tenantScopes.get(tenantId);
+        if (scopes != null) {
+            scopes.scopes.remove(scopeName);
+        }
+        resourcePatterns = null;
+    }
+
+    /**
+     * Clear the index, so that it is reloaded from the database on the next request.
+     */
+    public void clear() {
+
+        modificationCount.incrementAndGet();
+        tenantScopes.clear();
+        resourcePatterns = null;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    private TenantScopes getTenantScopes(int tenantId) throws IdentityOAuth2Exception {
+
+        TenantScopes scopes = tenantScopes.get(tenantId);
+        if (scopes != null && scopes.expiryTime >= System.currentTimeMillis()) {
+            return scopes;
+        }
+
+        long count = modificationCount.get();
+        Map<String, Set<String>> bindingsOfScopes;
+        try {
+            bindingsOfScopes = OAuthTokenPersistenceFactory.getInstance().getOAuthScopeDAO()
+                    .getBindingsOfScopes(tenantId);
+        } catch (IdentityOAuth2ScopeServerException e) {
+            throw new IdentityOAuth2Exception("Error while loading the OAuth2 scopes of tenant: " + tenantId, e);
+        }
+        Map<String, ScopeRoles> scopeRoles = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : bindingsOfScopes.entrySet()) {
+            scopeRoles.put(entry.getKey(), new ScopeRoles(entry.getValue()));
+        }
+        scopes = new TenantScopes(scopeRoles, System.currentTimeMillis() + timeoutMillis);
+        // A scope updated while loading may not be in the loaded scopes, hence those are used only for this request.
+        if (modificationCount.get() == count) {
+            tenantScopes.put(tenantId, scopes);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + scopeRoles.size() + " OAuth2 scopes of tenant: " + tenantId + " to the index.");
+        }
+        return scopes;
+    }
+
+    private ResourcePatterns loadResourcePatterns() throws IdentityOAuth2Exception {
+
+        long count = modificationCount.get();
+        Map<String, Pair<String, Integer>> scopesOfPatterns = OAuthTokenPersistenceFactory.getInstance()
+                .getTokenManagementDAO().getScopesOfResourcePatterns();
+        List<ResourcePattern> patterns = new ArrayList<>(scopesOfPatterns.size());
+        for (Map.Entry<String, Pair<String, Integer>> entry : scopesOfPatterns.entrySet()) {
+            if (entry.getKey().endsWith(WILDCARD) && entry.getValue() != null) {
+                patterns.add(new ResourcePattern(StringUtils.removeEnd(entry.getKey(), WILDCARD), entry.getValue()));
+            }
+        }
+        patterns.sort((pattern1, pattern2) -> pattern2.prefix.length() - pattern1.prefix.length());
+        ResourcePatterns loadedPatterns = new ResourcePatterns(patterns,
+                System.currentTimeMillis() + timeoutMillis);
+        if (modificationCount.get() == count) {
+            resourcePatterns = loadedPatterns;
+        }
+        return loadedPatterns;
+    }
+
+    private static long readTimeout() {
+
+        String value = IdentityUtil.getProperty(RESOURCE_SCOPE_INDEX_TIMEOUT);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + RESOURCE_SCOPE_INDEX_TIMEOUT +
+                        ". Using the default value: " + DEFAULT_TIMEOUT_MILLIS);
+            }
+        }
+        return DEFAULT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Roles bound to a scope.
+     */
+    public static class ScopeRoles {
+
+        private final Set<String> roles;
+        private final Set<String> internalRoles;
+
+        ScopeRoles(Collection<String> bindings) {
+
+            Set<String> roles = new HashSet<>();
+            Set<String> internalRoles = new HashSet<>();
+            if (bindings == null) {
+                bindings = Collections.emptySet();
+            }
+            for (String role : bindings) {
+                if (StringUtils.isEmpty(role)) {
+                    continue;
+                }
+                roles.add(role);
+                // Internal roles are matched ignoring the case.
+                int index = role.indexOf(CarbonConstants.DOMAIN_SEPARATOR);
+                if (index > 0 && UserCoreConstants.INTERNAL_DOMAIN.equalsIgnoreCase(role.substring(0, index))) {
+                    internalRoles.add(role.toLowerCase(Locale.ENGLISH));
+                }
+            }
+            this.roles = Collections.unmodifiableSet(roles);
+            this.internalRoles = internalRoles;
+        }
+
+        public Set<String> getRoles() {
+
+            return roles;
+        }
+
+        /**
+         * Check whether any of the given roles is bound to the scope.
+         *
+         * @param userRoles Roles of the user.
+         * @return true if at least one of the roles is bound to the scope.
+         */
+        public boolean hasAnyRole(String[] userRoles) {
+
+            if (userRoles == null) {
+                return false;
+            }
+            for (String userRole : userRoles) {
+                if (userRole == null) {
+                    continue;
+                }
+                if (roles.contains(userRole) ||
+                        (!internalRoles.isEmpty() && internalRoles.contains(userRole.toLowerCase(Locale.ENGLISH)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class TenantScopes {
+
+        private final Map<String, ScopeRoles> scopes;
+        private final long expiryTime;
+
+        private TenantScopes(Map<String, ScopeRoles> scopes, long expiryTime) {
+
+            this.scopes = scopes;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private static class ResourcePatterns {
+
+        private final List<ResourcePattern> patterns;
+        private final long expiryTime;
+
+        private ResourcePatterns(List<ResourcePattern> patterns, long expiryTime) {
+
+            this.patterns = patterns;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private static class ResourcePattern {
+
+        private final String prefix;
+        private final Pair<String, Integer> scope;
+
+        private ResourcePattern(String prefix, Pair<String, Integer> scope) {
+
+            this.prefix = prefix;
+            this.scope = scope;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.util.ArrayList;
@@ -180,6 +181,11 @@ public class TokenValidationHandler {
         if (hasAccessTokenExpired(accessTokenDO)) {
             return buildClientAppErrorResponse("Access token expired");
         }
+        // Keep the resolved token for the rest of the request, e.g. the userinfo claim retrieval.
+        TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
+        if (tokenResolutionContext != null) {
+            tokenResolutionContext.setAccessTokenDO(requestDTO.getAccessToken().getIdentifier(), accessTokenDO);
+        }
         // Set the token expiration time
         responseDTO.setExpiryTime(getAccessTokenExpirationTime(accessTokenDO));
 
@@ -233,6 +239,18 @@ public class TokenValidationHandler {
 
         OAuth2TokenValidationRequestDTO.OAuth2AccessToken oAuth2Token = validationRequest.getAccessToken();
 
+        boolean isIntrospectionCacheable = isIntrospectionCacheable(validationRequest);
+        if (isIntrospectionCacheable) {
+            IntrospectionResponseCache.Entry cachedEntry =
+                    IntrospectionResponseCache.getInstance().getEntry(oAuth2Token.getIdentifier());
+            if (cachedEntry != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Introspection response is served from the introspection cache.");
+                }
+                return buildCachedIntrospectionResponse(cachedEntry, messageContext);
+            }
+        }
+
         // To hold the applicable validators list from all the available validators. This list will be prioritized if we
         // have a token_type_hint.
         List<OAuth2TokenValidator> applicableValidators = new ArrayList<>();
@@ -267,6 +285,7 @@ public class TokenValidationHandler {
 
         // Catch the latest exception and throw it if there aren't any active tokens.
         Exception exception = null;
+        OAuth2TokenValidator activeTokenValidator = null;
         for (OAuth2TokenValidator tokenValidator : applicableValidators) {
             try {
                 if (tokenValidator.validateAccessToken(messageContext)) {
@@ -279,6 +298,7 @@ public class TokenValidationHandler {
                     // If there aren't any errors from the above special validations.
                     if (introResp.isActive()) {
                         introResp.setTokenType(tokenValidator.getTokenType());
+                        activeTokenValidator = tokenValidator;
                         break;
                     }
                 }
@@ -314,10 +334,46 @@ public class TokenValidationHandler {
             }
         }
 
+        // Only the results of the tokens persisted by this server are cached, since they can be evicted on revocation.
+        if (isIntrospectionCacheable && activeTokenValidator instanceof DefaultOAuth2TokenValidator &&
+                messageContext.getProperty(OAuthConstants.ACCESS_TOKEN_DO) instanceof AccessTokenDO) {
+            AccessTokenDO accessTokenDO = (AccessTokenDO) messageContext.getProperty(OAuthConstants.ACCESS_TOKEN_DO);
+            IntrospectionResponseCache.getInstance().addEntry(oAuth2Token.getIdentifier(), introResp, accessTokenDO,
+                    responseDTO.getScope());
+        }
+
         introResp.getProperties().put(OAuth2Util.OAUTH2_VALIDATION_MESSAGE_CONTEXT, messageContext);
         return introResp;
     }
 
+    private OAuth2IntrospectionResponseDTO buildCachedIntrospectionResponse(
+            IntrospectionResponseCache.Entry entry, OAuth2TokenValidationMessageContext messageContext) {
+
+        OAuth2IntrospectionResponseDTO introResp = entry.getResponse();
+        messageContext.addProperty(OAuthConstants.ACCESS_TOKEN_DO, entry.getAccessTokenDO());
+        messageContext.getResponseDTO().setScope(entry.getResponseScope());
+        if (introResp.getUsername() != null) {
+            messageContext.getResponseDTO().setAuthorizedUser(introResp.getUsername());
+        }
+        introResp.getProperties().put(OAuth2Util.OAUTH2_VALIDATION_MESSAGE_CONTEXT, messageContext);
+        return introResp;
+    }
+
+    /**
+     * Introspection results are only cached when enabled and when the response does not depend on the claims or the
+     * context parameters of the request.
+     *
+     * @param validationRequest Validation request.
+     * @return true if the introspection result of the request can be cached.
+     */
+    private boolean isIntrospectionCacheable(OAuth2TokenValidationRequestDTO validationRequest) {
+
+        return IntrospectionResponseCache.getInstance().isEnabled() && validationRequest.getAccessToken() != null &&
+                validationRequest.getAccessToken().getIdentifier() != null &&
+                validationRequest.getRequiredClaimURIs() == null &&
+                ArrayUtils.isEmpty(validationRequest.getContext());
+    }
+
     private OAuth2IntrospectionResponseDTO validateRefreshToken(OAuth2TokenValidationMessageContext messageContext,
                                                                 OAuth2TokenValidationRequestDTO validationRequest,
                                                                 OAuth2TokenValidator tokenValidator)
@@ -27,9 +27,7 @@ import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
-import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCache;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
-import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth.user.UserInfoEndpointException;
@@ -39,6 +37,7 @@ import org.wso2.carbon.identity.oauth2.RequestObjectException;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.model.RequestedClaim;
@@ -329,6 +328,15 @@ public abstract class AbstractUserInfoResponseBuilder implements UserInfoRespons
 
     private ServiceProvider getServiceProvider(String tenantDomain, String clientId) throws UserInfoEndpointException {
 
+        // The service provider is needed for both consent and subject claim, so it is looked up once per request.
+        TokenResolutionContext tokenResolutionContext = TokenResolutionContext.get();
+        if (tokenResolutionContext != null) {
+            ServiceProvider serviceProvider = tokenResolutionContext.getServiceProvider(clientId, tenantDomain);
+            if (serviceProvider != null) {
+                return serviceProvider;
+            }
+        }
+
         ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
         ServiceProvider serviceProvider;
         try {
@@ -339,16 +347,17 @@ public abstract class AbstractUserInfoResponseBuilder implements UserInfoRespons
             throw new UserInfoEndpointException("Error while obtaining the service provider for client_id: " +
                     clientId + " of tenantDomain: " + tenantDomain, e);
         }
+        if (tokenResolutionContext != null && serviceProvider != null) {
+            tokenResolutionContext.setServiceProvider(clientId, tenantDomain, serviceProvider);
+        }
         return serviceProvider;
     }
 
     private List<String> getEssentialClaimUris(OAuth2TokenValidationResponseDTO tokenResponse)
             throws UserInfoEndpointException {
 
-        AuthorizationGrantCacheKey cacheKey = new AuthorizationGrantCacheKey(
+        AuthorizationGrantCacheEntry cacheEntry = TokenResolutionContext.getAuthorizationGrantCacheEntry(
                 OAuth2Util.getAccessTokenIdentifier(tokenResponse));
-        AuthorizationGrantCacheEntry cacheEntry = AuthorizationGrantCache.getInstance()
-                .getValueFromCacheByToken(cacheKey);
 
         if (cacheEntry != null) {
             if (isNotEmpty(cacheEntry.getEssentialClaims())) {
@@ -49,6 +49,9 @@ import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.RefreshGrantHandler;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCUserClaimCache;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCUserClaimCacheEntry;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCUserClaimCacheKey;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.model.RequestedClaim;
 import org.wso2.carbon.user.api.UserRealm;
@@ -59,8 +62,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import static org.apache.commons.collections.MapUtils.isEmpty;
@@ -79,6 +84,9 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
     private static final String OIDC_DIALECT = "http://wso2.org/oidc/claim";
     private static final String ATTRIBUTE_SEPARATOR = FrameworkUtils.getMultiAttributeSeparator();
 
+    // Claims retrieved from the user store can not be narrowed down by scopes if a sub class filters them differently.
+    private final boolean scopeFilterOverridden = isScopeFilterOverridden();
+
     @Override
     public JWTClaimsSet handleCustomClaims(JWTClaimsSet.Builder jwtClaimsSetBuilder, OAuthTokenReqMessageContext
             tokenReqMessageContext) throws IdentityOAuth2Exception {
@@ -193,10 +201,7 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
 
         if (accessToken != null) {
             if (StringUtils.isNotBlank(authorizationCode)) {
-                AuthorizationGrantCacheKey cacheKey = new AuthorizationGrantCacheKey(authorizationCode);
-                AuthorizationGrantCacheEntry cacheEntry =
-                        AuthorizationGrantCache.getInstance().getValueFromCacheByCode(cacheKey);
-                if (cacheEntry != null && cacheEntry.isRequestObjectFlow()) {
+                if (isRequestObjectFlow(authorizationCode)) {
                     // Handle essential claims of the request object
                     Map<String, Object> claimsFromRequestObject =
                             filterClaimsFromRequestObject(userClaimsInOIDCDialect, accessToken);
@@ -215,6 +220,96 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
                 spTenantDomain);
     }
 
+    private boolean isRequestObjectFlow(String authorizationCode) {
+
+        if (StringUtils.isBlank(authorizationCode)) {
+            return false;
+        }
+        AuthorizationGrantCacheKey cacheKey = new AuthorizationGrantCacheKey(authorizationCode);
+        AuthorizationGrantCacheEntry cacheEntry =
+                AuthorizationGrantCache.getInstance().getValueFromCacheByCode(cacheKey);
+        return cacheEntry != null && cacheEntry.isRequestObjectFlow();
+    }
+
+    /**
+     * Get the OIDC claims which can be returned after the user claims are filtered by the approved scopes and the
+     * claims requested in the request object, so only these claims are retrieved from the user store. User consent
+     * is applied after the claims are retrieved, as it only removes claims.
+     *
+     * @param accessToken       Access token.
+     * @param authorizationCode Authorization code.
+     * @param approvedScopes    Approved scopes.
+     * @param spTenantDomain    Tenant domain of the service provider.
+     * @return Permitted OIDC claims, or null if the claims to be retrieved can not be narrowed down.
+     */
+    private Set<String> getPermittedOIDCClaims(String accessToken,
+                                               String authorizationCode,
+                                               String[] approvedScopes,
+                                               String spTenantDomain) {
+
+        OpenIDConnectClaimFilter claimFilter =
+                OpenIDConnectServiceComponentHolder.getInstance().getHighestPriorityOpenIDConnectClaimFilter();
+        if (scopeFilterOverridden || approvedScopes == null ||
+                !(claimFilter instanceof OpenIDConnectClaimFilterImpl)) {
+            return null;
+        }
+        Set<String> permittedClaims = new HashSet<>(((OpenIDConnectClaimFilterImpl) claimFilter)
+                .getClaimsPermittedByOIDCScopes(approvedScopes, spTenantDomain));
+
+        if (accessToken != null && isRequestObjectFlow(authorizationCode)) {
+            try {
+                List<RequestedClaim> requestedClaims = OpenIDConnectServiceComponentHolder.getRequestObjectService()
+                        .getRequestedClaimsForIDToken(accessToken);
+                if (requestedClaims != null) {
+                    for (RequestedClaim requestedClaim : requestedClaims) {
+                        permittedClaims.add(requestedClaim.getName());
+                    }
+                }
+            } catch (RequestObjectException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to retrieve requested claims from Request Object. All the requested claims " +
+                            "of the service provider are retrieved from the user store.", e);
+                }
+                return null;
+            }
+        }
+        return permittedClaims;
+    }
+
+    private Set<String> getPermittedOIDCClaims(OAuthTokenReqMessageContext requestMsgCtx) {
+
+        Object hasNonOIDCClaimsProperty = requestMsgCtx.getProperty(OIDCConstants.HAS_NON_OIDC_CLAIMS);
+        if (isPreserverClaimUrisInAssertion(requestMsgCtx) || (hasNonOIDCClaimsProperty != null
+                && (Boolean) hasNonOIDCClaimsProperty)) {
+            // User claims are not filtered.
+            return null;
+        }
+        return getPermittedOIDCClaims(getAccessToken(requestMsgCtx), getAuthorizationCode(requestMsgCtx),
+                requestMsgCtx.getScope(), requestMsgCtx.getOauth2AccessTokenReqDTO().getTenantDomain());
+    }
+
+    private Set<String> getPermittedOIDCClaims(OAuthAuthzReqMessageContext authzReqMessageContext) {
+
+        return getPermittedOIDCClaims(getAccessToken(authzReqMessageContext), StringUtils.EMPTY,
+                authzReqMessageContext.getApprovedScope(),
+                authzReqMessageContext.getAuthorizationReqDTO().getTenantDomain());
+    }
+
+    private boolean isScopeFilterOverridden() {
+
+        for (Class<?> clazz = getClass(); clazz != DefaultOIDCClaimsCallbackHandler.class;
+             clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("filterClaimsByScope", Map.class, String[].class, String.class,
+                        String.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class, check the super class.
+            }
+        }
+        return false;
+    }
+
     private boolean isPreserverClaimUrisInAssertion(OAuthTokenReqMessageContext requestMsgCtx) {
 
         return !OAuthServerConfiguration.getInstance().isConvertOriginalClaimsFromAssertionsToOIDCDialect() &&
@@ -310,7 +405,8 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
             String clientId = requestMsgCtx.getOauth2AccessTokenReqDTO().getClientId();
             AuthenticatedUser authenticatedUser = requestMsgCtx.getAuthorizedUser();
 
-            return getUserClaimsInOIDCDialect(spTenantDomain, clientId, authenticatedUser);
+            return getUserClaimsInOIDCDialect(spTenantDomain, clientId, authenticatedUser,
+                    getPermittedOIDCClaims(requestMsgCtx));
         } catch (UserStoreException | IdentityApplicationManagementException | IdentityException e) {
             if (FrameworkUtils.isContinueOnClaimHandlingErrorAllowed()) {
                 log.error("Error occurred while getting claims for user: " + requestMsgCtx.getAuthorizedUser() +
@@ -420,7 +516,8 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
             String clientId = authzReqMessageContext.getAuthorizationReqDTO().getConsumerKey();
             AuthenticatedUser authenticatedUser = authzReqMessageContext.getAuthorizationReqDTO().getUser();
 
-            return getUserClaimsInOIDCDialect(spTenantDomain, clientId, authenticatedUser);
+            return getUserClaimsInOIDCDialect(spTenantDomain, clientId, authenticatedUser,
+                    getPermittedOIDCClaims(authzReqMessageContext));
         } catch (UserStoreException | IdentityApplicationManagementException | IdentityException e) {
             if (FrameworkUtils.isContinueOnClaimHandlingErrorAllowed()) {
                 log.error("Error occurred while getting claims for user " +
@@ -452,7 +549,8 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
 
     private Map<String, Object> getUserClaimsInOIDCDialect(String spTenantDomain,
                                                            String clientId,
-                                                           AuthenticatedUser authenticatedUser)
+                                                           AuthenticatedUser authenticatedUser,
+                                                           Set<String> permittedOIDCClaims)
             throws IdentityApplicationManagementException, IdentityException, UserStoreException {
 
         Map<String, Object> userClaimsMappedToOIDCDialect = new HashMap<>();
@@ -483,7 +581,18 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
         }
 
         List<String> requestedClaimUris = getRequestedClaimUris(requestClaimMappings);
-        Map<String, String> userClaims = getUserClaimsInLocalDialect(fullQualifiedUsername, realm, requestedClaimUris);
+        if (permittedOIDCClaims != null) {
+            requestedClaimUris = getPermittedClaimUris(requestedClaimUris, permittedOIDCClaims, spTenantDomain);
+            if (requestedClaimUris.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("None of the requested claims of service provider: " +
+                            serviceProvider.getApplicationName() + " are permitted for the request. No claims " +
+                            "returned for user: " + authenticatedUser);
+                }
+                return userClaimsMappedToOIDCDialect;
+            }
+        }
+        Map<String, String> userClaims = getUserClaimsInLocalDialect(authenticatedUser, realm, requestedClaimUris);
 
         if (isEmpty(userClaims)) {
             // User claims can be empty if user does not exist in user stores. Probably a federated user.
@@ -524,6 +633,93 @@ public class DefaultOIDCClaimsCallbackHandler implements CustomClaimsCallbackHan
         return getUserClaimsInOidcDialect(oidcToLocalClaimMappings, userClaims);
     }
 
+    /**
+     * Get the requested claims of the service provider which are mapped to a permitted OIDC claim.
+     *
+     * @param requestedClaimUris  Local claim URIs requested by the service provider.
+     * @param permittedOIDCClaims Permitted claims in OIDC dialect.
+     * @param spTenantDomain      Tenant domain of the service provider.
+     * @return Local claim URIs to be retrieved from the user store.
+     */
+    private List<String> getPermittedClaimUris(List<String> requestedClaimUris,
+                                               Set<String> permittedOIDCClaims,
+                                               String spTenantDomain) {
+
+        Map<String, String> oidcToLocalClaimMappings;
+        try {
+            oidcToLocalClaimMappings = ClaimMetadataHandler.getInstance()
+                    .getMappingsMapFromOtherDialectToCarbon(OIDC_DIALECT, null, spTenantDomain, false);
+        } catch (ClaimMetadataException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while retrieving OIDC to local claim mappings of tenantDomain: " + spTenantDomain +
+                        ". All the requested claims of the service provider are retrieved from the user store.", e);
+            }
+            return requestedClaimUris;
+        }
+
+        Set<String> permittedLocalClaimUris = new HashSet<>();
+        for (String permittedOIDCClaim : permittedOIDCClaims) {
+            String localClaimUri = oidcToLocalClaimMappings.get(permittedOIDCClaim);
+            if (localClaimUri != null) {
+                permittedLocalClaimUris.add(localClaimUri);
+            }
+        }
+        List<String> permittedClaimUris = new ArrayList<>();
+        for (String requestedClaimUri : requestedClaimUris) {
+            if (permittedLocalClaimUris.contains(requestedClaimUri)) {
+                permittedClaimUris.add(requestedClaimUri);
+            }
+        }
+        return permittedClaimUris;
+    }
+
+    /**
+     * Get the user claims from the user store, through {@link OIDCUserClaimCache} when it is enabled. Only the
+     * claims which are not already cached for the user are retrieved.
+     *
+     * @param authenticatedUser Authenticated user.
+     * @param realm             User realm of the user.
+     * @param claimURIList      Local claim URIs.
+     * @return User claims in local dialect.
+     * @throws UserStoreException If the claims could not be retrieved from the user store.
+     */
+    private Map<String, String> getUserClaimsInLocalDialect(AuthenticatedUser authenticatedUser,
+                                                            UserRealm realm,
+                                                            List<String> claimURIList)
+            throws UserStoreException {
+
+        String fullQualifiedUsername = authenticatedUser.toFullQualifiedUsername();
+        OIDCUserClaimCache userClaimCache = OIDCUserClaimCache.getInstance();
+        if (!userClaimCache.isEnabled()) {
+            return getUserClaimsInLocalDialect(fullQualifiedUsername, realm, claimURIList);
+        }
+
+        OIDCUserClaimCacheKey cacheKey = new OIDCUserClaimCacheKey(authenticatedUser.getUserName(),
+                authenticatedUser.getUserStoreDomain(), authenticatedUser.getTenantDomain());
+        OIDCUserClaimCacheEntry cacheEntry = userClaimCache.getUserClaims(cacheKey);
+        List<String> missingClaimUris =
+                cacheEntry == null ? claimURIList : cacheEntry.getMissingClaimUris(claimURIList);
+        if (missingClaimUris.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Requested claims of user: " + fullQualifiedUsername + " found in the cache.");
+            }
+            return cacheEntry.getClaimValues(claimURIList);
+        }
+
+        Map<String, String> userClaims = getUserClaimsInLocalDialect(fullQualifiedUsername, realm,
+                missingClaimUris);
+        if (userClaims == null) {
+            userClaims = Collections.emptyMap();
+        }
+        if (cacheEntry == null) {
+            cacheEntry = new OIDCUserClaimCacheEntry(userClaims, missingClaimUris, System.currentTimeMillis());
+        } else {
+            cacheEntry = cacheEntry.merge(userClaims, missingClaimUris);
+        }
+        userClaimCache.addUserClaims(cacheKey, cacheEntry);
+        return cacheEntry.getClaimValues(claimURIList);
+    }
+
     private Map<String, String> getUserClaimsInLocalDialect(String username,
                                                             UserRealm realm,
                                                             List<String> claimURIList)
@@ -25,10 +25,9 @@ import org.wso2.carbon.identity.application.authentication.framework.util.Framew
 import org.wso2.carbon.identity.application.common.model.RoleMapping;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
-import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCache;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
-import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.token.TokenResolutionContext;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.user.core.UserCoreConstants;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
@@ -150,9 +149,8 @@ public class OIDCClaimUtil {
 
     public static String getSubjectClaimCachedAgainstAccessToken(String accessToken) {
         if (isNotBlank(accessToken)) {
-            AuthorizationGrantCacheKey cacheKey = new AuthorizationGrantCacheKey(accessToken);
             AuthorizationGrantCacheEntry cacheEntry =
-                    AuthorizationGrantCache.getInstance().getValueFromCacheByToken(cacheKey);
+                    TokenResolutionContext.getAuthorizationGrantCacheEntry(accessToken);
             if (cacheEntry != null) {
                 return cacheEntry.getSubjectClaim();
             }
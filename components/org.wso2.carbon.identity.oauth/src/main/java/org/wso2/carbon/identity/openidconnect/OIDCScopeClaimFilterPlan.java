@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.oauth.dto.ScopeDTO;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable plan to filter user claims by the OIDC scopes of a tenant, compiled from its scope claim mappings.
+ * <p>
+ * Each OIDC scope is assigned a bit, so a set of requested scopes is a {@link BitSet}. The claims permitted by a
+ * combination of scopes are resolved once, with the "address." prefix already removed from the address claims, and
+ * kept for later requests with the same combination of scopes.
+ */
+public class OIDCScopeClaimFilterPlan {
+
+    private static final String ADDRESS_PREFIX = "address.";
+    private static final String ADDRESS_SCOPE = "address";
+    // Bounds the resolved claim sets kept per tenant, since the requested scopes are chosen by the clients.
+    private static final int MAX_RESOLVED_CLAIM_SETS = 512;
+
+    private final Map<String, Integer> scopeIndexes = new HashMap<>();
+    private final Map<String, List<String>> scopeClaims = new HashMap<>();
+    private final Map<BitSet, ClaimSet> resolvedClaimSets = new ConcurrentHashMap<>();
+    private final String[][] claimsOfScopes;
+    private final Set<String> addressScopeClaims;
+
+    /**
+     * @param scopes OIDC scopes of the tenant, with their mapped claims.
+     */
+    public OIDCScopeClaimFilterPlan(List<ScopeDTO> scopes) {
+
+        for (ScopeDTO scope : scopes) {
+            String[] claims = scope.getClaim() != null ? scope.getClaim() : new String[0];
+            scopeClaims.put(scope.getName(), Collections.unmodifiableList(Arrays.asList(claims)));
+        }
+        claimsOfScopes = new String[scopeClaims.size()][];
+        int index = 0;
+        for (Map.Entry<String, List<String>> entry : scopeClaims.entrySet()) {
+            scopeIndexes.put(entry.getKey(), index);
+            claimsOfScopes[index++] = entry.getValue().toArray(new String[0]);
+        }
+        List<String> addressClaims = scopeClaims.get(ADDRESS_SCOPE);
+        addressScopeClaims = addressClaims != null ? new HashSet<>(addressClaims) : Collections.emptySet();
+    }
+
+    /**
+     * @return True if the tenant has no OIDC scopes.
+     */
+    public boolean isEmpty() {
+
+        return scopeClaims.isEmpty();
+    }
+
+    /**
+     * @param scope Scope name.
+     * @return True if the scope is an OIDC scope of the tenant.
+     */
+    public boolean isOIDCScope(String scope) {
+
+        return scopeIndexes.containsKey(scope);
+    }
+
+    /**
+     * @param scope OIDC scope name.
+     * @return Claim URIs mapped to the scope, or an empty list if the scope is not an OIDC scope.
+     */
+    public List<String> getClaimUris(String scope) {
+
+        List<String> claims = scopeClaims.get(scope);
+        return claims != null ? claims : Collections.emptyList();
+    }
+
+    /**
+     * Get the claims permitted by the requested scopes. Scopes which are not OIDC scopes are ignored.
+     *
+     * @param requestedScopes Requested scopes.
+     * @return Permitted claims.
+     */
+    public ClaimSet getClaimSet(String[] requestedScopes) {
+
+        BitSet scopeBits = new BitSet(claimsOfScopes.length);
+        for (String requestedScope : requestedScopes) {
+            Integer index = scopeIndexes.get(requestedScope);
+            if (index != null) {
+                scopeBits.set(index);
+            }
+        }
+        ClaimSet claimSet = resolvedClaimSets.get(scopeBits);
+        if (claimSet == null) {
+            claimSet = resolveClaimSet(scopeBits);
+            if (resolvedClaimSets.size() < MAX_RESOLVED_CLAIM_SETS) {
+                resolvedClaimSets.put(scopeBits, claimSet);
+            }
+        }
+        return claimSet;
+    }
+
+    private ClaimSet resolveClaimSet(BitSet scopeBits) {
+
+        Set<String> claims = new HashSet<>();
+        Set<String> addressClaims = new HashSet<>();
+        for (int index = scopeBits.nextSetBit(0); index >= 0; index = scopeBits.nextSetBit(index + 1)) {
+            for (String claim : claimsOfScopes[index]) {
+                if (StringUtils.startsWith(claim, ADDRESS_PREFIX)) {
+                    addressClaims.add(StringUtils.substringAfterLast(claim, ADDRESS_PREFIX));
+                } else if (addressScopeClaims.contains(claim)) {
+                    addressClaims.add(claim);
+                } else {
+                    claims.add(claim);
+                }
+            }
+        }
+        return new ClaimSet(claims, addressClaims);
+    }
+
+    /**
+     * Claims permitted by a set of requested scopes.
+     */
+    public static class ClaimSet {
+
+        private final Set<String> claims;
+        private final Set<String> addressClaims;
+
+        ClaimSet(Set<String> claims, Set<String> addressClaims) {
+
+            this.claims = Collections.unmodifiableSet(claims);
+            this.addressClaims = Collections.unmodifiableSet(addressClaims);
+        }
+
+        /**
+         * @return Permitted claim URIs which are returned as top level claims.
+         */
+        public Set<String> getClaims() {
+
+            return claims;
+        }
+
+        /**
+         * @return Permitted claim URIs, without the "address." prefix, which are returned within the address claim.
+         */
+        public Set<String> getAddressClaims() {
+
+            return addressClaims;
+        }
+
+        /**
+         * @return True if no claims are permitted.
+         */
+        public boolean isEmpty() {
+
+            return claims.isEmpty() && addressClaims.isEmpty();
+        }
+    }
+}
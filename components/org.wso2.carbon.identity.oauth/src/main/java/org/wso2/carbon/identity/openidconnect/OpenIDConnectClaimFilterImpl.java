@@ -36,6 +36,7 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimFilterPlanCache;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.model.RequestedClaim;
 import org.wso2.carbon.registry.api.RegistryException;
@@ -44,10 +45,10 @@ import org.wso2.carbon.registry.core.service.RegistryService;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -73,8 +74,6 @@ import static org.wso2.carbon.identity.oauth.common.OAuthConstants.SCOPE_RESOURC
  */
 public class OpenIDConnectClaimFilterImpl implements OpenIDConnectClaimFilter {
 
-    private static final String ADDRESS_PREFIX = "address.";
-    private static final String ADDRESS_SCOPE = "address";
     private static final String OIDC_DIALECT = "http://wso2.org/oidc/claim";
 
     private static final Log log = LogFactory.getLog(OpenIDConnectClaimFilterImpl.class);
@@ -93,81 +92,77 @@ public class OpenIDConnectClaimFilterImpl implements OpenIDConnectClaimFilter {
         }
 
         Map<String, Object> claimsToBeReturned = new HashMap<>();
-        Map<String, Object> addressScopeClaims = new HashMap<>();
-
-        // Map<"openid", "first_name,last_name,username">
-        Map<String, List<String>> scopeClaimsMap = new HashMap<>();
         int tenantId = IdentityTenantUtil.getTenantId(spTenantDomain);
-        //load oidc scopes and mapped claims from the cache or db.
-        List<ScopeDTO> oidcScopesList = getOIDCScopes(tenantId);
-        for (ScopeDTO scope : oidcScopesList) {
-            scopeClaimsMap.put(scope.getName(), Arrays.asList(scope.getClaim()));
-        }
-        if (MapUtils.isNotEmpty(scopeClaimsMap)) {
-            List<String> addressScopeClaimUris = getAddressScopeClaimUris(scopeClaimsMap);
-            // Iterate through scopes requested in the OAuth2/OIDC request to filter claims
-            for (String requestedScope : requestedScopes) {
-                // Check if requested scope is a supported OIDC scope value
-
-                if (scopeClaimsMap.containsKey(requestedScope)) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Requested scope: " + requestedScope + " is a defined OIDC Scope in tenantDomain: " +
-                                spTenantDomain + ". Filtering claims based on the permitted claims in the scope.");
-                    }
-                    // Requested scope is an registered OIDC scope. Filter and return the claims belonging to the scope.
-                    Map<String, Object> filteredClaims =
-                            handleRequestedOIDCScope(userClaims, addressScopeClaims, scopeClaimsMap,
-                                    addressScopeClaimUris, requestedScope);
-                    claimsToBeReturned.putAll(filteredClaims);
-                } else {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Requested scope: " + requestedScope + " is not a defined OIDC Scope in " +
-                                "tenantDomain: " + spTenantDomain + ".");
-                    }
-                }
-            }
-        } else {
+        OIDCScopeClaimFilterPlan filterPlan = getFilterPlan(tenantId);
+        if (filterPlan.isEmpty()) {
             if (log.isDebugEnabled()) {
                 log.debug("No OIDC scopes defined for tenantDomain: " + spTenantDomain + ". Cannot proceed with " +
                         "filtering user claims therefore returning an empty claim map.");
             }
+            return claimsToBeReturned;
+        }
+        if (log.isDebugEnabled()) {
+            logRequestedScopes(filterPlan, requestedScopes, spTenantDomain);
         }
 
-        // Some OIDC claims need special formatting etc. These are handled below.
+        OIDCScopeClaimFilterPlan.ClaimSet permittedClaims = filterPlan.getClaimSet(requestedScopes);
+        if (permittedClaims.isEmpty()) {
+            return claimsToBeReturned;
+        }
+        Map<String, Object> addressScopeClaims = new HashMap<>();
+        for (Map.Entry<String, Object> userClaim : userClaims.entrySet()) {
+            String claimUri = userClaim.getKey();
+            if (permittedClaims.getClaims().contains(claimUri)) {
+                // Some OIDC claims need special formatting etc. These are handled here.
+                claimsToBeReturned.put(claimUri, formatClaimValue(claimUri, userClaim.getValue()));
+            }
+            if (permittedClaims.getAddressClaims().contains(claimUri)) {
+                addressScopeClaims.put(claimUri, userClaim.getValue());
+            }
+        }
         if (isNotEmpty(addressScopeClaims)) {
             handleAddressClaim(claimsToBeReturned, addressScopeClaims);
         }
+        return claimsToBeReturned;
+    }
 
-        handleUpdateAtClaim(claimsToBeReturned);
-        handlePhoneNumberVerifiedClaim(claimsToBeReturned);
-        handleEmailVerifiedClaim(claimsToBeReturned);
+    /**
+     * Get the user claims which {@link #getClaimsFilteredByOIDCScopes(Map, String[], String, String)} keeps for the
+     * requested scopes, so only these claims need to be retrieved for the user.
+     *
+     * @param requestedScopes Requested scopes.
+     * @param spTenantDomain  Tenant domain of the service provider.
+     * @return Permitted claim URIs in OIDC dialect.
+     */
+    public Set<String> getClaimsPermittedByOIDCScopes(String[] requestedScopes, String spTenantDomain) {
 
-        return claimsToBeReturned;
+        OIDCScopeClaimFilterPlan filterPlan = getFilterPlan(IdentityTenantUtil.getTenantId(spTenantDomain));
+        if (filterPlan.isEmpty()) {
+            return Collections.emptySet();
+        }
+        OIDCScopeClaimFilterPlan.ClaimSet claimSet = filterPlan.getClaimSet(requestedScopes);
+        Set<String> permittedClaims = new HashSet<>(claimSet.getClaims());
+        permittedClaims.addAll(claimSet.getAddressClaims());
+        return permittedClaims;
     }
 
     @Override
     public List<String> getClaimsFilteredByOIDCScopes(Set<String> requestedScopes, String spTenantDomain) {
 
-        // Map<"openid", "first_name,last_name,username">
-        Map<String, List<String>> scopeClaimsMap = new HashMap<>();
         int tenantId = IdentityTenantUtil.getTenantId(spTenantDomain);
         List<String> filteredClaims = new ArrayList<>();
-        //load oidc scopes and mapped claims from the cache or db.
-        List<ScopeDTO> oidcScopesList = getOIDCScopes(tenantId);
-        if (CollectionUtils.isNotEmpty(oidcScopesList)) {
-            for (ScopeDTO scope : oidcScopesList) {
-                scopeClaimsMap.put(scope.getName(), Arrays.asList(scope.getClaim()));
-            }
+        OIDCScopeClaimFilterPlan filterPlan = getFilterPlan(tenantId);
+        if (!filterPlan.isEmpty()) {
             // Iterate through scopes requested in the OAuth2/OIDC request to filter claims
             for (String requestedScope : requestedScopes) {
                 // Check if requested scope is a supported OIDC scope value
-                if (scopeClaimsMap.containsKey(requestedScope)) {
+                if (filterPlan.isOIDCScope(requestedScope)) {
                     if (log.isDebugEnabled()) {
                         log.debug("Requested scope: " + requestedScope + " is a defined OIDC Scope in tenantDomain: " +
                                 spTenantDomain + ". Filtering claims based on the permitted claims in the scope.");
                     }
                     // Requested scope is an registered OIDC scope. Filter and return the claims belonging to the scope.
-                    filteredClaims.addAll(getClaimUrisInSupportedOIDCScope(scopeClaimsMap, requestedScope));
+                    filteredClaims.addAll(filterPlan.getClaimUris(requestedScope));
                 } else {
                     if (log.isDebugEnabled()) {
                         log.debug("Requested scope: " + requestedScope + " is not a defined OIDC Scope in " +
@@ -324,59 +319,41 @@ public class OpenIDConnectClaimFilterImpl implements OpenIDConnectClaimFilter {
         return oidcScopesList;
     }
 
-    private Map<String, Object> handleRequestedOIDCScope(Map<String, Object> userClaimsInOIDCDialect,
-                                                         Map<String, Object> addressScopeClaims,
-                                                         Map<String, List<String>> scopeClaimsMap,
-                                                         List<String> addressScopeClaimUris,
-                                                         String oidcScope) {
-
-        Map<String, Object> filteredClaims = new HashMap<>();
-        List<String> claimUrisInRequestedScope = getClaimUrisInSupportedOIDCScope(scopeClaimsMap, oidcScope);
-        for (String scopeClaim : claimUrisInRequestedScope) {
-            String oidcClaimUri = scopeClaim;
-            boolean isAddressClaim = false;
-            if (isAddressClaim(scopeClaim, addressScopeClaimUris)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Identified an address claim: " + scopeClaim + ". Removing \"address.\" prefix from " +
-                            "the claimUri");
-                }
-                oidcClaimUri = removeAddressPrefix(scopeClaim);
-                isAddressClaim = true;
-            }
-            // Check whether the user claims contain the permitted claim uri
-            if (userClaimsInOIDCDialect.containsKey(oidcClaimUri)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Adding claim:" + oidcClaimUri + " into the filtered claims");
-                }
-                Object claimValue = userClaimsInOIDCDialect.get(oidcClaimUri);
-                // User claim is allowed for this scope.
-                if (isAddressClaim) {
-                    addressScopeClaims.put(oidcClaimUri, claimValue);
-                } else {
-                    filteredClaims.put(oidcClaimUri, claimValue);
-                }
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("No valid user claim value found for the claimUri:" + oidcClaimUri);
-                }
+    /**
+     * Get the claim filter plan of the tenant. The plan is compiled only when it is not compiled yet, or has been
+     * cleared since the scope claim mappings changed.
+     *
+     * @param tenantId Tenant id.
+     * @return Claim filter plan.
+     */
+    private OIDCScopeClaimFilterPlan getFilterPlan(int tenantId) {
+
+        // Load the mappings first, since reloading them into the cache clears the plan of the tenant.
+        List<ScopeDTO> oidcScopesList = getOIDCScopes(tenantId);
+        OIDCScopeClaimFilterPlanCache filterPlanCache = OIDCScopeClaimFilterPlanCache.getInstance();
+        OIDCScopeClaimFilterPlan filterPlan = filterPlanCache.getFilterPlan(tenantId);
+        if (filterPlan == null) {
+            filterPlan = new OIDCScopeClaimFilterPlan(oidcScopesList);
+            filterPlanCache.addFilterPlan(tenantId, filterPlan);
+            if (log.isDebugEnabled()) {
+                log.debug("Compiled the OIDC scope claim filter plan for the tenant: " + tenantId);
             }
         }
-        return filteredClaims;
+        return filterPlan;
     }
 
-    /**
-     * There can be situations where we have added a scope prefix to identify special claims.
-     * <p>
-     * For example, claims belonging to address can be prefixed as address.country, address.street. But when
-     * returning we need to remove the prefix.
-     *
-     * @param scopeClaim claim uri defined in the OIDC Scope
-     * @return Scope prefix removed claim URI
-     */
-    private String removeAddressPrefix(String scopeClaim) {
+    private void logRequestedScopes(OIDCScopeClaimFilterPlan filterPlan, String[] requestedScopes,
+                                    String spTenantDomain) {
 
-        return StringUtils.startsWith(scopeClaim, ADDRESS_PREFIX) ?
-                StringUtils.substringAfterLast(scopeClaim, ADDRESS_PREFIX) : scopeClaim;
+        for (String requestedScope : requestedScopes) {
+            if (filterPlan.isOIDCScope(requestedScope)) {
+                log.debug("Requested scope: " + requestedScope + " is a defined OIDC Scope in tenantDomain: " +
+                        spTenantDomain + ". Filtering claims based on the permitted claims in the scope.");
+            } else {
+                log.debug("Requested scope: " + requestedScope + " is not a defined OIDC Scope in " +
+                        "tenantDomain: " + spTenantDomain + ".");
+            }
+        }
     }
 
     private void handleAddressClaim(Map<String, Object> returnedClaims,
@@ -391,63 +368,31 @@ public class OpenIDConnectClaimFilterImpl implements OpenIDConnectClaimFilter {
         }
     }
 
-    private List<String> getAddressScopeClaimUris(Map<String, List<String>> scopeClaimsMap) {
+    private Object formatClaimValue(String claimUri, Object claimValue) {
 
-        return getClaimUrisInSupportedOIDCScope(scopeClaimsMap, ADDRESS_SCOPE);
-    }
-
-    private boolean isAddressClaim(String scopeClaim, List<String> addressScopeClaims) {
-
-        return StringUtils.startsWith(scopeClaim, ADDRESS_PREFIX) || addressScopeClaims.contains(scopeClaim);
-    }
-
-    private List<String> getClaimUrisInSupportedOIDCScope(Map<String, List<String>> scopeClaimsMap,
-                                                          String requestedScope) {
-
-        List<String> requestedScopeClaimsList = new ArrayList<>();
-        if (scopeClaimsMap.containsKey(requestedScope)) {
-            requestedScopeClaimsList = scopeClaimsMap.get(requestedScope);
+        if (!(claimValue instanceof String)) {
+            return claimValue;
         }
-        return requestedScopeClaimsList;
-    }
-
-    private void handleUpdateAtClaim(Map<String, Object> returnClaims) {
-
-        if (returnClaims.containsKey(UPDATED_AT) && returnClaims.get(UPDATED_AT) != null &&
-                returnClaims.get(UPDATED_AT) instanceof String) {
-
-            // We should pass the updated_at claim in number of seconds from 1970-01-01T00:00:00Z as measured in UTC
-            // until the date/time. So we have to convert the date (If stored in that format) value in to this format.
-            long timeInMillis;
-            Date date = getDateIfValidDateString((String) (returnClaims.get(UPDATED_AT)));
-            if (date != null) {
-                timeInMillis = date.getTime();
-            } else {
-                timeInMillis = Long.parseLong((String) (returnClaims.get(UPDATED_AT)));
-            }
-            returnClaims.put(UPDATED_AT, timeInMillis);
+        switch (claimUri) {
+            case UPDATED_AT:
+                return formatUpdatedAtClaim((String) claimValue);
+            case PHONE_NUMBER_VERIFIED:
+            case EMAIL_VERIFIED:
+                return Boolean.valueOf((String) claimValue);
+            default:
+                return claimValue;
         }
     }
 
-    private void handlePhoneNumberVerifiedClaim(Map<String, Object> returnClaims) {
+    private long formatUpdatedAtClaim(String updatedAt) {
 
-        if (returnClaims.containsKey(PHONE_NUMBER_VERIFIED)) {
-            if (returnClaims.get(PHONE_NUMBER_VERIFIED) != null) {
-                if (returnClaims.get(PHONE_NUMBER_VERIFIED) instanceof String) {
-                    returnClaims.put(PHONE_NUMBER_VERIFIED, (Boolean.valueOf((String)
-                            (returnClaims.get(PHONE_NUMBER_VERIFIED)))));
-                }
-            }
-        }
-    }
-
-    private void handleEmailVerifiedClaim(Map<String, Object> returnClaims) {
-
-        if (returnClaims.containsKey(EMAIL_VERIFIED) && returnClaims.get(EMAIL_VERIFIED) != null) {
-            if (returnClaims.get(EMAIL_VERIFIED) instanceof String) {
-                returnClaims.put(EMAIL_VERIFIED, (Boolean.valueOf((String) (returnClaims.get(EMAIL_VERIFIED)))));
-            }
+        // We should pass the updated_at claim in number of seconds from 1970-01-01T00:00:00Z as measured in UTC
+        // until the date/time. So we have to convert the date (If stored in that format) value in to this format.
+        Date date = getDateIfValidDateString(updatedAt);
+        if (date != null) {
+            return date.getTime();
         }
+        return Long.parseLong(updatedAt);
     }
 
     private void startTenantFlow(String tenantDomain, int tenantId) {
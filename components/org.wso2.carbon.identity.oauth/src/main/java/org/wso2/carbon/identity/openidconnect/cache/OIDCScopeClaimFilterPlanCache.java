@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.wso2.carbon.identity.openidconnect.OIDCScopeClaimFilterPlan;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node local store of the {@link OIDCScopeClaimFilterPlan} compiled for each tenant.
+ * <p>
+ * A plan is compiled once and kept until it is cleared, which happens when the scope claim mappings of the tenant
+ * are changed, when they are loaded again into the {@link OIDCScopeClaimCache} after being invalidated by another
+ * node, and when the tenant is deleted.
+ */
+public class OIDCScopeClaimFilterPlanCache {
+
+    private static volatile OIDCScopeClaimFilterPlanCache instance;
+
+    private final Map<Integer, OIDCScopeClaimFilterPlan> filterPlans = new ConcurrentHashMap<>();
+
+    private OIDCScopeClaimFilterPlanCache() {
+
+    }
+
+    public static OIDCScopeClaimFilterPlanCache getInstance() {
+
+        if (instance == null) {
+            synchronized (OIDCScopeClaimFilterPlanCache.class) {
+                if (instance == null) {
+                    instance = new OIDCScopeClaimFilterPlanCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param tenantId Tenant id.
+     * @return Compiled claim filter plan of the tenant, or null if it is not compiled yet.
+     */
+    public OIDCScopeClaimFilterPlan getFilterPlan(int tenantId) {
+
+        return filterPlans.get(tenantId);
+    }
+
+    /**
+     * @param tenantId   Tenant id.
+     * @param filterPlan Compiled claim filter plan of the tenant.
+     */
+    public void addFilterPlan(int tenantId, OIDCScopeClaimFilterPlan filterPlan) {
+
+        filterPlans.put(tenantId, filterPlan);
+    }
+
+    /**
+     * @param tenantId Tenant id.
+     */
+    public void clearFilterPlan(int tenantId) {
+
+        filterPlans.remove(tenantId);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.cache.BaseCache;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the local claim values retrieved from the user store to build id_tokens. Entries are used for a short
+ * timeout, configured in seconds with the OAuth.OpenIDConnect.UserClaimCacheTimeout property, and are cleared when the
+ * claims or roles of the user are updated. The cache is not used unless a timeout is configured.
+ */
+public class OIDCUserClaimCache extends BaseCache<OIDCUserClaimCacheKey, OIDCUserClaimCacheEntry> {
+
+    private static final Log log = LogFactory.getLog(OIDCUserClaimCache.class);
+
+    private static final String OIDC_USER_CLAIM_CACHE = "OIDCUserClaimCache";
+    // This config property is defined in identity.xml
+    private static final String USER_CLAIM_CACHE_TIMEOUT = "OAuth.OpenIDConnect.UserClaimCacheTimeout";
+
+    private static volatile OIDCUserClaimCache instance;
+
+    private final long timeoutInMillis;
+
+    private OIDCUserClaimCache() {
+
+        super(OIDC_USER_CLAIM_CACHE);
+        timeoutInMillis = TimeUnit.SECONDS.toMillis(readTimeout());
+    }
+
+    public static OIDCUserClaimCache getInstance() {
+
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (OIDCUserClaimCache.class) {
+                if (instance == null) {
+                    instance = new OIDCUserClaimCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return True if user claims are cached.
+     */
+    public boolean isEnabled() {
+
+        return timeoutInMillis > 0;
+    }
+
+    /**
+     * Get the claims cached for a user.
+     *
+     * @param key User claim cache key.
+     * @return Cached claims, or null if there are none or they were retrieved before the cache timeout.
+     */
+    public OIDCUserClaimCacheEntry getUserClaims(OIDCUserClaimCacheKey key) {
+
+        OIDCUserClaimCacheEntry entry = super.getValueFromCache(key, key.getTenantDomain());
+        if (entry != null && System.currentTimeMillis() - entry.getRetrievedTime() >= timeoutInMillis) {
+            super.clearCacheEntry(key, key.getTenantDomain());
+            return null;
+        }
+        return entry;
+    }
+
+    public void addUserClaims(OIDCUserClaimCacheKey key, OIDCUserClaimCacheEntry entry) {
+
+        super.addToCache(key, entry, key.getTenantDomain());
+    }
+
+    public void clearUserClaims(OIDCUserClaimCacheKey key) {
+
+        super.clearCacheEntry(key, key.getTenantDomain());
+    }
+
+    private static long readTimeout() {
+
+        String timeout = IdentityUtil.getProperty(USER_CLAIM_CACHE_TIMEOUT);
+        if (timeout != null && !timeout.trim().isEmpty()) {
+            try {
+                return Math.max(Long.parseLong(timeout.trim()), 0);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + timeout + " configured for: " + USER_CLAIM_CACHE_TIMEOUT +
+                        ". User claims retrieved for id_tokens are not cached.");
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.wso2.carbon.identity.core.cache.CacheEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache entry of {@link OIDCUserClaimCache}. Holds the local claim values retrieved for a user, together with the
+ * claim URIs which were retrieved, so a claim the user has no value for is not retrieved again. Entries are not
+ * modified once cached; claims retrieved later are added with {@link #merge(Map, Collection)}.
+ */
+public class OIDCUserClaimCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -3391507962830127385L;
+
+    private final Map<String, String> claimValues;
+    private final Set<String> retrievedClaimUris;
+    private final long retrievedTime;
+
+    public OIDCUserClaimCacheEntry(Map<String, String> claimValues, Collection<String> retrievedClaimUris,
+                                   long retrievedTime) {
+
+        this.claimValues = new HashMap<>(claimValues);
+        this.retrievedClaimUris = new HashSet<>(retrievedClaimUris);
+        this.retrievedTime = retrievedTime;
+    }
+
+    /**
+     * @return Time in milliseconds at which the oldest claim of this entry was retrieved from the user store.
+     */
+    public long getRetrievedTime() {
+
+        return retrievedTime;
+    }
+
+    /**
+     * Get the claims of the given claim URIs which were not retrieved from the user store yet.
+     *
+     * @param claimUris Local claim URIs.
+     * @return Claim URIs which are not in this entry.
+     */
+    public List<String> getMissingClaimUris(List<String> claimUris) {
+
+        List<String> missingClaimUris = new ArrayList<>();
+        for (String claimUri : claimUris) {
+            if (!retrievedClaimUris.contains(claimUri)) {
+                missingClaimUris.add(claimUri);
+            }
+        }
+        return missingClaimUris;
+    }
+
+    /**
+     * Get the values of the given claims. Claims the user has no value for are not in the returned map.
+     *
+     * @param claimUris Local claim URIs.
+     * @return Modifiable map of claim values.
+     */
+    public Map<String, String> getClaimValues(List<String> claimUris) {
+
+        Map<String, String> values = new HashMap<>();
+        for (String claimUri : claimUris) {
+            String value = claimValues.get(claimUri);
+            if (value != null) {
+                values.put(claimUri, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get an entry with the claims of this entry and the given claims retrieved from the user store. The retrieved
+     * time of this entry is kept, so no claim is served longer than the cache timeout.
+     *
+     * @param values    Retrieved claim values.
+     * @param claimUris Claim URIs which were retrieved.
+     * @return Merged entry.
+     */
+    public OIDCUserClaimCacheEntry merge(Map<String, String> values, Collection<String> claimUris) {
+
+        OIDCUserClaimCacheEntry merged = new OIDCUserClaimCacheEntry(claimValues, retrievedClaimUris, retrievedTime);
+        merged.claimValues.putAll(values);
+        merged.retrievedClaimUris.addAll(claimUris);
+        return merged;
+    }
+}
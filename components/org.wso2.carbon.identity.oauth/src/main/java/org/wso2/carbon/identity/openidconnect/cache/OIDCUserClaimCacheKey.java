@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.core.cache.CacheKey;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Key of {@link OIDCUserClaimCache}. A user is identified by the username, user store domain and tenant domain.
+ */
+public class OIDCUserClaimCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = 4920187736420195631L;
+
+    private final String userName;
+    private final String userStoreDomain;
+    private final String tenantDomain;
+
+    public OIDCUserClaimCacheKey(String userName, String userStoreDomain, String tenantDomain) {
+
+        this.userName = userName;
+        this.userStoreDomain = StringUtils.upperCase(userStoreDomain, Locale.ENGLISH);
+        this.tenantDomain = tenantDomain;
+    }
+
+    public String getUserName() {
+
+        return userName;
+    }
+
+    public String getUserStoreDomain() {
+
+        return userStoreDomain;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OIDCUserClaimCacheKey)) {
+            return false;
+        }
+        OIDCUserClaimCacheKey that = (OIDCUserClaimCacheKey) o;
+        return Objects.equals(userName, that.userName) && Objects.equals(userStoreDomain, that.userStoreDomain) &&
+                Objects.equals(tenantDomain, that.tenantDomain);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(userName, userStoreDomain, tenantDomain);
+    }
+
+    @Override
+    public String toString() {
+
+        return "OIDCUserClaimCacheKey{" +
+                "userName='" + userName + '\'' +
+                ", userStoreDomain='" + userStoreDomain + '\'' +
+                ", tenantDomain='" + tenantDomain + '\'' +
+                '}';
+    }
+}
@@ -26,6 +26,7 @@ import org.wso2.carbon.identity.oauth.dto.ScopeDTO;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimCache;
 import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimCacheEntry;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimFilterPlanCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
 
     private static final Log log = LogFactory.getLog(CacheBackedScopeClaimMappingDAOImpl.class);
     private OIDCScopeClaimCache oidcScopeClaimCache = OIDCScopeClaimCache.getInstance();
+    private OIDCScopeClaimFilterPlanCache filterPlanCache = OIDCScopeClaimFilterPlanCache.getInstance();
     private ScopeClaimMappingDAO defaultScopeClaimMappingDAO = new ScopeClaimMappingDAOImpl();
 
     @Override
@@ -47,6 +49,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
         OIDCScopeClaimCacheEntry oidcScopeClaimCacheEntry = new OIDCScopeClaimCacheEntry();
         oidcScopeClaimCacheEntry.setScopeClaimMapping(scopeClaimsMap);
         oidcScopeClaimCache.addScopeClaimMap(tenantId, oidcScopeClaimCacheEntry);
+        filterPlanCache.clearFilterPlan(tenantId);
         if (log.isDebugEnabled()) {
             log.debug("The cache oidcScopeClaimCache is cleared for the tenant : " + tenantId);
         }
@@ -56,6 +59,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
     public void addScope(int tenantId, String scope, String[] claimsList) throws IdentityOAuth2Exception {
 
         oidcScopeClaimCache.clearScopeClaimMap(tenantId);
+        filterPlanCache.clearFilterPlan(tenantId);
         super.addScope(tenantId, scope, claimsList);
         if (log.isDebugEnabled()) {
             log.debug("The cache oidcScopeClaimCache is cleared for the tenant : " + tenantId);
@@ -66,6 +70,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
     public void addScope(ScopeDTO scope, int tenantId) throws IdentityOAuth2Exception {
 
         oidcScopeClaimCache.clearScopeClaimMap(tenantId);
+        filterPlanCache.clearFilterPlan(tenantId);
         super.addScope(scope, tenantId);
         if (log.isDebugEnabled()) {
             log.debug("The cache oidcScopeClaimCache is cleared for the tenant : " + tenantId);
@@ -85,6 +90,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
 
         super.deleteScope(scope, tenantId);
         oidcScopeClaimCache.clearScopeClaimMap(tenantId);
+        filterPlanCache.clearFilterPlan(tenantId);
         if (log.isDebugEnabled()) {
             log.debug("OIDC scope claims mapping deleted from the oidcScopeClaimCache for tenant: " + tenantId);
         }
@@ -96,6 +102,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
 
         super.updateScope(scope, tenantId, addClaims, deleteClaims);
         oidcScopeClaimCache.clearScopeClaimMap(tenantId);
+        filterPlanCache.clearFilterPlan(tenantId);
         if (log.isDebugEnabled()) {
             log.debug("The cache oidcScopeClaimCache is cleared for the tenant : " + tenantId);
         }
@@ -106,6 +113,7 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
 
         super.updateScope(scope, tenantId);
         oidcScopeClaimCache.clearScopeClaimMap(tenantId);
+        filterPlanCache.clearFilterPlan(tenantId);
         if (log.isDebugEnabled()) {
             log.debug("The cache oidcScopeClaimCache is cleared for the tenant : " + tenantId);
         }
@@ -149,6 +157,8 @@ public class CacheBackedScopeClaimMappingDAOImpl extends ScopeClaimMappingDAOImp
 
             oidcScopeClaimCacheEntry.setScopeClaimMapping(scopeClaims);
             oidcScopeClaimCache.addScopeClaimMap(tenantId, oidcScopeClaimCacheEntry);
+            // The mappings may have been changed by another node, hence the plan is compiled again.
+            filterPlanCache.clearFilterPlan(tenantId);
             if (log.isDebugEnabled()) {
                 log.debug("OIDC scopes and mapped claims are loaded from the database and inserted to the cache for " +
                         "the tenant : " + tenantId);
@@ -3,6 +3,7 @@ package org.wso2.carbon.identity.oauth;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.engine.AxisConfiguration;
 import org.apache.commons.lang.StringUtils;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -45,6 +46,7 @@ import java.util.UUID;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -598,4 +600,153 @@ public class OAuthAdminServiceImplTest extends PowerMockIdentityBaseTest {
         OAuthAdminServiceImpl oAuthAdminService = new OAuthAdminServiceImpl();
         invokeMethod(oAuthAdminService, "validateAudiences", appDTO);
     }
+
+    @DataProvider(name = "invalidCibaConfigurationDataProvider")
+    public Object[][] getInvalidCibaConfigurations() {
+
+        return new Object[][]{
+                {OAuthConstants.GrantTypes.CIBA, "push", "https://client.example.com/cb"},
+                {OAuthConstants.GrantTypes.CIBA, "unknown", null},
+                {OAuthConstants.GrantTypes.CIBA, "ping", null},
+                {OAuthConstants.GrantTypes.CIBA, "ping", "http://client.example.com/cb"},
+                {OAuthConstants.GrantTypes.CIBA, "ping", "https:///cb"},
+                {OAuthConstants.GrantTypes.CIBA, "ping", "https://client example.com/cb"},
+                {"authorization_code", null, "http://client.example.com/cb"}
+        };
+    }
+
+    @Test(description = "Test validating invalid CIBA configurations",
+            dataProvider = "invalidCibaConfigurationDataProvider",
+            expectedExceptions = IdentityOAuthClientException.class)
+    public void testSetCibaConfigurationsWithInvalidConfigurations(String grantTypes, String deliveryMode,
+                                                                   String notificationEndpoint)
+            throws Exception {
+
+        OAuthConsumerAppDTO appDTO = new OAuthConsumerAppDTO();
+        appDTO.setGrantTypes(grantTypes);
+        appDTO.setCibaTokenDeliveryMode(deliveryMode);
+        appDTO.setCibaClientNotificationEndpoint(notificationEndpoint);
+
+        OAuthAdminServiceImpl oAuthAdminService = new OAuthAdminServiceImpl();
+        invokeMethod(oAuthAdminService, "setCibaConfigurations", appDTO, new OAuthAppDO());
+    }
+
+    @DataProvider(name = "validCibaConfigurationDataProvider")
+    public Object[][] getValidCibaConfigurations() {
+
+        return new Object[][]{
+                // Grant types, delivery mode, notification endpoint, expected delivery mode
+                {"authorization_code", null, null, null},
+                {OAuthConstants.GrantTypes.CIBA, null, null, "poll"},
+                {OAuthConstants.GrantTypes.CIBA, "", null, "poll"},
+                {OAuthConstants.GrantTypes.CIBA, "poll", null, "poll"},
+                {OAuthConstants.GrantTypes.CIBA, "ping", "https://client.example.com/cb", "ping"}
+        };
+    }
+
+    @Test(description = "Test validating valid CIBA configurations",
+            dataProvider = "validCibaConfigurationDataProvider")
+    public void testSetCibaConfigurationsWithValidConfigurations(String grantTypes, String deliveryMode,
+                                                                 String notificationEndpoint,
+                                                                 String expectedDeliveryMode) throws Exception {
+
+        OAuthConsumerAppDTO appDTO = new OAuthConsumerAppDTO();
+        appDTO.setGrantTypes(grantTypes);
+        appDTO.setCibaTokenDeliveryMode(deliveryMode);
+        appDTO.setCibaClientNotificationEndpoint(notificationEndpoint);
+
+        OAuthAdminServiceImpl oAuthAdminService = new OAuthAdminServiceImpl();
+        OAuthAppDO appDO = new OAuthAppDO();
+        invokeMethod(oAuthAdminService, "setCibaConfigurations", appDTO, appDO);
+        Assert.assertEquals(appDO.getCibaTokenDeliveryMode(), expectedDeliveryMode);
+        Assert.assertEquals(appDO.getCibaClientNotificationEndpoint(), notificationEndpoint);
+    }
+
+    @Test(description = "Test registering a CIBA app through DCR, which does not set the token delivery mode")
+    public void testRegisterCibaApplicationWithoutDeliveryMode() throws Exception {
+
+        OAuthConsumerAppDTO oAuthConsumerAppDTO = new OAuthConsumerAppDTO();
+        oAuthConsumerAppDTO.setApplicationName("SAMPLE_CIBA_APP");
+        oAuthConsumerAppDTO.setCallbackUrl("http://localhost:8080/acsUrl");
+        oAuthConsumerAppDTO.setGrantTypes(OAuthConstants.GrantTypes.CIBA);
+        oAuthConsumerAppDTO.setOAuthVersion(OAuthConstants.OAuthVersions.VERSION_2);
+
+        OAuthConsumerAppDTO registeredApp = registerCibaApplication(oAuthConsumerAppDTO);
+        Assert.assertEquals(registeredApp.getCibaTokenDeliveryMode(), OAuthConstants.CibaTokenDeliveryModes.POLL);
+        Assert.assertNull(registeredApp.getCibaClientNotificationEndpoint());
+    }
+
+    @Test(description = "Test importing a CIBA app of a service provider without the token delivery mode")
+    public void testImportCibaApplicationWithoutDeliveryMode() throws Exception {
+
+        // Service provider import builds the request from the inbound configuration of the service provider.
+        OAuthAppDO importedApp = new OAuthAppDO();
+        importedApp.setApplicationName("IMPORTED_CIBA_APP");
+        importedApp.setCallbackUrl("http://localhost:8080/acsUrl");
+        importedApp.setGrantTypes(OAuthConstants.GrantTypes.CIBA);
+        importedApp.setOauthVersion(OAuthConstants.OAuthVersions.VERSION_2);
+        importedApp.setOauthConsumerSecret(CONSUMER_SECRET);
+        importedApp.setAppOwner(buildUser("admin@carbon.super"));
+
+        OAuthConsumerAppDTO registeredApp = registerCibaApplication(OAuthUtil.buildConsumerAppDTO(importedApp));
+        Assert.assertEquals(registeredApp.getCibaTokenDeliveryMode(), OAuthConstants.CibaTokenDeliveryModes.POLL);
+    }
+
+    @Test(description = "Test updating a CIBA app without the CIBA configurations in the request")
+    public void testUpdateConsumerApplicationKeepsCibaConfigurations() throws Exception {
+
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("carbon.super");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(-1234);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUsername("admin");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUserRealm(userRealm);
+
+        String consumerKey = UUID.randomUUID().toString();
+        OAuthAppDO app = buildDummyOAuthAppDO("original-app-owner");
+        app.setGrantTypes(OAuthConstants.GrantTypes.CIBA);
+        app.setCibaTokenDeliveryMode(OAuthConstants.CibaTokenDeliveryModes.PING);
+        app.setCibaClientNotificationEndpoint("https://client.example.com/cb");
+        when(oAuthAppDAO.getAppInformation(consumerKey)).thenReturn(app);
+        whenNew(OAuthAppDAO.class).withAnyArguments().thenReturn(oAuthAppDAO);
+
+        List<String> allowedGrants = OAuthAdminServiceImpl.allowedGrants;
+        OAuthAdminServiceImpl.allowedGrants = Arrays.asList(OAuthConstants.GrantTypes.CIBA);
+        try {
+            OAuthConsumerAppDTO consumerAppDTO = new OAuthConsumerAppDTO();
+            consumerAppDTO.setApplicationName("new-application-name");
+            consumerAppDTO.setCallbackUrl("http://new-call-back-url.com");
+            consumerAppDTO.setOauthConsumerKey(consumerKey);
+            consumerAppDTO.setOauthConsumerSecret("some-consumer-secret");
+            consumerAppDTO.setOAuthVersion(OAuthConstants.OAuthVersions.VERSION_2);
+            consumerAppDTO.setGrantTypes(OAuthConstants.GrantTypes.CIBA);
+            new OAuthAdminServiceImpl().updateConsumerApplication(consumerAppDTO);
+        } finally {
+            OAuthAdminServiceImpl.allowedGrants = allowedGrants;
+        }
+
+        ArgumentCaptor<OAuthAppDO> updatedApp = ArgumentCaptor.forClass(OAuthAppDO.class);
+        verify(oAuthAppDAO).updateConsumerApplication(updatedApp.capture());
+        Assert.assertEquals(updatedApp.getValue().getCibaTokenDeliveryMode(),
+                OAuthConstants.CibaTokenDeliveryModes.PING);
+        Assert.assertEquals(updatedApp.getValue().getCibaClientNotificationEndpoint(),
+                "https://client.example.com/cb");
+    }
+
+    private OAuthConsumerAppDTO registerCibaApplication(OAuthConsumerAppDTO oAuthConsumerAppDTO) throws Exception {
+
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("carbon.super");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(-1234);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUsername("admin");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUserRealm(userRealm);
+
+        whenNew(OAuthAppDAO.class).withNoArguments().thenReturn(oAuthAppDAO);
+        doNothing().when(oAuthAppDAO).addOAuthApplication(Matchers.any(OAuthAppDO.class));
+
+        List<String> allowedGrants = OAuthAdminServiceImpl.allowedGrants;
+        OAuthAdminServiceImpl.allowedGrants = Arrays.asList(OAuthConstants.GrantTypes.CIBA);
+        try {
+            return new OAuthAdminServiceImpl().registerOAuthApplicationData(oAuthConsumerAppDTO);
+        } finally {
+            OAuthAdminServiceImpl.allowedGrants = allowedGrants;
+        }
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.oauth2.model.OAuth2Parameters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for CacheEntryCodec and CompactCacheEntry.
+ */
+public class CacheEntryCodecTest {
+
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/emailaddress";
+    private static final String CUSTOM_CLAIM = "http://wso2.org/claims/custom";
+
+    @Test
+    public void testAuthorizationGrantCacheEntryRoundTrip() throws Exception {
+
+        AuthorizationGrantCacheEntry entry = buildAuthorizationGrantCacheEntry();
+
+        AuthorizationGrantCacheEntry decoded =
+                CacheEntryCodec.decodeAuthorizationGrantCacheEntry(CacheEntryCodec.encode(entry));
+
+        assertEquals(decoded.getCodeId(), entry.getCodeId());
+        assertEquals(decoded.getAuthorizationCode(), entry.getAuthorizationCode());
+        assertNull(decoded.getTokenId());
+        assertEquals(decoded.getNonceValue(), entry.getNonceValue());
+        assertEquals(decoded.getPkceCodeChallengeMethod(), entry.getPkceCodeChallengeMethod());
+        assertEquals(decoded.getSubjectClaim(), entry.getSubjectClaim());
+        assertEquals(decoded.getOidcSessionId(), entry.getOidcSessionId());
+        assertEquals(decoded.getAuthTime(), entry.getAuthTime());
+        assertEquals(decoded.getMaxAge(), entry.getMaxAge());
+        assertEquals(decoded.getValidityPeriod(), entry.getValidityPeriod());
+        assertTrue(decoded.isHasNonOIDCClaims());
+        assertFalse(decoded.isRequestObjectFlow());
+        assertEquals(decoded.getAcrValue(), entry.getAcrValue());
+        assertEquals(decoded.getAmrList(), entry.getAmrList());
+        assertEquals(decoded.getUserAttributes(), entry.getUserAttributes());
+        for (ClaimMapping claimMapping : decoded.getUserAttributes().keySet()) {
+            assertEquals(claimMapping.getRemoteClaim().getClaimUri(), claimMapping.getLocalClaim().getClaimUri());
+            assertTrue(claimMapping.isRequested());
+        }
+        assertNull(decoded.getRequestObject());
+    }
+
+    @Test
+    public void testSessionDataCacheEntryRoundTrip() throws Exception {
+
+        OAuth2Parameters parameters = new OAuth2Parameters();
+        parameters.setClientId("clientId");
+        parameters.setRedirectURI("https://localhost/callback");
+        parameters.setResponseType("code");
+        parameters.setScopes(new LinkedHashSet<>(Arrays.asList("openid", "profile", "custom")));
+        parameters.setTenantDomain("carbon.super");
+        parameters.setMaxAge(-1);
+        parameters.setRequestObjectFlow(true);
+
+        ConcurrentHashMap<String, String[]> paramMap = new ConcurrentHashMap<>();
+        paramMap.put("scope", new String[]{"openid profile"});
+        paramMap.put("client_id", new String[]{"clientId"});
+
+        SessionDataCacheEntry entry = new SessionDataCacheEntry();
+        entry.setoAuth2Parameters(parameters);
+        entry.setParamMap(paramMap);
+        entry.setQueryString("client_id=clientId&scope=openid+profile");
+        entry.setAuthTime(1612345678901L);
+        entry.getEndpointParams().put("endpointParam", 42);
+
+        SessionDataCacheEntry decoded = CacheEntryCodec.decodeSessionDataCacheEntry(CacheEntryCodec.encode(entry));
+
+        assertNull(decoded.getLoggedInUser());
+        assertEquals(decoded.getQueryString(), entry.getQueryString());
+        assertEquals(decoded.getAuthTime(), entry.getAuthTime());
+        assertEquals(decoded.getParamMap().keySet(), paramMap.keySet());
+        assertEquals(decoded.getParamMap().get("scope"), paramMap.get("scope"));
+        assertEquals(decoded.getEndpointParams().get("endpointParam"), 42);
+        OAuth2Parameters decodedParameters = decoded.getoAuth2Parameters();
+        assertEquals(decodedParameters.getClientId(), parameters.getClientId());
+        assertEquals(decodedParameters.getRedirectURI(), parameters.getRedirectURI());
+        assertEquals(decodedParameters.getScopes(), parameters.getScopes());
+        assertNull(decodedParameters.getConsentRequiredScopes());
+        assertEquals(decodedParameters.getMaxAge(), -1);
+        assertTrue(decodedParameters.isRequestObjectFlow());
+    }
+
+    @Test
+    public void testCompactEntryThroughJavaSerialization() throws Exception {
+
+        AuthorizationGrantCacheEntry entry = buildAuthorizationGrantCacheEntry();
+        CacheEntry compactEntry = CompactCacheEntry.of(entry);
+        assertTrue(compactEntry instanceof CompactCacheEntry);
+        assertEquals(compactEntry.getValidityPeriod(), entry.getValidityPeriod());
+
+        byte[] javaSerialized = serialize(entry);
+        byte[] compactSerialized = serialize(compactEntry);
+        assertTrue(compactSerialized.length < javaSerialized.length,
+                "Compact entry: " + compactSerialized.length + " bytes, Java serialized entry: " +
+                        javaSerialized.length + " bytes.");
+
+        AuthorizationGrantCacheEntry decoded =
+                CompactCacheEntry.toAuthorizationGrantCacheEntry(deserialize(compactSerialized));
+        assertEquals(decoded.getUserAttributes(), entry.getUserAttributes());
+        assertEquals(decoded.getCodeId(), entry.getCodeId());
+    }
+
+    @Test
+    public void testEntriesWhichCanNotBeEncoded() {
+
+        AuthorizationGrantCacheEntry entry = buildAuthorizationGrantCacheEntry();
+        LinkedHashSet<Object> acrValues = new LinkedHashSet<>();
+        acrValues.add(1);
+        entry.setAcrValue(acrValues);
+
+        assertFalse(CacheEntryCodec.canEncode(entry));
+        assertSame(CompactCacheEntry.of(entry), entry);
+        assertSame(CompactCacheEntry.toAuthorizationGrantCacheEntry(entry), entry);
+        assertNull(CompactCacheEntry.toAuthorizationGrantCacheEntry(null));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnknownFormatVersion() throws Exception {
+
+        byte[] data = CacheEntryCodec.encode(buildAuthorizationGrantCacheEntry());
+        data[0] = (byte) (CacheEntryCodec.FORMAT_VERSION + 1);
+        CacheEntryCodec.decodeAuthorizationGrantCacheEntry(data);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnexpectedEntryType() throws Exception {
+
+        CacheEntryCodec.decodeSessionDataCacheEntry(CacheEntryCodec.encode(buildAuthorizationGrantCacheEntry()));
+    }
+
+    private AuthorizationGrantCacheEntry buildAuthorizationGrantCacheEntry() {
+
+        Map<ClaimMapping, String> userAttributes = new HashMap<>();
+        userAttributes.put(ClaimMapping.build(EMAIL_CLAIM, EMAIL_CLAIM, null, true), "admin@wso2.com");
+        userAttributes.put(ClaimMapping.build(CUSTOM_CLAIM, CUSTOM_CLAIM, null, true), "custom value");
+
+        LinkedHashSet<String> acrValues = new LinkedHashSet<>(Arrays.asList("acr1", "acr2"));
+
+        AuthorizationGrantCacheEntry entry = new AuthorizationGrantCacheEntry(userAttributes);
+        entry.setCodeId("a1b2c3d4-e5f6-4a5b-8c9d-0e1f2a3b4c5d");
+        entry.setAuthorizationCode("6f1c8f7e-3a56-3c42-9b3e-2c5f8e6a1d4b");
+        entry.setNonceValue("nonce");
+        entry.setPkceCodeChallenge("E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM");
+        entry.setPkceCodeChallengeMethod("S256");
+        entry.setSubjectClaim("admin");
+        entry.setOidcSessionId("c0ffee00-1234-5678-9abc-def012345678");
+        entry.setAuthTime(1612345678901L);
+        entry.setMaxAge(-1);
+        entry.setHasNonOIDCClaims(true);
+        entry.setAcrValue(acrValues);
+        entry.addAmr("BasicAuthenticator");
+        entry.setValidityPeriod(300000000000L);
+        return entry;
+    }
+
+    private byte[] serialize(Object object) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(byte[] data) throws Exception {
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
@@ -50,7 +50,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.Matchers.anyString;
@@ -61,8 +63,10 @@ import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.spy;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertEqualsNoOrder;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.wso2.carbon.identity.oauth.Error.DUPLICATE_OAUTH_CLIENT;
@@ -358,6 +362,42 @@ public class OAuthAppDAOTest extends TestOAuthDAOBase {
         }
     }
 
+    @Test
+    public void testUpdateConsumerApplicationKeepsCibaConfigurations() throws Exception {
+
+        final String notificationEndpoint = "https://client.example.com/cb";
+        setupMocksForTest();
+        try (Connection connection = getConnection(DB_NAME)) {
+            mockIdentityUtilDataBaseConnection(connection);
+            OAuthAppDO appDO = getDefaultOAuthAppDO();
+            appDO.setCibaTokenDeliveryMode(OAuthConstants.CibaTokenDeliveryModes.PING);
+            appDO.setCibaClientNotificationEndpoint(notificationEndpoint);
+            addOAuthApplication(appDO);
+
+            OAuthAppDAO appDAO = new OAuthAppDAO();
+            appDO = appDAO.getAppInformation(CONSUMER_KEY);
+            // The owner is not updated, while the OIDC properties are stored against the tenant of the owner.
+            AuthenticatedUser appOwner = new AuthenticatedUser();
+            appOwner.setTenantDomain(TENANT_DOMAIN);
+            appDO.setAppOwner(appOwner);
+
+            // The stored CIBA configurations are kept when the app does not specify them.
+            appDO.setCibaTokenDeliveryMode(null);
+            appDO.setCibaClientNotificationEndpoint(null);
+            appDAO.updateConsumerApplication(appDO);
+            OAuthAppDO updatedAppDO = appDAO.getAppInformation(CONSUMER_KEY);
+            assertEquals(updatedAppDO.getCibaTokenDeliveryMode(), OAuthConstants.CibaTokenDeliveryModes.PING);
+            assertEquals(updatedAppDO.getCibaClientNotificationEndpoint(), notificationEndpoint);
+
+            // Changing the delivery mode replaces the notification endpoint as well.
+            appDO.setCibaTokenDeliveryMode(OAuthConstants.CibaTokenDeliveryModes.POLL);
+            appDAO.updateConsumerApplication(appDO);
+            updatedAppDO = appDAO.getAppInformation(CONSUMER_KEY);
+            assertEquals(updatedAppDO.getCibaTokenDeliveryMode(), OAuthConstants.CibaTokenDeliveryModes.POLL);
+            assertNull(updatedAppDO.getCibaClientNotificationEndpoint());
+        }
+    }
+
     @Test(expectedExceptions = IdentityOAuthAdminException.class)
     public void testUpdateConsumerApplicationWithExceptions() throws Exception {
 
@@ -602,6 +642,31 @@ public class OAuthAppDAOTest extends TestOAuthDAOBase {
         }
     }
 
+    @Test
+    public void testGetAppsInformation() throws Exception {
+
+        setupMocksForTest();
+        try (Connection connection = getConnection(DB_NAME)) {
+            mockIdentityUtilDataBaseConnection(connection);
+            OAuthAppDO defaultOAuthAppDO = getDefaultOAuthAppDO();
+            defaultOAuthAppDO.setIdTokenEncryptionEnabled(true);
+            addOAuthApplication(defaultOAuthAppDO);
+
+            OAuthAppDAO appDAO = new OAuthAppDAO();
+            Map<String, OAuthAppDO> oAuthAppDOs = appDAO.getAppsInformation(Arrays.asList(CONSUMER_KEY,
+                    UUID.randomUUID().toString()));
+            assertEquals(oAuthAppDOs.size(), 1, "Only the existing apps should be returned.");
+            OAuthAppDO oAuthAppDO = oAuthAppDOs.get(CONSUMER_KEY);
+            assertNotNull(oAuthAppDO);
+            assertEquals(oAuthAppDO.getApplicationName(), APP_NAME);
+            assertEquals(oAuthAppDO.getOauthConsumerSecret(), CONSUMER_SECRET);
+            assertEquals(oAuthAppDO.getCallbackUrl(), CALLBACK);
+            assertEquals(oAuthAppDO.getBackChannelLogoutUrl(), BACKCHANNEL_LOGOUT);
+            assertTrue(oAuthAppDO.isIdTokenEncryptionEnabled());
+            assertEqualsNoOrder(oAuthAppDO.getScopeValidators(), SCOPE_VALIDATORS);
+        }
+    }
+
     @Test(expectedExceptions = IdentityOAuth2Exception.class)
     public void testGetAppInformationWithExceptions() throws Exception {
 
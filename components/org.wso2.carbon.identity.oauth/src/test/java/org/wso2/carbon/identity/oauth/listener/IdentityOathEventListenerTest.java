@@ -243,6 +243,44 @@ public class IdentityOathEventListenerTest extends IdentityBaseTest {
         assertTrue(listener.doPostSetUserClaimValues(username, mockedMapClaims, profileName, userStoreManager));
     }
 
+    @Test
+    public void testDoPostDeleteUserClaimValue() throws Exception {
+        IdentityEventListenerConfig listenerConfig = mock(IdentityEventListenerConfig.class);
+        IdentityCacheConfig identityCacheConfig = mock(IdentityCacheConfig.class);
+        ClaimCache claimCache = mock(ClaimCache.class);
+        when(IdentityUtil.readEventListenerProperty(anyString(), anyString())).thenReturn(listenerConfig);
+        when(StringUtils.isNotBlank(anyString())).thenReturn(true);
+
+        assertTrue(identityOathEventListener.doPostDeleteUserClaimValue(username, userStoreManager));
+
+        when(IdentityUtil.readEventListenerProperty(anyString(), anyString())).thenReturn(null);
+        when(UserCoreUtil.getDomainName(userStoreManager.getRealmConfiguration())).thenReturn("DOMAIN_NAME");
+        when(IdentityUtil.getIdentityCacheConfig(anyString(), anyString())).thenReturn(identityCacheConfig);
+        when(claimCache.isEnabled()).thenReturn(false);
+
+        IdentityOathEventListener listener = new IdentityOathEventListener();
+        assertTrue(listener.doPostDeleteUserClaimValue(username, userStoreManager));
+    }
+
+    @Test
+    public void testDoPostDeleteUserClaimValues() throws Exception {
+        IdentityEventListenerConfig listenerConfig = mock(IdentityEventListenerConfig.class);
+        IdentityCacheConfig identityCacheConfig = mock(IdentityCacheConfig.class);
+        ClaimCache claimCache = mock(ClaimCache.class);
+        when(IdentityUtil.readEventListenerProperty(anyString(), anyString())).thenReturn(listenerConfig);
+        when(StringUtils.isNotBlank(anyString())).thenReturn(true);
+
+        assertTrue(identityOathEventListener.doPostDeleteUserClaimValues(username, userStoreManager));
+
+        when(IdentityUtil.readEventListenerProperty(anyString(), anyString())).thenReturn(null);
+        when(UserCoreUtil.getDomainName(userStoreManager.getRealmConfiguration())).thenReturn("DOMAIN_NAME");
+        when(IdentityUtil.getIdentityCacheConfig(anyString(), anyString())).thenReturn(identityCacheConfig);
+        when(claimCache.isEnabled()).thenReturn(false);
+
+        IdentityOathEventListener listener = new IdentityOathEventListener();
+        assertTrue(listener.doPostDeleteUserClaimValues(username, userStoreManager));
+    }
+
     @Test
     public void testDoPostAuthenticate() throws Exception {
         IdentityEventListenerConfig listenerConfig = mock(IdentityEventListenerConfig.class);
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenvaluegenerator;
+
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for SecureRandomGenerator.
+ */
+public class SecureRandomGeneratorTest {
+
+    @Test
+    public void testGenerateValue() throws Exception {
+
+        SecureRandomGenerator generator = new SecureRandomGenerator();
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String value = generator.generateValue();
+            assertEquals(value.length(), 43, "256 bits should be encoded in 43 base64url characters.");
+            assertTrue(value.matches("[A-Za-z0-9_-]+"), "Value should be url safe: " + value);
+            values.add(value);
+        }
+        assertEquals(values.size(), 1000, "Generated values should be unique.");
+    }
+
+    @Test
+    public void testGenerateValueFromString() throws Exception {
+
+        SecureRandomGenerator generator = new SecureRandomGenerator();
+        assertEquals(generator.generateValue("value"), generator.generateValue("value"));
+    }
+
+    @Test(expectedExceptions = OAuthSystemException.class)
+    public void testGenerateValueException() throws Exception {
+
+        new SecureRandomGenerator().generateValue(null);
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.common.testng.WithRealmService;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.OAuthUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.SQLQueries;
+import org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2TokenUtil;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+import org.wso2.carbon.user.api.RealmConfiguration;
+import org.wso2.carbon.user.core.UserCoreConstants;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.powermock.api.mockito.PowerMockito.doNothing;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OAuthVersions.VERSION_2;
+
+/**
+ * Unit tests for retrieving and revoking the access tokens of a user with AccessTokenDAOImpl.
+ */
+@WithCarbonHome
+@WithRealmService(tenantId = MultitenantConstants.SUPER_TENANT_ID,
+        tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)
+@PrepareForTest({IdentityDatabaseUtil.class, OAuth2Util.class, OAuth2TokenUtil.class, IdentityUtil.class,
+        OAuthServerConfiguration.class})
+public class AccessTokenDAOImplTest extends PowerMockIdentityBaseTest {
+
+    public static Map<String, BasicDataSource> dataSourceMap = new HashMap<>();
+
+    @Mock
+    private ServiceProvider mockedServiceProvider;
+
+    @Mock
+    private AuthenticatedUser mockedAuthenticatedUser;
+
+    @Mock
+    private ApplicationManagementService mockedApplicationManagementService;
+
+    private Connection connection;
+
+    private AccessTokenDAOImpl accessTokenDAO;
+    private static final int TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+    private static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    private static final String LOCAL_IDP = "LOCAL";
+    private static final String FEDERATED_IDP = "FederatedIdP";
+    private static final String APP_NAME = "myApp";
+    private static final String USER_NAME = "user1";
+    private static final String CALLBACK = "http://localhost:8080/redirect";
+    private static final String DB_NAME = "testAccessTokenDB";
+    private static final String TOKEN_REVOCATION_BATCH_SIZE = "OAuth.TokenRevocation.UserTokenRevocationBatchSize";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        //Initializing the database.
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        accessTokenDAO = new AccessTokenDAOImpl();
+        storeIDP(LOCAL_IDP);
+        storeIDP(FEDERATED_IDP);
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        connection = DAOUtils.getConnection(DB_NAME);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection()).thenReturn(connection);
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenReturn(connection);
+
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.isUserStoreCaseSensitive(anyString(), anyInt())).thenReturn(false);
+
+        mockStatic(OAuth2TokenUtil.class);
+
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.getTenantId(anyString())).thenReturn(TENANT_ID);
+        when(OAuth2Util.getUserStoreDomain(any())).thenReturn(UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+        when(OAuth2Util.getAuthenticatedIDP(any())).thenReturn(LOCAL_IDP);
+        when(OAuth2Util.getSanitizedUserStoreDomain(anyString())).thenCallRealMethod();
+        when(OAuth2Util.getTokenPartitionedSqlByUserStore(anyString(), anyString())).thenCallRealMethod();
+        when(OAuth2Util.buildScopeArray(anyString())).thenCallRealMethod();
+        when(OAuth2Util.buildScopeString(any(String[].class))).thenCallRealMethod();
+        when(OAuth2Util.hashScopes(any(String[].class))).thenCallRealMethod();
+        when(OAuth2Util.createAuthenticatedUser(anyString(), anyString(), anyString(), anyString())).
+                thenReturn(mockedAuthenticatedUser);
+        when(mockedAuthenticatedUser.getTenantDomain()).thenReturn(TENANT_DOMAIN);
+        doNothing().when(mockedAuthenticatedUser, "setAuthenticatedSubjectIdentifier", anyString(), anyObject());
+
+        OAuth2ServiceComponentHolder.setApplicationMgtService(mockedApplicationManagementService);
+        when(mockedApplicationManagementService.getServiceProviderByClientId(anyString(), any(), anyString())).
+                thenReturn(mockedServiceProvider);
+    }
+
+    @AfterMethod
+    public void closeup() throws Exception {
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(false);
+        connection.close();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        closeH2Base(DB_NAME);
+    }
+
+    private static void closeH2Base(String databaseName) throws Exception {
+
+        BasicDataSource dataSource = dataSourceMap.get(databaseName);
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void testGetAccessTokensOfUser() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String consumerKey1 = UUID.randomUUID().toString();
+        String consumerKey2 = UUID.randomUUID().toString();
+        createApplication(consumerKey1);
+        createApplication(consumerKey2);
+        long now = System.currentTimeMillis();
+        String activeTokenId = persistAccessToken(consumerKey1, userName, new String[]{"openid", "email"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        String expiredTokenId = persistAccessToken(consumerKey2, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, FEDERATED_IDP, now);
+        persistAccessToken(consumerKey2, userName, new String[]{"email"},
+                OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, LOCAL_IDP, now);
+        persistAccessToken(consumerKey1, "other-" + userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(false);
+
+        Map<String, AccessTokenDO> accessTokens = getTokensById(accessTokenDAO.getAccessTokensOfUser(
+                getAuthenticatedUser(userName), null));
+
+        Assert.assertEquals(accessTokens.size(), 2, "Only the ACTIVE and EXPIRED tokens of the user should be " +
+                "returned, regardless of the identity provider.");
+        Assert.assertEquals(accessTokens.get(activeTokenId).getConsumerKey(), consumerKey1);
+        Assert.assertEquals(OAuth2Util.buildScopeString(accessTokens.get(activeTokenId).getScope()), "email openid",
+                "All the scopes of a token should be aggregated into the same token.");
+        Assert.assertEquals(accessTokens.get(expiredTokenId).getConsumerKey(), consumerKey2);
+        Assert.assertEquals(accessTokens.get(expiredTokenId).getIssuedTime().getTime(), now);
+    }
+
+    @Test
+    public void testGetAccessTokensOfUserWithIDPName() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String consumerKey = UUID.randomUUID().toString();
+        createApplication(consumerKey);
+        long now = System.currentTimeMillis();
+        String localTokenId = persistAccessToken(consumerKey, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        persistAccessToken(consumerKey, userName, new String[]{"email"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, FEDERATED_IDP, now);
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(true);
+
+        Set<AccessTokenDO> accessTokens = accessTokenDAO.getAccessTokensOfUser(getAuthenticatedUser(userName), null);
+
+        Assert.assertEquals(accessTokens.size(), 1, "Only the tokens issued through the authenticated identity " +
+                "provider should be returned.");
+        Assert.assertEquals(accessTokens.iterator().next().getTokenId(), localTokenId);
+    }
+
+    @Test
+    public void testRevokeTokensOfUserInBatches() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String consumerKey1 = UUID.randomUUID().toString();
+        String consumerKey2 = UUID.randomUUID().toString();
+        createApplication(consumerKey1);
+        createApplication(consumerKey2);
+        long now = System.currentTimeMillis();
+        String tokenId1 = persistAccessToken(consumerKey1, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        String tokenId2 = persistAccessToken(consumerKey1, userName, new String[]{"email"},
+                OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, LOCAL_IDP, now);
+        String tokenId3 = persistAccessToken(consumerKey2, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        String otherUserTokenId = persistAccessToken(consumerKey1, "other-" + userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        // Revoke in batches of two, so that both the batch and the single token statements are used.
+        when(IdentityUtil.getProperty(TOKEN_REVOCATION_BATCH_SIZE)).thenReturn("2");
+        when(OAuth2Util.isHashDisabled()).thenReturn(false);
+
+        Assert.assertTrue(OAuthUtil.revokeTokens(userName, getUserStoreManager()));
+
+        Assert.assertEquals(getTokenState(tokenId1), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+        Assert.assertEquals(getTokenState(tokenId2), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+        Assert.assertEquals(getTokenState(tokenId3), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+        Assert.assertEquals(getTokenState(otherUserTokenId), OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE);
+    }
+
+    @Test
+    public void testRevokeLatestTokensOfUserWhenHashDisabled() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String consumerKey = UUID.randomUUID().toString();
+        createApplication(consumerKey);
+        long now = System.currentTimeMillis();
+        String oldTokenId = persistAccessToken(consumerKey, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, LOCAL_IDP, now - 7200000L);
+        String latestTokenId = persistAccessToken(consumerKey, userName, new String[]{"openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now - 3600000L);
+        String otherScopeTokenId = persistAccessToken(consumerKey, userName, new String[]{"email", "openid"},
+                OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        when(OAuth2Util.isHashDisabled()).thenReturn(true);
+
+        Assert.assertTrue(OAuthUtil.revokeTokens(userName, getUserStoreManager()));
+
+        Assert.assertEquals(getTokenState(oldTokenId), OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED,
+                "Only the latest token of each scope should be revoked when token hashing is disabled.");
+        Assert.assertEquals(getTokenState(latestTokenId), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+        Assert.assertEquals(getTokenState(otherScopeTokenId), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+    }
+
+    private AuthenticatedUser getAuthenticatedUser(String userName) {
+
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser();
+        authenticatedUser.setTenantDomain(TENANT_DOMAIN);
+        authenticatedUser.setUserName(userName);
+        authenticatedUser.setUserStoreDomain(UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+        return authenticatedUser;
+    }
+
+    private UserStoreManager getUserStoreManager() throws Exception {
+
+        UserStoreManager userStoreManager = mock(UserStoreManager.class);
+        RealmConfiguration realmConfiguration = mock(RealmConfiguration.class);
+        when(realmConfiguration.getUserStoreProperty(UserCoreConstants.RealmConfig.PROPERTY_DOMAIN_NAME))
+                .thenReturn(UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+        when(userStoreManager.getRealmConfiguration()).thenReturn(realmConfiguration);
+        when(userStoreManager.getTenantId()).thenReturn(TENANT_ID);
+        return userStoreManager;
+    }
+
+    private Map<String, AccessTokenDO> getTokensById(Set<AccessTokenDO> accessTokenDOs) {
+
+        Map<String, AccessTokenDO> accessTokens = new HashMap<>();
+        for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+            accessTokens.put(accessTokenDO.getTokenId(), accessTokenDO);
+        }
+        return accessTokens;
+    }
+
+    private String persistAccessToken(String consumerKey, String userName, String[] scopes, String tokenState,
+                                      String idpName, long timeCreated) throws Exception {
+
+        String tokenId = UUID.randomUUID().toString();
+        String accessToken = UUID.randomUUID().toString();
+        String refreshToken = UUID.randomUUID().toString();
+        HashingPersistenceProcessor hashingPersistenceProcessor = new HashingPersistenceProcessor();
+        Timestamp issuedTime = new Timestamp(timeCreated);
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        try (PreparedStatement prepStmt = connection.prepareStatement(
+                org.wso2.carbon.identity.oauth2.dao.SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN_WITH_IDP_NAME)) {
+            prepStmt.setString(1, accessToken);
+            prepStmt.setString(2, refreshToken);
+            prepStmt.setString(3, userName);
+            prepStmt.setInt(4, TENANT_ID);
+            prepStmt.setString(5, UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+            prepStmt.setTimestamp(6, issuedTime, calendar);
+            prepStmt.setTimestamp(7, issuedTime, calendar);
+            prepStmt.setLong(8, 3600000L);
+            prepStmt.setLong(9, 84600000L);
+            prepStmt.setString(10, OAuth2Util.hashScopes(scopes));
+            prepStmt.setString(11, tokenState);
+            prepStmt.setString(12, OAuthConstants.UserType.APPLICATION_USER);
+            prepStmt.setString(13, tokenId);
+            prepStmt.setString(14, OAuthConstants.GrantTypes.PASSWORD);
+            prepStmt.setString(15, userName);
+            prepStmt.setString(16, hashingPersistenceProcessor.getProcessedAccessTokenIdentifier(accessToken));
+            prepStmt.setString(17, hashingPersistenceProcessor.getProcessedRefreshToken(refreshToken));
+            prepStmt.setString(18, OAuthConstants.TokenBindings.NONE);
+            prepStmt.setString(19, consumerKey);
+            prepStmt.setString(20, idpName);
+            prepStmt.setInt(21, TENANT_ID);
+            prepStmt.execute();
+        }
+        try (PreparedStatement prepStmt = connection.prepareStatement(
+                org.wso2.carbon.identity.oauth2.dao.SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE)) {
+            for (String scope : scopes) {
+                prepStmt.setString(1, tokenId);
+                prepStmt.setString(2, scope);
+                prepStmt.setInt(3, TENANT_ID);
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+        }
+        return tokenId;
+    }
+
+    private String getTokenState(String tokenId) throws Exception {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(
+                "SELECT TOKEN_STATE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID=?")) {
+            prepStmt.setString(1, tokenId);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                Assert.assertTrue(resultSet.next(), "Token " + tokenId + " should exist.");
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private void createApplication(String consumerKey) throws Exception {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(SQLQueries.OAuthAppDAOSQLQueries.ADD_OAUTH_APP)) {
+            prepStmt.setString(1, consumerKey);
+            prepStmt.setString(2, UUID.randomUUID().toString());
+            prepStmt.setString(3, USER_NAME);
+            prepStmt.setInt(4, TENANT_ID);
+            prepStmt.setString(5, UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+            prepStmt.setString(6, APP_NAME);
+            prepStmt.setString(7, VERSION_2);
+            prepStmt.setString(8, CALLBACK);
+            prepStmt.setString(9, "refresh_token password client_credentials authorization_code");
+            prepStmt.setLong(10, 3600L);
+            prepStmt.setLong(11, 3600L);
+            prepStmt.setLong(12, 84600L);
+            prepStmt.setLong(13, 3600L);
+            prepStmt.execute();
+        }
+    }
+
+    private void storeIDP(String idpName) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME)) {
+            String sql = "INSERT INTO IDP (TENANT_ID, NAME, UUID) VALUES (?, ?, ?)";
+            try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+                prepStmt.setInt(1, TENANT_ID);
+                prepStmt.setString(2, idpName);
+                prepStmt.setString(3, UUID.randomUUID().toString());
+                prepStmt.execute();
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for ExpiredTokenPurger.
+ */
+public class ExpiredTokenPurgerTest {
+
+    private static final long HOUR = 3600000L;
+    private static final String TOKEN_TABLE = "IDN_OAUTH2_ACCESS_TOKEN";
+    private static final String PARTITION_TABLE = "IDN_OAUTH2_ACCESS_TOKEN_A";
+
+    private TokenCleanupDAO tokenCleanupDAO;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        tokenCleanupDAO = mock(TokenCleanupDAO.class);
+        when(tokenCleanupDAO.acquireLease(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(tokenCleanupDAO.getAccessTokenTables()).thenReturn(Collections.singletonList(TOKEN_TABLE));
+        when(tokenCleanupDAO.getPurgeableAuthorizationCodes(any(), anyInt(), anyLong()))
+                .thenReturn(new TokenCleanupDAO.CleanupPage());
+        when(tokenCleanupDAO.isLeaseTableAvailable()).thenReturn(true);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        OAuth2ServiceComponentHolder.setInlineTokenCleanupEnabled(false);
+    }
+
+    @Test
+    public void testPurgerIsStartedWithLeaseTable() {
+
+        ExpiredTokenPurger purger = createPurger(10, 100);
+        try {
+            assertTrue(purger.start());
+            assertFalse(OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled());
+        } finally {
+            purger.shutdown();
+        }
+    }
+
+    @Test
+    public void testTokensAreCleanedUpInlineWithoutLeaseTable() {
+
+        when(tokenCleanupDAO.isLeaseTableAvailable()).thenReturn(false);
+        ExpiredTokenPurger purger = createPurger(10, 100);
+
+        assertFalse(purger.start());
+        assertTrue(OAuth2ServiceComponentHolder.isInlineTokenCleanupEnabled());
+    }
+
+    @Test
+    public void testPurgeIsSkippedWithoutLease() throws Exception {
+
+        when(tokenCleanupDAO.acquireLease(anyString(), anyString(), anyLong())).thenReturn(false);
+        ExpiredTokenPurger purger = createPurger(10, 100);
+
+        purger.purge();
+
+        verify(tokenCleanupDAO, never()).getPurgeableAccessTokens(any(), any(), anyInt(), anyLong());
+        verify(tokenCleanupDAO, never()).getPurgeableAuthorizationCodes(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void testPurgeContinuesFromLastScannedToken() throws Exception {
+
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), isNull(String.class), eq(2), anyLong()))
+                .thenReturn(page(Arrays.asList("t1", "t2")));
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), eq("t2"), eq(2), anyLong()))
+                .thenReturn(page(Arrays.asList("t3", "t4")));
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), eq("t4"), eq(2), anyLong()))
+                .thenReturn(page(Collections.singletonList("t5")));
+        when(tokenCleanupDAO.purgeAccessTokens(eq(TOKEN_TABLE), any(), anyBoolean())).thenReturn(1);
+        ExpiredTokenPurger purger = createPurger(2, 4);
+
+        purger.purge();
+
+        // The cycle stops at the per-cycle limit, and the next cycle continues from there to the end of the table.
+        verify(tokenCleanupDAO, never()).getPurgeableAccessTokens(eq(TOKEN_TABLE), eq("t4"), anyInt(), anyLong());
+        verify(tokenCleanupDAO).purgeAccessTokens(TOKEN_TABLE, Collections.singletonList("t1"), true);
+        verify(tokenCleanupDAO).purgeAccessTokens(TOKEN_TABLE, Collections.singletonList("t3"), true);
+
+        purger.purge();
+
+        verify(tokenCleanupDAO).getPurgeableAccessTokens(eq(TOKEN_TABLE), eq("t4"), eq(2), anyLong());
+        verify(tokenCleanupDAO).purgeAccessTokens(TOKEN_TABLE, Collections.singletonList("t5"), true);
+
+        // The end of the table was reached, so the third cycle starts from the first token again.
+        purger.purge();
+
+        verify(tokenCleanupDAO, times(2)).getPurgeableAccessTokens(eq(TOKEN_TABLE), isNull(String.class), eq(2),
+                anyLong());
+    }
+
+    @Test
+    public void testPurgeStopsWhenLeaseIsLost() throws Exception {
+
+        when(tokenCleanupDAO.acquireLease(anyString(), anyString(), anyLong())).thenReturn(true, false);
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), isNull(String.class), eq(2), anyLong()))
+                .thenReturn(page(Arrays.asList("t1", "t2")));
+        ExpiredTokenPurger purger = createPurger(2, 100);
+
+        purger.purge();
+
+        verify(tokenCleanupDAO, never()).getPurgeableAccessTokens(eq(TOKEN_TABLE), eq("t2"), anyInt(), anyLong());
+        verify(tokenCleanupDAO, never()).getPurgeableAuthorizationCodes(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void testPartitionTablesArePurgedFromTheirOwnPosition() throws Exception {
+
+        when(tokenCleanupDAO.getAccessTokenTables()).thenReturn(Arrays.asList(TOKEN_TABLE, PARTITION_TABLE));
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), isNull(String.class), eq(2), anyLong()))
+                .thenReturn(page(Collections.singletonList("t1")));
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(PARTITION_TABLE), isNull(String.class), eq(2), anyLong()))
+                .thenReturn(page(Arrays.asList("p1", "p2")));
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(PARTITION_TABLE), eq("p2"), eq(2), anyLong()))
+                .thenReturn(page(Collections.singletonList("p3")));
+        ExpiredTokenPurger purger = createPurger(2, 2);
+
+        purger.purge();
+
+        verify(tokenCleanupDAO).purgeAccessTokens(TOKEN_TABLE, Collections.singletonList("t1"), true);
+        verify(tokenCleanupDAO).purgeAccessTokens(PARTITION_TABLE, Collections.singletonList("p1"), true);
+
+        purger.purge();
+
+        // The main table was scanned to the end, while the partition table continues from its last scanned token.
+        verify(tokenCleanupDAO, times(2)).getPurgeableAccessTokens(eq(TOKEN_TABLE), isNull(String.class), eq(2),
+                anyLong());
+        verify(tokenCleanupDAO).purgeAccessTokens(PARTITION_TABLE, Collections.singletonList("p3"), true);
+    }
+
+    @Test
+    public void testExpiredAuthorizationCodesArePurged() throws Exception {
+
+        when(tokenCleanupDAO.getPurgeableAccessTokens(eq(TOKEN_TABLE), any(), anyInt(), anyLong()))
+                .thenReturn(new TokenCleanupDAO.CleanupPage());
+        when(tokenCleanupDAO.getPurgeableAuthorizationCodes(isNull(String.class), eq(10), anyLong()))
+                .thenReturn(page(Arrays.asList("c1", "c2")));
+        ExpiredTokenPurger purger = createPurger(10, 100);
+
+        purger.purge();
+
+        verify(tokenCleanupDAO).purgeAuthorizationCodes(Collections.singletonList("c1"));
+    }
+
+    @DataProvider(name = "accessTokenStates")
+    public Object[][] accessTokenStates() {
+
+        long now = System.currentTimeMillis();
+        Timestamp recent = new Timestamp(now - 1000);
+        Timestamp old = new Timestamp(now - 2 * HOUR);
+        return new Object[][]{
+                {"REVOKED", recent, HOUR, true, recent, HOUR, now, true},
+                {"INACTIVE", recent, HOUR, true, recent, HOUR, now, true},
+                {"ACTIVE", recent, HOUR, true, recent, HOUR, now, false},
+                {"ACTIVE", old, HOUR, false, old, HOUR, now, true},
+                // An expired access token is kept while its refresh token can be used.
+                {"EXPIRED", old, HOUR, true, old, 3 * HOUR, now, false},
+                {"EXPIRED", old, HOUR, true, old, HOUR, now, true},
+                // A negative validity period never expires.
+                {"ACTIVE", old, -1L, false, old, HOUR, now, false},
+                {"ACTIVE", old, Long.MAX_VALUE, false, old, HOUR, now, false}
+        };
+    }
+
+    @Test(dataProvider = "accessTokenStates")
+    public void testIsAccessTokenPurgeable(String tokenState, Timestamp timeCreated, long validityPeriod,
+                                           boolean hasRefreshToken, Timestamp refreshTokenTimeCreated,
+                                           long refreshTokenValidityPeriod, long currentTime, boolean purgeable) {
+
+        assertEquals(TokenCleanupDAO.isAccessTokenPurgeable(tokenState, timeCreated, validityPeriod, hasRefreshToken,
+                refreshTokenTimeCreated, refreshTokenValidityPeriod, currentTime), purgeable);
+    }
+
+    private ExpiredTokenPurger createPurger(int pageSize, int maxRowsPerCycle) {
+
+        return new ExpiredTokenPurger(tokenCleanupDAO, true, HOUR, pageSize, maxRowsPerCycle, 0, 2 * HOUR);
+    }
+
+    /**
+     * Page whose scanned ids are the given ids, of which the first one is purgeable.
+     */
+    private TokenCleanupDAO.CleanupPage page(List<String> ids) {
+
+        TokenCleanupDAO.CleanupPage page = new TokenCleanupDAO.CleanupPage();
+        for (String id : ids) {
+            page.addScanned(id);
+        }
+        page.addPurgeable(ids.get(0));
+        return page;
+    }
+}
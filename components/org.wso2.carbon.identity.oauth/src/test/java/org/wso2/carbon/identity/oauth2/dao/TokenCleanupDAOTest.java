@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for the queries of TokenCleanupDAO against an H2 database.
+ */
+@WithCarbonHome
+@PrepareForTest({IdentityDatabaseUtil.class, OAuth2Util.class})
+public class TokenCleanupDAOTest extends PowerMockIdentityBaseTest {
+
+    private static final String DB_NAME = "testTokenCleanupDB";
+    private static final String TOKEN_TABLE = OAuthConstants.ACCESS_TOKEN_STORE_TABLE;
+    private static final String PARTITION_TABLE = TOKEN_TABLE + "_A";
+    private static final long HOUR = 3600000L;
+    private static final int IDP_ID = 7;
+
+    private TokenCleanupDAO tokenCleanupDAO;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        executeUpdate("CREATE TABLE IF NOT EXISTS " + PARTITION_TABLE + " AS SELECT * FROM " + TOKEN_TABLE +
+                " WHERE 1 = 0");
+        tokenCleanupDAO = new TokenCleanupDAO();
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        // Each operation of the DAO closes its connection.
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean()))
+                .thenAnswer(invocation -> DAOUtils.getConnection(DB_NAME));
+        mockStatic(OAuth2Util.class);
+    }
+
+    @AfterMethod
+    public void cleanup() throws Exception {
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(false);
+        executeUpdate("DELETE FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE");
+        executeUpdate("DELETE FROM " + TOKEN_TABLE);
+        executeUpdate("DELETE FROM " + PARTITION_TABLE);
+        executeUpdate("DELETE FROM IDN_OAUTH2_ACCESS_TOKEN_AUDIT");
+        executeUpdate("DELETE FROM IDN_OAUTH2_AUTHZ_CODE_SCOPE");
+        executeUpdate("DELETE FROM IDN_OAUTH2_AUTHORIZATION_CODE");
+        executeUpdate("DELETE FROM IDN_OAUTH2_TOKEN_CLEANUP_LEASE");
+    }
+
+    @Test
+    public void testAccessTokensAreReadInPagesOfTokenIds() throws Exception {
+
+        long now = System.currentTimeMillis();
+        persistAccessToken(TOKEN_TABLE, "t1", OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, now, HOUR, HOUR);
+        persistAccessToken(TOKEN_TABLE, "t2", OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, now, HOUR, HOUR);
+        persistAccessToken(TOKEN_TABLE, "t3", OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, now - 3 * HOUR, HOUR,
+                HOUR);
+        // The refresh token of this expired token can still be used.
+        persistAccessToken(TOKEN_TABLE, "t4", OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, now - 3 * HOUR, HOUR,
+                6 * HOUR);
+
+        TokenCleanupDAO.CleanupPage page = tokenCleanupDAO.getPurgeableAccessTokens(TOKEN_TABLE, null, 2, now);
+        assertEquals(page.getScannedCount(), 2);
+        assertEquals(page.getLastScannedId(), "t2");
+        assertEquals(page.getPurgeableIds(), Collections.singletonList("t1"));
+
+        page = tokenCleanupDAO.getPurgeableAccessTokens(TOKEN_TABLE, "t2", 2, now);
+        assertEquals(page.getScannedCount(), 2);
+        assertEquals(page.getLastScannedId(), "t4");
+        assertEquals(page.getPurgeableIds(), Collections.singletonList("t3"));
+
+        page = tokenCleanupDAO.getPurgeableAccessTokens(TOKEN_TABLE, "t4", 2, now);
+        assertEquals(page.getScannedCount(), 0);
+    }
+
+    @Test
+    public void testPurgedAccessTokensAreMovedToAudit() throws Exception {
+
+        long now = System.currentTimeMillis();
+        persistAccessToken(TOKEN_TABLE, "t1", OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, now, HOUR, HOUR);
+        persistAccessToken(TOKEN_TABLE, "t2", OAuthConstants.TokenStates.TOKEN_STATE_INACTIVE, now, HOUR, HOUR);
+        persistAccessToken(TOKEN_TABLE, "t3", OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, now, HOUR, HOUR);
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(true);
+
+        assertEquals(tokenCleanupDAO.purgeAccessTokens(TOKEN_TABLE, Arrays.asList("t1", "t2"), true), 2);
+
+        assertEquals(getIds("SELECT TOKEN_ID FROM " + TOKEN_TABLE), Collections.singletonList("t3"));
+        assertEquals(getIds("SELECT TOKEN_ID FROM IDN_OAUTH2_ACCESS_TOKEN_AUDIT"), Arrays.asList("t1", "t2"));
+        assertEquals(getIds("SELECT TOKEN_ID FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE"), Collections.singletonList("t3"),
+                "The scopes of the purged tokens should be deleted with them.");
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement("SELECT ACCESS_TOKEN, TOKEN_STATE, " +
+                     "INVALIDATED_TIME, IDP_ID FROM IDN_OAUTH2_ACCESS_TOKEN_AUDIT WHERE TOKEN_ID = 't1'");
+             ResultSet resultSet = prepStmt.executeQuery()) {
+            assertTrue(resultSet.next());
+            assertEquals(resultSet.getString(1), "access-t1");
+            assertEquals(resultSet.getString(2), OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+            assertNotNull(resultSet.getTimestamp(3));
+            assertEquals(resultSet.getInt(4), IDP_ID);
+        }
+    }
+
+    @Test
+    public void testPurgedAccessTokensAreNotRetainedWhenAuditIsDisabled() throws Exception {
+
+        long now = System.currentTimeMillis();
+        persistAccessToken(TOKEN_TABLE, "t1", OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, now, HOUR, HOUR);
+
+        assertEquals(tokenCleanupDAO.purgeAccessTokens(TOKEN_TABLE, Collections.singletonList("t1"), false), 1);
+
+        assertTrue(getIds("SELECT TOKEN_ID FROM " + TOKEN_TABLE).isEmpty());
+        assertTrue(getIds("SELECT TOKEN_ID FROM IDN_OAUTH2_ACCESS_TOKEN_AUDIT").isEmpty());
+    }
+
+    @Test
+    public void testPartitionTablesArePurged() throws Exception {
+
+        when(OAuth2Util.checkAccessTokenPartitioningEnabled()).thenReturn(true);
+        when(OAuth2Util.checkUserNameAssertionEnabled()).thenReturn(true);
+        TreeMap<String, String> domainMappings = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        domainMappings.put("FOO.COM", "A");
+        domainMappings.put("BAR.COM", "A");
+        when(OAuth2Util.getAvailableUserStoreDomainMappings()).thenReturn(domainMappings);
+        assertEquals(tokenCleanupDAO.getAccessTokenTables(), Arrays.asList(TOKEN_TABLE, PARTITION_TABLE));
+
+        long now = System.currentTimeMillis();
+        persistAccessToken(TOKEN_TABLE, "t1", OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, now, HOUR, HOUR);
+        persistAccessToken(PARTITION_TABLE, "p1", OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, now, HOUR, HOUR);
+
+        TokenCleanupDAO.CleanupPage page = tokenCleanupDAO.getPurgeableAccessTokens(PARTITION_TABLE, null, 10, now);
+        assertEquals(page.getPurgeableIds(), Collections.singletonList("p1"));
+        assertEquals(tokenCleanupDAO.purgeAccessTokens(PARTITION_TABLE, page.getPurgeableIds(), true), 1);
+
+        assertTrue(getIds("SELECT TOKEN_ID FROM " + PARTITION_TABLE).isEmpty());
+        assertEquals(getIds("SELECT TOKEN_ID FROM " + TOKEN_TABLE), Collections.singletonList("t1"));
+        assertEquals(getIds("SELECT TOKEN_ID FROM IDN_OAUTH2_ACCESS_TOKEN_AUDIT"), Collections.singletonList("p1"));
+    }
+
+    @Test
+    public void testOnlyMainTableIsPurgedWithoutPartitioning() throws Exception {
+
+        when(OAuth2Util.checkAccessTokenPartitioningEnabled()).thenReturn(false);
+
+        assertEquals(tokenCleanupDAO.getAccessTokenTables(), Collections.singletonList(TOKEN_TABLE));
+    }
+
+    @Test
+    public void testExpiredAuthorizationCodesArePurged() throws Exception {
+
+        long now = System.currentTimeMillis();
+        persistAuthorizationCode("c1", now - 2 * HOUR, HOUR);
+        persistAuthorizationCode("c2", now, HOUR);
+
+        TokenCleanupDAO.CleanupPage page = tokenCleanupDAO.getPurgeableAuthorizationCodes(null, 10, now);
+        assertEquals(page.getScannedCount(), 2);
+        assertEquals(page.getPurgeableIds(), Collections.singletonList("c1"));
+
+        assertEquals(tokenCleanupDAO.purgeAuthorizationCodes(page.getPurgeableIds()), 1);
+
+        assertEquals(getIds("SELECT CODE_ID FROM IDN_OAUTH2_AUTHORIZATION_CODE"), Collections.singletonList("c2"));
+        assertEquals(getIds("SELECT CODE_ID FROM IDN_OAUTH2_AUTHZ_CODE_SCOPE"), Collections.singletonList("c2"));
+    }
+
+    @Test
+    public void testLeaseIsHeldByOneOwner() throws Exception {
+
+        assertTrue(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node1", HOUR));
+        assertFalse(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node2", HOUR));
+        assertTrue(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node1", HOUR),
+                "The owner should be able to renew its lease.");
+
+        tokenCleanupDAO.releaseLease(ExpiredTokenPurger.LEASE_NAME, "node2");
+        assertFalse(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node2", HOUR),
+                "Only the owner should be able to release the lease.");
+
+        tokenCleanupDAO.releaseLease(ExpiredTokenPurger.LEASE_NAME, "node1");
+        assertTrue(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node2", HOUR));
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOver() throws Exception {
+
+        assertTrue(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node1", 1));
+        Thread.sleep(20);
+
+        assertTrue(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node2", HOUR));
+        assertFalse(tokenCleanupDAO.acquireLease(ExpiredTokenPurger.LEASE_NAME, "node1", HOUR),
+                "The lease taken over by another node should not be renewed by its previous owner.");
+    }
+
+    @Test
+    public void testLeaseTableAvailability() throws Exception {
+
+        assertTrue(tokenCleanupDAO.isLeaseTableAvailable());
+
+        executeUpdate("ALTER TABLE IDN_OAUTH2_TOKEN_CLEANUP_LEASE RENAME TO IDN_OAUTH2_TOKEN_CLEANUP_LEASE_OLD");
+        try {
+            assertFalse(tokenCleanupDAO.isLeaseTableAvailable());
+        } finally {
+            executeUpdate("ALTER TABLE IDN_OAUTH2_TOKEN_CLEANUP_LEASE_OLD RENAME TO IDN_OAUTH2_TOKEN_CLEANUP_LEASE");
+        }
+    }
+
+    private void persistAccessToken(String table, String tokenId, String tokenState, long timeCreated,
+                                    long validityPeriod, long refreshTokenValidityPeriod) throws Exception {
+
+        Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        try (Connection connection = DAOUtils.getConnection(DB_NAME)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO " + table + " (TOKEN_ID, " +
+                    "ACCESS_TOKEN, REFRESH_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, ACCESS_TOKEN_HASH, IDP_ID) VALUES (?, ?, ?, ?, -1234, 'PRIMARY', " +
+                    "?, ?, ?, ?, 'hash', ?, ?, ?, ?)")) {
+                prepStmt.setString(1, tokenId);
+                prepStmt.setString(2, "access-" + tokenId);
+                prepStmt.setString(3, "refresh-" + tokenId);
+                prepStmt.setString(4, "user-" + tokenId);
+                prepStmt.setTimestamp(5, new Timestamp(timeCreated), utcCalendar);
+                prepStmt.setTimestamp(6, new Timestamp(timeCreated), utcCalendar);
+                prepStmt.setLong(7, validityPeriod);
+                prepStmt.setLong(8, refreshTokenValidityPeriod);
+                prepStmt.setString(9, tokenState);
+                prepStmt.setString(10, tokenId);
+                prepStmt.setString(11, "access-hash-" + tokenId);
+                prepStmt.setInt(12, IDP_ID);
+                prepStmt.execute();
+            }
+            if (TOKEN_TABLE.equals(table)) {
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE)) {
+                    prepStmt.setString(1, tokenId);
+                    prepStmt.setString(2, "openid");
+                    prepStmt.setInt(3, -1234);
+                    prepStmt.execute();
+                }
+            }
+        }
+    }
+
+    private void persistAuthorizationCode(String codeId, long timeCreated, long validityPeriod) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO " +
+                    "IDN_OAUTH2_AUTHORIZATION_CODE (CODE_ID, AUTHORIZATION_CODE, TIME_CREATED, VALIDITY_PERIOD, " +
+                    "TENANT_ID) VALUES (?, ?, ?, ?, -1234)")) {
+                prepStmt.setString(1, codeId);
+                prepStmt.setString(2, "code-" + codeId);
+                prepStmt.setTimestamp(3, new Timestamp(timeCreated), Calendar.getInstance(TimeZone.getTimeZone(
+                        "UTC")));
+                prepStmt.setLong(4, validityPeriod);
+                prepStmt.execute();
+            }
+            try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH2_AUTHZ_CODE_SCOPE " +
+                    "(CODE_ID, SCOPE, TENANT_ID) VALUES (?, 'openid', -1234)")) {
+                prepStmt.setString(1, codeId);
+                prepStmt.execute();
+            }
+        }
+    }
+
+    private List<String> getIds(String sql) throws Exception {
+
+        List<String> ids = new ArrayList<>();
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(sql + " ORDER BY 1");
+             ResultSet resultSet = prepStmt.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString(1));
+            }
+        }
+        return ids;
+    }
+
+    private void executeUpdate(String sql) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            prepStmt.executeUpdate();
+        }
+    }
+}
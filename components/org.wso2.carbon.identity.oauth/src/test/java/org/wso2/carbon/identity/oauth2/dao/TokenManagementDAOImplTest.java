@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.dao.SQLQueries;
+import org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.model.AuthorizedAppDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+import org.wso2.carbon.user.core.UserCoreConstants;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.wso2.carbon.identity.oauth.common.OAuthConstants.OAuthVersions.VERSION_2;
+
+/**
+ * Unit tests for listing the applications authorized by a user with TokenManagementDAOImpl.
+ */
+@WithCarbonHome
+@PrepareForTest({IdentityDatabaseUtil.class, OAuth2Util.class, IdentityUtil.class})
+public class TokenManagementDAOImplTest extends PowerMockIdentityBaseTest {
+
+    public static Map<String, BasicDataSource> dataSourceMap = new HashMap<>();
+
+    private Connection connection;
+
+    private TokenManagementDAOImpl tokenManagementDAO;
+    private static final int TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+    private static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    private static final String LOCAL_IDP = "LOCAL";
+    private static final String FEDERATED_IDP = "FederatedIdP";
+    private static final String APP_OWNER = "admin";
+    private static final String CALLBACK = "http://localhost:8080/redirect";
+    private static final String DB_NAME = "testTokenManagementDB";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        //Initializing the database.
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        tokenManagementDAO = new TokenManagementDAOImpl();
+        storeIDP(LOCAL_IDP);
+        storeIDP(FEDERATED_IDP);
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        connection = DAOUtils.getConnection(DB_NAME);
+        mockStatic(IdentityDatabaseUtil.class);
+        // The DAO closes the connection it reads from, hence a new connection is given for each read.
+        when(IdentityDatabaseUtil.getDBConnection(false)).thenAnswer(invocation -> DAOUtils.getConnection(DB_NAME));
+
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.isUserStoreInUsernameCaseSensitive(anyString())).thenReturn(false);
+
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.getTenantId(anyString())).thenReturn(TENANT_ID);
+        when(OAuth2Util.getAuthenticatedIDP(any())).thenReturn(LOCAL_IDP);
+        when(OAuth2Util.getSanitizedUserStoreDomain(anyString())).thenCallRealMethod();
+        when(OAuth2Util.getTokenPartitionedSqlByUserStore(anyString(), anyString())).thenCallRealMethod();
+        when(OAuth2Util.hashScopes(any(String[].class))).thenCallRealMethod();
+    }
+
+    @AfterMethod
+    public void closeup() throws Exception {
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(false);
+        connection.close();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        closeH2Base(DB_NAME);
+    }
+
+    private static void closeH2Base(String databaseName) throws Exception {
+
+        BasicDataSource dataSource = dataSourceMap.get(databaseName);
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void testGetAuthorizedAppsInPages() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String keyPrefix = UUID.randomUUID().toString();
+        String consumerKey1 = keyPrefix + "-1";
+        String consumerKey2 = keyPrefix + "-2";
+        String consumerKey3 = keyPrefix + "-3";
+        createApplication(consumerKey1, "app1");
+        createApplication(consumerKey2, "app2");
+        createApplication(consumerKey3, "app3");
+        long now = System.currentTimeMillis();
+        persistAccessToken(consumerKey1, userName, OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, LOCAL_IDP,
+                now - 3600000L);
+        persistAccessToken(consumerKey1, userName, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        persistAccessToken(consumerKey2, userName, OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, LOCAL_IDP, now);
+        persistAccessToken(consumerKey3, userName, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, LOCAL_IDP, now);
+        persistAccessToken(consumerKey3, "other-" + userName, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE,
+                LOCAL_IDP, now);
+        AuthenticatedUser user = getAuthenticatedUser(userName);
+
+        List<AuthorizedAppDO> firstPage = tokenManagementDAO.getAuthorizedApps(user, null, 1);
+        Assert.assertEquals(firstPage.size(), 1);
+        AuthorizedAppDO authorizedApp = firstPage.get(0);
+        Assert.assertEquals(authorizedApp.getConsumerKey(), consumerKey1);
+        Assert.assertEquals(authorizedApp.getApplicationName(), "app1");
+        Assert.assertEquals(authorizedApp.getLatestTokenIssuedTime().getTime(), now);
+        Assert.assertEquals(authorizedApp.getActiveTokenCount(), 1);
+        Assert.assertEquals(authorizedApp.getTokenCount(), 2);
+
+        List<AuthorizedAppDO> secondPage = tokenManagementDAO.getAuthorizedApps(user, consumerKey1, 1);
+        Assert.assertEquals(secondPage.size(), 1);
+        Assert.assertEquals(secondPage.get(0).getConsumerKey(), consumerKey2);
+        Assert.assertEquals(secondPage.get(0).getActiveTokenCount(), 0);
+        Assert.assertEquals(secondPage.get(0).getTokenCount(), 1);
+
+        Assert.assertTrue(tokenManagementDAO.getAuthorizedApps(user, consumerKey2, 1).isEmpty(),
+                "Apps with only revoked tokens of the user should not be returned.");
+        Assert.assertEquals(tokenManagementDAO.getAuthorizedApps(user, null, 10).size(), 2);
+    }
+
+    @Test
+    public void testGetAuthorizedAppsWithIDPName() throws Exception {
+
+        String userName = "user-" + UUID.randomUUID();
+        String keyPrefix = UUID.randomUUID().toString();
+        String localConsumerKey = keyPrefix + "-1";
+        String federatedConsumerKey = keyPrefix + "-2";
+        createApplication(localConsumerKey, "localApp");
+        createApplication(federatedConsumerKey, "federatedApp");
+        long now = System.currentTimeMillis();
+        persistAccessToken(localConsumerKey, userName, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP, now);
+        persistAccessToken(federatedConsumerKey, userName, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE,
+                FEDERATED_IDP, now);
+        AuthenticatedUser user = getAuthenticatedUser(userName);
+
+        Assert.assertEquals(tokenManagementDAO.getAuthorizedApps(user, null, 10).size(), 2,
+                "The identity provider should not be considered when the IDP_ID column is disabled.");
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(true);
+        List<AuthorizedAppDO> authorizedApps = tokenManagementDAO.getAuthorizedApps(user, null, 10);
+        Assert.assertEquals(authorizedApps.size(), 1, "Only the apps authorized through the authenticated " +
+                "identity provider should be returned.");
+        Assert.assertEquals(authorizedApps.get(0).getConsumerKey(), localConsumerKey);
+        Assert.assertTrue(tokenManagementDAO.getAuthorizedApps(user, localConsumerKey, 10).isEmpty());
+    }
+
+    @Test
+    public void testGetAuthorizedAppsWithUsernameCase() throws Exception {
+
+        String userName = "User-" + UUID.randomUUID();
+        String consumerKey = UUID.randomUUID().toString();
+        createApplication(consumerKey, "caseApp");
+        persistAccessToken(consumerKey, userName, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, LOCAL_IDP,
+                System.currentTimeMillis());
+        AuthenticatedUser user = getAuthenticatedUser(userName.toLowerCase());
+
+        Assert.assertEquals(tokenManagementDAO.getAuthorizedApps(user, null, 10).size(), 1,
+                "The username should be matched case insensitively.");
+
+        when(IdentityUtil.isUserStoreInUsernameCaseSensitive(anyString())).thenReturn(true);
+        Assert.assertTrue(tokenManagementDAO.getAuthorizedApps(user, null, 10).isEmpty(),
+                "The username should be matched case sensitively.");
+    }
+
+    private AuthenticatedUser getAuthenticatedUser(String userName) {
+
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser();
+        authenticatedUser.setTenantDomain(TENANT_DOMAIN);
+        authenticatedUser.setUserName(userName);
+        authenticatedUser.setUserStoreDomain(UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+        return authenticatedUser;
+    }
+
+    private void persistAccessToken(String consumerKey, String userName, String tokenState, String idpName,
+                                    long timeCreated) throws Exception {
+
+        String tokenId = UUID.randomUUID().toString();
+        String accessToken = UUID.randomUUID().toString();
+        String refreshToken = UUID.randomUUID().toString();
+        HashingPersistenceProcessor hashingPersistenceProcessor = new HashingPersistenceProcessor();
+        Timestamp issuedTime = new Timestamp(timeCreated);
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        try (PreparedStatement prepStmt = connection.prepareStatement(
+                org.wso2.carbon.identity.oauth2.dao.SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN_WITH_IDP_NAME)) {
+            prepStmt.setString(1, accessToken);
+            prepStmt.setString(2, refreshToken);
+            prepStmt.setString(3, userName);
+            prepStmt.setInt(4, TENANT_ID);
+            prepStmt.setString(5, UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+            prepStmt.setTimestamp(6, issuedTime, calendar);
+            prepStmt.setTimestamp(7, issuedTime, calendar);
+            prepStmt.setLong(8, 3600000L);
+            prepStmt.setLong(9, 84600000L);
+            prepStmt.setString(10, OAuth2Util.hashScopes(new String[]{"openid"}));
+            prepStmt.setString(11, tokenState);
+            prepStmt.setString(12, OAuthConstants.UserType.APPLICATION_USER);
+            prepStmt.setString(13, tokenId);
+            prepStmt.setString(14, OAuthConstants.GrantTypes.PASSWORD);
+            prepStmt.setString(15, userName);
+            prepStmt.setString(16, hashingPersistenceProcessor.getProcessedAccessTokenIdentifier(accessToken));
+            prepStmt.setString(17, hashingPersistenceProcessor.getProcessedRefreshToken(refreshToken));
+            prepStmt.setString(18, OAuthConstants.TokenBindings.NONE);
+            prepStmt.setString(19, consumerKey);
+            prepStmt.setString(20, idpName);
+            prepStmt.setInt(21, TENANT_ID);
+            prepStmt.execute();
+        }
+    }
+
+    private void createApplication(String consumerKey, String appName) throws Exception {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(SQLQueries.OAuthAppDAOSQLQueries.ADD_OAUTH_APP)) {
+            prepStmt.setString(1, consumerKey);
+            prepStmt.setString(2, UUID.randomUUID().toString());
+            prepStmt.setString(3, APP_OWNER);
+            prepStmt.setInt(4, TENANT_ID);
+            prepStmt.setString(5, UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME);
+            prepStmt.setString(6, appName);
+            prepStmt.setString(7, VERSION_2);
+            prepStmt.setString(8, CALLBACK);
+            prepStmt.setString(9, "refresh_token password client_credentials authorization_code");
+            prepStmt.setLong(10, 3600L);
+            prepStmt.setLong(11, 3600L);
+            prepStmt.setLong(12, 84600L);
+            prepStmt.setLong(13, 3600L);
+            prepStmt.execute();
+        }
+    }
+
+    private void storeIDP(String idpName) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME)) {
+            String sql = "INSERT INTO IDP (TENANT_ID, NAME, UUID) VALUES (?, ?, ?)";
+            try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+                prepStmt.setInt(1, TENANT_ID);
+                prepStmt.setString(2, idpName);
+                prepStmt.setString(3, UUID.randomUUID().toString());
+                prepStmt.execute();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for TokenPersistencePipeline.
+ */
+public class TokenPersistencePipelineTest {
+
+    private static final String CONSUMER_KEY = "consumerKey";
+    private static final String USER_STORE_DOMAIN = "PRIMARY";
+
+    private AccessTokenDAO accessTokenDAO;
+    private List<AccessContextTokenDO> persistedTokens;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        accessTokenDAO = mock(AccessTokenDAO.class);
+        persistedTokens = new ArrayList<>();
+    }
+
+    @Test
+    public void testPersistSynchronouslyWhenPoolSizeIsNotConfigured() throws Exception {
+
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(0, 10, 10, 100,
+                TokenPersistencePipeline.QueueFullPolicy.SYNC, 100, accessTokenDAO);
+        pipeline.start();
+        AccessContextTokenDO accessContextTokenDO = createAccessContextTokenDO("token");
+
+        pipeline.persist(accessContextTokenDO);
+
+        assertFalse(pipeline.isEnabled());
+        verify(accessTokenDAO, times(1)).insertAccessToken(eq("token"), eq(CONSUMER_KEY),
+                eq(accessContextTokenDO.getNewAccessTokenDO()), eq(accessContextTokenDO.getExistingAccessTokenDO()),
+                eq(USER_STORE_DOMAIN));
+        verify(accessTokenDAO, never()).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+    }
+
+    @Test
+    public void testFlushWhenBatchSizeIsReached() throws Exception {
+
+        CountDownLatch flushed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            persistedTokens.addAll((List<AccessContextTokenDO>) invocation.getArguments()[0]);
+            flushed.countDown();
+            return null;
+        }).when(accessTokenDAO).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+
+        // A long flush interval makes sure that the batch is flushed because of its size.
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(1, 10, 3, 60000,
+                TokenPersistencePipeline.QueueFullPolicy.SYNC, 100, accessTokenDAO);
+        pipeline.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                pipeline.persist(createAccessContextTokenDO("token" + i));
+            }
+            assertTrue(flushed.await(5, TimeUnit.SECONDS), "Batch was not flushed.");
+            assertEquals(persistedTokens.size(), 3);
+            assertEquals(pipeline.getPersistedTokenCount(), 3);
+            assertEquals(pipeline.getFlushCount(), 1);
+            verify(accessTokenDAO, never()).insertAccessToken(anyString(), anyString(), any(AccessTokenDO.class),
+                    any(AccessTokenDO.class), anyString());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushWhenFlushIntervalElapses() throws Exception {
+
+        CountDownLatch flushed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            persistedTokens.addAll((List<AccessContextTokenDO>) invocation.getArguments()[0]);
+            flushed.countDown();
+            return null;
+        }).when(accessTokenDAO).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(1, 10, 100, 50,
+                TokenPersistencePipeline.QueueFullPolicy.SYNC, 100, accessTokenDAO);
+        pipeline.start();
+        try {
+            pipeline.persist(createAccessContextTokenDO("token"));
+            assertTrue(flushed.await(5, TimeUnit.SECONDS), "Partial batch was not flushed.");
+            assertEquals(persistedTokens.size(), 1);
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testSyncFallbackWhenQueueIsFull() throws Exception {
+
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writerBlocked.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(1, 1, 1, 10,
+                TokenPersistencePipeline.QueueFullPolicy.SYNC, 100, accessTokenDAO);
+        pipeline.start();
+        try {
+            // The first token keeps the only writer busy and the second one fills the queue.
+            pipeline.persist(createAccessContextTokenDO("token1"));
+            assertTrue(writerBlocked.await(5, TimeUnit.SECONDS), "Writer did not pick the first token.");
+            pipeline.persist(createAccessContextTokenDO("token2"));
+            pipeline.persist(createAccessContextTokenDO("token3"));
+
+            assertEquals(pipeline.getSyncFallbackCount(), 1);
+            assertEquals(pipeline.getQueueDepth(), 1);
+            verify(accessTokenDAO, times(1)).insertAccessToken(eq("token3"), eq(CONSUMER_KEY),
+                    any(AccessTokenDO.class), any(AccessTokenDO.class), eq(USER_STORE_DOMAIN));
+        } finally {
+            releaseWriter.countDown();
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownPersistsQueuedTokens() throws Exception {
+
+        doAnswer(invocation -> {
+            persistedTokens.addAll((List<AccessContextTokenDO>) invocation.getArguments()[0]);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(1, 100, 100, 60000,
+                TokenPersistencePipeline.QueueFullPolicy.BLOCK, 100, accessTokenDAO);
+        pipeline.start();
+        for (int i = 0; i < 10; i++) {
+            pipeline.persist(createAccessContextTokenDO("token" + i));
+        }
+        pipeline.shutdown();
+
+        assertFalse(pipeline.isEnabled());
+        assertEquals(persistedTokens.size(), 10);
+        assertEquals(pipeline.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testTokensPersistedWhileShuttingDownAreNotLost() throws Exception {
+
+        Set<String> persistedTokenIds = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            for (AccessContextTokenDO token : (List<AccessContextTokenDO>) invocation.getArguments()[0]) {
+                persistedTokenIds.add(token.getAccessToken());
+            }
+            return null;
+        }).when(accessTokenDAO).insertAccessTokensInBatch(anyListOf(AccessContextTokenDO.class));
+        doAnswer(invocation -> {
+            persistedTokenIds.add((String) invocation.getArguments()[0]);
+            return null;
+        }).when(accessTokenDAO).insertAccessToken(anyString(), anyString(), any(AccessTokenDO.class),
+                any(AccessTokenDO.class), anyString());
+
+        int producerCount = 4;
+        int tokensPerProducer = 500;
+        TokenPersistencePipeline pipeline = new TokenPersistencePipeline(2, 10000, 10, 60000,
+                TokenPersistencePipeline.QueueFullPolicy.BLOCK, 100, accessTokenDAO);
+        pipeline.start();
+        ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+        try {
+            CountDownLatch started = new CountDownLatch(producerCount);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < producerCount; i++) {
+                String prefix = "token" + i + "-";
+                results.add(producers.submit(() -> {
+                    started.countDown();
+                    for (int j = 0; j < tokensPerProducer; j++) {
+                        pipeline.persist(createAccessContextTokenDO(prefix + j));
+                    }
+                    return null;
+                }));
+            }
+            // Shut down while the producers are still persisting tokens.
+            assertTrue(started.await(5, TimeUnit.SECONDS), "Producers did not start.");
+            pipeline.shutdown();
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+
+        assertFalse(pipeline.isEnabled());
+        assertEquals(pipeline.getQueueDepth(), 0);
+        assertEquals(persistedTokenIds.size(), producerCount * tokensPerProducer);
+    }
+
+    private AccessContextTokenDO createAccessContextTokenDO(String accessToken) {
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setAccessToken(accessToken);
+        return new AccessContextTokenDO(accessToken, CONSUMER_KEY, accessTokenDO, null, USER_STORE_DOMAIN);
+    }
+}
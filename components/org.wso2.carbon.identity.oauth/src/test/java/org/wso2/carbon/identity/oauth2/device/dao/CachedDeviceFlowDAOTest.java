@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.device.dao;
+
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.oauth2.device.cache.DeviceFlowState;
+import org.wso2.carbon.identity.oauth2.device.cache.DeviceFlowStateCache;
+import org.wso2.carbon.identity.oauth2.device.constants.Constants;
+import org.wso2.carbon.identity.oauth2.device.model.DeviceFlowDO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for CachedDeviceFlowDAO against the H2 database, with devices polling concurrently.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class})
+@PowerMockIgnore({"javax.crypto.*"})
+public class CachedDeviceFlowDAOTest extends PowerMockTestCase {
+
+    private static final String DB_NAME = "DEVICE_FLOW_STATE_DB";
+    private static final String CLIENT_ID = "deviceFlowClient";
+    private static final long STATUS_REFRESH_INTERVAL = 60000;
+    private static final int DEVICE_COUNT = 2000;
+    private static final int POLLS_PER_DEVICE = 5;
+    private static final int POLLING_THREADS = 8;
+
+    private static final String ADD_APP = "INSERT INTO IDN_OAUTH_CONSUMER_APPS (CONSUMER_KEY, CONSUMER_SECRET, " +
+            "USERNAME, TENANT_ID, USER_DOMAIN, APP_NAME, OAUTH_VERSION) VALUES (?, 'secret', 'admin', -1234, " +
+            "'PRIMARY', 'deviceFlowApp', 'OAuth-2.0')";
+    private static final String ADD_DEVICE_CODE = "INSERT INTO IDN_OAUTH2_DEVICE_FLOW (CODE_ID, DEVICE_CODE, " +
+            "USER_CODE, CONSUMER_KEY_ID, LAST_POLL_TIME, EXPIRY_TIME, POLL_TIME, STATUS) SELECT ?, ?, ?, ID, ?, ?, ?, " +
+            "'PENDING' FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?";
+    private static final String GET_LAST_POLL_TIME = "SELECT LAST_POLL_TIME FROM IDN_OAUTH2_DEVICE_FLOW WHERE " +
+            "DEVICE_CODE = ?";
+    private static final String DELETE_DEVICE_CODES = "DELETE FROM IDN_OAUTH2_DEVICE_FLOW";
+
+    private Map<String, DeviceFlowState> cacheEntries;
+    private DeviceFlowStateCache stateCache;
+    private CountingDeviceFlowDAO deviceFlowDAO;
+    private CachedDeviceFlowDAO cachedDeviceFlowDAO;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(ADD_APP)) {
+            prepStmt.setString(1, CLIENT_ID);
+            prepStmt.execute();
+        }
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean()))
+                .thenAnswer(invocation -> DAOUtils.getConnection(DB_NAME));
+
+        cacheEntries = new ConcurrentHashMap<>();
+        stateCache = mockStateCache(cacheEntries);
+
+        deviceFlowDAO = new CountingDeviceFlowDAO();
+        cachedDeviceFlowDAO = new CachedDeviceFlowDAO(deviceFlowDAO, stateCache, STATUS_REFRESH_INTERVAL);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(DELETE_DEVICE_CODES)) {
+            prepStmt.execute();
+        }
+    }
+
+    @Test
+    public void testConcurrentPollsOfPendingDevicesDoNotWriteToDatabase() throws Exception {
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            addDeviceCode(i, startTime);
+        }
+
+        ExecutorService pollers = Executors.newFixedThreadPool(POLLING_THREADS);
+        AtomicInteger pendingPolls = new AtomicInteger();
+        // Every device polls once in each round, like devices polling at the same interval.
+        for (int round = 0; round < POLLS_PER_DEVICE; round++) {
+            List<Future<?>> polls = new ArrayList<>();
+            for (int i = 0; i < DEVICE_COUNT; i++) {
+                String deviceCode = deviceCode(i);
+                polls.add(pollers.submit(() -> {
+                    if (Constants.PENDING.equals(poll(deviceCode))) {
+                        pendingPolls.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> poll : polls) {
+                poll.get(60, TimeUnit.SECONDS);
+            }
+        }
+        pollers.shutdown();
+
+        assertEquals(pendingPolls.get(), DEVICE_COUNT * POLLS_PER_DEVICE);
+        // Each device is read once from the database, and its polls are kept in memory.
+        assertEquals(deviceFlowDAO.reads.get(), DEVICE_COUNT);
+        assertEquals(deviceFlowDAO.pollTimeWrites.get(), 0);
+        assertEquals(deviceFlowDAO.scopeReads.get(), DEVICE_COUNT);
+        assertEquals(cacheEntries.size(), DEVICE_COUNT);
+    }
+
+    @Test
+    public void testPollStateIsWrittenOnStatusChange() throws Exception {
+
+        long startTime = System.currentTimeMillis() - 10000;
+        addDeviceCode(0, startTime);
+        String deviceCode = deviceCode(0);
+
+        assertEquals(poll(deviceCode), Constants.PENDING);
+        long lastPollTime = cacheEntries.get(deviceCode).getLastPollTime();
+        assertEquals(getStoredLastPollTime(deviceCode), startTime);
+
+        // The user enters the user_code on the verification page.
+        cachedDeviceFlowDAO.setAuthenticationStatus(userCode(0));
+
+        assertEquals(deviceFlowDAO.pollTimeWrites.get(), 1);
+        assertEquals(getStoredLastPollTime(deviceCode), lastPollTime);
+        assertTrue(cacheEntries.isEmpty());
+        assertEquals(poll(deviceCode), Constants.USED);
+
+        cachedDeviceFlowDAO.setDeviceCodeExpired(deviceCode, Constants.EXPIRED);
+
+        assertEquals(poll(deviceCode), Constants.EXPIRED);
+        assertTrue(cacheEntries.isEmpty());
+    }
+
+    @Test
+    public void testPollOfAnotherClientIsValidatedAgainstDatabase() throws Exception {
+
+        addDeviceCode(0, System.currentTimeMillis());
+        assertEquals(poll(deviceCode(0)), Constants.PENDING);
+
+        DeviceFlowDO deviceFlowDO = cachedDeviceFlowDAO.getAuthenticationDetails(deviceCode(0), "otherClient");
+
+        assertEquals(deviceFlowDO.getStatus(), Constants.NOT_EXIST);
+        assertEquals(deviceFlowDAO.reads.get(), 2);
+    }
+
+    @Test
+    public void testPollStateIsSharedWithOtherNodesOnStatusRefresh() throws Exception {
+
+        long startTime = System.currentTimeMillis() - 10000;
+        addDeviceCode(0, startTime);
+        String deviceCode = deviceCode(0);
+        // The status of the device code is read again from the database on every poll of these nodes.
+        CachedDeviceFlowDAO node1 = new CachedDeviceFlowDAO(deviceFlowDAO,
+                mockStateCache(new ConcurrentHashMap<>()), 0);
+        CachedDeviceFlowDAO node2 = new CachedDeviceFlowDAO(deviceFlowDAO,
+                mockStateCache(new ConcurrentHashMap<>()), 0);
+
+        node1.getAuthenticationDetails(deviceCode, CLIENT_ID);
+        node1.setLastPollTime(deviceCode, new Timestamp(startTime + 5000));
+        assertEquals(getStoredLastPollTime(deviceCode), startTime);
+
+        assertEquals(node1.getAuthenticationDetails(deviceCode, CLIENT_ID).getLastPollTime().getTime(),
+                startTime + 5000);
+        assertEquals(getStoredLastPollTime(deviceCode), startTime + 5000);
+        assertEquals(node2.getAuthenticationDetails(deviceCode, CLIENT_ID).getLastPollTime().getTime(),
+                startTime + 5000);
+
+        node2.setLastPollTime(deviceCode, new Timestamp(startTime + 10000));
+        node2.getAuthenticationDetails(deviceCode, CLIENT_ID);
+
+        // The older last poll time of node 1 does not overwrite the one of node 2.
+        assertEquals(node1.getAuthenticationDetails(deviceCode, CLIENT_ID).getLastPollTime().getTime(),
+                startTime + 10000);
+        assertEquals(getStoredLastPollTime(deviceCode), startTime + 10000);
+        assertEquals(deviceFlowDAO.pollTimeWrites.get(), 2);
+    }
+
+    private DeviceFlowStateCache mockStateCache(Map<String, DeviceFlowState> entries) {
+
+        DeviceFlowStateCache cache = mock(DeviceFlowStateCache.class);
+        doAnswer(invocation -> entries.put((String) invocation.getArguments()[0],
+                (DeviceFlowState) invocation.getArguments()[1]))
+                .when(cache).addToCache(anyString(), any(DeviceFlowState.class));
+        doAnswer(invocation -> entries.get(invocation.getArguments()[0]))
+                .when(cache).getValueFromCache(anyString());
+        doAnswer(invocation -> entries.remove(invocation.getArguments()[0]))
+                .when(cache).clearCacheEntry(anyString());
+        return cache;
+    }
+
+    /**
+     * Poll the way DeviceFlowGrant does for a device whose user has not completed the authorization.
+     */
+    private String poll(String deviceCode) throws IdentityOAuth2Exception {
+
+        DeviceFlowDO deviceFlowDO = cachedDeviceFlowDAO.getAuthenticationDetails(deviceCode, CLIENT_ID);
+        cachedDeviceFlowDAO.getScopesForDeviceCode(deviceCode);
+        if (Constants.PENDING.equals(deviceFlowDO.getStatus()) || Constants.USED.equals(deviceFlowDO.getStatus())) {
+            cachedDeviceFlowDAO.setLastPollTime(deviceCode, new Timestamp(System.currentTimeMillis()));
+        }
+        return deviceFlowDO.getStatus();
+    }
+
+    private void addDeviceCode(int index, long lastPollTime) throws Exception {
+
+        Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone(Constants.UTC));
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(ADD_DEVICE_CODE)) {
+            prepStmt.setString(1, "codeId" + index);
+            prepStmt.setString(2, deviceCode(index));
+            prepStmt.setString(3, userCode(index));
+            prepStmt.setTimestamp(4, new Timestamp(lastPollTime), utcCalendar);
+            prepStmt.setTimestamp(5, new Timestamp(lastPollTime + 600000), utcCalendar);
+            prepStmt.setLong(6, 5000);
+            prepStmt.setString(7, CLIENT_ID);
+            prepStmt.execute();
+        }
+    }
+
+    private long getStoredLastPollTime(String deviceCode) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(GET_LAST_POLL_TIME)) {
+            prepStmt.setString(1, deviceCode);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getTimestamp(1, Calendar.getInstance(TimeZone.getTimeZone(Constants.UTC)))
+                        .getTime();
+            }
+        }
+    }
+
+    private static String deviceCode(int index) {
+
+        return "deviceCode" + index;
+    }
+
+    private static String userCode(int index) {
+
+        return "userCode" + index;
+    }
+
+    /**
+     * DeviceFlowDAOImpl which counts the database accesses of the polls.
+     */
+    private static class CountingDeviceFlowDAO extends DeviceFlowDAOImpl {
+
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicInteger scopeReads = new AtomicInteger();
+        private final AtomicInteger pollTimeWrites = new AtomicInteger();
+
+        @Override
+        public DeviceFlowDO getAuthenticationDetails(String deviceCode, String clientId)
+                throws IdentityOAuth2Exception {
+
+            reads.incrementAndGet();
+            return super.getAuthenticationDetails(deviceCode, clientId);
+        }
+
+        @Override
+        public String[] getScopesForDeviceCode(String deviceCode) throws IdentityOAuth2Exception {
+
+            scopeReads.incrementAndGet();
+            return super.getScopesForDeviceCode(deviceCode);
+        }
+
+        @Override
+        public void setLastPollTime(String deviceCode, Timestamp newPollTime) throws IdentityOAuth2Exception {
+
+            pollTimeWrites.incrementAndGet();
+            super.setLastPollTime(deviceCode, newPollTime);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration.DEFAULT_TOKEN_TYPE;
+import static org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration.JWT_TOKEN_TYPE;
+
+/**
+ * Unit tests for TokenIssuerResolutionPlan and UnknownTokenCache.
+ */
+public class TokenIssuerResolutionPlanTest {
+
+    private static final String CUSTOM_TOKEN_TYPE = "Custom";
+    private static final String CUSTOM_JWT_TOKEN_TYPE = "CustomJWT";
+
+    private TokenIssuerResolutionPlan resolutionPlan;
+
+    @BeforeMethod
+    public void setUp() {
+
+        Map<String, OauthTokenIssuer> tokenIssuerMap = new HashMap<>();
+        tokenIssuerMap.put(CUSTOM_TOKEN_TYPE, mock(OauthTokenIssuer.class));
+        tokenIssuerMap.put(CUSTOM_JWT_TOKEN_TYPE, mock(JWTTokenIssuer.class));
+        tokenIssuerMap.put(DEFAULT_TOKEN_TYPE, mock(OauthTokenIssuerImpl.class));
+        tokenIssuerMap.put(JWT_TOKEN_TYPE, mock(JWTTokenIssuer.class));
+        resolutionPlan = TokenIssuerResolutionPlan.build(tokenIssuerMap);
+    }
+
+    @Test
+    public void testOpaqueTokenSkipsJWTIssuers() {
+
+        Map<String, OauthTokenIssuer> candidates = resolutionPlan.getCandidateTokenIssuers("opaque-token-value");
+
+        assertEquals(new ArrayList<>(candidates.keySet()), Arrays.asList(DEFAULT_TOKEN_TYPE, CUSTOM_TOKEN_TYPE));
+        assertEquals(resolutionPlan.getIssuerCount(), 4);
+    }
+
+    @Test
+    public void testJWTShapedTokenTriesJWTIssuersFirst() {
+
+        Map<String, OauthTokenIssuer> signedCandidates = resolutionPlan.getCandidateTokenIssuers("header.body.sig");
+        Map<String, OauthTokenIssuer> encryptedCandidates = resolutionPlan.getCandidateTokenIssuers("a.b.c.d.e");
+
+        assertEquals(new ArrayList<>(signedCandidates.keySet()), Arrays.asList(JWT_TOKEN_TYPE, CUSTOM_JWT_TOKEN_TYPE,
+                DEFAULT_TOKEN_TYPE, CUSTOM_TOKEN_TYPE));
+        assertEquals(encryptedCandidates.keySet(), signedCandidates.keySet());
+    }
+
+    @Test
+    public void testPlanWithoutIssuers() {
+
+        TokenIssuerResolutionPlan emptyPlan = TokenIssuerResolutionPlan.build(null);
+
+        assertTrue(emptyPlan.getCandidateTokenIssuers("header.body.sig").isEmpty());
+        assertEquals(emptyPlan.getIssuerCount(), 0);
+    }
+
+    @Test
+    public void testUnknownTokenCache() {
+
+        UnknownTokenCache unknownTokenCache = new UnknownTokenCache(true, 2, 60000);
+        unknownTokenCache.addUnknownToken("token1");
+        unknownTokenCache.addUnknownToken("token2");
+        assertTrue(unknownTokenCache.isUnknown("token1"));
+        assertTrue(unknownTokenCache.isUnknown("token2"));
+
+        // Exceeding the capacity evicts an older entry, but never the one being added.
+        unknownTokenCache.addUnknownToken("token3");
+        assertEquals(unknownTokenCache.size(), 2);
+        assertTrue(unknownTokenCache.isUnknown("token3"));
+
+        unknownTokenCache.removeUnknownToken("token3");
+        assertFalse(unknownTokenCache.isUnknown("token3"));
+    }
+
+    @Test
+    public void testUnknownTokenCacheHashCodeCollision() {
+
+        UnknownTokenCache unknownTokenCache = new UnknownTokenCache(true, 10, 60000);
+        // "Aa" and "BB" share the same String hash code, hence they fall into the same bucket.
+        unknownTokenCache.addUnknownToken("Aa");
+
+        assertTrue(unknownTokenCache.isUnknown("Aa"));
+        assertFalse(unknownTokenCache.isUnknown("BB"));
+    }
+
+    @Test
+    public void testUnknownTokenCacheEntryExpiry() throws Exception {
+
+        UnknownTokenCache unknownTokenCache = new UnknownTokenCache(true, 10, 1);
+        unknownTokenCache.addUnknownToken("token");
+        Thread.sleep(5);
+
+        assertFalse(unknownTokenCache.isUnknown("token"));
+        assertEquals(unknownTokenCache.size(), 0);
+    }
+
+    @Test
+    public void testDisabledUnknownTokenCache() {
+
+        UnknownTokenCache unknownTokenCache = new UnknownTokenCache(false, 10, 60000);
+        unknownTokenCache.addUnknownToken("token");
+
+        assertFalse(unknownTokenCache.isEnabled());
+        assertFalse(unknownTokenCache.isUnknown("token"));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit tests for TokenResolutionContext.
+ */
+public class TokenResolutionContextTest {
+
+    private static final String TOKEN = "eyJ.presented.token";
+    private static final String TOKEN_IDENTIFIER = "stored-token-identifier";
+    private static final String CLIENT_ID = "clientId";
+    private static final String TENANT_DOMAIN = "carbon.super";
+
+    @AfterMethod
+    public void tearDown() {
+
+        TokenResolutionContext.clear();
+    }
+
+    @Test
+    public void testNoContextWithoutStart() {
+
+        assertNull(TokenResolutionContext.get());
+    }
+
+    @Test
+    public void testResolvedAccessToken() {
+
+        TokenResolutionContext.start();
+        TokenResolutionContext context = TokenResolutionContext.get();
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setAccessToken(TOKEN_IDENTIFIER);
+        context.setAccessTokenDO(TOKEN, accessTokenDO);
+
+        assertSame(context.getAccessTokenDO(TOKEN), accessTokenDO);
+        assertSame(context.getAccessTokenDOByIdentifier(TOKEN_IDENTIFIER), accessTokenDO);
+        assertNull(context.getAccessTokenDO("another-token"));
+        assertNull(context.getAccessTokenDOByIdentifier("another-identifier"));
+    }
+
+    @Test
+    public void testResolvedServiceProvider() {
+
+        TokenResolutionContext.start();
+        TokenResolutionContext context = TokenResolutionContext.get();
+        ServiceProvider serviceProvider = new ServiceProvider();
+        context.setServiceProvider(CLIENT_ID, TENANT_DOMAIN, serviceProvider);
+
+        assertSame(context.getServiceProvider(CLIENT_ID, TENANT_DOMAIN), serviceProvider);
+        assertNull(context.getServiceProvider(CLIENT_ID, "wso2.com"));
+        assertNull(context.getServiceProvider("anotherClientId", TENANT_DOMAIN));
+    }
+
+    @Test
+    public void testContextIsBoundToThread() throws Exception {
+
+        TokenResolutionContext.start();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            assertNull(executorService.submit(TokenResolutionContext::get).get());
+        } finally {
+            executorService.shutdown();
+        }
+        assertNotNull(TokenResolutionContext.get());
+
+        TokenResolutionContext.clear();
+        assertNull(TokenResolutionContext.get());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.Signature;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.opensaml.xmlsec.signature.X509Digest;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.CertificateInfo;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for IdPCertificateCredentialCache.
+ */
+@PrepareForTest({IdentityApplicationManagementUtil.class})
+public class IdPCertificateCredentialCacheTest extends PowerMockIdentityBaseTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String SHA256_DIGEST_ALGORITHM = "http://www.w3.org/2001/04/xmlenc#sha256";
+    private static final byte[] ENCODED_CERTIFICATE_1 = "certificate-1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENCODED_CERTIFICATE_2 = "certificate-2".getBytes(StandardCharsets.UTF_8);
+
+    private IdPCertificateCredentialCache credentialCache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        credentialCache = new IdPCertificateCredentialCache();
+        mockStatic(IdentityApplicationManagementUtil.class);
+        X509Certificate certificate1 = mockCertificate(ENCODED_CERTIFICATE_1);
+        X509Certificate certificate2 = mockCertificate(ENCODED_CERTIFICATE_2);
+        when(IdentityApplicationManagementUtil.decodeCertificate("cert1")).thenReturn(certificate1);
+        when(IdentityApplicationManagementUtil.decodeCertificate("cert2")).thenReturn(certificate2);
+        when(IdentityApplicationManagementUtil.decodeCertificate("invalid"))
+                .thenThrow(new CertificateException("Invalid certificate"));
+    }
+
+    @Test
+    public void testCredentialsInIdPOrderWithoutKeyInfo() throws Exception {
+
+        IdentityProvider identityProvider = mockIdentityProvider("cert1", "cert2");
+
+        List<IdPCertificateCredentialCache.IdPCredential> credentials =
+                credentialCache.getCredentials(identityProvider, TENANT_DOMAIN, mock(Signature.class));
+        assertEquals(credentials.size(), 2);
+        assertEquals(credentials.get(0).getIndex(), 0);
+        assertEquals(credentials.get(1).getIndex(), 1);
+    }
+
+    @Test
+    public void testReferredCredentialFirst() throws Exception {
+
+        IdentityProvider identityProvider = mockIdentityProvider("cert1", "cert2");
+        X509Digest digest = mock(X509Digest.class);
+        when(digest.getAlgorithm()).thenReturn(SHA256_DIGEST_ALGORITHM);
+        when(digest.getValue()).thenReturn(Base64.encodeBase64String(DigestUtils.sha256(ENCODED_CERTIFICATE_2)));
+        X509Data x509Data = mock(X509Data.class);
+        when(x509Data.getX509Digests()).thenReturn(Collections.singletonList(digest));
+        KeyInfo keyInfo = mock(KeyInfo.class);
+        when(keyInfo.getX509Datas()).thenReturn(Collections.singletonList(x509Data));
+        Signature signature = mock(Signature.class);
+        when(signature.getKeyInfo()).thenReturn(keyInfo);
+
+        List<IdPCertificateCredentialCache.IdPCredential> credentials =
+                credentialCache.getCredentials(identityProvider, TENANT_DOMAIN, signature);
+        assertEquals(credentials.size(), 2);
+        assertEquals(credentials.get(0).getIndex(), 1);
+        assertEquals(credentials.get(1).getIndex(), 0);
+    }
+
+    @Test
+    public void testCredentialsRebuiltWhenCertificatesChange() throws Exception {
+
+        IdentityProvider identityProvider = mockIdentityProvider("cert1");
+        IdPCertificateCredentialCache.IdPCredential credential =
+                credentialCache.getCredentials(identityProvider, TENANT_DOMAIN, null).get(0);
+        assertSame(credentialCache.getCredentials(identityProvider, TENANT_DOMAIN, null).get(0), credential);
+
+        IdentityProvider updatedIdentityProvider = mockIdentityProvider("cert2");
+        assertNotSame(credentialCache.getCredentials(updatedIdentityProvider, TENANT_DOMAIN, null).get(0),
+                credential);
+    }
+
+    @Test
+    public void testDecodingErrorOnlyForInvalidCertificate() throws Exception {
+
+        IdentityProvider identityProvider = mockIdentityProvider("cert1", "invalid");
+        List<IdPCertificateCredentialCache.IdPCredential> credentials =
+                credentialCache.getCredentials(identityProvider, TENANT_DOMAIN, null);
+        credentials.get(0).getCredential();
+        try {
+            credentials.get(1).getCredential();
+            fail("Expected an exception for the invalid certificate.");
+        } catch (IdentityOAuth2Exception e) {
+            assertEquals(e.getCause().getMessage(), "Invalid certificate");
+        }
+    }
+
+    private X509Certificate mockCertificate(byte[] encodedCertificate) throws Exception {
+
+        X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encodedCertificate);
+        return certificate;
+    }
+
+    private IdentityProvider mockIdentityProvider(String... certValues) {
+
+        CertificateInfo[] certificateInfos = new CertificateInfo[certValues.length];
+        for (int i = 0; i < certValues.length; i++) {
+            certificateInfos[i] = mock(CertificateInfo.class);
+            when(certificateInfos[i].getCertValue()).thenReturn(certValues[i]);
+            when(certificateInfos[i].getThumbPrint()).thenReturn("thumbprint" + i);
+        }
+        IdentityProvider identityProvider = mock(IdentityProvider.class);
+        when(identityProvider.getIdentityProviderName()).thenReturn("testIdP");
+        when(identityProvider.getCertificateInfoArray()).thenReturn(certificateInfos);
+        return identityProvider;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.handlers.grant.saml;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for InMemorySAMLAssertionReplayStore.
+ */
+public class InMemorySAMLAssertionReplayStoreTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    @Test
+    public void testReplayedAssertionIsRejected() throws Exception {
+
+        InMemorySAMLAssertionReplayStore replayStore = new InMemorySAMLAssertionReplayStore(10, 16, TICK_MILLIS);
+        long expiryTime = System.currentTimeMillis() + 60000;
+
+        assertTrue(replayStore.markAsUsed("assertion1", expiryTime));
+        assertFalse(replayStore.markAsUsed("assertion1", expiryTime));
+        assertTrue(replayStore.markAsUsed("assertion2", expiryTime));
+    }
+
+    @Test
+    public void testExpiredAssertionIsSwept() throws Exception {
+
+        InMemorySAMLAssertionReplayStore replayStore = new InMemorySAMLAssertionReplayStore(10, 16, TICK_MILLIS);
+        long expiryTime = System.currentTimeMillis() + 2 * TICK_MILLIS;
+        assertTrue(replayStore.markAsUsed("assertion1", expiryTime));
+        assertTrue(replayStore.markAsUsed("assertion2", expiryTime));
+        assertEquals(replayStore.size(), 2);
+
+        Thread.sleep(5 * TICK_MILLIS);
+        assertTrue(replayStore.markAsUsed("assertion1", System.currentTimeMillis() + 60000));
+        assertEquals(replayStore.size(), 1);
+    }
+
+    @Test
+    public void testAssertionOutlivingTheWheelIsKept() throws Exception {
+
+        InMemorySAMLAssertionReplayStore replayStore = new InMemorySAMLAssertionReplayStore(10, 2, TICK_MILLIS);
+        assertTrue(replayStore.markAsUsed("assertion1", System.currentTimeMillis() + 60000));
+
+        Thread.sleep(5 * TICK_MILLIS);
+        assertFalse(replayStore.markAsUsed("assertion1", System.currentTimeMillis() + 60000));
+        assertEquals(replayStore.size(), 1);
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testFullStoreRejectsNewAssertions() throws Exception {
+
+        InMemorySAMLAssertionReplayStore replayStore = new InMemorySAMLAssertionReplayStore(1, 16, TICK_MILLIS);
+        long expiryTime = System.currentTimeMillis() + 60000;
+        assertTrue(replayStore.markAsUsed("assertion1", expiryTime));
+        replayStore.markAsUsed("assertion2", expiryTime);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for JDBCTokenLockManager, using two lock managers of the same name to act as two nodes of a cluster.
+ */
+@WithCarbonHome
+@PrepareForTest({IdentityDatabaseUtil.class})
+public class JDBCTokenLockManagerTest extends PowerMockIdentityBaseTest {
+
+    private static final String DB_NAME = "testTokenLockDB";
+    private static final String COUNT_LEASES = "SELECT COUNT(*) FROM IDN_OAUTH2_TOKEN_LOCK WHERE LOCK_NAME = ?";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        // Each statement of the lock manager runs on a connection of its own.
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean()))
+                .thenAnswer(invocation -> DAOUtils.getConnection(DB_NAME));
+    }
+
+    @Test
+    public void testLeaseIsExclusiveAcrossNodes() throws Exception {
+
+        String lockName = UUID.randomUUID().toString();
+        JDBCTokenLockManager node1 = new JDBCTokenLockManager(lockName, 1, 200, 60000);
+        JDBCTokenLockManager node2 = new JDBCTokenLockManager(lockName, 1, 200, 60000);
+
+        try (TokenLock ignored = node1.acquire("client", "user", "openid", "NONE")) {
+            assertEquals(countLeases(lockName), 1);
+            try (TokenLock ignored2 = node2.acquire("client", "user", "openid", "NONE")) {
+                fail("The lease held by another node should not be acquired.");
+            } catch (IdentityOAuth2Exception e) {
+                assertEquals(node2.getMetrics().getTimeoutCount(), 1);
+            }
+        }
+        assertEquals(countLeases(lockName), 0, "The lease should be deleted on release.");
+
+        try (TokenLock ignored = node2.acquire("client", "user", "openid", "NONE")) {
+            assertEquals(countLeases(lockName), 1);
+        }
+        assertEquals(countLeases(lockName), 0);
+    }
+
+    @Test
+    public void testLockIsReentrant() throws Exception {
+
+        String lockName = UUID.randomUUID().toString();
+        JDBCTokenLockManager lockManager = new JDBCTokenLockManager(lockName, 1, 200, 60000);
+
+        try (TokenLock ignored = lockManager.acquire("client", "user", "openid", "NONE")) {
+            try (TokenLock ignored2 = lockManager.acquire("client", "user", "openid", "NONE")) {
+                assertEquals(countLeases(lockName), 1);
+            }
+            assertEquals(countLeases(lockName), 1, "The lease should be held until the outermost release.");
+        }
+        assertEquals(countLeases(lockName), 0);
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOver() throws Exception {
+
+        String lockName = UUID.randomUUID().toString();
+        JDBCTokenLockManager node1 = new JDBCTokenLockManager(lockName, 1, 1000, 50);
+        JDBCTokenLockManager node2 = new JDBCTokenLockManager(lockName, 1, 1000, 60000);
+
+        TokenLock expiredLock = node1.acquire("client", "user", "openid", "NONE");
+        Thread.sleep(100);
+        try (TokenLock ignored = node2.acquire("client", "user", "openid", "NONE")) {
+            // Releasing the expired lease must not release the lease taken over by the other node.
+            expiredLock.close();
+            assertEquals(countLeases(lockName), 1);
+        }
+        assertEquals(countLeases(lockName), 0);
+    }
+
+    @Test
+    public void testLocksOfDifferentNamesAreIndependent() throws Exception {
+
+        JDBCTokenLockManager lockManager1 = new JDBCTokenLockManager(UUID.randomUUID().toString(), 1, 200, 60000);
+        JDBCTokenLockManager lockManager2 = new JDBCTokenLockManager(UUID.randomUUID().toString(), 1, 200, 60000);
+
+        try (TokenLock ignored = lockManager1.acquire("client", "user", "openid", "NONE");
+             TokenLock ignored2 = lockManager2.acquire("client", "user", "openid", "NONE")) {
+            assertTrue(lockManager1.getMetrics().getTimeoutCount() == 0 &&
+                    lockManager2.getMetrics().getTimeoutCount() == 0);
+        }
+    }
+
+    private int countLeases(String lockName) throws Exception {
+
+        try (Connection connection = DAOUtils.getConnection(DB_NAME);
+             PreparedStatement prepStmt = connection.prepareStatement(COUNT_LEASES)) {
+            prepStmt.setString(1, lockName);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+}
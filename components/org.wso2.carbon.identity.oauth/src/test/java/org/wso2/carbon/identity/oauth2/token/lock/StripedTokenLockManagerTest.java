@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for StripedTokenLockManager.
+ */
+public class StripedTokenLockManagerTest {
+
+    @DataProvider(name = "stripeCounts")
+    public Object[][] stripeCounts() {
+
+        return new Object[][]{
+                {0, 1},
+                {1, 1},
+                {3, 4},
+                {1024, 1024},
+                {1025, 2048},
+                {Integer.MAX_VALUE, 1 << 16}
+        };
+    }
+
+    @Test(dataProvider = "stripeCounts")
+    public void testStripeCountIsRoundedToPowerOfTwo(int stripeCount, int expected) {
+
+        assertEquals(new StripedTokenLockManager(stripeCount, 1000).getStripeCount(), expected);
+    }
+
+    @Test
+    public void testSameKeyIsMutuallyExclusive() throws Exception {
+
+        StripedTokenLockManager lockManager = new StripedTokenLockManager(16, 10000);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        try (TokenLock ignored = lockManager.acquire("client", "user", "openid", "NONE")) {
+                            maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                            holders.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(maxHolders.get(), 1);
+        assertEquals(lockManager.getMetrics().getAcquiredCount(), 1600);
+        assertEquals(lockManager.getMetrics().getTimeoutCount(), 0);
+    }
+
+    @Test
+    public void testLockIsReentrant() throws Exception {
+
+        StripedTokenLockManager lockManager = new StripedTokenLockManager(16, 100);
+        try (TokenLock outer = lockManager.acquire("client", "user", "openid", "NONE")) {
+            try (TokenLock inner = lockManager.acquire("client", "user", "openid", "NONE")) {
+                assertEquals(lockManager.getMetrics().getAcquiredCount(), 2);
+            }
+        }
+        assertEquals(lockManager.getMetrics().getContendedCount(), 0);
+    }
+
+    @Test
+    public void testAcquireTimesOut() throws Exception {
+
+        StripedTokenLockManager lockManager = new StripedTokenLockManager(1, 50);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> {
+                try (TokenLock ignored = lockManager.acquire("client", "user")) {
+                    locked.countDown();
+                    release.await();
+                }
+                return null;
+            });
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            try {
+                // A single stripe is shared by every key.
+                lockManager.acquire("another-client", "another-user");
+                fail("Lock acquisition should have timed out.");
+            } catch (IdentityOAuth2Exception e) {
+                assertEquals(lockManager.getMetrics().getTimeoutCount(), 1);
+            }
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        try (TokenLock ignored = lockManager.acquire("another-client", "another-user")) {
+            assertEquals(lockManager.getMetrics().getAcquiredCount(), 2);
+        }
+    }
+
+    @Test
+    public void testContendedAcquisitionIsRecorded() throws Exception {
+
+        StripedTokenLockManager lockManager = new StripedTokenLockManager(1, 10000);
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> {
+                try (TokenLock ignored = lockManager.acquire("client")) {
+                    locked.countDown();
+                    Thread.sleep(100);
+                }
+                return null;
+            });
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            try (TokenLock ignored = lockManager.acquire("client")) {
+                assertEquals(lockManager.getMetrics().getContendedCount(), 1);
+                assertTrue(lockManager.getMetrics().getMaxWaitTimeMillis() > 0);
+            }
+            holder.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -19,6 +19,12 @@
 package org.wso2.carbon.identity.oauth2.util;
 
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.apache.axiom.om.OMElement;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.engine.AxisConfiguration;
@@ -36,6 +42,7 @@ import org.testng.annotations.Test;
 import org.wso2.carbon.CarbonConstants;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.core.util.KeyStoreManager;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
@@ -70,6 +77,7 @@ import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.dao.AccessTokenDAO;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.ClientCredentialDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
@@ -88,15 +96,27 @@ import org.wso2.carbon.utils.ConfigurationContextService;
 import org.wso2.carbon.utils.NetworkUtils;
 
 import java.net.SocketException;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import static org.mockito.Matchers.any;
@@ -110,10 +130,13 @@ import static org.powermock.api.mockito.PowerMockito.whenNew;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.getIdTokenIssuer;
+import static org.wso2.carbon.identity.openidconnect.util.TestUtils.getKeyStoreFromFile;
 
 @WithCarbonHome
 @PrepareForTest({OAuthServerConfiguration.class, OAuthCache.class, IdentityUtil.class, OAuthConsumerDAO.class,
@@ -2265,4 +2288,106 @@ public class OAuth2UtilTest extends PowerMockIdentityBaseTest {
         }
         fail("Expected IdentityOAuth2Exception was not thrown by getServiceProvider method");
     }
+
+    @Test
+    public void testGetJWTSigningContext() throws Exception {
+
+        KeyStore keyStore = getKeyStoreFromFile("wso2carbon.jks", "wso2carbon",
+                Paths.get(System.getProperty("user.dir"), "src", "test", "resources").toString());
+        Certificate certificate = keyStore.getCertificate("wso2carbon");
+        KeyStoreManager keyStoreManager = mock(KeyStoreManager.class);
+        ConcurrentHashMap<String, KeyStoreManager> mtKeyStoreManagers = new ConcurrentHashMap<>();
+        mtKeyStoreManagers.put(String.valueOf(MultitenantConstants.SUPER_TENANT_ID), keyStoreManager);
+        WhiteboxImpl.setInternalState(KeyStoreManager.class, "mtKeyStoreManagers", mtKeyStoreManagers);
+        when(keyStoreManager.getDefaultPrivateKey())
+                .thenReturn((PrivateKey) keyStore.getKey("wso2carbon", "wso2carbon".toCharArray()));
+        when(keyStoreManager.getDefaultPrimaryCertificate()).thenReturn((X509Certificate) certificate);
+        OAuth2ServiceComponentHolder.setKeyIDProvider(new DefaultKeyIDProviderImpl());
+        OAuth2Util.clearSigningKeyCache(MultitenantConstants.SUPER_TENANT_ID);
+
+        JWTSigningContext signingContext = OAuth2Util.getJWTSigningContext(MultitenantConstants
+                .SUPER_TENANT_DOMAIN_NAME, MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256);
+        assertEquals(signingContext.getKeyId(), OAuth2Util.getThumbPrint(certificate) + "_" + JWSAlgorithm.RS256);
+        assertEquals(signingContext.getCertificateThumbprint(), OAuth2Util.getThumbPrint(certificate));
+        SignedJWT signedJWT = signingContext.sign(new JWTClaimsSet.Builder().subject("user").build());
+        assertTrue(signedJWT.verify(new RSASSAVerifier((RSAPublicKey) certificate.getPublicKey())));
+
+        // The context is reused per tenant and algorithm until the signing key cache of the tenant is cleared.
+        assertSame(OAuth2Util.getJWTSigningContext(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME,
+                MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256), signingContext);
+        assertNotSame(OAuth2Util.getJWTSigningContext(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME,
+                MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS512), signingContext);
+        OAuth2Util.clearSigningKeyCache(MultitenantConstants.SUPER_TENANT_ID);
+        assertNotSame(OAuth2Util.getJWTSigningContext(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME,
+                MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256), signingContext);
+        OAuth2Util.clearSigningKeyCache(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    @Test
+    public void testJWTSigningContextIsRebuiltOnKeyRotation() throws Exception {
+
+        String carbonHome = Paths.get(System.getProperty("user.dir"), "src", "test", "resources").toString();
+        KeyStore keyStore = getKeyStoreFromFile("wso2carbon.jks", "wso2carbon", carbonHome);
+        Certificate certificate = keyStore.getCertificate("wso2carbon");
+        KeyStore trustStore = getKeyStoreFromFile("client-truststore.jks", "wso2carbon", carbonHome);
+        Certificate rotatedCertificate = null;
+        for (String alias : Collections.list(trustStore.aliases())) {
+            if (!certificate.equals(trustStore.getCertificate(alias))) {
+                rotatedCertificate = trustStore.getCertificate(alias);
+                break;
+            }
+        }
+        assertNotNull(rotatedCertificate);
+
+        KeyStoreManager keyStoreManager = mock(KeyStoreManager.class);
+        ConcurrentHashMap<String, KeyStoreManager> mtKeyStoreManagers = new ConcurrentHashMap<>();
+        mtKeyStoreManagers.put(String.valueOf(MultitenantConstants.SUPER_TENANT_ID), keyStoreManager);
+        WhiteboxImpl.setInternalState(KeyStoreManager.class, "mtKeyStoreManagers", mtKeyStoreManagers);
+        when(keyStoreManager.getDefaultPrivateKey())
+                .thenReturn((PrivateKey) keyStore.getKey("wso2carbon", "wso2carbon".toCharArray()));
+        when(keyStoreManager.getDefaultPrimaryCertificate()).thenReturn((X509Certificate) certificate);
+        OAuth2ServiceComponentHolder.setKeyIDProvider(new DefaultKeyIDProviderImpl());
+        OAuth2Util.clearSigningKeyCache(MultitenantConstants.SUPER_TENANT_ID);
+
+        JWTSigningContext signingContext = OAuth2Util.getJWTSigningContext(MultitenantConstants
+                .SUPER_TENANT_DOMAIN_NAME, MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256);
+
+        // The rotated certificate is not picked up before the revalidation interval elapses.
+        when(keyStoreManager.getDefaultPrimaryCertificate()).thenReturn((X509Certificate) rotatedCertificate);
+        assertSame(OAuth2Util.getJWTSigningContext(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME,
+                MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256), signingContext);
+
+        Map<Integer, Long> signingKeyValidatedTimes =
+                WhiteboxImpl.getInternalState(OAuth2Util.class, "signingKeyValidatedTimes");
+        signingKeyValidatedTimes.put(MultitenantConstants.SUPER_TENANT_ID, 0L);
+        JWTSigningContext rotatedSigningContext = OAuth2Util.getJWTSigningContext(MultitenantConstants
+                .SUPER_TENANT_DOMAIN_NAME, MultitenantConstants.SUPER_TENANT_ID, JWSAlgorithm.RS256);
+        assertNotSame(rotatedSigningContext, signingContext);
+        assertEquals(rotatedSigningContext.getCertificateThumbprint(), OAuth2Util.getThumbPrint(rotatedCertificate));
+        OAuth2Util.clearSigningKeyCache(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    @Test
+    public void testCreateJWSSignerForECKey() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        JWSSigner signer = OAuth2Util.createJWSSigner(keyPair.getPrivate(), JWSAlgorithm.ES256);
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.ES256),
+                new JWTClaimsSet.Builder().subject("user").build());
+        signedJWT.sign(signer);
+        assertTrue(signedJWT.verify(new ECDSAVerifier((ECPublicKey) keyPair.getPublic())));
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testCreateJWSSignerForMismatchingCurve() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        // A P-256 key can not be used to sign with ES384.
+        OAuth2Util.createJWSSigner(keyPairGenerator.generateKeyPair().getPrivate(), JWSAlgorithm.ES384);
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for IntrospectionResponseCache.
+ */
+public class IntrospectionResponseCacheTest {
+
+    private static final String TOKEN = "introspected-token";
+
+    @Test
+    public void testAddAndRemoveEntry() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 10, 60000);
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        cache.addEntry(TOKEN, buildActiveResponse(Long.MAX_VALUE), accessTokenDO, new String[]{"scope1"});
+
+        IntrospectionResponseCache.Entry entry = cache.getEntry(TOKEN);
+        assertNotNull(entry);
+        assertSame(entry.getAccessTokenDO(), accessTokenDO);
+        assertEquals(entry.getResponseScope(), new String[]{"scope1"});
+        OAuth2IntrospectionResponseDTO response = entry.getResponse();
+        assertTrue(response.isActive());
+        assertEquals(response.getClientId(), "clientId");
+        // Every hit gets its own copy so that the cached response is not modified by the callers.
+        assertNotSame(entry.getResponse(), response);
+
+        cache.removeEntry(TOKEN);
+        assertNull(cache.getEntry(TOKEN));
+    }
+
+    @Test
+    public void testRemoveEntryByPersistedAlias() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 10, 60000);
+        // A JWT is persisted under its jti, hence it is revoked by the jti instead of the introspected token.
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setAccessToken("jti");
+        cache.addEntry(TOKEN, buildActiveResponse(Long.MAX_VALUE), accessTokenDO, null);
+        cache.addEntry(TOKEN + "-other", buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        assertNotNull(cache.getEntry(TOKEN));
+
+        cache.removeEntry("jti");
+        assertNull(cache.getEntry(TOKEN));
+        assertNotNull(cache.getEntry(TOKEN + "-other"));
+
+        // A token persisted under its own identifier is still removed by that identifier.
+        accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setAccessToken(TOKEN);
+        cache.addEntry(TOKEN, buildActiveResponse(Long.MAX_VALUE), accessTokenDO, null);
+        cache.removeEntry(TOKEN);
+        assertNull(cache.getEntry(TOKEN));
+    }
+
+    @Test
+    public void testEntryExpiresWithToken() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 10, 60000);
+        // The token has already expired, hence the response is not cached.
+        long exp = System.currentTimeMillis() / 1000 - 1;
+        cache.addEntry(TOKEN, buildActiveResponse(exp), new AccessTokenDO(), null);
+        assertNull(cache.getEntry(TOKEN));
+
+        exp = System.currentTimeMillis() / 1000 + 2;
+        cache.addEntry(TOKEN, buildActiveResponse(exp), new AccessTokenDO(), null);
+        IntrospectionResponseCache.Entry entry = cache.getEntry(TOKEN);
+        assertNotNull(entry);
+        assertTrue(entry.getExpiryTime() <= exp * 1000);
+    }
+
+    @Test
+    public void testInactiveResponseIsNotCached() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 10, 60000);
+        OAuth2IntrospectionResponseDTO response = buildActiveResponse(Long.MAX_VALUE);
+        response.setActive(false);
+        cache.addEntry(TOKEN, response, new AccessTokenDO(), null);
+        assertNull(cache.getEntry(TOKEN));
+    }
+
+    @Test
+    public void testCapacity() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 2, 60000);
+        cache.addEntry(TOKEN + 0, buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        cache.addEntry(TOKEN + 1, buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        // Accessing the first token makes the second one the least recently used entry.
+        assertNotNull(cache.getEntry(TOKEN + 0));
+
+        // A full cache keeps caching by evicting the least recently used entry.
+        cache.addEntry(TOKEN + 2, buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        assertEquals(cache.size(), 2);
+        assertNotNull(cache.getEntry(TOKEN + 0));
+        assertNull(cache.getEntry(TOKEN + 1));
+        assertNotNull(cache.getEntry(TOKEN + 2));
+    }
+
+    @Test
+    public void testSegmentedCapacity() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 1000, 60000);
+        for (int i = 0; i < 5000; i++) {
+            cache.addEntry(TOKEN + i, buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        }
+        assertTrue(cache.size() <= 1000);
+        assertNotNull(cache.getEntry(TOKEN + 4999));
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(false, 10, 60000);
+        cache.addEntry(TOKEN, buildActiveResponse(Long.MAX_VALUE), new AccessTokenDO(), null);
+        assertFalse(cache.isEnabled());
+        assertNull(cache.getEntry(TOKEN));
+    }
+
+    private OAuth2IntrospectionResponseDTO buildActiveResponse(long exp) {
+
+        OAuth2IntrospectionResponseDTO response = new OAuth2IntrospectionResponseDTO();
+        response.setActive(true);
+        response.setClientId("clientId");
+        response.setExp(exp);
+        return response;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.powermock.reflect.internal.WhiteboxImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.dao.OAuthScopeDAO;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+import org.wso2.carbon.identity.oauth2.dao.TokenManagementDAO;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for ResourceScopeIndex.
+ */
+public class ResourceScopeIndexTest {
+
+    private static final int TENANT_ID = -1234;
+
+    private OAuthScopeDAO originalScopeDAO;
+    private TokenManagementDAO originalManagementDAO;
+    private OAuthScopeDAO scopeDAO;
+    private TokenManagementDAO managementDAO;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        OAuthTokenPersistenceFactory factory = OAuthTokenPersistenceFactory.getInstance();
+        originalScopeDAO = factory.getOAuthScopeDAO();
+        originalManagementDAO = factory.getTokenManagementDAO();
+        scopeDAO = mock(OAuthScopeDAO.class);
+        managementDAO = mock(TokenManagementDAO.class);
+        WhiteboxImpl.setInternalState(factory, "scopeDAO", scopeDAO);
+        WhiteboxImpl.setInternalState(factory, "managementDAO", managementDAO);
+
+        Map<String, Set<String>> bindingsOfScopes = new HashMap<>();
+        bindingsOfScopes.put("scope1", new HashSet<>(Arrays.asList("admin", "Internal/Subscriber")));
+        bindingsOfScopes.put("scope2", new HashSet<>());
+        when(scopeDAO.getBindingsOfScopes(TENANT_ID)).thenReturn(bindingsOfScopes);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        OAuthTokenPersistenceFactory factory = OAuthTokenPersistenceFactory.getInstance();
+        WhiteboxImpl.setInternalState(factory, "scopeDAO", originalScopeDAO);
+        WhiteboxImpl.setInternalState(factory, "managementDAO", originalManagementDAO);
+    }
+
+    @Test
+    public void testGetScopeRoles() throws Exception {
+
+        ResourceScopeIndex index = new ResourceScopeIndex(true, 60000);
+
+        ResourceScopeIndex.ScopeRoles scopeRoles = index.getScopeRoles("scope1", TENANT_ID);
+        assertNotNull(scopeRoles);
+        assertTrue(scopeRoles.hasAnyRole(new String[]{"everyone", "admin"}));
+        assertFalse(scopeRoles.hasAnyRole(new String[]{"Admin"}));
+        // Internal roles are matched ignoring the case.
+        assertTrue(scopeRoles.hasAnyRole(new String[]{"internal/subscriber"}));
+        assertTrue(index.getScopeRoles("scope2", TENANT_ID).getRoles().isEmpty());
+        assertNull(index.getScopeRoles("scope3", TENANT_ID));
+
+        // The scopes of the tenant are loaded only once.
+        verify(scopeDAO, times(1)).getBindingsOfScopes(TENANT_ID);
+    }
+
+    @Test
+    public void testScopeUpdates() throws Exception {
+
+        ResourceScopeIndex index = new ResourceScopeIndex(true, 60000);
+        assertNotNull(index.getScopeRoles("scope1", TENANT_ID));
+
+        Scope scope = new Scope("scope3", "scope3", "description", Arrays.asList("role1"));
+        index.onScopeUpdated(scope, TENANT_ID);
+        index.onScopeDeleted("scope1", TENANT_ID);
+
+        assertTrue(index.getScopeRoles("scope3", TENANT_ID).hasAnyRole(new String[]{"role1"}));
+        assertNull(index.getScopeRoles("scope1", TENANT_ID));
+        verify(scopeDAO, times(1)).getBindingsOfScopes(TENANT_ID);
+    }
+
+    @Test
+    public void testFindScopeOfResource() throws Exception {
+
+        Map<String, Pair<String, Integer>> scopesOfPatterns = new HashMap<>();
+        scopesOfPatterns.put("/api/*", Pair.of("scope1", TENANT_ID));
+        scopesOfPatterns.put("/api/orders/*", Pair.of("scope2", TENANT_ID));
+        when(managementDAO.getScopesOfResourcePatterns()).thenReturn(scopesOfPatterns);
+
+        ResourceScopeIndex index = new ResourceScopeIndex(true, 60000);
+        assertEquals(index.findScopeOfResource("/api/orders/1").getLeft(), "scope2");
+        assertEquals(index.findScopeOfResource("/api/users").getLeft(), "scope1");
+        assertNull(index.findScopeOfResource("/other"));
+        verify(managementDAO, times(1)).getScopesOfResourcePatterns();
+    }
+
+    @Test
+    public void testDisabledIndex() throws Exception {
+
+        ResourceScopeIndex index = new ResourceScopeIndex(false, 60000);
+        assertFalse(index.isEnabled());
+        assertNull(index.getScopeRoles("scope1", TENANT_ID));
+        assertNull(index.findScopeOfResource("/api/users"));
+    }
+}
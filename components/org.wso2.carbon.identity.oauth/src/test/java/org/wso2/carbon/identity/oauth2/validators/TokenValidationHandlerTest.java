@@ -25,6 +25,7 @@ import org.mockito.Mockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -36,12 +37,15 @@ import org.wso2.carbon.identity.core.persistence.JDBCPersistenceManager;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.OAuthUtil;
 import org.wso2.carbon.identity.oauth.cache.AppInfoCache;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
 import org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2ClientApplicationDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
@@ -63,7 +67,10 @@ import java.util.Map;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @WithCarbonHome
 @WithAxisConfiguration
@@ -201,6 +208,50 @@ public class TokenValidationHandlerTest extends PowerMockTestCase {
         assertNotNull(tokenValidationHandler.buildIntrospectionResponse(oAuth2TokenValidationRequestDTO));
     }
 
+    @Test
+    public void testIntrospectRevokedJWT() throws Exception {
+
+        mockRequiredObjects();
+        // A JWT is persisted and revoked under its alias, i.e. the jti, instead of the introspected token.
+        String jwt = "testJwtHeader.testJwtPayload.testJwtSignature";
+        String jti = "testJwtId";
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        AccessTokenDO accessTokenDO = new AccessTokenDO(clientId, user, scopeArraySorted, issuedTime,
+                refreshTokenIssuedTime, validityPeriodInMillis, refreshTokenValidityPeriodInMillis, tokenType,
+                authorizationCode);
+        accessTokenDO.setAccessToken(jti);
+
+        IntrospectionResponseCache cache = new IntrospectionResponseCache(true, 10, 60000);
+        Whitebox.setInternalState(IntrospectionResponseCache.class, "instance", cache);
+        try {
+            OAuth2IntrospectionResponseDTO activeResponse = new OAuth2IntrospectionResponseDTO();
+            activeResponse.setActive(true);
+            activeResponse.setClientId(clientId);
+            cache.addEntry(jwt, activeResponse, accessTokenDO, scopeArraySorted);
+
+            OAuth2TokenValidationRequestDTO validationRequest = new OAuth2TokenValidationRequestDTO();
+            OAuth2TokenValidationRequestDTO.OAuth2AccessToken accessToken = validationRequest.new OAuth2AccessToken();
+            accessToken.setIdentifier(jwt);
+            accessToken.setTokenType("test");
+            validationRequest.setAccessToken(accessToken);
+            assertTrue(tokenValidationHandler.buildIntrospectionResponse(validationRequest).isActive());
+
+            OAuthUtil.clearOAuthCache(accessTokenDO);
+            assertNull(cache.getEntry(jwt));
+            OAuth2IntrospectionResponseDTO introspectionResponse;
+            try {
+                introspectionResponse = tokenValidationHandler.buildIntrospectionResponse(validationRequest);
+            } catch (IdentityOAuth2Exception e) {
+                // The revoked token is not found by the validators.
+                return;
+            }
+            assertFalse(introspectionResponse.isActive());
+        } finally {
+            Whitebox.setInternalState(IntrospectionResponseCache.class, "instance", (Object) null);
+        }
+    }
+
     protected void mockRequiredObjects() throws Exception {
 
         mockStatic(OAuthServerConfiguration.class);
@@ -23,6 +23,7 @@ import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
@@ -100,9 +101,11 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertEqualsNoOrder;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -522,6 +525,36 @@ public class DefaultOIDCClaimsCallbackHandlerTest {
 
     }
 
+    @Test
+    public void testHandleCustomClaimsRetrievesOnlyPermittedClaims() throws Exception {
+
+        JWTClaimsSet.Builder jwtClaimsSetBuilder = new JWTClaimsSet.Builder();
+        OAuthTokenReqMessageContext requestMsgCtx = getTokenReqMessageContextForLocalUser();
+        requestMsgCtx.setScope(new String[]{OIDC_SCOPE});
+
+        // The street claim is requested by the service provider, but is not permitted by the openid scope.
+        ClaimMapping[] claimMappings = new ClaimMapping[]{
+                ClaimMapping.build(LOCAL_EMAIL_CLAIM_URI, EMAIL, "", true),
+                ClaimMapping.build(LOCAL_USERNAME_CLAIM_URI, USERNAME, "", true),
+                ClaimMapping.build(LOCAL_STREET_CLAIM_URI, STREET, "", true),
+        };
+        ServiceProvider serviceProvider = getSpWithRequestedClaimsMappings(claimMappings);
+        mockApplicationManagementService(serviceProvider);
+
+        UserRealm userRealm = getUserRealmWithUserClaims(USER_CLAIMS_MAP);
+        mockUserRealm(requestMsgCtx.getAuthorizedUser().toString(), userRealm);
+        mockClaimHandler();
+
+        JWTClaimsSet jwtClaimsSet = getJwtClaimSet(jwtClaimsSetBuilder, requestMsgCtx);
+        assertNotNull(jwtClaimsSet);
+        assertEquals(jwtClaimsSet.getClaim(USERNAME), USER_NAME);
+
+        UserStoreManager userStoreManager = userRealm.getUserStoreManager();
+        ArgumentCaptor<String[]> claimUris = ArgumentCaptor.forClass(String[].class);
+        verify(userStoreManager).getUserClaimValues(eq(TENANT_AWARE_USERNAME), claimUris.capture(), eq(null));
+        assertEqualsNoOrder(claimUris.getValue(), new String[]{LOCAL_EMAIL_CLAIM_URI, LOCAL_USERNAME_CLAIM_URI});
+    }
+
     @Test
     public void testHandleCustomClaimsWithOAuthTokenReqMsgCtxtWithRoleDomainRemoved() throws Exception {
 
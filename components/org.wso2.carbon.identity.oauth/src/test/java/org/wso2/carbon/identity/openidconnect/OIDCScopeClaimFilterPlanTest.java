@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth.dto.ScopeDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for OIDCScopeClaimFilterPlan.
+ */
+public class OIDCScopeClaimFilterPlanTest {
+
+    private List<ScopeDTO> scopes;
+    private OIDCScopeClaimFilterPlan filterPlan;
+
+    @BeforeMethod
+    public void setUp() {
+
+        scopes = new ArrayList<>();
+        scopes.add(buildScope("openid", "sub"));
+        scopes.add(buildScope("profile", "given_name", "family_name", "updated_at", "country"));
+        scopes.add(buildScope("email", "email", "email_verified"));
+        scopes.add(buildScope("address", "address.street_address", "locality", "address.country"));
+        filterPlan = new OIDCScopeClaimFilterPlan(scopes);
+    }
+
+    @Test
+    public void testGetClaimSet() {
+
+        OIDCScopeClaimFilterPlan.ClaimSet claimSet =
+                filterPlan.getClaimSet(new String[]{"openid", "email", "internal_login"});
+        assertEquals(claimSet.getClaims(), new HashSet<>(Arrays.asList("sub", "email", "email_verified")));
+        assertTrue(claimSet.getAddressClaims().isEmpty());
+    }
+
+    @Test
+    public void testGetClaimSetWithAddressScope() {
+
+        OIDCScopeClaimFilterPlan.ClaimSet claimSet = filterPlan.getClaimSet(new String[]{"profile", "address"});
+        assertEquals(claimSet.getClaims(),
+                new HashSet<>(Arrays.asList("given_name", "family_name", "updated_at", "country")));
+        assertEquals(claimSet.getAddressClaims(),
+                new HashSet<>(Arrays.asList("street_address", "locality", "country")));
+    }
+
+    @Test
+    public void testClaimSetIsReusedForSameScopes() {
+
+        OIDCScopeClaimFilterPlan.ClaimSet claimSet = filterPlan.getClaimSet(new String[]{"openid", "email"});
+        assertSame(filterPlan.getClaimSet(new String[]{"email", "openid", "unknown"}), claimSet);
+    }
+
+    @Test
+    public void testGetClaimSetWithoutOIDCScopes() {
+
+        assertTrue(filterPlan.getClaimSet(new String[]{"unknown"}).isEmpty());
+        assertTrue(new OIDCScopeClaimFilterPlan(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testGetClaimUris() {
+
+        assertTrue(filterPlan.isOIDCScope("email"));
+        assertFalse(filterPlan.isOIDCScope("unknown"));
+        assertEquals(filterPlan.getClaimUris("email"), Arrays.asList("email", "email_verified"));
+        assertTrue(filterPlan.getClaimUris("unknown").isEmpty());
+    }
+
+    private ScopeDTO buildScope(String name, String... claims) {
+
+        ScopeDTO scope = new ScopeDTO();
+        scope.setName(name);
+        scope.setClaim(claims);
+        return scope;
+    }
+}
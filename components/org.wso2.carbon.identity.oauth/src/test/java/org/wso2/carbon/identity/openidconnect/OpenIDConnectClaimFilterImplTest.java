@@ -44,6 +44,7 @@ import org.wso2.carbon.identity.oauth2.TestConstants;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimCache;
 import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimCacheEntry;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCScopeClaimFilterPlanCache;
 import org.wso2.carbon.identity.openidconnect.dao.ScopeClaimMappingDAOImpl;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.model.RequestedClaim;
@@ -149,6 +150,36 @@ public class OpenIDConnectClaimFilterImplTest extends PowerMockito {
         Assert.assertEquals(claims.get(0), claim);
     }
 
+    @Test
+    public void testFilterPlanIsCompiledOnlyWhenMappingsAreReloaded() throws Exception {
+
+        requestedScopes = new HashSet<>();
+        requestedScopes.add("email");
+        OIDCScopeClaimFilterPlanCache.getInstance().clearFilterPlan(-1234);
+        OIDCScopeClaimCacheEntry oidcScopeClaimCacheEntry = new OIDCScopeClaimCacheEntry();
+        oidcScopeClaimCacheEntry.setScopeClaimMapping(getScopeDTOList());
+        OIDCScopeClaimCache.getInstance().addScopeClaimMap(-1234, oidcScopeClaimCacheEntry);
+        openIDConnectClaimFilter.getClaimsFilteredByOIDCScopes(requestedScopes, SP_TENANT_DOMAIN);
+        OIDCScopeClaimFilterPlan filterPlan = OIDCScopeClaimFilterPlanCache.getInstance().getFilterPlan(-1234);
+        Assert.assertNotNull(filterPlan);
+
+        // A distributed cache may return a copy of the mappings, which must not cause the plan to be compiled again.
+        OIDCScopeClaimCacheEntry copiedCacheEntry = new OIDCScopeClaimCacheEntry();
+        copiedCacheEntry.setScopeClaimMapping(getScopeDTOList());
+        OIDCScopeClaimCache.getInstance().addScopeClaimMap(-1234, copiedCacheEntry);
+        List claims = openIDConnectClaimFilter.getClaimsFilteredByOIDCScopes(requestedScopes, SP_TENANT_DOMAIN);
+        Assert.assertEquals(claims.size(), 2);
+        Assert.assertSame(OIDCScopeClaimFilterPlanCache.getInstance().getFilterPlan(-1234), filterPlan);
+
+        // Mappings invalidated in the cache, e.g. by a change on another node, are reloaded with a new plan.
+        OIDCScopeClaimCache.getInstance().clearScopeClaimMap(-1234);
+        openIDConnectClaimFilter.getClaimsFilteredByOIDCScopes(requestedScopes, SP_TENANT_DOMAIN);
+        Assert.assertNotSame(OIDCScopeClaimFilterPlanCache.getInstance().getFilterPlan(-1234), filterPlan);
+
+        OIDCScopeClaimCache.getInstance().addScopeClaimMap(-1234, oidcScopeClaimCacheEntry);
+        OIDCScopeClaimFilterPlanCache.getInstance().clearFilterPlan(-1234);
+    }
+
     @Test
     public void testGetClaimsFilteredByUserConsent() throws Exception {
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for OIDCUserClaimCacheEntry and OIDCUserClaimCacheKey.
+ */
+public class OIDCUserClaimCacheEntryTest {
+
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/emailaddress";
+    private static final String COUNTRY_CLAIM = "http://wso2.org/claims/country";
+    private static final String MOBILE_CLAIM = "http://wso2.org/claims/mobile";
+
+    @Test
+    public void testClaimsWithoutValueAreNotMissing() {
+
+        Map<String, String> claimValues = new HashMap<>();
+        claimValues.put(EMAIL_CLAIM, "peter@example.com");
+        OIDCUserClaimCacheEntry entry =
+                new OIDCUserClaimCacheEntry(claimValues, Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM), 1000L);
+
+        List<String> requestedClaims = Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM, MOBILE_CLAIM);
+        assertEquals(entry.getMissingClaimUris(requestedClaims), Collections.singletonList(MOBILE_CLAIM));
+        assertEquals(entry.getClaimValues(requestedClaims), claimValues);
+    }
+
+    @Test
+    public void testMerge() {
+
+        OIDCUserClaimCacheEntry entry = new OIDCUserClaimCacheEntry(
+                Collections.singletonMap(EMAIL_CLAIM, "peter@example.com"), Collections.singletonList(EMAIL_CLAIM),
+                1000L);
+        OIDCUserClaimCacheEntry merged = entry.merge(Collections.singletonMap(MOBILE_CLAIM, "0771234567"),
+                Arrays.asList(COUNTRY_CLAIM, MOBILE_CLAIM));
+
+        List<String> requestedClaims = Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM, MOBILE_CLAIM);
+        assertTrue(merged.getMissingClaimUris(requestedClaims).isEmpty());
+        assertEquals(merged.getClaimValues(requestedClaims).size(), 2);
+        assertEquals(merged.getClaimValues(requestedClaims).get(MOBILE_CLAIM), "0771234567");
+        assertEquals(merged.getRetrievedTime(), 1000L);
+
+        // The merged entry is a new entry.
+        assertEquals(entry.getMissingClaimUris(requestedClaims), Arrays.asList(COUNTRY_CLAIM, MOBILE_CLAIM));
+    }
+
+    @Test
+    public void testReturnedClaimValuesCanBeModified() {
+
+        OIDCUserClaimCacheEntry entry = new OIDCUserClaimCacheEntry(
+                Collections.singletonMap(EMAIL_CLAIM, "peter@example.com"), Collections.singletonList(EMAIL_CLAIM),
+                1000L);
+        List<String> requestedClaims = Collections.singletonList(EMAIL_CLAIM);
+
+        entry.getClaimValues(requestedClaims).put(EMAIL_CLAIM, "john@example.com");
+        assertEquals(entry.getClaimValues(requestedClaims).get(EMAIL_CLAIM), "peter@example.com");
+    }
+
+    @Test
+    public void testCacheKey() {
+
+        assertEquals(new OIDCUserClaimCacheKey("peter", "primary", "carbon.super"),
+                new OIDCUserClaimCacheKey("peter", "PRIMARY", "carbon.super"));
+        assertEquals(new OIDCUserClaimCacheKey("peter", "primary", "carbon.super").hashCode(),
+                new OIDCUserClaimCacheKey("peter", "PRIMARY", "carbon.super").hashCode());
+        assertNotEquals(new OIDCUserClaimCacheKey("peter", "PRIMARY", "carbon.super"),
+                new OIDCUserClaimCacheKey("peter", "PRIMARY", "wso2.com"));
+    }
+}
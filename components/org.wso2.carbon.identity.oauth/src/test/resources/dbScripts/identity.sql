@@ -104,6 +104,45 @@ CREATE INDEX IDX_TC ON IDN_OAUTH2_ACCESS_TOKEN(TIME_CREATED);
 
 CREATE INDEX IDX_AT ON IDN_OAUTH2_ACCESS_TOKEN(ACCESS_TOKEN);
 
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_TOKEN_LOCK (
+            LOCK_NAME VARCHAR (64) NOT NULL,
+            STRIPE_ID INTEGER NOT NULL,
+            LOCK_OWNER VARCHAR (64) NOT NULL,
+            EXPIRY_TIME BIGINT NOT NULL,
+            PRIMARY KEY (LOCK_NAME, STRIPE_ID)
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_TOKEN_CLEANUP_LEASE (
+            LEASE_NAME VARCHAR (64) NOT NULL,
+            OWNER VARCHAR (255) NOT NULL,
+            EXPIRY_TIME BIGINT NOT NULL,
+            PRIMARY KEY (LEASE_NAME)
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ACCESS_TOKEN_AUDIT (
+            TOKEN_ID VARCHAR (255),
+            ACCESS_TOKEN VARCHAR (2048),
+            REFRESH_TOKEN VARCHAR (2048),
+            CONSUMER_KEY_ID INTEGER,
+            AUTHZ_USER VARCHAR (100),
+            TENANT_ID INTEGER,
+            USER_DOMAIN VARCHAR(50),
+            USER_TYPE VARCHAR (25),
+            GRANT_TYPE VARCHAR (50),
+            TIME_CREATED TIMESTAMP NULL,
+            REFRESH_TOKEN_TIME_CREATED TIMESTAMP NULL,
+            VALIDITY_PERIOD BIGINT,
+            REFRESH_TOKEN_VALIDITY_PERIOD BIGINT,
+            TOKEN_SCOPE_HASH VARCHAR (32),
+            TOKEN_STATE VARCHAR (25),
+            TOKEN_STATE_ID VARCHAR (128),
+            SUBJECT_IDENTIFIER VARCHAR(255),
+            ACCESS_TOKEN_HASH VARCHAR (512),
+            REFRESH_TOKEN_HASH VARCHAR (512),
+            INVALIDATED_TIME TIMESTAMP NULL,
+            IDP_ID INTEGER
+);
+
 CREATE TABLE IF NOT EXISTS IDN_OAUTH2_DEVICE_FLOW (
     CODE_ID VARCHAR(255),
     DEVICE_CODE VARCHAR(255),
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.wso2.carbon.identity.base.IdentityConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends back-channel logout requests to the session participants asynchronously.
+ * <p>
+ * Requests are sent by a pool of workers through a shared, pooled HTTP client with connect and read timeouts. The
+ * number of requests in flight to a single back-channel logout URL is limited, so that a slow relying party does
+ * not hold all the workers. Failed requests are retried with an exponential backoff, and the latency and the
+ * outcome of the requests are recorded per back-channel logout URL.
+ */
+public class BackChannelLogoutDispatcher {
+
+    private static final Log log = LogFactory.getLog(BackChannelLogoutDispatcher.class);
+
+    // These config properties are defined in identity.xml
+    private static final String BACK_CHANNEL_LOGOUT_POOL_SIZE = "OAuth.OpenIDConnect.BackChannelLogout.PoolSize";
+    private static final String BACK_CHANNEL_LOGOUT_QUEUE_SIZE = "OAuth.OpenIDConnect.BackChannelLogout.QueueSize";
+    private static final String BACK_CHANNEL_LOGOUT_MAX_CONCURRENT_REQUESTS_PER_URL =
+            "OAuth.OpenIDConnect.BackChannelLogout.MaxConcurrentRequestsPerURL";
+    private static final String BACK_CHANNEL_LOGOUT_CONNECT_TIMEOUT =
+            "OAuth.OpenIDConnect.BackChannelLogout.ConnectTimeout";
+    private static final String BACK_CHANNEL_LOGOUT_READ_TIMEOUT = "OAuth.OpenIDConnect.BackChannelLogout.ReadTimeout";
+    private static final String BACK_CHANNEL_LOGOUT_MAX_RETRIES = "OAuth.OpenIDConnect.BackChannelLogout.MaxRetries";
+    private static final String BACK_CHANNEL_LOGOUT_RETRY_BACKOFF =
+            "OAuth.OpenIDConnect.BackChannelLogout.RetryBackoff";
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS_PER_URL = 5;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_MAX_RETRIES = 2;
+    private static final int DEFAULT_RETRY_BACKOFF_MILLIS = 500;
+    private static final long THROTTLE_DELAY_MILLIS = 50;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+    private static final String LOGOUT_TOKEN = "logout_token";
+    private static final String HTTPS = "https";
+    private static final String HTTP = "http";
+
+    private static volatile BackChannelLogoutDispatcher instance;
+
+    private final int queueSize;
+    private final int maxConcurrentRequestsPerUrl;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final CloseableHttpClient httpClient;
+    private final ScheduledExecutorService workers;
+    private final AtomicInteger pendingRequestCount = new AtomicInteger();
+    private final AtomicLong rejectedRequestCount = new AtomicLong();
+    private final Map<String, Semaphore> inFlightRequestPermits = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
+
+    BackChannelLogoutDispatcher(int poolSize, int queueSize, int maxConcurrentRequestsPerUrl, int maxRetries,
+                                long retryBackoffMillis, CloseableHttpClient httpClient) {
+
+        this.queueSize = queueSize;
+        this.maxConcurrentRequestsPerUrl = Math.max(1, maxConcurrentRequestsPerUrl);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.httpClient = httpClient;
+        AtomicInteger workerIndex = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "BackChannelLogoutSender-" + workerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.workers = executor;
+    }
+
+    /**
+     * Returns the BackChannelLogoutDispatcher instance configured through identity.xml.
+     *
+     * @return BackChannelLogoutDispatcher instance.
+     */
+    public static BackChannelLogoutDispatcher getInstance() {
+
+        if (instance == null) {
+            synchronized (BackChannelLogoutDispatcher.class) {
+                if (instance == null) {
+                    int poolSize = readIntProperty(BACK_CHANNEL_LOGOUT_POOL_SIZE, DEFAULT_POOL_SIZE);
+                    int maxConcurrentRequestsPerUrl = readIntProperty(
+                            BACK_CHANNEL_LOGOUT_MAX_CONCURRENT_REQUESTS_PER_URL,
+                            DEFAULT_MAX_CONCURRENT_REQUESTS_PER_URL);
+                    instance = new BackChannelLogoutDispatcher(poolSize,
+                            readIntProperty(BACK_CHANNEL_LOGOUT_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+                            maxConcurrentRequestsPerUrl,
+                            readIntProperty(BACK_CHANNEL_LOGOUT_MAX_RETRIES, DEFAULT_MAX_RETRIES),
+                            readIntProperty(BACK_CHANNEL_LOGOUT_RETRY_BACKOFF, DEFAULT_RETRY_BACKOFF_MILLIS),
+                            createHttpClient(poolSize, maxConcurrentRequestsPerUrl,
+                                    readIntProperty(BACK_CHANNEL_LOGOUT_CONNECT_TIMEOUT,
+                                            DEFAULT_CONNECT_TIMEOUT_MILLIS),
+                                    readIntProperty(BACK_CHANNEL_LOGOUT_READ_TIMEOUT, DEFAULT_READ_TIMEOUT_MILLIS)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the configured dispatcher, if it was created. Requests which are not sent yet are dropped.
+     */
+    public static void shutdownInstance() {
+
+        synchronized (BackChannelLogoutDispatcher.class) {
+            if (instance != null) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Queue a back-channel logout request to be sent to the given URL.
+     *
+     * @param logoutToken          Logout token.
+     * @param backChannelLogoutUrl Back-channel logout URL of the session participant.
+     * @return true if the request is queued, false if the queue is full.
+     */
+    public boolean dispatch(String logoutToken, String backChannelLogoutUrl) {
+
+        if (pendingRequestCount.incrementAndGet() > queueSize) {
+            pendingRequestCount.decrementAndGet();
+            rejectedRequestCount.incrementAndGet();
+            log.error("Back-channel logout queue is full. Dropped the logout request to: " + backChannelLogoutUrl);
+            return false;
+        }
+        try {
+            workers.execute(new LogoutRequestTask(logoutToken, backChannelLogoutUrl));
+        } catch (RejectedExecutionException e) {
+            pendingRequestCount.decrementAndGet();
+            rejectedRequestCount.incrementAndGet();
+            log.error("Back-channel logout dispatcher is shut down. Dropped the logout request to: " +
+                    backChannelLogoutUrl);
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Queued a back-channel logout request to: " + backChannelLogoutUrl + ". Queue depth: " +
+                    pendingRequestCount.get());
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of requests which are queued, in flight or waiting for a retry.
+     *
+     * @return Queue depth.
+     */
+    public int getQueueDepth() {
+
+        return pendingRequestCount.get();
+    }
+
+    /**
+     * Get the number of requests dropped since the queue was full.
+     *
+     * @return Rejected request count.
+     */
+    public long getRejectedRequestCount() {
+
+        return rejectedRequestCount.get();
+    }
+
+    /**
+     * Get the metrics of the requests sent to the given back-channel logout URL.
+     *
+     * @param backChannelLogoutUrl Back-channel logout URL.
+     * @return Metrics of the URL or null if no request was sent to the URL.
+     */
+    public EndpointMetrics getEndpointMetrics(String backChannelLogoutUrl) {
+
+        return endpointMetrics.get(backChannelLogoutUrl);
+    }
+
+    /**
+     * Get the metrics of all the back-channel logout URLs requests were sent to.
+     *
+     * @return Map of back-channel logout URL to the metrics of the URL.
+     */
+    public Map<String, EndpointMetrics> getEndpointMetrics() {
+
+        return Collections.unmodifiableMap(endpointMetrics);
+    }
+
+    void shutdown() {
+
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Back-channel logout senders did not terminate within " + SHUTDOWN_TIMEOUT_MILLIS + "ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.error("Error while closing the back-channel logout HTTP client.", e);
+        }
+    }
+
+    /**
+     * Send the request of the given task if the URL has capacity, otherwise postpone the task.
+     *
+     * @param task Logout request task.
+     */
+    private void execute(LogoutRequestTask task) {
+
+        Semaphore permits = inFlightRequestPermits.computeIfAbsent(task.backChannelLogoutUrl,
+                url -> new Semaphore(maxConcurrentRequestsPerUrl));
+        if (!permits.tryAcquire()) {
+            reschedule(task, THROTTLE_DELAY_MILLIS);
+            return;
+        }
+
+        boolean retry;
+        try {
+            retry = send(task);
+        } finally {
+            permits.release();
+        }
+
+        if (retry && task.attempt < maxRetries) {
+            long backoff = retryBackoffMillis << task.attempt;
+            task.attempt++;
+            getEndpointMetrics(task).retryCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Retrying the back-channel logout request to: " + task.backChannelLogoutUrl + " in " +
+                        backoff + "ms. Attempt: " + task.attempt);
+            }
+            reschedule(task, backoff);
+            return;
+        }
+        if (retry) {
+            getEndpointMetrics(task).failureCount.incrementAndGet();
+            log.error("Failed to send the back-channel logout request to: " + task.backChannelLogoutUrl +
+                    " after " + (task.attempt + 1) + " attempts.");
+        }
+        pendingRequestCount.decrementAndGet();
+    }
+
+    /**
+     * Send the logout request of the given task.
+     *
+     * @param task Logout request task.
+     * @return true if the request failed and can be retried.
+     */
+    private boolean send(LogoutRequestTask task) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Starting backchannel logout request to: " + task.backChannelLogoutUrl);
+        }
+        EndpointMetrics metrics = getEndpointMetrics(task);
+        long startTime = System.currentTimeMillis();
+        try {
+            List<NameValuePair> logoutReqParams =
+                    Collections.singletonList(new BasicNameValuePair(LOGOUT_TOKEN, task.logoutToken));
+            HttpPost httpPost = new HttpPost(task.backChannelLogoutUrl);
+            httpPost.setEntity(new UrlEncodedFormEntity(logoutReqParams, StandardCharsets.UTF_8));
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                // Consume the response so that the connection is returned to the pool.
+                EntityUtils.consume(response.getEntity());
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (log.isDebugEnabled()) {
+                    log.debug("Backchannel logout response: " + response.getStatusLine());
+                }
+                if (statusCode >= 200 && statusCode < 300) {
+                    metrics.successCount.incrementAndGet();
+                    return false;
+                }
+                if (statusCode >= 500 || statusCode == 429) {
+                    return true;
+                }
+                metrics.failureCount.incrementAndGet();
+                log.error("Back-channel logout request to: " + task.backChannelLogoutUrl + " failed with the " +
+                        "status: " + statusCode);
+                return false;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error sending logout requests to: " + task.backChannelLogoutUrl, e);
+            }
+            return true;
+        } finally {
+            metrics.recordLatency(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void reschedule(LogoutRequestTask task, long delayMillis) {
+
+        try {
+            workers.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pendingRequestCount.decrementAndGet();
+            log.error("Back-channel logout dispatcher is shut down. Dropped the logout request to: " +
+                    task.backChannelLogoutUrl);
+        }
+    }
+
+    private EndpointMetrics getEndpointMetrics(LogoutRequestTask task) {
+
+        return endpointMetrics.computeIfAbsent(task.backChannelLogoutUrl, url -> new EndpointMetrics());
+    }
+
+    private static CloseableHttpClient createHttpClient(int poolSize, int maxConcurrentRequestsPerUrl,
+                                                        int connectTimeout, int readTimeout) {
+
+        String hostNameVerificationEnabledProperty =
+                IdentityUtil.getProperty(IdentityConstants.ServerConfig.SLO_HOST_NAME_VERIFICATION_ENABLED);
+        SSLConnectionSocketFactory sslSocketFactory;
+        if ("false".equalsIgnoreCase(hostNameVerificationEnabledProperty)) {
+            sslSocketFactory = new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+                    SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+        } else {
+            sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+        }
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register(HTTP, PlainConnectionSocketFactory.getSocketFactory())
+                .register(HTTPS, sslSocketFactory)
+                .build();
+
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(Math.max(1, poolSize) * Math.max(1, maxConcurrentRequestsPerUrl));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, maxConcurrentRequestsPerUrl));
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+    }
+
+    private static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Metrics of the back-channel logout requests sent to a URL.
+     */
+    public static class EndpointMetrics {
+
+        private final AtomicLong successCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong retryCount = new AtomicLong();
+        private final AtomicLong attemptCount = new AtomicLong();
+        private final AtomicLong totalLatencyMillis = new AtomicLong();
+        private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+        private void recordLatency(long latency) {
+
+            attemptCount.incrementAndGet();
+            totalLatencyMillis.addAndGet(latency);
+            maxLatencyMillis.accumulateAndGet(latency, Math::max);
+        }
+
+        public long getSuccessCount() {
+
+            return successCount.get();
+        }
+
+        /**
+         * Get the number of requests which failed after all the retries.
+         *
+         * @return Failure count.
+         */
+        public long getFailureCount() {
+
+            return failureCount.get();
+        }
+
+        public long getRetryCount() {
+
+            return retryCount.get();
+        }
+
+        public double getAverageLatencyMillis() {
+
+            long attempts = attemptCount.get();
+            return attempts == 0 ? 0 : (double) totalLatencyMillis.get() / attempts;
+        }
+
+        public long getMaxLatencyMillis() {
+
+            return maxLatencyMillis.get();
+        }
+    }
+
+    /**
+     * A single logout request sent to a session participant.
+     */
+    private class LogoutRequestTask implements Runnable {
+
+        private final String logoutToken;
+        private final String backChannelLogoutUrl;
+        private int attempt;
+
+        private LogoutRequestTask(String logoutToken, String backChannelLogoutUrl) {
+
+            this.logoutToken = logoutToken;
+            this.backChannelLogoutUrl = backChannelLogoutUrl;
+        }
+
+        @Override
+        public void run() {
+
+            execute(this);
+        }
+    }
+}
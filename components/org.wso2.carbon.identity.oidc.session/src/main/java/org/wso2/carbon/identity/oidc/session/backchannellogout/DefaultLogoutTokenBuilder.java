@@ -92,6 +92,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         if (sessionState != null) {
             Set<String> sessionParticipants = getSessionParticipants(sessionState);
             if (!sessionParticipants.isEmpty()) {
+                Map<String, String> issuers = new HashMap<>();
                 for (String clientID : sessionParticipants) {
                     OAuthAppDO oAuthAppDO = getOAuthAppDO(clientID);
                     String tenantDomain = oAuthAppDO.getAppOwner().getTenantDomain();
@@ -99,7 +100,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
                         // No need to send logout token if the client id of the RP initiated logout is known.
                         continue;
                     }
-                    addToLogoutTokenList(logoutTokenList, sessionState, clientID);
+                    addToLogoutTokenList(logoutTokenList, sessionState, clientID, issuers);
                 }
             }
         }
@@ -124,25 +125,26 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         if (sessionState != null) {
             Set<String> sessionParticipants = getSessionParticipants(sessionState);
             if (!sessionParticipants.isEmpty()) {
+                Map<String, String> issuers = new HashMap<>();
                 for (String clientID : sessionParticipants) {
-                    addToLogoutTokenList(logoutTokenList, sessionState, clientID);
+                    addToLogoutTokenList(logoutTokenList, sessionState, clientID, issuers);
                 }
             }
         }
         return logoutTokenList;
     }
 
-    private void addToLogoutTokenList(Map<String, String> logoutTokenList,
-                                      OIDCSessionState sessionState, String clientID) throws IdentityOAuth2Exception,
-            InvalidOAuthClientException {
+    private void addToLogoutTokenList(Map<String, String> logoutTokenList, OIDCSessionState sessionState,
+                                      String clientID, Map<String, String> issuers)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
 
         OAuthAppDO oAuthAppDO = getOAuthAppDO(clientID);
         String backChannelLogoutUrl = oAuthAppDO.getBackChannelLogoutUrl();
         if (StringUtils.isNotBlank(backChannelLogoutUrl)) {
             // Send back-channel logout request to all RPs those registered their back-channel logout uri.
-            JWTClaimsSet jwtClaimsSet = buildJwtToken(sessionState, getTenanatDomain(oAuthAppDO), clientID);
-            String logoutToken = OAuth2Util.signJWT(jwtClaimsSet, signatureAlgorithm,
-                    getSigningTenantDomain(oAuthAppDO)).serialize();
+            String issuer = getIssuer(getTenanatDomain(oAuthAppDO), issuers);
+            String logoutToken = buildLogoutToken(sessionState.getAuthenticatedUser(), getSidClaim(sessionState),
+                    issuer, clientID, getSigningTenantDomain(oAuthAppDO));
             logoutTokenList.put(logoutToken, backChannelLogoutUrl);
 
             if (log.isDebugEnabled()) {
@@ -151,26 +153,40 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         }
     }
 
+    /**
+     * Builds and signs the logout token of a session participant.
+     *
+     * @param sub                 Subject of the session.
+     * @param sid                 Session identifier of the session.
+     * @param issuer              Issuer of the tenant of the participant.
+     * @param clientID            Client id of the participant.
+     * @param signingTenantDomain Tenant domain of the signing key.
+     * @return Serialized logout token.
+     * @throws IdentityOAuth2Exception If the token cannot be signed.
+     */
+    String buildLogoutToken(String sub, String sid, String issuer, String clientID, String signingTenantDomain)
+            throws IdentityOAuth2Exception {
+
+        JWTClaimsSet jwtClaimsSet = buildJwtToken(sub, sid, issuer, clientID);
+        return OAuth2Util.signJWT(jwtClaimsSet, signatureAlgorithm, signingTenantDomain).serialize();
+    }
+
     /**
      * Builds jwtClaimSet.
      *
-     * @param sessionState
-     * @param tenantDomain
+     * @param sub
+     * @param sid
+     * @param iss
      * @param clientID
      * @return
-     * @throws IdentityOAuth2Exception
      */
-    private JWTClaimsSet buildJwtToken(OIDCSessionState sessionState, String tenantDomain, String clientID)
-            throws IdentityOAuth2Exception {
+    private JWTClaimsSet buildJwtToken(String sub, String sid, String iss, String clientID) {
 
-        String sub = sessionState.getAuthenticatedUser();
         String jti = UUID.randomUUID().toString();
-        String iss = getIssuer(tenantDomain);
         List<String> audience = getAudience(clientID);
         long logoutTokenValidityInMillis = getLogoutTokenExpiryInMillis();
         long currentTimeInMillis = Calendar.getInstance().getTimeInMillis();
         Date iat = new Date(currentTimeInMillis);
-        String sid = getSidClaim(sessionState);
         JSONObject event = new JSONObject().appendField(BACKCHANNEL_LOGOUT_EVENT,
                 new JSONObject());
 
@@ -230,7 +246,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @param oAuthAppDO
      * @return
      */
-    private String getSigningTenantDomain(OAuthAppDO oAuthAppDO) {
+    String getSigningTenantDomain(OAuthAppDO oAuthAppDO) {
 
         boolean isJWTSignedWithSPKey = OAuthServerConfiguration.getInstance().isJWTSignedWithSPKey();
         String signingTenantDomain;
@@ -251,7 +267,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @param opbscookie OpbsCookie.
      * @return OIDCSessionState
      */
-    private OIDCSessionState getSessionState(String opbscookie, String tenantDomain) {
+    OIDCSessionState getSessionState(String opbscookie, String tenantDomain) {
 
         if (StringUtils.isNotEmpty(opbscookie)) {
             OIDCSessionState sessionState =
@@ -267,7 +283,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @param sessionState
      * @return client id of all the RPs belong to same session
      */
-    private Set<String> getSessionParticipants(OIDCSessionState sessionState) {
+    Set<String> getSessionParticipants(OIDCSessionState sessionState) {
 
         Set<String> sessionParticipants = sessionState.getSessionParticipants();
         return sessionParticipants;
@@ -279,7 +295,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @param sessionState
      * @return
      */
-    private String getSidClaim(OIDCSessionState sessionState) {
+    String getSidClaim(OIDCSessionState sessionState) {
 
         String sidClaim = sessionState.getSidClaim();
         return sidClaim;
@@ -302,11 +318,29 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @return issuer
      * @throws IdentityOAuth2Exception
      */
-    private String getIssuer(String tenantDomain) throws IdentityOAuth2Exception {
+    String getIssuer(String tenantDomain) throws IdentityOAuth2Exception {
 
         return getIdTokenIssuer(tenantDomain);
     }
 
+    /**
+     * Returns the issuer of the tenant domain, resolving it once per tenant domain for the participants of a logout.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param issuers      Issuers resolved for the logout, by tenant domain.
+     * @return issuer
+     * @throws IdentityOAuth2Exception
+     */
+    String getIssuer(String tenantDomain, Map<String, String> issuers) throws IdentityOAuth2Exception {
+
+        String issuer = issuers.get(tenantDomain);
+        if (issuer == null) {
+            issuer = getIssuer(tenantDomain);
+            issuers.put(tenantDomain, issuer);
+        }
+        return issuer;
+    }
+
     /**
      * Returns OAuthAppDo using clientID.
      *
@@ -315,7 +349,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @throws IdentityOAuth2Exception
      * @throws InvalidOAuthClientException
      */
-    private OAuthAppDO getOAuthAppDO(String clientID) throws IdentityOAuth2Exception, InvalidOAuthClientException {
+    OAuthAppDO getOAuthAppDO(String clientID) throws IdentityOAuth2Exception, InvalidOAuthClientException {
 
         OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientID);
         return oAuthAppDO;
@@ -327,7 +361,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      * @param oAuthAppDO
      * @return
      */
-    private String getTenanatDomain(OAuthAppDO oAuthAppDO) {
+    String getTenanatDomain(OAuthAppDO oAuthAppDO) {
 
         String tenantDomain = OAuth2Util.getTenantDomainOfOauthApp(oAuthAppDO);
         return tenantDomain;
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link DefaultLogoutTokenBuilder} which builds and signs the logout tokens of the session participants in parallel
+ * on a bounded pool of builders.
+ * <p>
+ * The session state, the applications of the participants and the issuer of each tenant are resolved on the calling
+ * thread, once per logout. Participants without a back-channel logout URL are skipped there, so only the claims and
+ * the signature of the participants which receive a logout token are built on the pool. When the queue of the pool is
+ * full, the token is built on the calling thread.
+ */
+public class ParallelLogoutTokenBuilder extends DefaultLogoutTokenBuilder {
+
+    private static final Log log = LogFactory.getLog(ParallelLogoutTokenBuilder.class);
+
+    // These config properties are defined in identity.xml
+    private static final String TOKEN_BUILDER_POOL_SIZE =
+            "OAuth.OpenIDConnect.BackChannelLogout.TokenBuilderPoolSize";
+    private static final String TOKEN_BUILDER_QUEUE_SIZE =
+            "OAuth.OpenIDConnect.BackChannelLogout.TokenBuilderQueueSize";
+    private static final String TOKEN_BUILD_TIMEOUT = "OAuth.OpenIDConnect.BackChannelLogout.TokenBuildTimeout";
+
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_TOKEN_BUILD_TIMEOUT_MILLIS = 10000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static volatile ExecutorService sharedBuilders;
+
+    private final ExecutorService builders;
+    private final long tokenBuildTimeoutMillis;
+
+    public ParallelLogoutTokenBuilder() throws IdentityOAuth2Exception {
+
+        this(getSharedBuilders(), readIntProperty(TOKEN_BUILD_TIMEOUT, DEFAULT_TOKEN_BUILD_TIMEOUT_MILLIS));
+    }
+
+    ParallelLogoutTokenBuilder(ExecutorService builders, long tokenBuildTimeoutMillis)
+            throws IdentityOAuth2Exception {
+
+        super();
+        this.builders = builders;
+        this.tokenBuildTimeoutMillis = tokenBuildTimeoutMillis;
+    }
+
+    /**
+     * Stop the shared builders, if they were created. Tokens which are not built yet are dropped.
+     */
+    public static void shutdownBuilders() {
+
+        synchronized (ParallelLogoutTokenBuilder.class) {
+            if (sharedBuilders != null) {
+                sharedBuilders.shutdownNow();
+                try {
+                    if (!sharedBuilders.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        log.warn("Logout token builders did not terminate within " + SHUTDOWN_TIMEOUT_MILLIS +
+                                "ms.");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sharedBuilders = null;
+            }
+        }
+    }
+
+    /**
+     * Returns logout token and back-channel logout uri map, once the tokens of all the participants are built or
+     * the token build timeout elapses. A participant whose token cannot be built is left out of the map.
+     *
+     * @param opbscookie   Opbscookie value.
+     * @param tenantDomain Tenant Domain.
+     * @return A map of logout tokens and corresponding back-channel logout URLs.
+     * @throws IdentityOAuth2Exception
+     * @throws InvalidOAuthClientException
+     */
+    @Override
+    public Map<String, String> buildLogoutToken(String opbscookie, String tenantDomain)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
+
+        List<LogoutTokenRequest> logoutTokenRequests = getLogoutTokenRequests(opbscookie, tenantDomain);
+        List<Future<String>> logoutTokens = new ArrayList<>(logoutTokenRequests.size());
+        for (LogoutTokenRequest logoutTokenRequest : logoutTokenRequests) {
+            logoutTokens.add(builders.submit(logoutTokenRequest::build));
+        }
+
+        Map<String, String> logoutTokenList = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tokenBuildTimeoutMillis);
+        for (int i = 0; i < logoutTokens.size(); i++) {
+            LogoutTokenRequest logoutTokenRequest = logoutTokenRequests.get(i);
+            Future<String> logoutToken = logoutTokens.get(i);
+            try {
+                logoutTokenList.put(logoutToken.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS),
+                        logoutTokenRequest.backChannelLogoutUrl);
+            } catch (ExecutionException e) {
+                log.error("Error while building the logout token for the client: " + logoutTokenRequest.clientID,
+                        e.getCause());
+            } catch (TimeoutException | CancellationException e) {
+                logoutToken.cancel(true);
+                log.error("Logout token for the client: " + logoutTokenRequest.clientID + " was not built within " +
+                        tokenBuildTimeoutMillis + "ms.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<String> remainingLogoutToken : logoutTokens.subList(i, logoutTokens.size())) {
+                    remainingLogoutToken.cancel(true);
+                }
+                break;
+            }
+        }
+        return logoutTokenList;
+    }
+
+    /**
+     * Build the logout tokens of the session participants which registered a back-channel logout URL, and pass each
+     * of them to the consumer as soon as it is signed. Returns without waiting for the tokens to be built.
+     *
+     * @param opbscookie          Opbscookie value.
+     * @param tenantDomain        Tenant Domain.
+     * @param logoutTokenConsumer Consumer of the logout token and the back-channel logout URL of a participant.
+     * @return Number of session participants whose logout tokens are being built.
+     * @throws IdentityOAuth2Exception
+     * @throws InvalidOAuthClientException
+     */
+    public int buildLogoutTokens(String opbscookie, String tenantDomain,
+                                 BiConsumer<String, String> logoutTokenConsumer)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
+
+        List<LogoutTokenRequest> logoutTokenRequests = getLogoutTokenRequests(opbscookie, tenantDomain);
+        for (LogoutTokenRequest logoutTokenRequest : logoutTokenRequests) {
+            builders.execute(() -> {
+                try {
+                    logoutTokenConsumer.accept(logoutTokenRequest.build(), logoutTokenRequest.backChannelLogoutUrl);
+                } catch (IdentityOAuth2Exception e) {
+                    log.error("Error while building the logout token for the client: " +
+                            logoutTokenRequest.clientID, e);
+                }
+            });
+        }
+        return logoutTokenRequests.size();
+    }
+
+    /**
+     * Resolve everything the logout tokens of the session participants need from the session and the tenant, so
+     * that the builders do not depend on the session state or the carbon context of the calling thread.
+     */
+    private List<LogoutTokenRequest> getLogoutTokenRequests(String opbscookie, String tenantDomain)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
+
+        List<LogoutTokenRequest> logoutTokenRequests = new ArrayList<>();
+        OIDCSessionState sessionState = getSessionState(opbscookie, tenantDomain);
+        if (sessionState == null) {
+            return logoutTokenRequests;
+        }
+        String sub = sessionState.getAuthenticatedUser();
+        String sid = getSidClaim(sessionState);
+        String contextTenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        int contextTenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        Map<String, String> issuers = new HashMap<>();
+        for (String clientID : getSessionParticipants(sessionState)) {
+            OAuthAppDO oAuthAppDO = getOAuthAppDO(clientID);
+            String backChannelLogoutUrl = oAuthAppDO.getBackChannelLogoutUrl();
+            if (StringUtils.isBlank(backChannelLogoutUrl)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Client: " + clientID + " has no back-channel logout URL. Skipping the logout token.");
+                }
+                continue;
+            }
+            logoutTokenRequests.add(new LogoutTokenRequest(clientID, backChannelLogoutUrl,
+                    getIssuer(getTenanatDomain(oAuthAppDO), issuers), getSigningTenantDomain(oAuthAppDO), sub, sid,
+                    contextTenantDomain, contextTenantId));
+        }
+        return logoutTokenRequests;
+    }
+
+    private static ExecutorService getSharedBuilders() {
+
+        if (sharedBuilders == null) {
+            synchronized (ParallelLogoutTokenBuilder.class) {
+                if (sharedBuilders == null) {
+                    int poolSize = Math.max(1, readIntProperty(TOKEN_BUILDER_POOL_SIZE,
+                            Runtime.getRuntime().availableProcessors()));
+                    int queueSize = Math.max(1, readIntProperty(TOKEN_BUILDER_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+                    AtomicInteger threadCount = new AtomicInteger();
+                    sharedBuilders = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(queueSize), runnable -> {
+                        Thread thread = new Thread(runnable, "LogoutTokenBuilder-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (runnable, executor) -> runnable.run());
+                }
+            }
+        }
+        return sharedBuilders;
+    }
+
+    private static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for: " + property + ". Using the default value: " +
+                        defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Logout token of a session participant, with everything resolved on the calling thread.
+     */
+    private final class LogoutTokenRequest {
+
+        private final String clientID;
+        private final String backChannelLogoutUrl;
+        private final String issuer;
+        private final String signingTenantDomain;
+        private final String sub;
+        private final String sid;
+        private final String contextTenantDomain;
+        private final int contextTenantId;
+
+        private LogoutTokenRequest(String clientID, String backChannelLogoutUrl, String issuer,
+                                   String signingTenantDomain, String sub, String sid, String contextTenantDomain,
+                                   int contextTenantId) {
+
+            this.clientID = clientID;
+            this.backChannelLogoutUrl = backChannelLogoutUrl;
+            this.issuer = issuer;
+            this.signingTenantDomain = signingTenantDomain;
+            this.sub = sub;
+            this.sid = sid;
+            this.contextTenantDomain = contextTenantDomain;
+            this.contextTenantId = contextTenantId;
+        }
+
+        private String build() throws IdentityOAuth2Exception {
+
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                // The builders run with the tenant of the calling thread, as the signing keys are resolved in it.
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(contextTenantDomain);
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(contextTenantId);
+                String logoutToken = buildLogoutToken(sub, sid, issuer, clientID, signingTenantDomain);
+                if (log.isDebugEnabled()) {
+                    log.debug("Logout token created for the client: " + clientID);
+                }
+                return logoutToken;
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.wso2.carbon.identity.oauth.common.token.bindings.TokenBinderInfo;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oidc.session.OIDCInboundSessionContextMgtListener;
 import org.wso2.carbon.identity.oidc.session.OIDCSessionConstants;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.BackChannelLogoutDispatcher;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.ParallelLogoutTokenBuilder;
 import org.wso2.carbon.identity.oidc.session.backchannellogout.ClaimProviderImpl;
 import org.wso2.carbon.identity.oidc.session.handler.OIDCLogoutEventHandler;
 import org.wso2.carbon.identity.oidc.session.handler.OIDCLogoutHandler;
@@ -113,6 +115,8 @@ public class OIDCSessionManagementComponent {
 
     protected void deactivate(ComponentContext context) {
 
+        ParallelLogoutTokenBuilder.shutdownBuilders();
+        BackChannelLogoutDispatcher.shutdownInstance();
         if (log.isDebugEnabled()) {
             log.info("OIDC Session Management bundle is deactivated");
         }
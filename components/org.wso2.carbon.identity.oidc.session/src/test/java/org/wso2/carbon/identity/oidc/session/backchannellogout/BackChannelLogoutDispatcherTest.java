@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests BackChannelLogoutDispatcher against a local stub back-channel logout endpoint.
+ */
+public class BackChannelLogoutDispatcherTest {
+
+    private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+    private HttpServer server;
+    private String logoutUrl;
+    private AtomicInteger requestCount;
+    private List<String> requestBodies;
+    private volatile int failingRequests;
+    private volatile int failureStatus;
+    private volatile long responseDelayMillis;
+    private BackChannelLogoutDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        requestCount = new AtomicInteger();
+        requestBodies = new CopyOnWriteArrayList<>();
+        failingRequests = 0;
+        failureStatus = 503;
+        responseDelayMillis = 0;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logout", exchange -> {
+            int count = requestCount.incrementAndGet();
+            requestBodies.add(new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8)).readLine());
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(count <= failingRequests ? failureStatus : 200, -1);
+            exchange.close();
+        });
+        server.start();
+        logoutUrl = "http://localhost:" + server.getAddress().getPort() + "/logout";
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+
+        dispatcher = createDispatcher(1, 2, 10);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(dispatcher.dispatch("token" + i, logoutUrl));
+        }
+        waitUntilDrained();
+
+        assertEquals(requestCount.get(), 5);
+        assertTrue(requestBodies.contains("logout_token=token0"));
+        BackChannelLogoutDispatcher.EndpointMetrics metrics = dispatcher.getEndpointMetrics(logoutUrl);
+        assertEquals(metrics.getSuccessCount(), 5);
+        assertEquals(metrics.getFailureCount(), 0);
+        assertEquals(metrics.getRetryCount(), 0);
+    }
+
+    @Test
+    public void testRetryOnServerError() throws Exception {
+
+        failingRequests = 2;
+        dispatcher = createDispatcher(2, 2, 10);
+        dispatcher.dispatch("token", logoutUrl);
+        waitUntilDrained();
+
+        assertEquals(requestCount.get(), 3);
+        BackChannelLogoutDispatcher.EndpointMetrics metrics = dispatcher.getEndpointMetrics(logoutUrl);
+        assertEquals(metrics.getSuccessCount(), 1);
+        assertEquals(metrics.getRetryCount(), 2);
+        assertEquals(metrics.getFailureCount(), 0);
+    }
+
+    @Test
+    public void testFailureAfterRetries() throws Exception {
+
+        failingRequests = Integer.MAX_VALUE;
+        dispatcher = createDispatcher(1, 2, 10);
+        dispatcher.dispatch("token", logoutUrl);
+        waitUntilDrained();
+
+        assertEquals(requestCount.get(), 2);
+        assertEquals(dispatcher.getEndpointMetrics(logoutUrl).getFailureCount(), 1);
+    }
+
+    @Test
+    public void testNoRetryOnClientError() throws Exception {
+
+        failingRequests = Integer.MAX_VALUE;
+        failureStatus = 400;
+        dispatcher = createDispatcher(3, 2, 10);
+        dispatcher.dispatch("token", logoutUrl);
+        waitUntilDrained();
+
+        assertEquals(requestCount.get(), 1);
+        assertEquals(dispatcher.getEndpointMetrics(logoutUrl).getFailureCount(), 1);
+        assertEquals(dispatcher.getEndpointMetrics(logoutUrl).getRetryCount(), 0);
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+
+        responseDelayMillis = 500;
+        dispatcher = new BackChannelLogoutDispatcher(1, 1, 1, 0, 10, createHttpClient());
+        assertTrue(dispatcher.dispatch("token1", logoutUrl));
+        assertFalse(dispatcher.dispatch("token2", logoutUrl));
+        assertEquals(dispatcher.getRejectedRequestCount(), 1);
+        waitUntilDrained();
+        assertEquals(requestCount.get(), 1);
+    }
+
+    private BackChannelLogoutDispatcher createDispatcher(int maxRetries, int maxConcurrentRequestsPerUrl,
+                                                         long retryBackoffMillis) {
+
+        return new BackChannelLogoutDispatcher(4, 100, maxConcurrentRequestsPerUrl, maxRetries,
+                retryBackoffMillis, createHttpClient());
+    }
+
+    private CloseableHttpClient createHttpClient() {
+
+        return HttpClients.custom().setConnectionManager(new PoolingHttpClientConnectionManager()).build();
+    }
+
+    private void waitUntilDrained() throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+        while (dispatcher.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests ParallelLogoutTokenBuilder with the session state and the applications of the participants stubbed.
+ */
+@WithCarbonHome
+@PrepareForTest({OAuthServerConfiguration.class})
+public class ParallelLogoutTokenBuilderTest extends PowerMockTestCase {
+
+    private static final String OPBS_COOKIE = "090907ce-eab0-40d2-a46d-acd4bb33f0d0";
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String LOGOUT_URL = "https://rp.example.com/logout/";
+    private static final String NO_LOGOUT_URL_CLIENT = "client-without-logout-url";
+    private static final int PARTICIPANT_COUNT = 20;
+    private static final long TOKEN_BUILD_DELAY_MILLIS = 100;
+
+    @Mock
+    private OAuthServerConfiguration oAuthServerConfiguration;
+
+    private ExecutorService builders;
+    private Set<String> participants;
+    private AtomicInteger issuerLookupCount;
+    private Set<String> builderThreads;
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(OAuthServerConfiguration.class);
+        when(OAuthServerConfiguration.getInstance()).thenReturn(oAuthServerConfiguration);
+        when(oAuthServerConfiguration.getIdTokenSignatureAlgorithm()).thenReturn("SHA256withRSA");
+
+        builders = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100));
+        participants = new HashSet<>();
+        for (int i = 0; i < PARTICIPANT_COUNT; i++) {
+            participants.add("client-" + i);
+        }
+        participants.add(NO_LOGOUT_URL_CLIENT);
+        issuerLookupCount = new AtomicInteger();
+        builderThreads = ConcurrentHashMap.newKeySet();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        builders.shutdownNow();
+    }
+
+    @Test
+    public void testBuildLogoutTokenInParallel() throws Exception {
+
+        long start = System.nanoTime();
+        Map<String, String> logoutTokens = new StubLogoutTokenBuilder(10000).buildLogoutToken(OPBS_COOKIE,
+                TENANT_DOMAIN);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(logoutTokens.size(), PARTICIPANT_COUNT);
+        for (int i = 0; i < PARTICIPANT_COUNT; i++) {
+            assertEquals(logoutTokens.get("token-client-" + i), LOGOUT_URL + "client-" + i);
+        }
+        assertFalse(logoutTokens.containsKey("token-" + NO_LOGOUT_URL_CLIENT));
+        assertEquals(issuerLookupCount.get(), 1, "Issuer should be resolved once per tenant.");
+        assertTrue(builderThreads.size() > 1, "Tokens should be built on the builders.");
+        assertTrue(elapsedMillis < PARTICIPANT_COUNT * TOKEN_BUILD_DELAY_MILLIS,
+                "Tokens should be built in parallel, but took " + elapsedMillis + "ms.");
+    }
+
+    @Test
+    public void testBuildLogoutTokensWithoutWaiting() throws Exception {
+
+        Map<String, String> logoutTokens = new ConcurrentHashMap<>();
+        CountDownLatch built = new CountDownLatch(PARTICIPANT_COUNT);
+
+        long start = System.nanoTime();
+        int logoutTokenCount = new StubLogoutTokenBuilder(10000).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN,
+                (logoutToken, backChannelLogoutUrl) -> {
+                    logoutTokens.put(logoutToken, backChannelLogoutUrl);
+                    built.countDown();
+                });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(logoutTokenCount, PARTICIPANT_COUNT);
+        assertTrue(elapsedMillis < TOKEN_BUILD_DELAY_MILLIS, "Logout should not wait for the tokens, but took " +
+                elapsedMillis + "ms.");
+        assertTrue(built.await(10, TimeUnit.SECONDS), "Logout tokens were not built.");
+        assertEquals(logoutTokens.size(), PARTICIPANT_COUNT);
+        assertFalse(logoutTokens.containsKey("token-" + NO_LOGOUT_URL_CLIENT));
+    }
+
+    @Test
+    public void testBuildLogoutTokenSkipsFailedParticipant() throws Exception {
+
+        participants = new HashSet<>(Collections.singletonList("client-0"));
+        participants.add("failing-client");
+
+        Map<String, String> logoutTokens = new StubLogoutTokenBuilder(10000).buildLogoutToken(OPBS_COOKIE,
+                TENANT_DOMAIN);
+
+        assertEquals(logoutTokens.size(), 1);
+        assertEquals(logoutTokens.get("token-client-0"), LOGOUT_URL + "client-0");
+    }
+
+    /**
+     * Builder which reads the stubbed participants, and builds a token named after the client after a delay.
+     */
+    private class StubLogoutTokenBuilder extends ParallelLogoutTokenBuilder {
+
+        StubLogoutTokenBuilder(long tokenBuildTimeoutMillis) throws IdentityOAuth2Exception {
+
+            super(builders, tokenBuildTimeoutMillis);
+        }
+
+        @Override
+        OIDCSessionState getSessionState(String opbscookie, String tenantDomain) {
+
+            OIDCSessionState sessionState = new OIDCSessionState();
+            sessionState.setAuthenticatedUser("user");
+            sessionState.setSidClaim("sid");
+            sessionState.setSessionParticipants(participants);
+            return sessionState;
+        }
+
+        @Override
+        OAuthAppDO getOAuthAppDO(String clientID) {
+
+            OAuthAppDO oAuthAppDO = new OAuthAppDO();
+            oAuthAppDO.setOauthConsumerKey(clientID);
+            if (!NO_LOGOUT_URL_CLIENT.equals(clientID)) {
+                oAuthAppDO.setBackChannelLogoutUrl(LOGOUT_URL + clientID);
+            }
+            return oAuthAppDO;
+        }
+
+        @Override
+        String getTenanatDomain(OAuthAppDO oAuthAppDO) {
+
+            return TENANT_DOMAIN;
+        }
+
+        @Override
+        String getSigningTenantDomain(OAuthAppDO oAuthAppDO) {
+
+            return TENANT_DOMAIN;
+        }
+
+        @Override
+        String getIssuer(String tenantDomain) {
+
+            issuerLookupCount.incrementAndGet();
+            return "https://localhost:9443/oauth2/token";
+        }
+
+        @Override
+        String buildLogoutToken(String sub, String sid, String issuer, String clientID, String signingTenantDomain)
+                throws IdentityOAuth2Exception {
+
+            if ("failing-client".equals(clientID)) {
+                throw new IdentityOAuth2Exception("Signing failed.");
+            }
+            builderThreads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(TOKEN_BUILD_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "token-" + clientID;
+        }
+    }
+}
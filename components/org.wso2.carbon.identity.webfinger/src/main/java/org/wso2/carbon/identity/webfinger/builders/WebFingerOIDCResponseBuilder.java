@@ -21,6 +21,9 @@ package org.wso2.carbon.identity.webfinger.builders;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.ServerConfigurationException;
+import org.wso2.carbon.identity.discovery.DiscoveryUtil;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocument;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocumentCache;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.webfinger.WebFingerConstants;
@@ -29,6 +32,7 @@ import org.wso2.carbon.identity.webfinger.WebFingerRequest;
 import org.wso2.carbon.identity.webfinger.WebFingerResponse;
 
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
 import static org.wso2.carbon.identity.discovery.DiscoveryUtil.isUseEntityIdAsIssuerInOidcDiscovery;
 
@@ -58,6 +62,26 @@ public class WebFingerOIDCResponseBuilder {
 
     private String getOidcIssuerLocation(String tenantDomain) throws IdentityOAuth2Exception, URISyntaxException {
 
+        boolean isCacheEnabled = DiscoveryUtil.isDiscoveryCacheEnabled();
+        OIDCDiscoveryDocumentCache documentCache = OIDCDiscoveryDocumentCache.getInstance();
+        if (isCacheEnabled) {
+            OIDCDiscoveryDocument document = documentCache.getDocument(tenantDomain,
+                    WebFingerConstants.OIDC_ISSUER_LOCATION,
+                    TimeUnit.SECONDS.toMillis(DiscoveryUtil.getDiscoveryCacheMaxAge()));
+            if (document != null) {
+                return document.getContent();
+            }
+        }
+        String oidcIssuerLocation = buildOidcIssuerLocation(tenantDomain);
+        if (isCacheEnabled) {
+            documentCache.addDocument(tenantDomain, WebFingerConstants.OIDC_ISSUER_LOCATION,
+                    new OIDCDiscoveryDocument(oidcIssuerLocation));
+        }
+        return oidcIssuerLocation;
+    }
+
+    private String buildOidcIssuerLocation(String tenantDomain) throws IdentityOAuth2Exception, URISyntaxException {
+
         String oidcIssuerLocation;
         if (isUseEntityIdAsIssuerInOidcDiscovery()) {
             oidcIssuerLocation = OAuth2Util.getIssuerLocation(tenantDomain);
@@ -23,6 +23,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.wso2.carbon.base.ServerConfigurationException;
 import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.discovery.cache.OIDCDiscoveryDocumentCache;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.webfinger.WebFingerEndpointException;
@@ -64,6 +65,7 @@ public class WebFingerOIDCResponseBuilderTest extends PowerMockTestCase {
         webFingerRequest.setTenant(tenant);
 
         mockStatic(OAuth2Util.class);
+        OIDCDiscoveryDocumentCache.getInstance().clear();
     }
 
     @Test